@@ -0,0 +1,112 @@
+package com.versuchdrei.lumberjack.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.versuchdrei.lumberjack.Canopy;
+import com.versuchdrei.lumberjack.CanopyScanner;
+import com.versuchdrei.lumberjack.LeafDecayEngine;
+import com.versuchdrei.lumberjack.Metrics;
+import com.versuchdrei.lumberjack.Settings;
+import com.versuchdrei.lumberjack.Tree;
+import com.versuchdrei.lumberjack.TreeScanner;
+import com.versuchdrei.lumberjack.WorkGovernor;
+import com.versuchdrei.lumberjack.scheduler.LocalTaskScheduler;
+import com.versuchdrei.lumberjack.utils.LongHashSet;
+import com.versuchdrei.lumberjack.utils.PositionUtils;
+import com.versuchdrei.lumberjack.world.ArrayBlockAccess;
+
+/**
+ * collects the orphaned canopy of a felled synthetic tree, 
+ * as well as scheduling its canopy check and turning the timing wheel until it is done, 
+ * the world of the engine reports its chunks as unloaded, so the latter measures the scheduling and not the decay of the leaves
+ * @author VersuchDrei
+ * @version 1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+public class DecayBenchmark {
+	
+	// a full turn of the timing wheel
+	private static final int TICKS = 16;
+	
+	@Param({"OAK", "JUNGLE_2X2", "DARK_OAK", "GIANT_FUNGUS", "STRESS_10K"})
+	public SyntheticTree shape;
+	
+	private World world;
+	private long[] logs;
+	private ArrayBlockAccess felled;
+	private long[] seeds;
+	private CanopyScanner canopyScanner;
+	private LeafDecayEngine engine;
+	
+	@Setup(Level.Trial)
+	public void setup() {
+		this.world = UnloadedWorld.create();
+		this.felled = this.shape.create();
+		final Tree tree = new TreeScanner(20000, 32).scan(this.felled, this.world, 0, SyntheticTree.BASE_Y, 0, this.shape.getLogPredicate(), null);
+		this.logs = new long[tree.getSize()];
+		final int[] index = {0};
+		tree.getLogs().forEach(position -> this.logs[index[0]++] = position);
+		
+		// the canopy is seeded with everything around the felled logs, just like the engine does
+		final LongHashSet neighbors = new LongHashSet();
+		for(final long log: this.logs) {
+			final int x = PositionUtils.unpackX(log);
+			final int y = PositionUtils.unpackY(log);
+			final int z = PositionUtils.unpackZ(log);
+			this.felled.set(x, y, z, Material.AIR);
+			for(final long neighbor: CanopyScanner.neighborsOf(x, y, z)) {
+				neighbors.add(neighbor);
+			}
+		}
+		this.seeds = new long[neighbors.size()];
+		index[0] = 0;
+		neighbors.forEach(neighbor -> this.seeds[index[0]++] = neighbor);
+		this.canopyScanner = new CanopyScanner(Integer.MAX_VALUE);
+		
+		final Metrics metrics = new Metrics();
+		// no limits, the governor is never started and never renews its budget, an empty config has no limit on decays per tick either
+		final Settings settings = Settings.compile(null, new YamlConfiguration());
+		this.engine = new LeafDecayEngine(null, new LocalTaskScheduler(), new WorkGovernor(null, null, metrics, 0, 0, 50), metrics, () -> settings, null, true, 4096, false);
+	}
+	
+	@Benchmark
+	public Canopy collectCanopy() {
+		return this.canopyScanner.scan(this.felled, this.seeds, position -> false);
+	}
+	
+	@Benchmark
+	public Canopy computeCanopy() {
+		return this.canopyScanner.scanComputed(this.felled, this.seeds, position -> false, this.shape.getLogPredicate());
+	}
+	
+	@Benchmark
+	public int scheduleAndProcess() {
+		this.engine.decayCanopyAround(this.world, this.logs);
+		for(int i = 0; i < DecayBenchmark.TICKS; i++) {
+			this.engine.run();
+		}
+		return this.engine.getPending();
+	}
+
+}
@@ -0,0 +1,67 @@
+package com.versuchdrei.lumberjack.benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.versuchdrei.lumberjack.utils.BlockDistanceQueue;
+import com.versuchdrei.lumberjack.utils.PositionUtils;
+
+/**
+ * fills a queue with logs at random distances and polls all of them again
+ * @author VersuchDrei
+ * @version 1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+public class QueueBenchmark {
+	
+	@Param({"64", "1024", "10000"})
+	public int size;
+	
+	private long[] positions;
+	private int[] distances;
+	
+	@Setup(Level.Trial)
+	public void setup() {
+		final Random random = new Random(this.size);
+		this.positions = new long[this.size];
+		this.distances = new int[this.size];
+		for(int i = 0; i < this.size; i++) {
+			final int x = random.nextInt(64) - 32;
+			final int y = SyntheticTree.BASE_Y + random.nextInt(64);
+			final int z = random.nextInt(64) - 32;
+			this.positions[i] = PositionUtils.pack(x, y, z);
+			this.distances[i] = Math.abs(x) + Math.abs(y - SyntheticTree.BASE_Y) + Math.abs(z);
+		}
+	}
+	
+	@Benchmark
+	public void insertAndPoll(final Blackhole blackhole) {
+		final BlockDistanceQueue queue = new BlockDistanceQueue(null);
+		for(int i = 0; i < this.size; i++) {
+			queue.add(this.positions[i], this.distances[i]);
+		}
+		while(!queue.isEmpty()) {
+			blackhole.consume(queue.pollPosition());
+		}
+	}
+
+}
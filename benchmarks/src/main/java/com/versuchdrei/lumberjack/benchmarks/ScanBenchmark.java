@@ -0,0 +1,68 @@
+package com.versuchdrei.lumberjack.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+import org.bukkit.Material;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.versuchdrei.lumberjack.Tree;
+import com.versuchdrei.lumberjack.TreeScanner;
+import com.versuchdrei.lumberjack.world.ArrayBlockAccess;
+
+/**
+ * scans the connected logs of synthetic trees from the bottom of their trunk, 
+ * either probing all neighbors of every log or as limited by the shape of the tree
+ * @author VersuchDrei
+ * @version 1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+public class ScanBenchmark {
+	
+	// large enough for the stress structure to be scanned completely
+	private static final int MAX_LOGS = 20000;
+	private static final int MAX_RADIUS = 32;
+	
+	@Param({"OAK", "JUNGLE_2X2", "DARK_OAK", "GIANT_FUNGUS", "STRESS_10K"})
+	public SyntheticTree shape;
+	
+	@Param({"false", "true"})
+	public boolean shaped;
+	
+	private ArrayBlockAccess grid;
+	private Predicate<Material> predicate;
+	private TreeScanner scanner;
+	
+	@Setup(Level.Trial)
+	public void setup() {
+		this.grid = this.shape.create();
+		this.predicate = this.shape.getLogPredicate();
+		this.scanner = new TreeScanner(ScanBenchmark.MAX_LOGS, ScanBenchmark.MAX_RADIUS, this.shaped? SyntheticTree.getShapes() : null);
+		// a benchmark of an aborted scan would measure something else than intended
+		if(scan() == null) {
+			throw new IllegalStateException(this.shape + " exceeds the scan limits");
+		}
+	}
+	
+	@Benchmark
+	public Tree scan() {
+		return this.scanner.scan(this.grid, null, 0, SyntheticTree.BASE_Y, 0, this.predicate, null);
+	}
+
+}
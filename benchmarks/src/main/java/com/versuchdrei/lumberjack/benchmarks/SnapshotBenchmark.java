@@ -0,0 +1,128 @@
+package com.versuchdrei.lumberjack.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.versuchdrei.lumberjack.Tree;
+import com.versuchdrei.lumberjack.TreeScanner;
+import com.versuchdrei.lumberjack.scheduler.LocalTaskScheduler;
+import com.versuchdrei.lumberjack.scheduler.TaskScheduler;
+import com.versuchdrei.lumberjack.utils.PositionUtils;
+import com.versuchdrei.lumberjack.world.SnapshotBlockAccess;
+import com.versuchdrei.lumberjack.world.WorldBlockAccess;
+
+/**
+ * the work the thread owning a tree does for a scan, 
+ * either scanning the live world itself, taking snapshots of every chunk within the maximum radius for an async scan, 
+ * or only taking snapshots of the chunks an async scan asks for, 
+ * the trees either stand on the corner of four chunks or in the middle of one
+ * @author VersuchDrei
+ * @version 1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+public class SnapshotBenchmark {
+	
+	// large enough for the stress structure to be scanned completely
+	private static final int MAX_LOGS = 20000;
+	private static final int MAX_RADIUS = 32;
+	
+	@Param({"OAK", "JUNGLE_2X2", "DARK_OAK", "GIANT_FUNGUS", "STRESS_10K"})
+	public SyntheticTree shape;
+	
+	// 0 places the trunk on a chunk corner, 8 in the middle of a chunk
+	@Param({"0", "8"})
+	public int offset;
+	
+	private World world;
+	private TaskScheduler scheduler;
+	private Predicate<Material> predicate;
+	private TreeScanner scanner;
+	// the chunks the async scan asked for, in the order it asked for them
+	private long[] lazyChunks;
+	
+	@Setup(Level.Trial)
+	public void setup() {
+		this.world = SyntheticWorld.create(this.shape.create(), this.offset, this.offset, SyntheticTree.BASE_Y - 1);
+		this.scheduler = new LocalTaskScheduler();
+		this.predicate = this.shape.getLogPredicate();
+		this.scanner = new TreeScanner(SnapshotBenchmark.MAX_LOGS, SnapshotBenchmark.MAX_RADIUS, SyntheticTree.getShapes());
+		
+		final Tree tree = sync();
+		// a benchmark of an aborted scan would measure something else than intended
+		if(tree == null) {
+			throw new IllegalStateException(this.shape + " exceeds the scan limits");
+		}
+		
+		// runs the rounds of an async scan on this thread to find the chunks it asks for
+		final SnapshotBlockAccess access = new SnapshotBlockAccess(this.world);
+		final long[] chunks = new long[64];
+		int size = 0;
+		chunks[size++] = PositionUtils.packChunk(this.offset >> 4, this.offset >> 4);
+		access.capture(this.scheduler, this.offset >> 4, this.offset >> 4);
+		while(true) {
+			final long[] stoppedAt = {0};
+			final boolean[] stopped = {false};
+			final Tree result = this.scanner.scan(access, this.world, this.offset, SyntheticTree.BASE_Y, this.offset, this.predicate, chunk -> {
+				stopped[0] = true;
+				stoppedAt[0] = chunk;
+			});
+			if(!stopped[0]) {
+				if(result == null || result.getSize() != tree.getSize()) {
+					throw new IllegalStateException("the async scan of " + this.shape + " found another tree");
+				}
+				break;
+			}
+			
+			chunks[size++] = stoppedAt[0];
+			access.capture(this.scheduler, PositionUtils.unpackChunkX(stoppedAt[0]), PositionUtils.unpackChunkZ(stoppedAt[0]));
+		}
+		this.lazyChunks = new long[size];
+		System.arraycopy(chunks, 0, this.lazyChunks, 0, size);
+	}
+	
+	@Benchmark
+	public Tree sync() {
+		return this.scanner.scan(new WorldBlockAccess(this.world, this.scheduler), this.world, this.offset, SyntheticTree.BASE_Y, this.offset, this.predicate, null);
+	}
+	
+	@Benchmark
+	public SnapshotBlockAccess eager() {
+		final SnapshotBlockAccess access = new SnapshotBlockAccess(this.world);
+		for(int chunkX = (this.offset - SnapshotBenchmark.MAX_RADIUS) >> 4; chunkX <= (this.offset + SnapshotBenchmark.MAX_RADIUS) >> 4; chunkX++) {
+			for(int chunkZ = (this.offset - SnapshotBenchmark.MAX_RADIUS) >> 4; chunkZ <= (this.offset + SnapshotBenchmark.MAX_RADIUS) >> 4; chunkZ++) {
+				access.capture(this.scheduler, chunkX, chunkZ);
+			}
+		}
+		return access;
+	}
+	
+	@Benchmark
+	public SnapshotBlockAccess lazy() {
+		final SnapshotBlockAccess access = new SnapshotBlockAccess(this.world);
+		for(final long chunk : this.lazyChunks) {
+			access.capture(this.scheduler, PositionUtils.unpackChunkX(chunk), PositionUtils.unpackChunkZ(chunk));
+		}
+		return access;
+	}
+
+}
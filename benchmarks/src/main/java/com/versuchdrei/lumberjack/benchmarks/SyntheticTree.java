@@ -0,0 +1,220 @@
+package com.versuchdrei.lumberjack.benchmarks;
+
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.Predicate;
+
+import org.bukkit.Material;
+
+import com.versuchdrei.lumberjack.CanopyScanner;
+import com.versuchdrei.lumberjack.TreeShape;
+import com.versuchdrei.lumberjack.TreeShapes;
+import com.versuchdrei.lumberjack.world.ArrayBlockAccess;
+
+/**
+ * tree shapes built into an in memory block access, all trees stand on the origin at y 64, 
+ * random parts use a fixed seed so every run scans the very same blocks, 
+ * all leaves are orphaned as if the tree was felled already
+ * @author VersuchDrei
+ * @version 1.0
+ */
+public enum SyntheticTree {
+	
+	// a small 1x1 trunk with a round top
+	OAK(Material.OAK_LOG, new TreeShape("oak", TreeShape.Pattern.FULL, 17, 32, 1, EnumSet.of(Material.DIRT))) {
+		@Override
+		protected void build(final ArrayBlockAccess grid, final Random random) {
+			trunk(grid, 0, 0, 1, 6, Material.OAK_LOG);
+			blob(grid, 0, SyntheticTree.BASE_Y + 5, 0, 2, Material.OAK_LEAVES);
+		}
+	},
+	// a 2x2 trunk of 30 logs with four diagonal branches at the top
+	JUNGLE_2X2(Material.JUNGLE_LOG, new TreeShape("jungle", TreeShape.Pattern.FULL, 17, 40, 2, EnumSet.of(Material.DIRT))) {
+		@Override
+		protected void build(final ArrayBlockAccess grid, final Random random) {
+			trunk(grid, 0, 0, 2, 30, Material.JUNGLE_LOG);
+			final int top = SyntheticTree.BASE_Y + 29;
+			for(int branch = 0; branch < 4; branch++) {
+				final int directionX = (branch & 1) == 0? -1 : 1;
+				final int directionZ = (branch & 2) == 0? -1 : 1;
+				final int startX = directionX < 0? 0 : 1;
+				final int startZ = directionZ < 0? 0 : 1;
+				for(int i = 1; i <= 4; i++) {
+					grid.set(startX + directionX * i, top - 6 + i, startZ + directionZ * i, Material.JUNGLE_LOG);
+				}
+				blob(grid, startX + directionX * 4, top - 1, startZ + directionZ * 4, 2, Material.JUNGLE_LEAVES);
+			}
+			blob(grid, 0, top + 1, 0, 4, Material.JUNGLE_LEAVES);
+		}
+	},
+	// a short 2x2 trunk with crooked branches and a wide flat top
+	DARK_OAK(Material.DARK_OAK_LOG, new TreeShape("darkOak", TreeShape.Pattern.FULL, 13, 16, 2, EnumSet.of(Material.DIRT))) {
+		@Override
+		protected void build(final ArrayBlockAccess grid, final Random random) {
+			trunk(grid, 0, 0, 2, 8, Material.DARK_OAK_LOG);
+			for(int branch = 0; branch < 6; branch++) {
+				int x = random.nextInt(2);
+				int z = random.nextInt(2);
+				int y = SyntheticTree.BASE_Y + 4 + random.nextInt(3);
+				for(int i = 0; i < 3; i++) {
+					x += random.nextInt(3) - 1;
+					z += random.nextInt(3) - 1;
+					y += random.nextInt(2);
+					grid.set(x, y, z, Material.DARK_OAK_LOG);
+				}
+			}
+			for(int y = SyntheticTree.BASE_Y + 7; y <= SyntheticTree.BASE_Y + 9; y++) {
+				for(int x = -4; x <= 5; x++) {
+					for(int z = -4; z <= 5; z++) {
+						leafIfAir(grid, x, y, z, Material.DARK_OAK_LEAVES);
+					}
+				}
+			}
+		}
+	},
+	// a 3x3 stem of 25 blocks with a cap of wart blocks and shroomlights
+	GIANT_FUNGUS(Material.CRIMSON_STEM, new TreeShape("fungi", TreeShape.Pattern.ORTHOGONAL, 3, 32, 3, EnumSet.of(Material.DIRT))) {
+		@Override
+		protected void build(final ArrayBlockAccess grid, final Random random) {
+			trunk(grid, -1, -1, 3, 25, Material.CRIMSON_STEM);
+			final int top = SyntheticTree.BASE_Y + 24;
+			for(int y = top - 3; y <= top + 2; y++) {
+				final int radius = y <= top? 5 : 5 - (y - top) * 2;
+				for(int x = -radius; x <= radius; x++) {
+					for(int z = -radius; z <= radius; z++) {
+						final boolean shell = y > top || Math.abs(x) == radius || Math.abs(z) == radius;
+						if(shell) {
+							if(grid.getType(x, y, z) == Material.AIR) {
+								grid.set(x, y, z, random.nextInt(12) == 0? Material.SHROOMLIGHT : Material.NETHER_WART_BLOCK);
+							}
+						}
+					}
+				}
+			}
+		}
+	},
+	// a solid 22x22x21 block of logs, more than 10k connected logs, of their own type so no shape limits them
+	STRESS_10K(Material.STRIPPED_OAK_LOG, TreeShape.DEFAULT) {
+		@Override
+		protected void build(final ArrayBlockAccess grid, final Random random) {
+			for(int y = 0; y < 21; y++) {
+				for(int x = 0; x < 22; x++) {
+					for(int z = 0; z < 22; z++) {
+						grid.set(x, SyntheticTree.BASE_Y + y, z, Material.STRIPPED_OAK_LOG);
+					}
+				}
+			}
+		}
+	};
+	
+	public static final int BASE_Y = 64;
+	
+	private static final long SEED = 0x4C756D6265724AL;
+	private static final int GRID_RADIUS = 32;
+	private static final int GRID_HEIGHT = 64;
+	
+	private final Material log;
+	private final TreeShape shape;
+	
+	private SyntheticTree(final Material log, final TreeShape shape) {
+		this.log = log;
+		this.shape = shape;
+	}
+	
+	/**
+	 * builds the tree into a new block access
+	 */
+	public ArrayBlockAccess create() {
+		final ArrayBlockAccess grid = new ArrayBlockAccess(-SyntheticTree.GRID_RADIUS, SyntheticTree.BASE_Y - 1, -SyntheticTree.GRID_RADIUS, 
+				SyntheticTree.GRID_RADIUS * 2, SyntheticTree.GRID_HEIGHT, SyntheticTree.GRID_RADIUS * 2);
+		build(grid, new Random(SyntheticTree.SEED));
+		return grid;
+	}
+	
+	/**
+	 * @return a predicate matching the logs of the tree
+	 */
+	public Predicate<Material> getLogPredicate() {
+		final Material log = this.log;
+		return material -> material == log;
+	}
+	
+	/**
+	 * @return the synthetic tree closest to the trees of the given log, OAK for anything unknown
+	 */
+	public static SyntheticTree resembling(final Material log) {
+		if(log == null) {
+			return SyntheticTree.OAK;
+		}
+		
+		switch(log) {
+		case JUNGLE_LOG:
+			return SyntheticTree.JUNGLE_2X2;
+		case DARK_OAK_LOG:
+			return SyntheticTree.DARK_OAK;
+		case CRIMSON_STEM:
+		case WARPED_STEM:
+			return SyntheticTree.GIANT_FUNGUS;
+		default:
+			return SyntheticTree.OAK;
+		}
+	}
+	
+	/**
+	 * @return the shapes of all synthetic trees, for the same log the shape of the first tree wins
+	 */
+	public static TreeShapes getShapes() {
+		final Map<Material, TreeShape> shapes = new EnumMap<>(Material.class);
+		for(final SyntheticTree tree: SyntheticTree.values()) {
+			shapes.putIfAbsent(tree.log, tree.shape);
+		}
+		return TreeShapes.of(shapes);
+	}
+	
+	protected abstract void build(ArrayBlockAccess grid, Random random);
+	
+	/**
+	 * places an orphaned leaf at the given position if it is air
+	 */
+	private static void leafIfAir(final ArrayBlockAccess grid, final int x, final int y, final int z, final Material leaves) {
+		if(grid.getType(x, y, z) == Material.AIR) {
+			grid.setLeaf(x, y, z, leaves, CanopyScanner.ORPHANED_DISTANCE);
+		}
+	}
+	
+	/**
+	 * places a square trunk standing on dirt with its north west corner at the given position
+	 */
+	private static void trunk(final ArrayBlockAccess grid, final int x, final int z, final int width, final int height, final Material log) {
+		for(int offsetX = 0; offsetX < width; offsetX++) {
+			for(int offsetZ = 0; offsetZ < width; offsetZ++) {
+				grid.set(x + offsetX, SyntheticTree.BASE_Y - 1, z + offsetZ, Material.DIRT);
+			}
+		}
+		for(int y = 0; y < height; y++) {
+			for(int offsetX = 0; offsetX < width; offsetX++) {
+				for(int offsetZ = 0; offsetZ < width; offsetZ++) {
+					grid.set(x + offsetX, SyntheticTree.BASE_Y + y, z + offsetZ, log);
+				}
+			}
+		}
+	}
+	
+	/**
+	 * fills a sphere around the given position with leaves, without replacing logs
+	 */
+	private static void blob(final ArrayBlockAccess grid, final int centerX, final int centerY, final int centerZ, final int radius, final Material leaves) {
+		for(int x = -radius; x <= radius; x++) {
+			for(int y = -radius; y <= radius; y++) {
+				for(int z = -radius; z <= radius; z++) {
+					if(x * x + y * y + z * z <= radius * radius + 1) {
+						leafIfAir(grid, centerX + x, centerY + y, centerZ + z, leaves);
+					}
+				}
+			}
+		}
+	}
+
+}
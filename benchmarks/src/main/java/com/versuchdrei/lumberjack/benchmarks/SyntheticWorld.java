@@ -0,0 +1,215 @@
+package com.versuchdrei.lumberjack.benchmarks;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import org.bukkit.Chunk;
+import org.bukkit.ChunkSnapshot;
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.bukkit.block.Block;
+
+import com.versuchdrei.lumberjack.utils.LongObjectHashMap;
+import com.versuchdrei.lumberjack.utils.PositionUtils;
+import com.versuchdrei.lumberjack.world.ArrayBlockAccess;
+
+/**
+ * a stand in for a world without a server behind it that reads its blocks from an in memory block access, 
+ * the block access is shifted by an offset so the same tree can be placed anywhere within its chunks, 
+ * everything below the block access is stone so the chunks have the sections of a real ground, 
+ * every chunk is loaded and stores its sections packed to 4 bits per block like a small palette of a real chunk, 
+ * snapshots copy the non empty sections just like the server does, anything else is unsupported
+ * @author VersuchDrei
+ * @version 1.0
+ */
+public class SyntheticWorld {
+	
+	private static final UUID UID = new UUID(0, 2);
+	private static final int MAX_HEIGHT = 256;
+	private static final int SECTIONS = SyntheticWorld.MAX_HEIGHT >> 4;
+	// 4096 blocks per section at 4 bits each
+	private static final int SECTION_LONGS = 4096 * 4 / 64;
+	
+	private final ArrayBlockAccess grid;
+	private final int offsetX;
+	private final int offsetZ;
+	private final int groundY;
+	private final List<Material> palette = new ArrayList<>();
+	// the chunks are packed when they are first requested, like a chunk being loaded
+	private final LongObjectHashMap<Chunk> chunks = new LongObjectHashMap<>();
+	
+	private SyntheticWorld(final ArrayBlockAccess grid, final int offsetX, final int offsetZ, final int groundY) {
+		this.grid = grid;
+		this.offsetX = offsetX;
+		this.offsetZ = offsetZ;
+		this.groundY = groundY;
+		this.palette.add(Material.AIR);
+	}
+	
+	/**
+	 * @param grid the blocks of the world, everything outside it is air
+	 * @param offsetX the x coordinate the origin of the grid is placed at
+	 * @param offsetZ the z coordinate the origin of the grid is placed at
+	 * @param groundY the lowest y coordinate of the grid, everything below is stone
+	 * @return a world reading from the grid
+	 */
+	public static World create(final ArrayBlockAccess grid, final int offsetX, final int offsetZ, final int groundY) {
+		return new SyntheticWorld(grid, offsetX, offsetZ, groundY).proxy();
+	}
+	
+	private World proxy() {
+		final World[] world = {null};
+		world[0] = (World) Proxy.newProxyInstance(World.class.getClassLoader(), new Class<?>[] {World.class}, (proxy, method, args) -> {
+			switch(method.getName()) {
+			case "getUID":
+				return SyntheticWorld.UID;
+			case "getName":
+				return "SyntheticWorld";
+			case "getMaxHeight":
+				return SyntheticWorld.MAX_HEIGHT;
+			case "isChunkLoaded":
+				return true;
+			case "getBlockAt":
+				return block((int) args[0], (int) args[1], (int) args[2]);
+			case "getChunkAt":
+				return chunk(world[0], (int) args[0], (int) args[1]);
+			case "equals":
+				return proxy == args[0];
+			case "hashCode":
+				return System.identityHashCode(proxy);
+			case "toString":
+				return "SyntheticWorld";
+			default:
+				throw new UnsupportedOperationException(method.getName());
+			}
+		});
+		return world[0];
+	}
+	
+	private Material getType(final int x, final int y, final int z) {
+		if(y < this.groundY) {
+			return Material.STONE;
+		}
+		return this.grid.getType(x - this.offsetX, y, z - this.offsetZ);
+	}
+	
+	private Block block(final int x, final int y, final int z) {
+		return (Block) Proxy.newProxyInstance(Block.class.getClassLoader(), new Class<?>[] {Block.class}, (proxy, method, args) -> {
+			switch(method.getName()) {
+			case "getType":
+				return getType(x, y, z);
+			case "getX":
+				return x;
+			case "getY":
+				return y;
+			case "getZ":
+				return z;
+			default:
+				throw new UnsupportedOperationException(method.getName());
+			}
+		});
+	}
+	
+	private Chunk chunk(final World world, final int chunkX, final int chunkZ) {
+		final long key = PositionUtils.packChunk(chunkX, chunkZ);
+		Chunk chunk = this.chunks.get(key);
+		if(chunk == null) {
+			chunk = load(world, chunkX, chunkZ);
+			this.chunks.put(key, chunk);
+		}
+		return chunk;
+	}
+	
+	private Chunk load(final World world, final int chunkX, final int chunkZ) {
+		// the sections of the chunk, null for sections that only contain air
+		final long[][] sections = pack(chunkX, chunkZ);
+		return (Chunk) Proxy.newProxyInstance(Chunk.class.getClassLoader(), new Class<?>[] {Chunk.class}, (proxy, method, args) -> {
+			switch(method.getName()) {
+			case "getX":
+				return chunkX;
+			case "getZ":
+				return chunkZ;
+			case "getWorld":
+				return world;
+			case "isLoaded":
+				return true;
+			case "getChunkSnapshot":
+				return snapshot(chunkX, chunkZ, sections);
+			default:
+				throw new UnsupportedOperationException(method.getName());
+			}
+		});
+	}
+	
+	/**
+	 * packs the blocks of the given chunk to 4 bits per block
+	 */
+	private long[][] pack(final int chunkX, final int chunkZ) {
+		final long[][] sections = new long[SyntheticWorld.SECTIONS][];
+		for(int section = 0; section < SyntheticWorld.SECTIONS; section++) {
+			for(int index = 0; index < 4096; index++) {
+				final int x = (chunkX << 4) + (index & 15);
+				final int y = (section << 4) + (index >> 8);
+				final int z = (chunkZ << 4) + ((index >> 4) & 15);
+				final Material type = getType(x, y, z);
+				if(type == Material.AIR) {
+					continue;
+				}
+				
+				int id = this.palette.indexOf(type);
+				if(id < 0) {
+					id = this.palette.size();
+					// more than 16 materials don't fit into 4 bits -> the grid is too colorful for this world
+					if(id >= 16) {
+						throw new IllegalStateException("too many materials to pack");
+					}
+					this.palette.add(type);
+				}
+				
+				if(sections[section] == null) {
+					sections[section] = new long[SyntheticWorld.SECTION_LONGS];
+				}
+				sections[section][index >> 4] |= (long) id << ((index & 15) << 2);
+			}
+		}
+		return sections;
+	}
+	
+	private ChunkSnapshot snapshot(final int chunkX, final int chunkZ, final long[][] sections) {
+		final long[][] copy = new long[sections.length][];
+		for(int section = 0; section < sections.length; section++) {
+			if(sections[section] != null) {
+				copy[section] = sections[section].clone();
+			}
+		}
+		final Material[] palette = this.palette.toArray(new Material[0]);
+		
+		return (ChunkSnapshot) Proxy.newProxyInstance(ChunkSnapshot.class.getClassLoader(), new Class<?>[] {ChunkSnapshot.class}, (proxy, method, args) -> {
+			switch(method.getName()) {
+			case "getX":
+				return chunkX;
+			case "getZ":
+				return chunkZ;
+			case "getWorldName":
+				return "SyntheticWorld";
+			case "isSectionEmpty":
+				return copy[(int) args[0]] == null;
+			case "getBlockType":
+				final int x = (int) args[0];
+				final int y = (int) args[1];
+				final int z = (int) args[2];
+				final long[] section = copy[y >> 4];
+				if(section == null) {
+					return Material.AIR;
+				}
+				final int index = ((y & 15) << 8) | (z << 4) | x;
+				return palette[(int) (section[index >> 4] >>> ((index & 15) << 2)) & 15];
+			default:
+				throw new UnsupportedOperationException(method.getName());
+			}
+		});
+	}
+
+}
@@ -0,0 +1,245 @@
+package com.versuchdrei.lumberjack.benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Predicate;
+
+import org.bukkit.Material;
+import org.bukkit.World;
+
+import com.versuchdrei.lumberjack.Canopy;
+import com.versuchdrei.lumberjack.CanopyScanner;
+import com.versuchdrei.lumberjack.TraceReader;
+import com.versuchdrei.lumberjack.TraceRecorder;
+import com.versuchdrei.lumberjack.Tree;
+import com.versuchdrei.lumberjack.TreeScanner;
+import com.versuchdrei.lumberjack.utils.BlockDistanceQueue;
+import com.versuchdrei.lumberjack.utils.Histogram;
+import com.versuchdrei.lumberjack.utils.LongObjectHashMap;
+import com.versuchdrei.lumberjack.utils.PositionUtils;
+import com.versuchdrei.lumberjack.world.ArrayBlockAccess;
+
+/**
+ * replays a trace recorded by the TraceRecorder against synthetic trees, without a server, 
+ * so the felling and decay logic of different versions can be compared on the same workload
+ * 
+ * every 32x32 column of a recorded world that sees logs felled gets a synthetic tree of the felled kind, 
+ * felling breaks its logs furthest first like the plugin does and decays that spread collect the canopy around the last felled log, 
+ * a tree is planted anew once it is gone
+ * 
+ * usage: java -cp benchmarks.jar com.versuchdrei.lumberjack.benchmarks.TraceReplay &lt;trace&gt; [computed]
+ * @author VersuchDrei
+ * @version 1.0
+ */
+public class TraceReplay {
+	
+	private static final String OPTION_COMPUTED = "computed";
+	
+	private static final int CELL_SHIFT = 5;
+	private static final int MAX_LOGS = 20000;
+	private static final int MAX_RADIUS = 32;
+	private static final int MAX_CANOPY_SIZE = 4096;
+	private static final double NANOS_PER_MICRO = 1000;
+	private static final double NANOS_PER_MILLI = 1000000;
+	
+	/**
+	 * a synthetic tree standing in for the trees of a column of the recorded world
+	 */
+	private static class Instance {
+		private final ArrayBlockAccess grid;
+		private final Predicate<Material> logs;
+		private final Tree tree;
+		private long lastFelled;
+		
+		private Instance(final ArrayBlockAccess grid, final Predicate<Material> logs, final Tree tree) {
+			this.grid = grid;
+			this.logs = logs;
+			this.tree = tree;
+			this.lastFelled = PositionUtils.pack(0, SyntheticTree.BASE_Y, 0);
+		}
+	}
+	
+	private final World world = UnloadedWorld.create();
+	private final TreeScanner scanner = new TreeScanner(TraceReplay.MAX_LOGS, TraceReplay.MAX_RADIUS, SyntheticTree.getShapes());
+	private final CanopyScanner canopyScanner = new CanopyScanner(TraceReplay.MAX_CANOPY_SIZE);
+	private final boolean computed;
+	
+	private final Map<String, LongObjectHashMap<Instance>> instances = new HashMap<>();
+	private final Histogram breaks = new Histogram();
+	private final Histogram decays = new Histogram();
+	private final Histogram ticks = new Histogram();
+	private long logsFelled = 0;
+	private long leavesDecayed = 0;
+	
+	/**
+	 * @param computed whether to compute leaf distances instead of trusting the distances stored in the synthetic trees
+	 */
+	public TraceReplay(final boolean computed) {
+		this.computed = computed;
+	}
+	
+	public static void main(final String[] args) throws IOException {
+		if(args.length < 1) {
+			System.err.println("usage: TraceReplay <trace> [" + TraceReplay.OPTION_COMPUTED + "]");
+			System.exit(1);
+			return;
+		}
+		
+		final TraceReplay replay = new TraceReplay(args.length > 1 && TraceReplay.OPTION_COMPUTED.equals(args[1]));
+		final long start = System.nanoTime();
+		try(final TraceReader reader = new TraceReader(Paths.get(args[0]))) {
+			replay.replay(reader);
+		}
+		replay.report(System.nanoTime() - start);
+	}
+	
+	/**
+	 * replays all records of the given trace as fast as possible
+	 */
+	public void replay(final TraceReader reader) throws IOException {
+		int tick = Integer.MIN_VALUE;
+		long tickNanos = 0;
+		while(reader.next()) {
+			if(reader.getTick() != tick) {
+				if(tick != Integer.MIN_VALUE) {
+					this.ticks.record(tickNanos);
+				}
+				tick = reader.getTick();
+				tickNanos = 0;
+			}
+			
+			final long start = System.nanoTime();
+			if(reader.getKind() == TraceRecorder.KIND_BREAK) {
+				replayBreak(reader);
+				tickNanos += record(this.breaks, start);
+			} else {
+				replayDecay(reader);
+				tickNanos += record(this.decays, start);
+			}
+		}
+		if(tick != Integer.MIN_VALUE) {
+			this.ticks.record(tickNanos);
+		}
+	}
+	
+	/**
+	 * prints the time spent per kind of record and per tick
+	 * @param totalNanos the time the whole replay took
+	 */
+	public void report(final long totalNanos) {
+		final long records = this.breaks.getCount() + this.decays.getCount();
+		System.out.printf("%d records (%d breaks, %d decays) in %.1f ms, %.0f records/s%n", records, this.breaks.getCount(), this.decays.getCount(), 
+				totalNanos / TraceReplay.NANOS_PER_MILLI, records / (totalNanos / TraceReplay.NANOS_PER_MILLI / 1000));
+		System.out.printf("%d logs felled, %d leaves decayed%n", this.logsFelled, this.leavesDecayed);
+		print("break", this.breaks);
+		print("decay", this.decays);
+		print("tick", this.ticks);
+	}
+	
+	private static long record(final Histogram histogram, final long start) {
+		final long nanos = System.nanoTime() - start;
+		histogram.record(nanos);
+		return nanos;
+	}
+	
+	private static void print(final String name, final Histogram histogram) {
+		System.out.printf("%-5s mean %8.1f us  p50 %8.1f us  p99 %8.1f us  max %8.1f us%n", name, 
+				histogram.getMean() / TraceReplay.NANOS_PER_MICRO, histogram.getPercentile(0.5) / TraceReplay.NANOS_PER_MICRO, 
+				histogram.getPercentile(0.99) / TraceReplay.NANOS_PER_MICRO, histogram.getMax() / TraceReplay.NANOS_PER_MICRO);
+	}
+	
+	private void replayBreak(final TraceReader reader) {
+		final byte outcome = reader.getOutcome();
+		// nothing was felled on the server -> nothing to replay
+		if(outcome != TraceRecorder.OUTCOME_FELLED && outcome != TraceRecorder.OUTCOME_INSTANT && outcome != TraceRecorder.OUTCOME_VANILLA) {
+			return;
+		}
+		
+		final LongObjectHashMap<Instance> worldInstances = this.instances.computeIfAbsent(reader.getWorld(), name -> new LongObjectHashMap<>());
+		final long cell = cellOf(reader.getPosition());
+		Instance instance = worldInstances.get(cell);
+		if(instance == null) {
+			// a vanilla break of a block that has no tree -> nothing to replay
+			if(outcome == TraceRecorder.OUTCOME_VANILLA) {
+				return;
+			}
+			instance = plant(reader.getMaterial());
+			if(instance == null) {
+				return;
+			}
+			worldInstances.put(cell, instance);
+		}
+		
+		final BlockDistanceQueue queue = instance.tree.getQueue();
+		if(outcome == TraceRecorder.OUTCOME_INSTANT) {
+			while(!queue.isEmpty()) {
+				fell(instance, queue.pollPosition());
+			}
+		} else if(outcome == TraceRecorder.OUTCOME_FELLED) {
+			while(!queue.isLast() && !queue.isEmpty()) {
+				final long position = queue.pollPosition();
+				if(instance.logs.test(getType(instance, position))) {
+					fell(instance, position);
+					break;
+				}
+			}
+		}
+		
+		// the tree is gone -> the next felling in this column plants a new one
+		if(queue.isEmpty() || queue.isLast()) {
+			worldInstances.remove(cell);
+		}
+	}
+	
+	private void replayDecay(final TraceReader reader) {
+		// the leaves around were handled together on the server -> no extra work
+		if(reader.getOutcome() != TraceRecorder.OUTCOME_SPREAD) {
+			return;
+		}
+		
+		final LongObjectHashMap<Instance> worldInstances = this.instances.get(reader.getWorld());
+		final Instance instance = worldInstances == null? null : worldInstances.get(cellOf(reader.getPosition()));
+		if(instance == null) {
+			return;
+		}
+		
+		final long[] seeds = CanopyScanner.neighborsOf(PositionUtils.unpackX(instance.lastFelled), 
+				PositionUtils.unpackY(instance.lastFelled), PositionUtils.unpackZ(instance.lastFelled));
+		final Canopy canopy = this.computed? this.canopyScanner.scanComputed(instance.grid, seeds, position -> false, instance.logs) 
+				: this.canopyScanner.scan(instance.grid, seeds, position -> false);
+		final long[] leaves = canopy.getLeaves();
+		for(int i = 0; i < canopy.getSize(); i++) {
+			instance.grid.set(PositionUtils.unpackX(leaves[i]), PositionUtils.unpackY(leaves[i]), PositionUtils.unpackZ(leaves[i]), Material.AIR);
+		}
+		this.leavesDecayed += canopy.getSize();
+	}
+	
+	/**
+	 * builds and scans a synthetic tree resembling the trees of the given log
+	 * @return the planted tree, or null if its scan failed
+	 */
+	private Instance plant(final Material log) {
+		final SyntheticTree kind = SyntheticTree.resembling(log);
+		final ArrayBlockAccess grid = kind.create();
+		final Predicate<Material> logs = kind.getLogPredicate();
+		final Tree tree = this.scanner.scan(grid, this.world, 0, SyntheticTree.BASE_Y, 0, logs, null);
+		return tree == null? null : new Instance(grid, logs, tree);
+	}
+	
+	private void fell(final Instance instance, final long position) {
+		instance.grid.set(PositionUtils.unpackX(position), PositionUtils.unpackY(position), PositionUtils.unpackZ(position), Material.AIR);
+		instance.lastFelled = position;
+		this.logsFelled++;
+	}
+	
+	private static Material getType(final Instance instance, final long position) {
+		return instance.grid.getType(PositionUtils.unpackX(position), PositionUtils.unpackY(position), PositionUtils.unpackZ(position));
+	}
+	
+	private static long cellOf(final long position) {
+		return PositionUtils.packChunk(PositionUtils.unpackX(position) >> TraceReplay.CELL_SHIFT, PositionUtils.unpackZ(position) >> TraceReplay.CELL_SHIFT);
+	}
+
+}
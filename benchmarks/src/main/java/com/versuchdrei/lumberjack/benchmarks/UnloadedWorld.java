@@ -0,0 +1,39 @@
+package com.versuchdrei.lumberjack.benchmarks;
+
+import java.lang.reflect.Proxy;
+import java.util.UUID;
+
+import org.bukkit.World;
+
+/**
+ * a stand in for a world without a server behind it, 
+ * it has an id and reports every chunk as unloaded, anything else is unsupported
+ * @author VersuchDrei
+ * @version 1.0
+ */
+public class UnloadedWorld {
+	
+	private static final UUID UID = new UUID(0, 1);
+	
+	public static World create() {
+		return (World) Proxy.newProxyInstance(World.class.getClassLoader(), new Class<?>[] {World.class}, (proxy, method, args) -> {
+			switch(method.getName()) {
+			case "getUID":
+				return UnloadedWorld.UID;
+			case "getName":
+				return "UnloadedWorld";
+			case "isChunkLoaded":
+				return false;
+			case "equals":
+				return proxy == args[0];
+			case "hashCode":
+				return System.identityHashCode(proxy);
+			case "toString":
+				return "UnloadedWorld";
+			default:
+				throw new UnsupportedOperationException(method.getName());
+			}
+		});
+	}
+
+}
@@ -0,0 +1,149 @@
+package com.versuchdrei.lumberjack;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+import java.util.function.Predicate;
+import java.util.logging.Level;
+
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.bukkit.block.Block;
+import org.bukkit.plugin.Plugin;
+
+import com.versuchdrei.lumberjack.scheduler.TaskScheduler;
+import com.versuchdrei.lumberjack.utils.PositionUtils;
+import com.versuchdrei.lumberjack.world.SnapshotBlockAccess;
+
+/**
+ * runs tree scans on a worker pool against chunk snapshots, 
+ * so the thread owning the tree only pays for taking snapshots of the chunks the tree touches
+ * @author VersuchDrei
+ * @version 1.0
+ */
+public class AsyncTreeScanner {
+	
+	private final Plugin plugin;
+	private final TaskScheduler scheduler;
+	private final Metrics metrics;
+	private final ExecutorService executor;
+	
+	public AsyncTreeScanner(final Plugin plugin, final TaskScheduler scheduler, final Metrics metrics, final int threads) {
+		this.plugin = plugin;
+		this.scheduler = scheduler;
+		this.metrics = metrics;
+		
+		final AtomicInteger threadCount = new AtomicInteger();
+		final ThreadFactory factory = runnable -> {
+			final Thread thread = new Thread(runnable, "Lumberjack Scan Worker #" + threadCount.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		};
+		this.executor = Executors.newFixedThreadPool(Math.max(1, threads), factory);
+	}
+	
+	/**
+	 * snapshots the chunk of the source block and scans it on the worker pool, 
+	 * whenever the scan reaches a chunk that was not captured yet it hops back to take a snapshot of that chunk and resumes where it stopped, 
+	 * so the thread owning the tree only copies the chunks the tree actually touches and no block is scanned twice, 
+	 * has to be called on the thread owning the source block, chunks owned by other threads are left out like unloaded ones
+	 * @param scanner the scanner holding the tree limits to scan with
+	 * @param source the block that was broken
+	 * @param predicate a predicate to check if a material is applicable, has to be thread safe
+	 * @param callback called on the thread owning the source block with the scanned tree, or null if the structure exceeded the configured limits or reached an unloaded chunk
+	 * @param unloadedChunk called on the thread owning the source block before the callback with the packed chunk the scan stopped at if it reached an unloaded chunk
+	 */
+	public void submit(final TreeScanner scanner, final Block source, final Predicate<Material> predicate, final Consumer<Tree> callback, final LongConsumer unloadedChunk) {
+		final Scan scan = new Scan(scanner, source, predicate, callback, unloadedChunk);
+		scan.access.capture(this.scheduler, scan.x >> 4, scan.z >> 4);
+		execute(scan);
+	}
+	
+	public void shutdown() {
+		this.executor.shutdownNow();
+	}
+	
+	private void execute(final Scan scan) {
+		try {
+			this.executor.execute(() -> run(scan));
+		} catch(final RejectedExecutionException e) {
+			// the pool was shut down -> nothing to hand back
+		}
+	}
+	
+	/**
+	 * scans the captured chunks on a worker thread and hands the result back to the thread owning the source block
+	 */
+	private void run(final Scan scan) {
+		// the scan paused at a chunk that is not loaded, or at least not captured yet
+		boolean paused = false;
+		Tree tree = null;
+		final long start = System.nanoTime();
+		try {
+			paused = !scan.scan.run();
+			tree = scan.scan.getTree();
+		} catch(final RuntimeException e) {
+			this.plugin.getLogger().log(Level.WARNING, "tree scan failed", e);
+		}
+		scan.nanos += System.nanoTime() - start;
+		final boolean stopped = paused;
+		final Tree result = tree;
+		// the plugin got disabled while scanning -> the result is not needed anymore
+		if(!this.plugin.isEnabled()) {
+			return;
+		}
+		this.scheduler.runAt(scan.world, scan.x >> 4, scan.z >> 4, () -> {
+			final long stoppedAt = scan.scan.getPausedAt();
+			if(stopped) {
+				final int chunkX = PositionUtils.unpackChunkX(stoppedAt);
+				final int chunkZ = PositionUtils.unpackChunkZ(stoppedAt);
+				// the scan only paused because the chunk was not captured yet -> capture it and resume the scan
+				if(!scan.access.isCaptured(chunkX, chunkZ)) {
+					scan.access.capture(this.scheduler, chunkX, chunkZ);
+					execute(scan);
+					return;
+				}
+			}
+			
+			// the results are handed back on the thread owning the source block, the trees around it are only changed there
+			this.metrics.recordScan(scan.nanos, result == null? -1 : result.getSize());
+			if(stopped) {
+				scan.unloadedChunk.accept(stoppedAt);
+			}
+			scan.callback.accept(result);
+		});
+	}
+	
+	/**
+	 * the state of a scan that is handed between the thread owning the source block and the worker pool
+	 */
+	private static class Scan {
+		
+		private final World world;
+		private final int x;
+		private final int z;
+		private final Consumer<Tree> callback;
+		private final LongConsumer unloadedChunk;
+		private final SnapshotBlockAccess access;
+		// keeps what was scanned so far while the chunk it paused at is captured
+		private final TreeScanner.ResumableScan scan;
+		// the time spent scanning, summed up over all rounds
+		private long nanos = 0;
+		
+		private Scan(final TreeScanner scanner, final Block source, final Predicate<Material> predicate, final Consumer<Tree> callback, final LongConsumer unloadedChunk) {
+			this.world = source.getWorld();
+			this.x = source.getX();
+			this.z = source.getZ();
+			this.callback = callback;
+			this.unloadedChunk = unloadedChunk;
+			this.access = new SnapshotBlockAccess(this.world);
+			this.scan = scanner.resumable(this.access, this.world, this.x, source.getY(), this.z, predicate);
+		}
+		
+	}
+
+}
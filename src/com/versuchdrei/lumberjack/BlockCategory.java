@@ -0,0 +1,35 @@
+package com.versuchdrei.lumberjack;
+
+import org.bukkit.Material;
+import org.bukkit.Tag;
+
+/**
+ * a category of blocks that can be chopped, together with the tools that chop them
+ * @author VersuchDrei
+ * @version 1.0
+ */
+public class BlockCategory {
+	
+	private final String name;
+	private final Tag<Material> blocks;
+	private final Tag<Material> tools;
+	
+	public BlockCategory(final String name, final Tag<Material> blocks, final Tag<Material> tools) {
+		this.name = name;
+		this.blocks = blocks;
+		this.tools = tools;
+	}
+	
+	public String getName() {
+		return this.name;
+	}
+	
+	public Tag<Material> getBlocks() {
+		return this.blocks;
+	}
+	
+	public Tag<Material> getTools() {
+		return this.tools;
+	}
+
+}
@@ -0,0 +1,51 @@
+package com.versuchdrei.lumberjack;
+
+/**
+ * the result of a canopy scan, 
+ * the orphaned leaves that can decay right away and the supported leaves at the border that need to be checked again later
+ * @author VersuchDrei
+ * @version 1.0
+ */
+public class Canopy {
+	
+	private final long[] leaves;
+	private final int size;
+	private final long[] border;
+	private final int checked;
+	
+	Canopy(final long[] leaves, final int size, final long[] border, final int checked) {
+		this.leaves = leaves;
+		this.size = size;
+		this.border = border;
+		this.checked = checked;
+	}
+	
+	/**
+	 * @return the packed positions of the orphaned leaves, only the first getSize() entries are used
+	 */
+	public long[] getLeaves() {
+		return this.leaves;
+	}
+	
+	/**
+	 * @return the amount of orphaned leaves
+	 */
+	public int getSize() {
+		return this.size;
+	}
+	
+	/**
+	 * @return the packed positions of the leaves that are still supported as far as the server knows
+	 */
+	public long[] getBorder() {
+		return this.border;
+	}
+	
+	/**
+	 * @return the amount of blocks that were checked
+	 */
+	public int getChecked() {
+		return this.checked;
+	}
+
+}
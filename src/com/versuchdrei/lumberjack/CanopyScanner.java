@@ -0,0 +1,227 @@
+package com.versuchdrei.lumberjack;
+
+import java.util.Arrays;
+import java.util.function.LongPredicate;
+import java.util.function.Predicate;
+
+import org.bukkit.Material;
+
+import com.versuchdrei.lumberjack.utils.LongHashSet;
+import com.versuchdrei.lumberjack.utils.PositionUtils;
+import com.versuchdrei.lumberjack.world.BlockAccess;
+
+/**
+ * finds the orphaned leaves connected to a set of seed positions, 
+ * a leaf is orphaned if it is too far away from any log to stay, 
+ * either as the server considers it or as computed from the logs that are left
+ * @author VersuchDrei
+ * @version 1.0
+ */
+public class CanopyScanner {
+	
+	// the distance at which leaves decay
+	public static final int ORPHANED_DISTANCE = 7;
+	
+	private static final int[][] NEIGHBORS = {{0, 0, -1}, {1, 0, 0}, {0, 0, 1}, {-1, 0, 0}, {0, 1, 0}, {0, -1, 0}};
+	
+	private static final int INITIAL_CANOPY_SIZE = 64;
+	
+	// the distance a log has to itself
+	private static final int LOG_DISTANCE = 0;
+	
+	private final int maxCanopySize;
+	
+	/**
+	 * @param maxCanopySize the maximum amount of leaves to collect per scan, the rest is added to the border
+	 */
+	public CanopyScanner(final int maxCanopySize) {
+		this.maxCanopySize = maxCanopySize;
+	}
+	
+	/**
+	 * @param x the x coordinate of the removed block
+	 * @param y the y coordinate of the removed block
+	 * @param z the z coordinate of the removed block
+	 * @return the packed positions of the direct neighbors of the given position
+	 */
+	public static long[] neighborsOf(final int x, final int y, final int z) {
+		final long[] neighbors = new long[CanopyScanner.NEIGHBORS.length];
+		for(int i = 0; i < neighbors.length; i++) {
+			final int[] offset = CanopyScanner.NEIGHBORS[i];
+			neighbors[i] = PositionUtils.pack(x + offset[0], y + offset[1], z + offset[2]);
+		}
+		return neighbors;
+	}
+	
+	/**
+	 * collects the orphaned leaves connected to the seeds, this is safe to call from any thread as long as the block access is
+	 * @param access the block access to read the leaves from
+	 * @param seeds the packed positions to start from
+	 * @param skip positions that are already handled and are neither collected nor spread from
+	 * @return the orphaned leaves and the border of supported leaves
+	 */
+	public Canopy scan(final BlockAccess access, final long[] seeds, final LongPredicate skip) {
+		final LongHashSet visited = new LongHashSet();
+		final LongHashSet border = new LongHashSet();
+		long[] stack = Arrays.copyOf(seeds, Math.max(seeds.length, 1));
+		int stackSize = seeds.length;
+		long[] canopy = new long[CanopyScanner.INITIAL_CANOPY_SIZE];
+		int canopySize = 0;
+		
+		while(stackSize > 0) {
+			final long current = stack[--stackSize];
+			if(!visited.add(current)) {
+				continue;
+			}
+			
+			// too big for a single pass -> check the rest once this part is gone
+			if(canopySize >= this.maxCanopySize) {
+				border.add(current);
+				continue;
+			}
+			
+			if(skip.test(current)) {
+				continue;
+			}
+			
+			final int x = PositionUtils.unpackX(current);
+			final int y = PositionUtils.unpackY(current);
+			final int z = PositionUtils.unpackZ(current);
+			final int distance = access.getLeafDistance(x, y, z);
+			if(distance == BlockAccess.NOT_DECAYABLE) {
+				continue;
+			}
+			// the leaf is still supported, at least as far as the server knows yet
+			if(distance < CanopyScanner.ORPHANED_DISTANCE) {
+				border.add(current);
+				continue;
+			}
+			
+			if(canopySize == canopy.length) {
+				canopy = Arrays.copyOf(canopy, canopySize << 1);
+			}
+			canopy[canopySize++] = current;
+			
+			for(final int[] offset: CanopyScanner.NEIGHBORS) {
+				if(stackSize == stack.length) {
+					stack = Arrays.copyOf(stack, stackSize << 1);
+				}
+				stack[stackSize++] = PositionUtils.pack(x + offset[0], y + offset[1], z + offset[2]);
+			}
+		}
+		
+		final long[] borderPositions = new long[border.size()];
+		final int[] index = {0};
+		border.forEach(position -> borderPositions[index[0]++] = position);
+		return new Canopy(canopy, canopySize, borderPositions, visited.size());
+	}
+	
+	/**
+	 * collects the orphaned leaves connected to the seeds by computing their distance to the logs that are left, 
+	 * instead of waiting for the server to update the distances, this is safe to call from any thread as long as the block access is
+	 * 
+	 * only leaves at most six leaves away from the seeds can have lost their support, 
+	 * they are collected and a breadth first search from the logs next to them and the leaves around them computes their distances, 
+	 * the distances of the leaves around them can't have changed, so they are taken as the server knows them, 
+	 * leaves the server already considers orphaned are collected no matter how far away they are
+	 * @param access the block access to read the blocks from
+	 * @param seeds the packed positions next to the removed blocks
+	 * @param skip positions that are already handled and are treated as if they were gone
+	 * @param isLog a predicate to check if a material supports leaves
+	 * @return the orphaned leaves and the leaves that were too many to compute in a single pass
+	 */
+	public Canopy scanComputed(final BlockAccess access, final long[] seeds, final LongPredicate skip, final Predicate<Material> isLog) {
+		final LongHashSet visited = new LongHashSet();
+		final LongHashSet candidates = new LongHashSet();
+		final LongHashSet border = new LongHashSet();
+		// the positions to spread the distances from, by their distance to the next log
+		final LongHashSet[] sources = new LongHashSet[CanopyScanner.ORPHANED_DISTANCE];
+		for(int i = 0; i < sources.length; i++) {
+			sources[i] = new LongHashSet();
+		}
+		
+		// collect the candidates layer by layer, the seeds being the first layer
+		long[] layer = seeds;
+		int layerSize = seeds.length;
+		for(int depth = 1; layerSize > 0; depth++) {
+			long[] next = new long[Math.max(1, layerSize)];
+			int nextSize = 0;
+			for(int i = 0; i < layerSize; i++) {
+				final long current = layer[i];
+				if(!visited.add(current) || skip.test(current)) {
+					continue;
+				}
+				
+				final int x = PositionUtils.unpackX(current);
+				final int y = PositionUtils.unpackY(current);
+				final int z = PositionUtils.unpackZ(current);
+				// we can't look into unloaded chunks -> assume the worst, that there is a log
+				if(!access.isChunkLoaded(x >> 4, z >> 4) || isLog.test(access.getType(x, y, z))) {
+					sources[CanopyScanner.LOG_DISTANCE].add(current);
+					continue;
+				}
+				
+				final int distance = access.getLeafDistance(x, y, z);
+				if(distance == BlockAccess.NOT_DECAYABLE) {
+					continue;
+				}
+				
+				// too far from the removed blocks to have lost support -> the distance the server knows is still right
+				if(depth >= CanopyScanner.ORPHANED_DISTANCE && distance < CanopyScanner.ORPHANED_DISTANCE) {
+					sources[distance].add(current);
+					continue;
+				}
+				
+				// too many for a single pass -> keep the distance the server knows and check it again once the others are gone
+				if(candidates.size() >= this.maxCanopySize) {
+					if(distance < CanopyScanner.ORPHANED_DISTANCE) {
+						sources[distance].add(current);
+					}
+					border.add(current);
+					continue;
+				}
+				
+				candidates.add(current);
+				for(final int[] offset: CanopyScanner.NEIGHBORS) {
+					if(nextSize == next.length) {
+						next = Arrays.copyOf(next, nextSize << 1);
+					}
+					next[nextSize++] = PositionUtils.pack(x + offset[0], y + offset[1], z + offset[2]);
+				}
+			}
+			layer = next;
+			layerSize = nextSize;
+		}
+		
+		// spread the distances from the logs and the leaves around the candidates, candidates that are not reached are orphaned
+		final LongHashSet supported = new LongHashSet();
+		for(int distance = 0; distance < CanopyScanner.ORPHANED_DISTANCE - 1; distance++) {
+			final LongHashSet further = sources[distance + 1];
+			sources[distance].forEach(position -> {
+				final int x = PositionUtils.unpackX(position);
+				final int y = PositionUtils.unpackY(position);
+				final int z = PositionUtils.unpackZ(position);
+				for(final int[] offset: CanopyScanner.NEIGHBORS) {
+					final long neighbor = PositionUtils.pack(x + offset[0], y + offset[1], z + offset[2]);
+					if(candidates.contains(neighbor) && supported.add(neighbor)) {
+						further.add(neighbor);
+					}
+				}
+			});
+		}
+		
+		final long[] canopy = new long[Math.max(1, candidates.size() - supported.size())];
+		final int[] canopySize = {0};
+		candidates.forEach(position -> {
+			if(!supported.contains(position)) {
+				canopy[canopySize[0]++] = position;
+			}
+		});
+		
+		final long[] borderPositions = new long[border.size()];
+		final int[] index = {0};
+		border.forEach(position -> borderPositions[index[0]++] = position);
+		return new Canopy(canopy, canopySize[0], borderPositions, visited.size());
+	}
+
+}
@@ -0,0 +1,133 @@
+package com.versuchdrei.lumberjack;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.logging.Level;
+
+import org.bukkit.Chunk;
+import org.bukkit.World;
+import org.bukkit.plugin.Plugin;
+
+import com.versuchdrei.lumberjack.scheduler.TaskScheduler;
+import com.versuchdrei.lumberjack.utils.LongHashSet;
+import com.versuchdrei.lumberjack.utils.PositionUtils;
+
+/**
+ * handles scans that stopped at an unloaded chunk, 
+ * on servers that can load chunks asynchronously the chunk is loaded in the background and kept loaded for a while, 
+ * so the next scan of the same tree can see all of it, 
+ * other servers never load a chunk for a scan
+ * @author VersuchDrei
+ * @version 1.0
+ */
+public class ChunkLoader {
+	
+	private static final String METHOD_GET_CHUNK_AT_ASYNC = "getChunkAtAsync";
+	
+	// how long a chunk loaded for a scan stays loaded
+	private static final long TICKET_TICKS = 600;
+	
+	private final Plugin plugin;
+	private final TaskScheduler scheduler;
+	private final Metrics metrics;
+	// null if chunks are never loaded for scans
+	private final Method getChunkAtAsync;
+	// the chunks that are being loaded right now, guarded by the map since scans of every region report to it
+	private final Map<UUID, LongHashSet> loading = new HashMap<>();
+	
+	/**
+	 * @param plugin the plugin to load the chunks for
+	 * @param scheduler the scheduler to keep the loaded chunks with, by the thread owning them
+	 * @param metrics the metrics to count the unloaded chunks in
+	 * @param loadAsync whether to load the chunks asynchronously if the server supports it
+	 */
+	public ChunkLoader(final Plugin plugin, final TaskScheduler scheduler, final Metrics metrics, final boolean loadAsync) {
+		this.plugin = plugin;
+		this.scheduler = scheduler;
+		this.metrics = metrics;
+		this.getChunkAtAsync = loadAsync? findGetChunkAtAsync() : null;
+	}
+	
+	/**
+	 * @return the method to load a chunk asynchronously, or null if the server doesn't have one
+	 */
+	private static Method findGetChunkAtAsync() {
+		try {
+			return World.class.getMethod(ChunkLoader.METHOD_GET_CHUNK_AT_ASYNC, int.class, int.class);
+		} catch(final NoSuchMethodException e) {
+			return null;
+		}
+	}
+	
+	/**
+	 * @return true if chunks are loaded asynchronously for scans
+	 */
+	public boolean isLoadingAsync() {
+		return this.getChunkAtAsync != null;
+	}
+	
+	/**
+	 * called when a scan stopped at an unloaded chunk, or at a chunk owned by another thread, which is loaded already then
+	 * @param world the world of the chunk
+	 * @param chunk the packed coordinates of the chunk
+	 */
+	public void onUnloadedChunk(final World world, final long chunk) {
+		this.metrics.recordUnloadedChunk();
+		if(this.getChunkAtAsync == null) {
+			return;
+		}
+		
+		synchronized(this.loading) {
+			final LongHashSet loading = this.loading.computeIfAbsent(world.getUID(), uuid -> new LongHashSet());
+			// the chunk is already on its way -> nothing to do
+			if(!loading.add(chunk)) {
+				return;
+			}
+		}
+		this.metrics.recordChunkLoadRequest();
+		
+		try {
+			final CompletableFuture<?> future = (CompletableFuture<?>) this.getChunkAtAsync.invoke(world, PositionUtils.unpackChunkX(chunk), PositionUtils.unpackChunkZ(chunk));
+			future.whenComplete((result, error) -> {
+				// the plugin got disabled while loading -> nobody is left to keep the chunk loaded
+				if(!this.plugin.isEnabled()) {
+					return;
+				}
+				this.scheduler.runAt(world, PositionUtils.unpackChunkX(chunk), PositionUtils.unpackChunkZ(chunk), () -> onLoaded(world, chunk, result));
+			});
+		} catch(final IllegalAccessException | InvocationTargetException | ClassCastException e) {
+			this.plugin.getLogger().log(Level.WARNING, "could not load a chunk asynchronously", e);
+			onLoaded(world, chunk, null);
+		}
+	}
+	
+	/**
+	 * keeps the loaded chunk loaded for a while
+	 * @param result the loaded chunk, or something else if loading failed
+	 */
+	private void onLoaded(final World world, final long chunk, final Object result) {
+		synchronized(this.loading) {
+			final LongHashSet loading = this.loading.get(world.getUID());
+			if(loading != null) {
+				loading.remove(chunk);
+				if(loading.isEmpty()) {
+					this.loading.remove(world.getUID());
+				}
+			}
+		}
+		
+		if(!(result instanceof Chunk)) {
+			return;
+		}
+		
+		final Chunk loaded = (Chunk) result;
+		if(loaded.addPluginChunkTicket(this.plugin)) {
+			this.scheduler.runAtLater(world, loaded.getX(), loaded.getZ(), () -> loaded.removePluginChunkTicket(this.plugin), ChunkLoader.TICKET_TICKS);
+		}
+	}
+
+}
@@ -0,0 +1,182 @@
+package com.versuchdrei.lumberjack;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.Particle;
+import org.bukkit.Sound;
+import org.bukkit.SoundCategory;
+import org.bukkit.World;
+import org.bukkit.block.data.BlockData;
+import org.bukkit.entity.Player;
+import org.bukkit.plugin.Plugin;
+
+import com.versuchdrei.lumberjack.scheduler.TaskScheduler;
+import com.versuchdrei.lumberjack.utils.LongObjectHashMap;
+import com.versuchdrei.lumberjack.utils.PositionUtils;
+
+/**
+ * merges the sounds and particles of decaying leaves per chunk section and tick, 
+ * so a decaying canopy sends one sound and one capped particle burst per section instead of both for every leaf, 
+ * only to players close enough and within their packet budget, 
+ * which effects are shown follows the current settings of the world the leaves decay in, 
+ * the effects of a section are sent by the thread owning it, to the players it owns
+ * @author VersuchDrei
+ * @version 1.0
+ */
+public class DecayEffects implements Runnable {
+	
+	private static final float SOUND_VOLUME_PER_LEAF = 0.05f;
+	private static final float SOUND_MAX_VOLUME = 1f;
+	private static final float SOUND_PITCH = 1.2f;
+	private static final int PARTICLES_PER_LEAF = 8;
+	private static final double PARTICLE_MIN_SPREAD = 0.2;
+	
+	/**
+	 * the leaves that decayed in a single chunk section this tick
+	 */
+	private static class Section {
+		private final Material type;
+		private int count = 0;
+		private int minX = Integer.MAX_VALUE;
+		private int minY = Integer.MAX_VALUE;
+		private int minZ = Integer.MAX_VALUE;
+		private int maxX = Integer.MIN_VALUE;
+		private int maxY = Integer.MIN_VALUE;
+		private int maxZ = Integer.MIN_VALUE;
+		
+		private Section(final Material type) {
+			this.type = type;
+		}
+		
+		private void add(final int x, final int y, final int z) {
+			this.count++;
+			this.minX = Math.min(this.minX, x);
+			this.minY = Math.min(this.minY, y);
+			this.minZ = Math.min(this.minZ, z);
+			this.maxX = Math.max(this.maxX, x);
+			this.maxY = Math.max(this.maxY, y);
+			this.maxZ = Math.max(this.maxZ, z);
+		}
+	}
+	
+	private final Plugin plugin;
+	private final TaskScheduler scheduler;
+	private final Supplier<Settings> settings;
+	
+	// leaves decay on every region thread, so the sections of this tick are guarded by the map
+	private final Map<UUID, LongObjectHashMap<Section>> sections = new HashMap<>();
+	
+	/**
+	 * @param plugin the plugin to run the effects for
+	 * @param scheduler the scheduler to send the effects with
+	 * @param settings the current settings, deciding which effects to show, how far and how many
+	 */
+	public DecayEffects(final Plugin plugin, final TaskScheduler scheduler, final Supplier<Settings> settings) {
+		this.plugin = plugin;
+		this.scheduler = scheduler;
+		this.settings = settings;
+	}
+	
+	/**
+	 * starts sending the collected effects every tick
+	 */
+	public void start() {
+		this.scheduler.runGlobalTimer(this, 1, 1);
+	}
+	
+	/**
+	 * collects the effects of a leaf that decays this tick
+	 * @param world the world of the leaf
+	 * @param x the x coordinate of the leaf
+	 * @param y the y coordinate of the leaf
+	 * @param z the z coordinate of the leaf
+	 * @param type the type of the leaf
+	 */
+	public void add(final World world, final int x, final int y, final int z, final Material type) {
+		// leaves of this world decay silently -> nothing to collect
+		if(!this.settings.get().forWorld(world).hasLeafDecayEffects()) {
+			return;
+		}
+		
+		final long key = PositionUtils.pack(x >> 4, y >> 4, z >> 4);
+		synchronized(this.sections) {
+			final LongObjectHashMap<Section> worldSections = this.sections.computeIfAbsent(world.getUID(), uuid -> new LongObjectHashMap<>());
+			Section section = worldSections.get(key);
+			if(section == null) {
+				section = new Section(type);
+				worldSections.put(key, section);
+			}
+			section.add(x, y, z);
+		}
+	}
+	
+	@Override
+	public void run() {
+		final Map<UUID, LongObjectHashMap<Section>> sections;
+		// leaves decaying from now on belong to the next tick
+		synchronized(this.sections) {
+			if(this.sections.isEmpty()) {
+				return;
+			}
+			sections = new HashMap<>(this.sections);
+			this.sections.clear();
+		}
+		
+		final Settings settings = this.settings.get();
+		// the packets every player has left this tick, each player is only counted down by the thread owning them
+		final Map<UUID, int[]> budgets = new ConcurrentHashMap<>();
+		for(final Map.Entry<UUID, LongObjectHashMap<Section>> entry: sections.entrySet()) {
+			final World world = this.plugin.getServer().getWorld(entry.getKey());
+			// the world got unloaded meanwhile -> nobody to show the effects to
+			if(world == null) {
+				continue;
+			}
+			
+			final Settings.WorldSettings worldSettings = settings.forWorld(world);
+			// the key is the packed section, so its x and z are the chunk
+			entry.getValue().forEach((section, key) -> this.scheduler.runAt(world, PositionUtils.unpackX(key), PositionUtils.unpackZ(key), 
+					() -> show(world, section, settings, worldSettings, budgets)));
+		}
+	}
+	
+	/**
+	 * shows the merged effects of a section at the center of its decayed leaves
+	 */
+	private void show(final World world, final Section section, final Settings settings, final Settings.WorldSettings worldSettings, 
+			final Map<UUID, int[]> budgets) {
+		final double maxDistance = settings.getLeafDecayEffectDistance();
+		final int packetsPerTick = settings.getLeafDecayEffectPacketsPerTick() <= 0? Integer.MAX_VALUE : settings.getLeafDecayEffectPacketsPerTick();
+		final Location center = new Location(world, (section.minX + section.maxX + 1) / 2.0, 
+				(section.minY + section.maxY + 1) / 2.0, (section.minZ + section.maxZ + 1) / 2.0);
+		final float volume = Math.min(DecayEffects.SOUND_MAX_VOLUME, DecayEffects.SOUND_VOLUME_PER_LEAF * section.count);
+		final int particleCount = Math.min(settings.getLeafDecayMaxParticles(), DecayEffects.PARTICLES_PER_LEAF * section.count);
+		final double spreadX = Math.max(DecayEffects.PARTICLE_MIN_SPREAD, (section.maxX - section.minX) / 2.0);
+		final double spreadY = Math.max(DecayEffects.PARTICLE_MIN_SPREAD, (section.maxY - section.minY) / 2.0);
+		final double spreadZ = Math.max(DecayEffects.PARTICLE_MIN_SPREAD, (section.maxZ - section.minZ) / 2.0);
+		final BlockData data = section.type.createBlockData();
+		
+		for(final Player player: world.getPlayers()) {
+			// the player is too far away to notice or belongs to another thread -> cull
+			if(!this.scheduler.isOwned(player) || player.getLocation().distanceSquared(center) > maxDistance * maxDistance) {
+				continue;
+			}
+			
+			final int[] budget = budgets.computeIfAbsent(player.getUniqueId(), uuid -> new int[] {packetsPerTick});
+			if(worldSettings.isLeafDecaySound() && budget[0] > 0) {
+				player.playSound(center, Sound.BLOCK_GRASS_BREAK, SoundCategory.BLOCKS, volume, DecayEffects.SOUND_PITCH);
+				budget[0]--;
+			}
+			if(worldSettings.isLeafDecayParticles() && particleCount > 0 && budget[0] > 0) {
+				player.spawnParticle(Particle.BLOCK_DUST, center, particleCount, spreadX, spreadY, spreadZ, 0, data);
+				budget[0]--;
+			}
+		}
+	}
+
+}
@@ -0,0 +1,174 @@
+package com.versuchdrei.lumberjack;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.plugin.Plugin;
+
+import com.versuchdrei.lumberjack.scheduler.TaskScheduler;
+
+/**
+ * collects the drops of felled blocks per player for a short time and hands them out merged, 
+ * so a felled tree spawns one item per kind of drop instead of one item per log
+ * @author VersuchDrei
+ * @version 1.0
+ */
+public class DropAggregator {
+	
+	/**
+	 * the drops collected for a single player
+	 */
+	private static class PendingDrops {
+		private final List<ItemStack> stacks = new ArrayList<>();
+		private Location location;
+	}
+	
+	private final Plugin plugin;
+	private final TaskScheduler scheduler;
+	private final int windowTicks;
+	private final boolean toInventory;
+	
+	// the entries of a player are only touched by the thread owning the player, the map itself is shared by all threads
+	private final Map<UUID, PendingDrops> pending = new ConcurrentHashMap<>();
+	
+	/**
+	 * @param plugin the plugin to look up the players with
+	 * @param scheduler the scheduler to hand out the drops with, by the thread owning the player
+	 * @param windowTicks the amount of ticks to collect drops for before handing them out
+	 * @param toInventory whether to put the drops into the players inventory instead of dropping them
+	 */
+	public DropAggregator(final Plugin plugin, final TaskScheduler scheduler, final int windowTicks, final boolean toInventory) {
+		this.plugin = plugin;
+		this.scheduler = scheduler;
+		this.windowTicks = windowTicks;
+		this.toInventory = toInventory;
+	}
+	
+	/**
+	 * collects the given drops for the given player
+	 * @param player the player the drops belong to
+	 * @param drops the drops of a felled block, as given by the blocks drop table
+	 */
+	public void add(final Player player, final Collection<ItemStack> drops) {
+		final UUID uuid = player.getUniqueId();
+		PendingDrops pendingDrops = this.pending.get(uuid);
+		if(pendingDrops == null) {
+			pendingDrops = new PendingDrops();
+			this.pending.put(uuid, pendingDrops);
+			this.scheduler.runFor(player, () -> flush(uuid), () -> flushWhereLast(uuid), Math.max(1, this.windowTicks));
+		}
+		pendingDrops.location = player.getLocation();
+		
+		for(final ItemStack drop: drops) {
+			merge(pendingDrops.stacks, drop);
+		}
+	}
+	
+	/**
+	 * hands out all collected drops right away, used when the plugin gets disabled
+	 */
+	public void flushAll() {
+		for(final UUID uuid: new ArrayList<>(this.pending.keySet())) {
+			flush(uuid);
+		}
+	}
+	
+	/**
+	 * hands out the drops of a player who left by the thread owning the place they last felled at
+	 */
+	private void flushWhereLast(final UUID uuid) {
+		final PendingDrops pendingDrops = this.pending.get(uuid);
+		if(pendingDrops == null) {
+			return;
+		}
+		
+		final Location location = pendingDrops.location;
+		this.scheduler.runAt(location.getWorld(), location.getBlockX() >> 4, location.getBlockZ() >> 4, () -> flush(uuid));
+	}
+	
+	/**
+	 * hands out the drops of the given player right away, used when the player quits
+	 */
+	public void flush(final Player player) {
+		flush(player.getUniqueId());
+	}
+	
+	private void flush(final UUID uuid) {
+		final PendingDrops pendingDrops = this.pending.remove(uuid);
+		if(pendingDrops == null) {
+			return;
+		}
+		
+		final Player player = this.plugin.getServer().getPlayer(uuid);
+		// the player left in the meantime -> drop everything where they last felled
+		if(player == null || !player.isOnline()) {
+			dropAll(pendingDrops.location, pendingDrops.stacks);
+			return;
+		}
+		
+		final Location location = player.getLocation();
+		if(!this.toInventory) {
+			dropAll(location, pendingDrops.stacks);
+			return;
+		}
+		
+		final List<ItemStack> overflow = new ArrayList<>();
+		for(final ItemStack stack: split(pendingDrops.stacks)) {
+			overflow.addAll(player.getInventory().addItem(stack).values());
+		}
+		// leftovers of a stack might end up split over several stacks -> merge them again before dropping
+		final List<ItemStack> merged = new ArrayList<>();
+		for(final ItemStack stack: overflow) {
+			merge(merged, stack);
+		}
+		dropAll(location, merged);
+	}
+	
+	private static void dropAll(final Location location, final List<ItemStack> stacks) {
+		final World world = location.getWorld();
+		for(final ItemStack stack: split(stacks)) {
+			world.dropItemNaturally(location, stack);
+		}
+	}
+	
+	/**
+	 * adds the given stack to a similar stack in the list, or to the list itself if there is none, 
+	 * the amounts of the stacks in the list may exceed the maximum stack size
+	 */
+	private static void merge(final List<ItemStack> stacks, final ItemStack stack) {
+		for(final ItemStack existing: stacks) {
+			if(existing.isSimilar(stack)) {
+				existing.setAmount(existing.getAmount() + stack.getAmount());
+				return;
+			}
+		}
+		stacks.add(stack.clone());
+	}
+	
+	/**
+	 * @return the given stacks split into stacks of valid size
+	 */
+	private static List<ItemStack> split(final List<ItemStack> stacks) {
+		final List<ItemStack> result = new ArrayList<>();
+		for(final ItemStack stack: stacks) {
+			final int maxStackSize = Math.max(1, stack.getMaxStackSize());
+			int amount = stack.getAmount();
+			while(amount > 0) {
+				final ItemStack part = stack.clone();
+				part.setAmount(Math.min(amount, maxStackSize));
+				amount -= part.getAmount();
+				result.add(part);
+			}
+		}
+		return result;
+	}
+
+}
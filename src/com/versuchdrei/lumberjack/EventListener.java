@@ -1,26 +1,20 @@
 package com.versuchdrei.lumberjack;
 
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Map;
-import java.util.Map.Entry;
-import java.util.Optional;
-import java.util.Random;
-import java.util.Set;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Consumer;
 import java.util.function.Predicate;
+import java.util.logging.Level;
 
 import org.bukkit.Bukkit;
-import org.bukkit.Location;
 import org.bukkit.Material;
-import org.bukkit.NamespacedKey;
-import org.bukkit.Particle;
-import org.bukkit.Sound;
-import org.bukkit.SoundCategory;
 import org.bukkit.Tag;
-import org.bukkit.World;
 import org.bukkit.block.Block;
-import org.bukkit.block.BlockFace;
-import org.bukkit.block.data.type.Leaves;
+import org.bukkit.block.BlockState;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.InvalidConfigurationException;
 import org.bukkit.configuration.file.FileConfiguration;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
@@ -28,79 +22,259 @@ import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
 import org.bukkit.event.block.Action;
 import org.bukkit.event.block.BlockBreakEvent;
+import org.bukkit.event.block.BlockBurnEvent;
+import org.bukkit.event.block.BlockPlaceEvent;
 import org.bukkit.event.block.LeavesDecayEvent;
 import org.bukkit.event.player.PlayerInteractEvent;
 import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.event.world.ChunkUnloadEvent;
+import org.bukkit.event.world.StructureGrowEvent;
 import org.bukkit.inventory.EquipmentSlot;
 import org.bukkit.inventory.ItemStack;
-import org.bukkit.metadata.FixedMetadataValue;
-import org.bukkit.scheduler.BukkitRunnable;
 
+import com.versuchdrei.lumberjack.scheduler.TaskScheduler;
 import com.versuchdrei.lumberjack.utils.BlockDistanceQueue;
-import com.versuchdrei.lumberjack.utils.ItemUtils;
-import com.versuchdrei.lumberjack.utils.MaterialTag;
-import com.versuchdrei.lumberjack.utils.MetadataUtils;
+import com.versuchdrei.lumberjack.utils.RegionMap;
 
 import net.md_5.bungee.api.ChatColor;
 
 /**
  * the event listener of the Lumberjack plugin, 
  * handles tree/leave breaking and applies the lumberjack mechanic
+ * 
+ * the events of a regionised server are called on the thread of the region they happen in, 
+ * so the state the handlers share is split by region or player and guards itself, 
+ * breaks of blocks the plugin has no interest in return before touching any of it
  * @author VersuchDrei
  * @version 1.0
  */
 public class EventListener implements Listener{
 	
-	private static final String NAMESPACED_KEY = "skitskurr_lumberjack";
+	// the settings that can be reloaded are read by Settings, these only apply on restart
+	private static final String CONFIG_KEY_ASYNC_SCAN = "asyncScan";
+	private static final String CONFIG_KEY_ASYNC_SCAN_THREADS = "asyncScanThreads";
+	private static final String CONFIG_KEY_TREE_CACHE_TTL = "treeCacheTtl";
+	private static final String CONFIG_KEY_TREE_CACHE_MAX_LOGS = "treeCacheMaxLogs";
+	private static final String CONFIG_KEY_CANOPY_DECAY = "canopyDecay";
+	private static final String CONFIG_KEY_DROP_WINDOW_TICKS = "dropWindowTicks";
+	private static final String CONFIG_KEY_DROPS_TO_INVENTORY = "dropsToInventory";
+	private static final String CONFIG_KEY_WORK_BUDGET_BLOCKS = "workBudgetBlocks";
+	private static final String CONFIG_KEY_WORK_BUDGET_NANOS = "workBudgetNanos";
+	private static final String CONFIG_KEY_WORK_BUDGET_TARGET_MSPT = "workBudgetTargetMspt";
+	private static final String CONFIG_KEY_MAX_CANOPY_SIZE = "maxCanopySize";
+	private static final String CONFIG_KEY_COMPUTE_LEAF_DISTANCE = "computeLeafDistance";
+	private static final String CONFIG_KEY_INSTANT_FELL = "instantFell";
+	private static final String CONFIG_KEY_INSTANT_FELL_BLOCKS_PER_TICK = "instantFellBlocksPerTick";
+	private static final String CONFIG_KEY_PROTECTION_MODE = "protectionMode";
+	private static final String CONFIG_KEY_PROTECTION_CACHE_MILLIS = "protectionCacheMillis";
+	private static final String CONFIG_KEY_LOAD_CHUNKS_ASYNC = "loadChunksAsync";
+	private static final String CONFIG_KEY_GROWTH_INDEX = "growthIndex";
+	private static final String CONFIG_KEY_METRICS_DUMP_INTERVAL = "metricsDumpInterval";
+	private static final String CONFIG_KEY_METRICS_DUMP_FORMAT = "metricsDumpFormat";
+	private static final String CONFIG_KEY_TRACE_FILE = "traceFile";
 	
-	private static final String CONFIG_KEY_ACTIVE_ON_JOIN = "activeOnJoin";
-	private static final String CONFIG_KEY_USE_PERMISSIONS = "usePermissions";
-	private static final String CONFIG_KEY_FAST_LEAF_DECAY = "fastLeafDecay";
-	private static final String CONFIG_KEY_LEAF_DECAY_SOUND = "leafDecaySound";
-	private static final String CONFIG_KEY_LEAF_DECAY_PARTICLES = "leafDecayParticles";
+	private static final String PERMISSION_LUMBERJACK = "skitskurr.lumberjack";
 	
-	private static final String METADATA_KEY_LUMBER_MODE = "lumberMode";
-	private static final String METADATA_KEY_LUMBER_QUEUE = "lumberQueue";
-	private static final String METADATA_KEY_LEAF_DECAY = "leafDecay";
-	private static final String METADATA_KEY_RECURSION_FLAG = "recursionFlag";
+	private static final long TREE_CACHE_EVICTION_INTERVAL = 200;
 	
-	private static final String PERMISSION_LUMBERJACK = "skitskurr.lumberjack";
+	/**
+	 * a tree scan running in the background, along with the blocks that were hit near it meanwhile
+	 */
+	private static class PendingScan {
+		private final Block source;
+		private final Tag<Material> type;
+		private final List<Block> waiting = new ArrayList<>();
+		
+		private PendingScan(final Block source, final Tag<Material> type) {
+			this.source = source;
+			this.type = type;
+		}
+		
+		/**
+		 * @return true if the given block of the given type could be part of the tree that is scanned
+		 */
+		private boolean isInReach(final Block block, final Tag<Material> type, final int radius) {
+			return type == this.type && block.getWorld().equals(this.source.getWorld()) 
+					&& Math.abs(block.getX() - this.source.getX()) <= radius && Math.abs(block.getZ() - this.source.getZ()) <= radius;
+		}
+	}
 	
-	private static final BlockFace[] NEIGHBORS = {BlockFace.NORTH, BlockFace.NORTH_EAST, BlockFace.EAST, BlockFace.SOUTH_EAST, BlockFace.SOUTH, BlockFace.SOUTH_WEST, BlockFace.WEST, BlockFace.NORTH_WEST};
-	private static final BlockFace[] LEAF_NEIGHBORS = {BlockFace.NORTH, BlockFace.EAST, BlockFace.SOUTH, BlockFace.WEST, BlockFace.UP, BlockFace.DOWN};
+	/**
+	 * the tree scans running in the background that started in a single region
+	 */
+	private static class PendingScans extends RegionMap.Region {
+		private final List<PendingScan> scans = new ArrayList<>();
+		
+		@Override
+		public boolean isEmpty() {
+			return this.scans.isEmpty();
+		}
+		
+		/**
+		 * lets the given block wait for a scan within reach of it
+		 * @return true if there is such a scan
+		 */
+		private boolean join(final Block block, final Tag<Material> type, final int radius) {
+			for(final PendingScan pending: this.scans) {
+				if(pending.isInReach(block, type, radius)) {
+					if(!pending.waiting.contains(block)) {
+						pending.waiting.add(block);
+					}
+					return true;
+				}
+			}
+			return false;
+		}
+	}
 	
 	private final Main plugin;
+	private final TaskScheduler scheduler;
 	
-	private final boolean activeOnJoin;
-	private final boolean usePermissions;
-	private final boolean fastLeafDecay;
-	private final boolean leafDecaySound;
-	private final boolean leafDecayParticles;
-	
+	// swapped as a whole on reload, read once per event so an event never sees two different snapshots
+	private volatile Settings settings;
 	
-	private final Map<Tag<Material>, Tag<Material>> toolList = new HashMap<>();
+	private final Metrics metrics = new Metrics();
+	private final PlayerStateStore playerStates;
+	private final WorkGovernor governor;
+	private final ChunkLoader chunkLoader;
+	// null if scans are done on the main thread
+	private final AsyncTreeScanner asyncScanner;
+	// by the region of their source block
+	private final RegionMap<PendingScans> pendingScans = new RegionMap<>(PendingScans::new);
+	private final TreeRegistry treeRegistry;
+	// null if grown trees are scanned like any other tree
+	private final GrowthIndex growthIndex;
+	private final LeafDecayEngine decayEngine;
+	private final DropAggregator drops;
+	private final ToolWear wear;
+	private final ProtectionChecker protection;
+	// null if trees are felled log by log
+	private final InstantFeller instantFeller;
+	// null if no trace is recorded
+	private final TraceRecorder trace;
 	
-	public EventListener(final Main plugin) {
+	public EventListener(final Main plugin, final TaskScheduler scheduler) {
 		this.plugin = plugin;
+		this.scheduler = scheduler;
 		
 		final FileConfiguration config = plugin.getConfig();
-		this.activeOnJoin = config.getBoolean(EventListener.CONFIG_KEY_ACTIVE_ON_JOIN);
-		this.usePermissions = config.getBoolean(EventListener.CONFIG_KEY_USE_PERMISSIONS);
-		this.fastLeafDecay = config.getBoolean(EventListener.CONFIG_KEY_FAST_LEAF_DECAY);
-		this.leafDecaySound = config.getBoolean(EventListener.CONFIG_KEY_LEAF_DECAY_SOUND);
-		this.leafDecayParticles = config.getBoolean(EventListener.CONFIG_KEY_LEAF_DECAY_PARTICLES);
-		
-		final NamespacedKey key = new NamespacedKey(plugin, EventListener.NAMESPACED_KEY);
-		final MaterialTag tagAxes = new MaterialTag(key, new Material[] {Material.WOODEN_AXE, Material.STONE_AXE,
-				Material.IRON_AXE, Material.GOLDEN_AXE, Material.DIAMOND_AXE, Material.NETHERITE_AXE});
-		final MaterialTag tagHoes = new MaterialTag(key, new Material[] {Material.WOODEN_HOE, Material.STONE_HOE,
-				Material.IRON_HOE, Material.GOLDEN_HOE, Material.DIAMOND_HOE, Material.NETHERITE_HOE});
-		final MaterialTag tagWartBlocks = new MaterialTag(key, new Material[] {Material.NETHER_WART_BLOCK, Material.WARPED_WART_BLOCK});
-		final MaterialTag tagShears = new MaterialTag(key, new Material[] {Material.SHEARS});
-		
-		toolList.put(Tag.LOGS, tagAxes);
-		toolList.put(tagWartBlocks, tagHoes);
-		toolList.put(Tag.LEAVES, tagShears);
+		this.settings = Settings.compile(plugin, config);
+		this.playerStates = new PlayerStateStore(plugin, () -> this.settings.isActiveOnJoin());
+		// players who are already online when the plugin gets enabled don't join again
+		for(final Player player: Bukkit.getOnlinePlayers()) {
+			if(permissionCheck(this.settings, player)) {
+				this.playerStates.load(player);
+			}
+		}
+		
+		// started first, so the budget is renewed before anything else of the plugin runs in a tick
+		this.governor = new WorkGovernor(plugin, scheduler, this.metrics, config.getInt(EventListener.CONFIG_KEY_WORK_BUDGET_BLOCKS), 
+				config.getLong(EventListener.CONFIG_KEY_WORK_BUDGET_NANOS), config.getDouble(EventListener.CONFIG_KEY_WORK_BUDGET_TARGET_MSPT));
+		this.governor.start();
+		
+		this.chunkLoader = new ChunkLoader(plugin, scheduler, this.metrics, config.getBoolean(EventListener.CONFIG_KEY_LOAD_CHUNKS_ASYNC));
+		this.asyncScanner = config.getBoolean(EventListener.CONFIG_KEY_ASYNC_SCAN)? 
+				new AsyncTreeScanner(plugin, scheduler, this.metrics, config.getInt(EventListener.CONFIG_KEY_ASYNC_SCAN_THREADS)) : null;
+		this.treeRegistry = new TreeRegistry(config.getInt(EventListener.CONFIG_KEY_TREE_CACHE_TTL), config.getInt(EventListener.CONFIG_KEY_TREE_CACHE_MAX_LOGS));
+		this.growthIndex = config.getBoolean(EventListener.CONFIG_KEY_GROWTH_INDEX)? new GrowthIndex(plugin, scheduler, this.settings.getDefaults().getScanner().getMaxLogs()) : null;
+		
+		// trees that were abandoned while felling them are evicted once their time to live is over
+		scheduler.runGlobalTimer(this.treeRegistry::evictExpired, EventListener.TREE_CACHE_EVICTION_INTERVAL, EventListener.TREE_CACHE_EVICTION_INTERVAL);
+		
+		// always running, as a reload may turn on effects in any world
+		final DecayEffects effects = new DecayEffects(plugin, scheduler, () -> this.settings);
+		effects.start();
+		this.decayEngine = new LeafDecayEngine(plugin, scheduler, this.governor, this.metrics, () -> this.settings, 
+				effects, config.getBoolean(EventListener.CONFIG_KEY_CANOPY_DECAY), config.getInt(EventListener.CONFIG_KEY_MAX_CANOPY_SIZE), 
+				config.getBoolean(EventListener.CONFIG_KEY_COMPUTE_LEAF_DISTANCE));
+		this.decayEngine.start();
+		
+		this.wear = new ToolWear(plugin, scheduler);
+		this.drops = new DropAggregator(plugin, scheduler, config.getInt(EventListener.CONFIG_KEY_DROP_WINDOW_TICKS), config.getBoolean(EventListener.CONFIG_KEY_DROPS_TO_INVENTORY));
+		this.protection = new ProtectionChecker(plugin, this.metrics, ProtectionChecker.parseMode(plugin.getLogger(), config.getString(EventListener.CONFIG_KEY_PROTECTION_MODE)), 
+				config.getLong(EventListener.CONFIG_KEY_PROTECTION_CACHE_MILLIS));
+		if(config.getBoolean(EventListener.CONFIG_KEY_INSTANT_FELL)) {
+			this.instantFeller = new InstantFeller(scheduler, this.governor, this.drops, this.wear, this.decayEngine, 
+					() -> this.settings, this.protection, this.treeRegistry, config.getInt(EventListener.CONFIG_KEY_INSTANT_FELL_BLOCKS_PER_TICK));
+		} else {
+			this.instantFeller = null;
+		}
+		
+		final int metricsDumpInterval = config.getInt(EventListener.CONFIG_KEY_METRICS_DUMP_INTERVAL);
+		if(metricsDumpInterval > 0) {
+			new MetricsDumper(plugin, scheduler, this.metrics, config.getString(EventListener.CONFIG_KEY_METRICS_DUMP_FORMAT)).start(metricsDumpInterval);
+		}
+		final String traceFile = config.getString(EventListener.CONFIG_KEY_TRACE_FILE);
+		if(traceFile != null && !traceFile.isEmpty()) {
+			this.trace = new TraceRecorder(plugin, scheduler, traceFile);
+			this.trace.start();
+		} else {
+			this.trace = null;
+		}
+	}
+	
+	/**
+	 * reads the config file again off the main thread and swaps in the new settings once they are compiled on the global thread, 
+	 * the settings that set up the background work of the plugin only apply after a restart
+	 * @param callback called on the global thread with true if the new settings are in place, false if the config could not be read
+	 */
+	public void reload(final Consumer<Boolean> callback) {
+		this.scheduler.runAsync(() -> {
+			ConfigurationSection config;
+			try {
+				config = Settings.read(this.plugin);
+			} catch(final IOException | InvalidConfigurationException | RuntimeException e) {
+				this.plugin.getLogger().log(Level.WARNING, "could not reload the config, the old settings are kept", e);
+				config = null;
+			}
+			// the plugin got disabled while reading -> nobody to tell
+			if(!this.plugin.isEnabled()) {
+				return;
+			}
+			
+			final ConfigurationSection read = config;
+			// the tags of the rules can only be resolved on the global thread
+			this.scheduler.runGlobal(() -> callback.accept(read != null && compileSettings(read)));
+		});
+	}
+	
+	/**
+	 * compiles the read config and swaps in the new settings, called on the global thread
+	 * @return true if the new settings are in place, false if the old ones are kept
+	 */
+	private boolean compileSettings(final ConfigurationSection config) {
+		final Settings compiled;
+		try {
+			compiled = Settings.compile(this.plugin, config);
+		} catch(final RuntimeException e) {
+			this.plugin.getLogger().log(Level.WARNING, "could not reload the config, the old settings are kept", e);
+			return false;
+		}
+		// a single write, events see either the old or the new settings but never parts of both
+		this.settings = compiled;
+		return true;
+	}
+	
+	/**
+	 * stops all background work of the listener, called when the plugin gets disabled
+	 */
+	public void shutdown() {
+		this.drops.flushAll();
+		this.wear.flushAll();
+		if(this.trace != null) {
+			this.trace.close();
+		}
+		if(this.asyncScanner != null) {
+			this.asyncScanner.shutdown();
+		}
+	}
+	
+	/**
+	 * @return the metrics of the plugins hot paths
+	 */
+	public Metrics getMetrics() {
+		return this.metrics;
 	}
 	
 	/**
@@ -111,10 +285,23 @@ public class EventListener implements Listener{
 	public void onJoin(final PlayerJoinEvent event) {
 		final Player player = event.getPlayer();
 		// permissions are on and player does not have it? -> abort
-		if(!permissionCheck(player)) {
+		if(!permissionCheck(this.settings, player)) {
 			return;
 		}
-		player.setMetadata(EventListener.METADATA_KEY_LUMBER_MODE, new FixedMetadataValue(this.plugin, this.activeOnJoin));
+		this.playerStates.load(player);
+	}
+	
+	/**
+	 * forgets the players lumberjack mode and cached protection checks and applies the wear of their tool and their drops on quit
+	 * @param event
+	 */
+	@EventHandler(priority = EventPriority.MONITOR)
+	public void onQuit(final PlayerQuitEvent event) {
+		// the player is still owned by this thread now, later on the drops could only be dropped where they were collected
+		this.drops.flush(event.getPlayer());
+		this.wear.flush(event.getPlayer());
+		this.playerStates.unload(event.getPlayer());
+		this.protection.forget(event.getPlayer());
 	}
 	
 	/**
@@ -136,6 +323,7 @@ public class EventListener implements Listener{
 		}
 		
 		final Player player = event.getPlayer();
+		final Settings settings = this.settings;
 		// when offhand is not empty we abort to prevent weird interactions with items like shields for example
 		if(player.getInventory().getItemInOffHand().getType() == Material.AIR) {
 			return;
@@ -143,31 +331,17 @@ public class EventListener implements Listener{
 		
 		// player is not wielding an appropriate tool? -> abort
 		final Material tool = player.getInventory().getItemInMainHand().getType();
-		boolean toolValid = false;
-		for(final Entry<Tag<Material>, Tag<Material>> entry: toolList.entrySet()) {
-			if(entry.getValue().isTagged(tool)) {
-				toolValid = true;
-				break;
-			}
-		}
-		if(!toolValid) {
+		if(!settings.getToolRules().isTool(tool)) {
 			return;
 		}
 		
 		// permissions are on and player does not have it? -> abort
-		if(!permissionCheck(player)) {
+		if(!permissionCheck(settings, player)) {
 			player.sendMessage(ChatColor.GRAY + "You don't have permissions to use the lumberjack mode.");
 			return;
 		}
 		
-		final Optional<Boolean> optionalLumberMode = MetadataUtils.getMetadata(plugin, player, EventListener.METADATA_KEY_LUMBER_MODE, Boolean.class);
-		// no metadata? -> shouldn't happen, so safety abort
-		if(!optionalLumberMode.isPresent()) {
-			return;
-		}
-		
-		final boolean newValue = !optionalLumberMode.get();
-		player.setMetadata(EventListener.METADATA_KEY_LUMBER_MODE, new FixedMetadataValue(this.plugin, newValue));
+		final boolean newValue = this.playerStates.toggleLumberMode(player);
 		player.sendMessage(ChatColor.GRAY + "Lumberjack mode is now " + ChatColor.DARK_GRAY + (newValue? "ON" : "OFF") + ChatColor.GRAY + ".");
 	}
 	
@@ -179,92 +353,174 @@ public class EventListener implements Listener{
 	@EventHandler(ignoreCancelled = true, priority = EventPriority.HIGH)
 	public void onBreak(final BlockBreakEvent event) {
 		final Block block = event.getBlock();
-		final Optional<Boolean> recursionFlag = MetadataUtils.getMetadata(this.plugin, block, EventListener.METADATA_KEY_RECURSION_FLAG, Boolean.class);
-		if(recursionFlag.isPresent() && recursionFlag.get()) {
+		// the event was called by this plugin to check for protection -> abort
+		if(this.protection.isChecking(block)) {
+			return;
+		}
+		
+		final Material material = block.getType();
+		final Settings settings = this.settings;
+		// neither leaves to decay nor a block to chop, and no trace that wants to see it -> nothing of the plugins state to touch
+		if(this.trace == null && !Tag.LOGS.isTagged(material) && !Tag.LEAVES.isTagged(material) && settings.getToolRules().getCategory(material) == null) {
+			return;
+		}
+		
+		final long start = System.nanoTime();
+		byte outcome = TraceRecorder.OUTCOME_IGNORED;
+		try {
+			outcome = handleBreak(settings, event);
+		} finally {
+			this.metrics.recordBreak(System.nanoTime() - start);
+		}
+		
+		if(this.trace != null) {
+			final Tree tree = this.treeRegistry.peek(block);
+			this.trace.recordBreak(event.getPlayer(), block, material, tree == null? -1 : queueSize(tree), outcome);
+		}
+	}
+	
+	/**
+	 * forgets a block that broke like vanilla in the tree it was registered for, 
+	 * only once every other plugin had the chance to cancel the break, as the block would be left standing then
+	 * @param event
+	 */
+	@EventHandler(ignoreCancelled = true, priority = EventPriority.MONITOR)
+	public void onBroken(final BlockBreakEvent event) {
+		final Block block = event.getBlock();
+		// the event was called by this plugin to check for protection -> the block isn't broken yet
+		if(this.protection.isChecking(block)) {
+			return;
+		}
+		
+		// only blocks that can be chopped belong to trees
+		if(this.settings.getToolRules().getCategory(block.getType()) == null) {
 			return;
 		}
 		
+		// the block breaks like vanilla -> its tree, if it has one, is left without it, 
+		// and the tree that grew there, if it was indexed, is not the one that grew anymore
+		this.treeRegistry.removeLog(block);
+		if(this.growthIndex != null) {
+			this.growthIndex.forget(block);
+		}
+	}
+	
+	/**
+	 * forgets the indexed tree of a burning log, if grown trees are indexed
+	 * @param event
+	 */
+	@EventHandler(ignoreCancelled = true, priority = EventPriority.MONITOR)
+	public void onBurn(final BlockBurnEvent event) {
+		if(this.growthIndex != null && Tag.LOGS.isTagged(event.getBlock().getType())) {
+			this.growthIndex.forget(event.getBlock());
+		}
+	}
+	
+	/**
+	 * @return the outcome of the break as recorded in traces
+	 */
+	private byte handleBreak(final Settings settings, final BlockBreakEvent event) {
+		final Block block = event.getBlock();
 		final Material mat = block.getType();
 		
 		//do leaf decay
 		if(Tag.LOGS.isTagged(mat) || Tag.LEAVES.isTagged(mat)) {
-			decaySurroundingLeaves(block);
-		}
-		
-		Tag<Material> type = null;
-		Tag<Material> tool = null;
-		for(final Entry<Tag<Material>, Tag<Material>> entry: toolList.entrySet()) {
-			if(entry.getKey().isTagged(mat)) {
-				type = entry.getKey();
-				tool = entry.getValue();
-				break;
-			}
+			decaySurroundingLeaves(settings, block);
 		}
 		
+		final BlockCategory category = settings.getToolRules().getCategory(mat);
 		// if no appropriate block was broken we can stop here
-		if(type == null || tool == null) {
-			return;
+		if(category == null) {
+			return TraceRecorder.OUTCOME_IGNORED;
 		}
 		
-		// appearently needs to be final for lambda reference
-		final Tag<Material> finalType = type;
+		final Tag<Material> type = category.getBlocks();
+		final Tag<Material> tool = category.getTools();
 		
 		final Player player = event.getPlayer();
 		final ItemStack mainHand = player.getInventory().getItemInMainHand();
 		// lumberjack only works with axes
 		if(!tool.isTagged(mainHand.getType())) {
-			block.removeMetadata(EventListener.METADATA_KEY_LUMBER_QUEUE, this.plugin);
-			return;
+			return TraceRecorder.OUTCOME_IGNORED;
 		}
 		
 		// permissions are on and player does not have it? -> abort
-		if(!permissionCheck(player)) {
-			return;
+		if(!permissionCheck(settings, player)) {
+			return TraceRecorder.OUTCOME_IGNORED;
 		}
 		
-		final Optional<Boolean> optionalLumberMode = MetadataUtils.getMetadata(plugin, player, EventListener.METADATA_KEY_LUMBER_MODE, Boolean.class);
-		// no metadata? -> shouldn't happen, so safety abort
-		if(!optionalLumberMode.isPresent()) {
-			return;
+		// player has lumberjack disabled? -> abort
+		if(!this.playerStates.isLumberMode(player)) {
+			return TraceRecorder.OUTCOME_IGNORED;
 		}
 		
-		// player has lumberjack disabled? -> check for regular leaf decay and abort
-		if(!optionalLumberMode.get()) {
-			return;
+		// the player's last tree is still falling -> wait for it instead of felling parts of it twice
+		if(this.instantFeller != null && this.instantFeller.isFelling(player)) {
+			event.setCancelled(true);
+			return TraceRecorder.OUTCOME_WAITING;
 		}
 		
-		final Optional<BlockDistanceQueue> optionalQueue = MetadataUtils.getMetadata(this.plugin, block, EventListener.METADATA_KEY_LUMBER_QUEUE, BlockDistanceQueue.class);
-		final BlockDistanceQueue queue = optionalQueue.orElseGet(() -> loadLumberQueue(block, finalType::isTagged));
-		
-		// if the block is the last one the queue has to be removed again, 
-		// otherwise it will interfere with a new tree growing at the same location
-		if(queue.isLast()) {
-			block.removeMetadata(EventListener.METADATA_KEY_LUMBER_QUEUE, this.plugin);
+		final byte outcome = chop(settings, player, block, type, tool, false);
+		if(outcome == TraceRecorder.OUTCOME_DEFERRED) {
+			deferChop(settings, player, block, type, tool);
+		}
+		// anything but a vanilla break fells logs of the tree instead of the block, now or later
+		if(outcome != TraceRecorder.OUTCOME_VANILLA) {
+			event.setCancelled(true);
+		}
+		return outcome;
+	}
+	
+	/**
+	 * forgets registered trees that reach into an unloading chunk
+	 * @param event
+	 */
+	@EventHandler(priority = EventPriority.MONITOR)
+	public void onChunkUnload(final ChunkUnloadEvent event) {
+		this.treeRegistry.invalidateChunk(event.getChunk());
+	}
+	
+	/**
+	 * forgets registered trees next to a placed block, as it might connect to them
+	 * @param event
+	 */
+	@EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+	public void onPlace(final BlockPlaceEvent event) {
+		final Block block = event.getBlockPlaced();
+		this.treeRegistry.invalidateArea(block.getWorld(), block.getX(), block.getY(), block.getZ(), block.getX(), block.getY(), block.getZ());
+	}
+	
+	/**
+	 * forgets registered trees next to a grown tree or mushroom, as it might connect to them, 
+	 * and remembers the logs of the grown tree if grown trees are indexed
+	 * @param event
+	 */
+	@EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+	public void onGrow(final StructureGrowEvent event) {
+		final List<BlockState> blocks = event.getBlocks();
+		if(blocks.isEmpty()) {
 			return;
 		}
 		
-		Block furthest;
-		do {
-			furthest = queue.poll();
-			// queue cannot be empty here, because we have at least the broken log left
-		} while(!type.isTagged(furthest.getType()));
-
-		// call a BlockBreakEvent on the furthest block so this plugin will not bypass protection plugins
-		furthest.setMetadata(EventListener.METADATA_KEY_RECURSION_FLAG, new FixedMetadataValue(this.plugin, true));
-		final BlockBreakEvent furthestEvent = new BlockBreakEvent(furthest, player);
-		Bukkit.getPluginManager().callEvent(furthestEvent);
-		if(furthestEvent.isCancelled()) {
-			return;
+		int minX = Integer.MAX_VALUE;
+		int minY = Integer.MAX_VALUE;
+		int minZ = Integer.MAX_VALUE;
+		int maxX = Integer.MIN_VALUE;
+		int maxY = Integer.MIN_VALUE;
+		int maxZ = Integer.MIN_VALUE;
+		for(final BlockState state: blocks) {
+			minX = Math.min(minX, state.getX());
+			minY = Math.min(minY, state.getY());
+			minZ = Math.min(minZ, state.getZ());
+			maxX = Math.max(maxX, state.getX());
+			maxY = Math.max(maxY, state.getY());
+			maxZ = Math.max(maxZ, state.getZ());
 		}
-		furthest.removeMetadata(EventListener.METADATA_KEY_RECURSION_FLAG, this.plugin);
+		this.treeRegistry.invalidateArea(event.getWorld(), minX, minY, minZ, maxX, maxY, maxZ);
 		
-		final Location loc = event.getPlayer().getLocation();
-		loc.getWorld().dropItemNaturally(loc, new ItemStack(furthest.getType()));
-		furthest.setType(Material.AIR);
-		furthest.removeMetadata(EventListener.METADATA_KEY_LUMBER_QUEUE, this.plugin);
-		event.setCancelled(true);
-		ItemUtils.reduceDurability(mainHand);
-		player.getInventory().setItemInMainHand(mainHand);
+		if(this.growthIndex != null) {
+			this.growthIndex.record(event.getWorld(), blocks);
+		}
 	}
 	
 	/**
@@ -273,175 +529,280 @@ public class EventListener implements Listener{
 	 */
 	@EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
 	public void onDecay(final LeavesDecayEvent event) {
-		decaySurroundingLeaves(event.getBlock());
+		final boolean handled = this.decayEngine.isCallingHandledEvent();
+		if(this.trace != null) {
+			this.trace.recordDecay(event.getBlock(), this.decayEngine.getPending(), handled? TraceRecorder.OUTCOME_HANDLED : TraceRecorder.OUTCOME_SPREAD);
+		}
+		
+		// the orphaned leaves around it are already set to decay -> nothing to spread to
+		if(handled) {
+			return;
+		}
+		decaySurroundingLeaves(this.settings, event.getBlock());
 	}
 	
 	/**
 	 * checks if either permissions are disabled or the given player has permissions to use the lumberjack mode
+	 * @param settings the settings to check with
 	 * @param player the player to check for permissions
 	 * @return true if permissions are disabled or the player has lumberjack permissions, otherwise false
 	 */
-	private boolean permissionCheck(final Player player) {
-		return !this.usePermissions || player.hasPermission(EventListener.PERMISSION_LUMBERJACK);
+	private boolean permissionCheck(final Settings settings, final Player player) {
+		return !settings.isUsePermissions() || player.hasPermission(EventListener.PERMISSION_LUMBERJACK);
 	}
 	
 	/**
-	 * generates the LumberQueue for the broken block
+	 * applies the lumberjack mechanic by felling the log of the broken blocks tree that is furthest away from it instead of the block itself
+	 * @param settings the settings the break event was handled with
+	 * @param player the player who broke the block
 	 * @param block the block that was broken
-	 * @param predicate a predicate to check if a material is applicable
-	 * @return a queue of connected logs
+	 * @param type the tag of the blocks that belong to the tree
+	 * @param tool the tag of the tools that can chop the tree
+	 * @param reserved true if the governor already drew the felled log from the budget when it released the deferred chop
+	 * @return OUTCOME_FELLED or OUTCOME_INSTANT if logs are felled instead of the block, OUTCOME_VANILLA if the block should break like vanilla, 
+	 * or OUTCOME_DEFERRED if a log will be felled but the work budget of this tick is used up
 	 */
-	private BlockDistanceQueue loadLumberQueue(final Block block, final Predicate<Material> predicate) {
-		final BlockDistanceQueue queue = new BlockDistanceQueue();
-		final Set<Block> checkedBlocks = new HashSet<>();
-		checkBlock(block, block, queue, checkedBlocks, predicate);
-		block.setMetadata(EventListener.METADATA_KEY_LUMBER_QUEUE, new FixedMetadataValue(this.plugin, queue));
-		return queue;
+	private byte chop(final Settings settings, final Player player, final Block block, final Tag<Material> type, final Tag<Material> tool, 
+			final boolean reserved) {
+		final long start = System.nanoTime();
+		byte outcome = TraceRecorder.OUTCOME_VANILLA;
+		try {
+			outcome = fellFurthest(settings, player, block, type, tool, reserved);
+			return outcome;
+		} finally {
+			this.governor.charge(outcome == TraceRecorder.OUTCOME_DEFERRED || reserved? 0 : 1, System.nanoTime() - start);
+		}
 	}
 	
-	/**
-	 * checks if a given block is a log and if so adds it to the given queue and recursively checks neighbored blocks in a 3 block dice around it
-	 * @param source the source block to calculate the distance from
-	 * @param check the block to check
-	 * @param queue the queue to add the block to, if applicable
-	 * @param checkedBlocks a set of blocks already checked, to prevent circulation
-	 * @param predicate a predicate to check if a material is applicable
-	 */
-	private void checkBlock(final Block source, final Block check, final BlockDistanceQueue queue, final Set<Block> checkedBlocks, final Predicate<Material> predicate) {
-		// if the block was already checked we abort to prevent circulation
-		if(checkedBlocks.contains(check)) {
-			return;
+	private byte fellFurthest(final Settings settings, final Player player, final Block block, final Tag<Material> type, final Tag<Material> tool, 
+			final boolean reserved) {
+		Tree tree = this.treeRegistry.get(block);
+		this.metrics.recordCacheLookup(tree != null);
+		if(tree == null && this.growthIndex != null) {
+			tree = takeGrownTree(settings.forWorld(block.getWorld()).getScanner(), block, type::isTagged);
 		}
-		
-		// if the block is not a log its not added to the queue
-		if(!predicate.test(check.getType())) {
-			return;
+		if(tree == null && this.asyncScanner != null) {
+			// no finished scan covers this block yet -> scan in the background and break it like vanilla meanwhile
+			requestScan(settings.forWorld(block.getWorld()).getScanner(), block, type);
+			return TraceRecorder.OUTCOME_VANILLA;
+		} else if(tree == null) {
+			// the scan doesn't fit into the work budget of this tick -> break it like vanilla, the next hit scans the tree
+			if(!this.governor.hasBudget()) {
+				return TraceRecorder.OUTCOME_VANILLA;
+			}
+			tree = loadTree(settings.forWorld(block.getWorld()).getScanner(), block, type::isTagged);
+			// the logs exceed the tree limits, most likely a player build, or reach into an unloaded chunk -> break it like vanilla
+			if(tree == null) {
+				return TraceRecorder.OUTCOME_VANILLA;
+			}
 		}
 		
-		// we only add the block to checkedBlocks if it was a log
-		// this way a recursive call can determine if or not to check the blocks around its upper and lower block depending on it being in the checked list
-		checkedBlocks.add(check);
-		final double x = Math.pow(source.getX() - check.getX(), 2);
-		final double y = Math.pow(source.getY() - check.getY(), 2);
-		final double z = Math.pow(source.getZ() - check.getZ(), 2);
-		// we skip getting the squareroot here, because its performance heavy and doesn't change the order
-		final double distance = x + y + z;
-		queue.add(check, distance);
-		
-		final Block upper = check.getRelative(BlockFace.UP);
-		checkBlock(source, upper, queue, checkedBlocks, predicate);
-		if(!checkedBlocks.contains(upper)) {
-			for(final BlockFace direction: EventListener.NEIGHBORS) {
-				final Block neighbor = upper.getRelative(direction);
-				checkBlock(source, neighbor, queue, checkedBlocks, predicate);
+		Block furthest = null;
+		// the queue is shared by everyone chopping the tree, they might be on another thread if the tree reaches into another region
+		synchronized(tree) {
+			final BlockDistanceQueue queue = tree.getQueue();
+			
+			// everything queued is gone already, e.g. logs a protection plugin kept from being felled are left -> scan them anew next time
+			if(queue.isEmpty()) {
+				this.treeRegistry.remove(block);
+				return TraceRecorder.OUTCOME_VANILLA;
+			}
+			
+			// if the block is the last one the queue has to be removed again, 
+			// otherwise it will interfere with a new tree growing at the same location
+			if(queue.isLast()) {
+				this.treeRegistry.remove(block);
+				return TraceRecorder.OUTCOME_VANILLA;
+			}
+			
+			// the whole tree is felled over the next ticks, the broken block included, 
+			// it stays registered meanwhile so its other logs don't start a second felling, the feller removes it once it is done
+			if(this.instantFeller != null) {
+				if(!this.instantFeller.isFelling(tree)) {
+					this.instantFeller.fell(player, tree, block, type, tool);
+				}
+				return TraceRecorder.OUTCOME_INSTANT;
+			}
+			
+			// the work budget of this tick is used up and the log wasn't reserved -> fell the log in one of the next ticks instead
+			if(!reserved && !this.governor.hasBudget()) {
+				return TraceRecorder.OUTCOME_DEFERRED;
+			}
+			
+			while(!queue.isEmpty()) {
+				final Block next = queue.poll();
+				if(type.isTagged(next.getType())) {
+					furthest = next;
+					break;
+				}
 			}
 		}
 		
-		for(final BlockFace direction: EventListener.NEIGHBORS) {
-			final Block neighbor = check.getRelative(direction);
-			checkBlock(source, neighbor, queue, checkedBlocks, predicate);
+		// the remaining queued logs were broken by something else than felling the tree
+		if(furthest == null) {
+			this.treeRegistry.remove(block);
+			return TraceRecorder.OUTCOME_VANILLA;
 		}
 		
-		final Block lower = check.getRelative(BlockFace.DOWN);
-		checkBlock(source, lower, queue, checkedBlocks, predicate);
-		if(!checkedBlocks.contains(lower)) {
-			for(final BlockFace diretion: EventListener.NEIGHBORS) {
-				final Block neighbor = lower.getRelative(diretion);
-				checkBlock(source, neighbor, queue, checkedBlocks, predicate);
-			}
+		// the tree reaches into a region of another thread -> only the block itself may be broken here
+		if(!this.scheduler.isOwned(furthest.getWorld(), furthest.getX() >> 4, furthest.getZ() >> 4)) {
+			this.treeRegistry.remove(block);
+			return TraceRecorder.OUTCOME_VANILLA;
 		}
+		
+		// check the furthest block so this plugin will not bypass protection plugins
+		if(!this.protection.canBreak(player, tree, furthest)) {
+			return TraceRecorder.OUTCOME_VANILLA;
+		}
+		
+		final ItemStack mainHand = player.getInventory().getItemInMainHand();
+		this.drops.add(player, furthest.getDrops(mainHand));
+		furthest.setType(Material.AIR);
+		this.treeRegistry.removeLog(furthest);
+		this.wear.wear(player);
+		return TraceRecorder.OUTCOME_FELLED;
 	}
 	
 	/**
-	 * fast decays all decayable leaves around the given block
-	 * @param block
+	 * chops the given block in one of the next ticks that has budget left, on the thread owning the block
+	 * @param settings the settings the break event was handled with
+	 * @param player the player who broke the block
+	 * @param block the block that was broken
+	 * @param type the tag of the blocks that belong to the tree
+	 * @param tool the tag of the tools that can chop the tree
 	 */
-	private void decaySurroundingLeaves(final Block block) {
-		// disabled in config -> abort
-		if(!this.fastLeafDecay) {
-			return;
-		}
-		
-		// this method is called during break events, the block however is broken after the event
-		// so we have to wait for the block to actually break before checking the leaves for decaying
-		// for some reason we need to wait at least six ticks, otherwise the leaves might be considered persistent by the server
-		new BukkitRunnable() {
-			@Override
-			public void run() {
-				for(final BlockFace direction: EventListener.LEAF_NEIGHBORS) {
-					decayLeaf(block.getRelative(direction));
-				}
-			}
-		}.runTaskLater(plugin, 6);
+	private void deferChop(final Settings settings, final Player player, final Block block, final Tag<Material> type, final Tag<Material> tool) {
+		// the governor runs on the global thread and reserves the felled log, the chopping has to move back to the thread owning the block
+		this.governor.defer(player.getUniqueId(), () -> this.scheduler.runAt(block.getWorld(), block.getX() >> 4, block.getZ() >> 4, 
+				() -> chopDeferred(settings, player, block, type, tool)));
 	}
 	
 	/**
-	 * checks if the given block is a leaf that would decay at some point and if so makes it decay within the next half second, 
-	 * this function also calls a LeavesDecayEvent, which will then result in recursion until the whole treetop is gone
-	 * @param block the block to decay
+	 * chops a block whose break was cancelled because the work budget was used up, 
+	 * through the same felling and drops as a regular chop, 
+	 * if the tree changed meanwhile so the block would break like vanilla it is left standing for the player to hit again
+	 * @param settings the settings the break event was handled with
+	 * @param player the player who broke the block
+	 * @param block the block that was broken
+	 * @param type the tag of the blocks that belong to the tree
+	 * @param tool the tag of the tools that can chop the tree
 	 */
-	private void decayLeaf(final Block block) {
-		// block is not a leaf -> abort
-		if(!Tag.LEAVES.isTagged(block.getType())) {
+	private void chopDeferred(final Settings settings, final Player player, final Block block, final Tag<Material> type, final Tag<Material> tool) {
+		// the player left, moved to another thread or the block changed while waiting -> nothing left to do
+		if(!player.isOnline() || !this.scheduler.isOwned(player) || !type.isTagged(block.getType())) {
 			return;
 		}
 		
-		final Optional<Boolean> optionalDecay = MetadataUtils.getMetadata(plugin, block, EventListener.METADATA_KEY_LEAF_DECAY, Boolean.class);
-		// block already is set to decay -> abort
-		if(optionalDecay.isPresent() && optionalDecay.get()) {
+		final ItemStack mainHand = player.getInventory().getItemInMainHand();
+		// the player switched tools while waiting -> they can just hit the block again
+		if(!tool.isTagged(mainHand.getType())) {
 			return;
 		}
-
-		final Leaves leaves = (Leaves) block.getBlockData();
-		// leaf was set by a player -> abort
-		if(leaves.isPersistent()) {
-			return;
+		
+		// the governor reserved the log when it released the chop, so it is felled even if the budget ran out meanwhile
+		chop(settings, player, block, type, tool, true);
+	}
+	
+	/**
+	 * scans the tree of the broken block and registers it for all of its logs
+	 * @param scanner the scanner of the blocks world, read from the settings the event started with
+	 * @param block the block that was broken
+	 * @param predicate a predicate to check if a material is applicable
+	 * @return the tree of connected logs, or null if the logs exceed the configured tree limits
+	 */
+	private Tree loadTree(final TreeScanner scanner, final Block block, final Predicate<Material> predicate) {
+		final long start = System.nanoTime();
+		final Tree tree = scanner.scan(block, this.scheduler, predicate, chunk -> this.chunkLoader.onUnloadedChunk(block.getWorld(), chunk));
+		this.metrics.recordScan(System.nanoTime() - start, tree == null? -1 : tree.getSize());
+		if(tree == null) {
+			// an aborted scan may have checked as many logs as a tree may have
+			this.governor.charge(scanner.getMaxLogs(), 0);
+			return null;
 		}
+		this.governor.charge(tree.getSize(), 0);
 		
-		// leaf is near a log -> abort
-		if(leaves.getDistance() < 7) {
-			return;
+		this.treeRegistry.put(tree);
+		return tree;
+	}
+	
+	/**
+	 * takes the indexed tree of the broken block, if it grew while it was indexed, 
+	 * and registers it for all of its logs
+	 * @param scanner the scanner of the blocks world, read from the settings the event started with
+	 * @param block the block that was broken
+	 * @param predicate a predicate to check if a material is applicable
+	 * @return the grown tree, or null if the block is not part of an indexed tree
+	 */
+	private Tree takeGrownTree(final TreeScanner scanner, final Block block, final Predicate<Material> predicate) {
+		final Tree tree = this.growthIndex.take(scanner, block, predicate);
+		if(tree == null) {
+			return null;
 		}
 		
-		block.setMetadata(EventListener.METADATA_KEY_LEAF_DECAY, new FixedMetadataValue(plugin, true));
+		this.treeRegistry.put(tree);
+		return tree;
+	}
+	
+	/**
+	 * scans the tree of the broken block asynchronously and registers it once it is done, 
+	 * a block within reach of a scan that is still running waits for that scan instead, 
+	 * so a tree is only scanned once no matter how many of its logs are hit meanwhile
+	 * @param scanner the scanner of the blocks world, read from the settings the event started with
+	 * @param block the block that was broken
+	 * @param type the tag of the blocks that belong to the tree
+	 */
+	private void requestScan(final TreeScanner scanner, final Block block, final Tag<Material> type) {
+		final UUID world = block.getWorld().getUID();
+		final int radius = scanner.getMaxRadius();
+		// a scan within reach of the block may have started in a neighboring region
+		for(final long region: RegionMap.regionsOf((block.getX() - radius) >> 4, (block.getZ() - radius) >> 4, (block.getX() + radius) >> 4, (block.getZ() + radius) >> 4)) {
+			if(this.pendingScans.applyIfPresent(world, region, scans -> scans.join(block, type, radius)) == Boolean.TRUE) {
+				return;
+			}
+		}
 		
-		new BukkitRunnable() {
-			@Override
-			public void run() {
-				// chunk got unloaded during the delay -> abort
-				if(!block.getChunk().isLoaded()) {
-					block.removeMetadata(EventListener.METADATA_KEY_LEAF_DECAY, plugin);
-					return;
-				}
-				
-				// block was replaced -> abort
-				if(!Tag.LEAVES.isTagged(block.getType())) {
-					block.removeMetadata(EventListener.METADATA_KEY_LEAF_DECAY, plugin);
-					return;
-				}
-				
-				final LeavesDecayEvent event = new LeavesDecayEvent(block);
-				plugin.getServer().getPluginManager().callEvent(event);
-				
-				// something cancelled the decay event -> abort
-				if(event.isCancelled()) {
-					block.removeMetadata(EventListener.METADATA_KEY_LEAF_DECAY, plugin);
-					return;
-				}
-				
-				final World world = block.getWorld();
-				final Location location = block.getLocation();
-				if(EventListener.this.leafDecaySound){
-					world.playSound(location, Sound.BLOCK_GRASS_BREAK, SoundCategory.BLOCKS, 0.05f, 1.2f);
-				}
-				if(EventListener.this.leafDecayParticles) {
-					world.spawnParticle(Particle.BLOCK_DUST, location.add(0.5, 0.5, 0.5), 8, 0.2, 0.2, 0.2, 0, block.getType().createBlockData());
+		final PendingScan pending = new PendingScan(block, type);
+		final long source = RegionMap.regionOf(block.getX() >> 4, block.getZ() >> 4);
+		this.pendingScans.apply(world, source, scans -> scans.scans.add(pending));
+		this.asyncScanner.submit(scanner, block, type::isTagged, tree -> {
+			// no more blocks can join the scan afterwards, so its waiting blocks can be read without the lock
+			this.pendingScans.applyIfPresent(world, source, scans -> scans.scans.remove(pending));
+			// the structure exceeded the tree limits -> the blocks waiting for it most likely belong to it as well
+			if(tree == null) {
+				return;
+			}
+			
+			this.treeRegistry.put(tree);
+			// blocks that turned out to belong to another tree get a scan of their own
+			for(final Block waiting: pending.waiting) {
+				if(!tree.contains(waiting) && this.treeRegistry.get(waiting) == null && type.isTagged(waiting.getType())) {
+					requestScan(scanner, waiting, type);
 				}
-				
-				block.breakNaturally();
-				block.removeMetadata(EventListener.METADATA_KEY_LEAF_DECAY, plugin);
 			}
-		}.runTaskLater(plugin, 3 + new Random().nextInt(7));
+		}, chunk -> this.chunkLoader.onUnloadedChunk(block.getWorld(), chunk));
+	}
+	
+	/**
+	 * @return the amount of logs left in the queue of the given tree
+	 */
+	private static int queueSize(final Tree tree) {
+		synchronized(tree) {
+			return tree.getQueue().size();
+		}
+	}
+	
+	/**
+	 * fast decays all decayable leaves around the given block
+	 * @param settings the settings to check with
+	 * @param block
+	 */
+	private void decaySurroundingLeaves(final Settings settings, final Block block) {
+		// disabled in config for this world -> abort
+		if(!settings.forWorld(block.getWorld()).isFastLeafDecay()) {
+			return;
+		}
+		
+		this.decayEngine.decaySurroundingLeaves(block);
 	}
 
 }
@@ -0,0 +1,232 @@
+package com.versuchdrei.lumberjack;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Predicate;
+
+import org.bukkit.Chunk;
+import org.bukkit.Material;
+import org.bukkit.NamespacedKey;
+import org.bukkit.Tag;
+import org.bukkit.World;
+import org.bukkit.block.Block;
+import org.bukkit.block.BlockState;
+import org.bukkit.persistence.PersistentDataContainer;
+import org.bukkit.persistence.PersistentDataType;
+import org.bukkit.plugin.Plugin;
+
+import com.versuchdrei.lumberjack.scheduler.TaskScheduler;
+import com.versuchdrei.lumberjack.utils.LongHashSet;
+import com.versuchdrei.lumberjack.utils.PositionUtils;
+
+/**
+ * remembers the logs of trees and fungi that grew naturally, 
+ * so felling them only reads the blocks at the remembered positions instead of searching around every log
+ * 
+ * every chunk a grown tree reaches into stores all logs of that tree in its persistent data, 
+ * as a long array of records, each record is the amount of logs followed by their packed positions, 
+ * a record is forgotten once the tree is felled or one of its logs is broken otherwise, 
+ * records of trees that vanished without a broken log, e.g. removed by other plugins, are dropped oldest first once a chunk stores too many
+ * @author VersuchDrei
+ * @version 1.0
+ */
+public class GrowthIndex {
+	
+	private static final String PERSISTENT_KEY_GROWN_TREES = "grown_trees";
+	// the most positions a chunk stores, including the sizes of the records
+	private static final int MAX_STORED = 4096;
+	
+	private final TaskScheduler scheduler;
+	private final NamespacedKey grownTreesKey;
+	private final int maxLogs;
+	
+	/**
+	 * @param plugin the plugin to store the data for
+	 * @param scheduler the scheduler to check the ownership of chunks with
+	 * @param maxLogs the maximum amount of logs a tree may have to be remembered
+	 */
+	public GrowthIndex(final Plugin plugin, final TaskScheduler scheduler, final int maxLogs) {
+		this.scheduler = scheduler;
+		this.grownTreesKey = new NamespacedKey(plugin, GrowthIndex.PERSISTENT_KEY_GROWN_TREES);
+		this.maxLogs = maxLogs;
+	}
+	
+	/**
+	 * remembers the logs of a tree that is growing, called before the blocks are placed
+	 * @param world the world the tree grows in
+	 * @param blocks the blocks of the tree
+	 */
+	public void record(final World world, final List<BlockState> blocks) {
+		long[] logs = new long[16];
+		int size = 0;
+		for(final BlockState state: blocks) {
+			if(!Tag.LOGS.isTagged(state.getType())) {
+				continue;
+			}
+			// too big to be worth remembering -> felling it scans it like any other tree
+			if(size >= this.maxLogs) {
+				return;
+			}
+			if(size == logs.length) {
+				logs = Arrays.copyOf(logs, size << 1);
+			}
+			logs[size++] = PositionUtils.pack(state.getX(), state.getY(), state.getZ());
+		}
+		if(size == 0) {
+			return;
+		}
+		
+		final long[] record = new long[size + 1];
+		record[0] = size;
+		System.arraycopy(logs, 0, record, 1, size);
+		for(final Chunk chunk: chunksOf(world, logs, size)) {
+			final PersistentDataContainer container = chunk.getPersistentDataContainer();
+			final long[] stored = container.get(this.grownTreesKey, PersistentDataType.LONG_ARRAY);
+			if(stored == null) {
+				container.set(this.grownTreesKey, PersistentDataType.LONG_ARRAY, record);
+			} else {
+				final long[] appended = Arrays.copyOf(stored, stored.length + record.length);
+				System.arraycopy(record, 0, appended, stored.length, record.length);
+				container.set(this.grownTreesKey, PersistentDataType.LONG_ARRAY, GrowthIndex.trim(appended));
+			}
+		}
+	}
+	
+	/**
+	 * looks up the grown tree containing the given block and forgets it, as it is about to be felled, 
+	 * only the logs at remembered positions that are still connected to the block are part of the tree, 
+	 * logs placed at positions of a tree that is gone by now are left out that way
+	 * @param scanner the scanner of the blocks world, walking the remembered positions like the logs of any other tree
+	 * @param block the block that was broken
+	 * @param predicate a predicate to check if a material is applicable
+	 * @return the tree, or null if the block is not part of a remembered tree or the tree exceeds the limits of the scanner
+	 */
+	public Tree take(final TreeScanner scanner, final Block block, final Predicate<Material> predicate) {
+		final long source = PositionUtils.pack(block);
+		final long[] record = findRecord(block.getChunk(), source);
+		if(record == null) {
+			return null;
+		}
+		
+		for(final Chunk chunk: chunksOf(block.getWorld(), record, record.length)) {
+			removeRecord(chunk, source);
+		}
+		
+		final LongHashSet positions = new LongHashSet();
+		for(final long position: record) {
+			positions.add(position);
+		}
+		return scanner.scanWithin(block, this.scheduler, predicate, positions);
+	}
+	
+	/**
+	 * forgets the grown tree containing the given block, as the block broke without felling the tree, 
+	 * what is left of the tree is scanned like any other tree once it is felled
+	 * @param block the block that was broken
+	 */
+	public void forget(final Block block) {
+		final long source = PositionUtils.pack(block);
+		final long[] record = findRecord(block.getChunk(), source);
+		if(record == null) {
+			return;
+		}
+		
+		for(final Chunk chunk: chunksOf(block.getWorld(), record, record.length)) {
+			removeRecord(chunk, source);
+		}
+	}
+	
+	/**
+	 * @return the positions of the logs of the record in the given chunk that contains the given position, or null if there is none
+	 */
+	private long[] findRecord(final Chunk chunk, final long position) {
+		final long[] stored = chunk.getPersistentDataContainer().get(this.grownTreesKey, PersistentDataType.LONG_ARRAY);
+		if(stored == null) {
+			return null;
+		}
+		
+		int index = 0;
+		while(index < stored.length) {
+			final int size = (int) stored[index];
+			for(int i = index + 1; i <= index + size && i < stored.length; i++) {
+				if(stored[i] == position) {
+					return Arrays.copyOfRange(stored, index + 1, Math.min(stored.length, index + 1 + size));
+				}
+			}
+			index += size + 1;
+		}
+		return null;
+	}
+	
+	/**
+	 * removes the record containing the given position from the given chunk, if there is one
+	 */
+	private void removeRecord(final Chunk chunk, final long position) {
+		final PersistentDataContainer container = chunk.getPersistentDataContainer();
+		final long[] stored = container.get(this.grownTreesKey, PersistentDataType.LONG_ARRAY);
+		if(stored == null) {
+			return;
+		}
+		
+		final long[] kept = new long[stored.length];
+		int keptSize = 0;
+		int index = 0;
+		while(index < stored.length) {
+			final int size = (int) stored[index];
+			final int end = Math.min(stored.length, index + 1 + size);
+			boolean contains = false;
+			for(int i = index + 1; i < end; i++) {
+				contains |= stored[i] == position;
+			}
+			if(!contains) {
+				System.arraycopy(stored, index, kept, keptSize, end - index);
+				keptSize += end - index;
+			}
+			index = end;
+		}
+		
+		if(keptSize == 0) {
+			container.remove(this.grownTreesKey);
+		} else if(keptSize < stored.length) {
+			container.set(this.grownTreesKey, PersistentDataType.LONG_ARRAY, Arrays.copyOf(kept, keptSize));
+		}
+	}
+	
+	/**
+	 * drops the oldest records until the stored positions fit into MAX_STORED, the newest record is always kept
+	 */
+	private static long[] trim(final long[] stored) {
+		int start = 0;
+		while(stored.length - start > GrowthIndex.MAX_STORED) {
+			final int next = start + 1 + (int) stored[start];
+			if(next >= stored.length) {
+				break;
+			}
+			start = next;
+		}
+		return start == 0? stored : Arrays.copyOfRange(stored, start, stored.length);
+	}
+	
+	/**
+	 * @return the loaded chunks containing any of the given positions, chunks that are not loaded are not loaded for this, 
+	 * chunks owned by another thread are left out, so a tree reaching into another region is forgotten there only once it is scanned
+	 */
+	private Chunk[] chunksOf(final World world, final long[] positions, final int size) {
+		final LongHashSet chunkKeys = new LongHashSet();
+		for(int i = 0; i < size; i++) {
+			chunkKeys.add(PositionUtils.packChunk(PositionUtils.unpackX(positions[i]) >> 4, PositionUtils.unpackZ(positions[i]) >> 4));
+		}
+		
+		final Chunk[] chunks = new Chunk[chunkKeys.size()];
+		final int[] count = {0};
+		chunkKeys.forEach(key -> {
+			final int chunkX = PositionUtils.unpackChunkX(key);
+			final int chunkZ = PositionUtils.unpackChunkZ(key);
+			if(world.isChunkLoaded(chunkX, chunkZ) && this.scheduler.isOwned(world, chunkX, chunkZ)) {
+				chunks[count[0]++] = world.getChunkAt(chunkX, chunkZ);
+			}
+		});
+		return Arrays.copyOf(chunks, count[0]);
+	}
+
+}
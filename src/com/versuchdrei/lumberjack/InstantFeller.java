@@ -0,0 +1,286 @@
+package com.versuchdrei.lumberjack;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+import org.bukkit.Material;
+import org.bukkit.Tag;
+import org.bukkit.World;
+import org.bukkit.block.Block;
+import org.bukkit.entity.Player;
+import org.bukkit.inventory.ItemStack;
+
+import com.versuchdrei.lumberjack.scheduler.TaskScheduler;
+import com.versuchdrei.lumberjack.utils.BlockDistanceQueue;
+import com.versuchdrei.lumberjack.utils.LongHashSet;
+import com.versuchdrei.lumberjack.utils.PositionUtils;
+
+/**
+ * fells whole trees at once, spread over several ticks with a limited amount of blocks per tick, 
+ * every tree is felled by the thread owning the chunk of the block that was broken, logs in chunks of other threads are left standing, 
+ * the jobs of all threads share the blocks per tick, so they are guarded by their own monitor
+ * 
+ * logs are removed without block updates, 
+ * once a tree is gone the logs at its surface update their neighbors in a single pass and the leaves are checked for decay once
+ * @author VersuchDrei
+ * @version 1.0
+ */
+public class InstantFeller {
+	
+	private static final int[][] FACES = {{0, 0, -1}, {1, 0, 0}, {0, 0, 1}, {-1, 0, 0}, {0, 1, 0}, {0, -1, 0}};
+	
+	/**
+	 * a tree that is being felled
+	 */
+	private static class Job {
+		private final Player player;
+		private final Tree tree;
+		private final World world;
+		private final BlockDistanceQueue queue;
+		private final Tag<Material> type;
+		private final Tag<Material> tool;
+		// the chunk whose owner fells the tree
+		private final int chunkX;
+		private final int chunkZ;
+		private final LongHashSet removed = new LongHashSet();
+		private long[] removedOrder = new long[64];
+		// felling the share of a single tick, set once the job is queued
+		private Runnable tick;
+		
+		private Job(final Player player, final Tree tree, final Block block, final Tag<Material> type, final Tag<Material> tool) {
+			this.player = player;
+			this.tree = tree;
+			this.world = tree.getWorld();
+			this.queue = tree.getQueue();
+			this.type = type;
+			this.tool = tool;
+			this.chunkX = block.getX() >> 4;
+			this.chunkZ = block.getZ() >> 4;
+		}
+		
+		private void addRemoved(final long position) {
+			final int index = this.removed.size();
+			if(!this.removed.add(position)) {
+				return;
+			}
+			if(index == this.removedOrder.length) {
+				this.removedOrder = Arrays.copyOf(this.removedOrder, index << 1);
+			}
+			this.removedOrder[index] = position;
+		}
+	}
+	
+	private final TaskScheduler scheduler;
+	private final WorkGovernor governor;
+	private final DropAggregator drops;
+	private final ToolWear wear;
+	private final LeafDecayEngine decayEngine;
+	private final Supplier<Settings> settings;
+	private final ProtectionChecker protection;
+	private final TreeRegistry treeRegistry;
+	private final int blocksPerTick;
+	
+	private final ArrayDeque<Job> jobs = new ArrayDeque<>();
+	private final Set<UUID> felling = ConcurrentHashMap.newKeySet();
+	
+	/**
+	 * @param scheduler the scheduler to fell the trees with
+	 * @param governor the work budget to draw from
+	 * @param drops the aggregator to hand the drops to
+	 * @param wear the tracker to wear the tools with
+	 * @param decayEngine the engine to decay the leaves of felled trees with
+	 * @param settings the current settings, deciding in which worlds leaves decay fast
+	 * @param protection checks if a player may break a block
+	 * @param treeRegistry the registry the felled trees stay registered in until they are gone
+	 * @param blocksPerTick the maximum amount of blocks to fell per tick over all trees, 0 for no limit
+	 */
+	public InstantFeller(final TaskScheduler scheduler, final WorkGovernor governor, final DropAggregator drops, final ToolWear wear, 
+			final LeafDecayEngine decayEngine, final Supplier<Settings> settings, final ProtectionChecker protection, 
+			final TreeRegistry treeRegistry, final int blocksPerTick) {
+		this.scheduler = scheduler;
+		this.governor = governor;
+		this.drops = drops;
+		this.wear = wear;
+		this.decayEngine = decayEngine;
+		this.settings = settings;
+		this.protection = protection;
+		this.treeRegistry = treeRegistry;
+		this.blocksPerTick = blocksPerTick <= 0? Integer.MAX_VALUE : blocksPerTick;
+	}
+	
+	/**
+	 * queues the given tree to be felled completely
+	 * @param player the player who fells the tree
+	 * @param tree the tree to fell
+	 * @param block the block that was broken, the thread owning it fells the tree
+	 * @param type the tag of the blocks that belong to the tree
+	 * @param tool the tag of the tools that can fell the tree
+	 */
+	public void fell(final Player player, final Tree tree, final Block block, final Tag<Material> type, final Tag<Material> tool) {
+		final Job job = new Job(player, tree, block, type, tool);
+		job.tick = () -> fellShare(job);
+		synchronized(this.jobs) {
+			this.jobs.add(job);
+		}
+		this.felling.add(player.getUniqueId());
+		this.scheduler.runAtLater(job.world, job.chunkX, job.chunkZ, job.tick, 1);
+	}
+	
+	/**
+	 * @param player the player to check
+	 * @return true if the player is felling a tree right now
+	 */
+	public boolean isFelling(final Player player) {
+		return this.felling.contains(player.getUniqueId());
+	}
+	
+	/**
+	 * @param tree the tree to check
+	 * @return true if the given tree is being felled right now
+	 */
+	public boolean isFelling(final Tree tree) {
+		synchronized(this.jobs) {
+			for(final Job job: this.jobs) {
+				if(job.tree == tree) {
+					return true;
+				}
+			}
+			return false;
+		}
+	}
+	
+	/**
+	 * @return the amount of trees that are being felled
+	 */
+	public int getJobs() {
+		synchronized(this.jobs) {
+			return this.jobs.size();
+		}
+	}
+	
+	/**
+	 * fells the share of the blocks per tick of the given tree and queues it again for the next tick if it isn't done
+	 */
+	private void fellShare(final Job job) {
+		// the trees being felled split the blocks per tick evenly
+		int share = Math.max(1, this.blocksPerTick / Math.max(1, getJobs()));
+		while(share > 0 && this.governor.hasBudget()) {
+			final long start = System.nanoTime();
+			final boolean more = fellNext(job);
+			this.governor.charge(1, System.nanoTime() - start);
+			if(!more) {
+				synchronized(this.jobs) {
+					this.jobs.remove(job);
+				}
+				finish(job);
+				return;
+			}
+			share--;
+		}
+		this.scheduler.runAtLater(job.world, job.chunkX, job.chunkZ, job.tick, 1);
+	}
+	
+	/**
+	 * fells the next log of the given tree
+	 * @return true if the tree has logs left and the player can still fell them
+	 */
+	private boolean fellNext(final Job job) {
+		// the player left or moved to another thread -> stop felling
+		if(!job.player.isOnline() || !this.scheduler.isOwned(job.player)) {
+			return false;
+		}
+		
+		final ItemStack mainHand = job.player.getInventory().getItemInMainHand();
+		// the player switched tools or the tool broke -> stop felling
+		if(!job.tool.isTagged(mainHand.getType())) {
+			return false;
+		}
+		
+		final long position;
+		// players of other regions may chop logs of the same tree meanwhile
+		synchronized(job.tree) {
+			if(job.queue.isEmpty()) {
+				return false;
+			}
+			position = job.queue.pollPosition();
+		}
+		final int x = PositionUtils.unpackX(position);
+		final int z = PositionUtils.unpackZ(position);
+		// the chunk got unloaded while felling or is owned by another thread -> leave that part of the tree, we don't want to load it
+		if(!job.world.isChunkLoaded(x >> 4, z >> 4) || !this.scheduler.isOwned(job.world, x >> 4, z >> 4)) {
+			return hasLogsLeft(job);
+		}
+		
+		final Block block = job.world.getBlockAt(x, PositionUtils.unpackY(position), z);
+		if(!job.type.isTagged(block.getType()) || !this.protection.canBreak(job.player, job.tree, block)) {
+			return hasLogsLeft(job);
+		}
+		
+		this.drops.add(job.player, block.getDrops(mainHand));
+		// the neighbors are updated once the whole tree is gone
+		block.setType(Material.AIR, false);
+		job.addRemoved(position);
+		// the tool broke with this block -> stop felling
+		if(!this.wear.wear(job.player)) {
+			return false;
+		}
+		return hasLogsLeft(job);
+	}
+	
+	/**
+	 * @return true if the queue of the given tree still holds logs
+	 */
+	private static boolean hasLogsLeft(final Job job) {
+		synchronized(job.tree) {
+			return !job.queue.isEmpty();
+		}
+	}
+	
+	/**
+	 * unregisters the felled tree, updates its neighbors and checks its leaves for decay
+	 */
+	private void finish(final Job job) {
+		this.felling.remove(job.player.getUniqueId());
+		// logs left standing, e.g. protected ones or those of other threads, are scanned anew when they are hit
+		this.treeRegistry.remove(job.tree);
+		final int count = job.removed.size();
+		for(int i = 0; i < count; i++) {
+			final long position = job.removedOrder[i];
+			final int x = PositionUtils.unpackX(position);
+			final int y = PositionUtils.unpackY(position);
+			final int z = PositionUtils.unpackZ(position);
+			if(!isSurface(job, x, y, z) || !job.world.isChunkLoaded(x >> 4, z >> 4) || !this.scheduler.isOwned(job.world, x >> 4, z >> 4)) {
+				continue;
+			}
+			
+			// setting air to air is no change and doesn't update the neighbors, 
+			// so the block briefly becomes cave air, which behaves the same, and then air again with physics
+			final Block block = job.world.getBlockAt(x, y, z);
+			if(block.getType() == Material.AIR) {
+				block.setType(Material.CAVE_AIR, false);
+				block.setType(Material.AIR, true);
+			}
+		}
+		
+		if(count > 0 && this.settings.get().forWorld(job.world).isFastLeafDecay()) {
+			this.decayEngine.decayCanopyAround(job.world, Arrays.copyOf(job.removedOrder, count));
+		}
+	}
+	
+	/**
+	 * @return true if the given removed log had a neighbor that is not part of the felled tree
+	 */
+	private static boolean isSurface(final Job job, final int x, final int y, final int z) {
+		for(final int[] face: InstantFeller.FACES) {
+			if(!job.removed.contains(PositionUtils.pack(x + face[0], y + face[1], z + face[2]))) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+}
@@ -0,0 +1,599 @@
+package com.versuchdrei.lumberjack;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongPredicate;
+import java.util.function.Supplier;
+
+import org.bukkit.Tag;
+import org.bukkit.World;
+import org.bukkit.block.Block;
+import org.bukkit.event.block.LeavesDecayEvent;
+import org.bukkit.plugin.Plugin;
+
+import com.versuchdrei.lumberjack.scheduler.TaskScheduler;
+import com.versuchdrei.lumberjack.utils.LongHashSet;
+import com.versuchdrei.lumberjack.utils.LongObjectHashMap;
+import com.versuchdrei.lumberjack.utils.PositionUtils;
+import com.versuchdrei.lumberjack.utils.RegionMap;
+import com.versuchdrei.lumberjack.world.WorldBlockAccess;
+
+/**
+ * fast decays leaves from a single repeating task, 
+ * pending work is kept in a timing wheel with one bucket per tick instead of scheduling a task per leaf, 
+ * work in chunks the ticking thread doesn't own is handed to their owners in one batch per chunk
+ *
+ * the wheel and the leaves set to decay are split by region, each with its own lock, 
+ * so threads of different regions scheduling work never wait for each other, 
+ * the ticking thread takes the due bucket of every region and processes it without holding any lock
+ * @author VersuchDrei
+ * @version 1.0
+ */
+public class LeafDecayEngine implements Runnable {
+	
+	// has to be a power of two bigger than the longest delay
+	private static final int WHEEL_SIZE = 16;
+	
+	// this engine is called during break events, the block however is broken after the event
+	// so we have to wait for the block to actually break before checking the leaves for decaying
+	// for some reason we need to wait at least six ticks, otherwise the leaves might be considered persistent by the server
+	private static final int NEIGHBOR_CHECK_DELAY = 6;
+	// computing the distances ourselves only needs the block to be gone
+	private static final int COMPUTED_CHECK_DELAY = 1;
+	private static final int DECAY_MIN_DELAY = 3;
+	private static final int DECAY_DELAY_SPREAD = 7;
+	
+	private static final byte KIND_CHECK_NEIGHBORS = 0;
+	private static final byte KIND_DECAY = 1;
+	private static final byte KIND_CHECK_CANOPY = 2;
+	// a decay of which the LeavesDecayEvent was already called for the whole canopy
+	private static final byte KIND_DECAY_CHECKED = 3;
+	// a decay of a leaf that was computed to be orphaned, its surroundings are already handled
+	private static final byte KIND_DECAY_COMPUTED = 4;
+	
+	private static final int[][] LEAF_NEIGHBORS = {{0, 0, -1}, {1, 0, 0}, {0, 0, 1}, {-1, 0, 0}, {0, 1, 0}, {0, -1, 0}};
+	
+	/**
+	 * the work due in a single tick
+	 */
+	private static class Bucket {
+		private World[] worlds = new World[16];
+		private long[] positions = new long[16];
+		private byte[] kinds = new byte[16];
+		// the seeds of a canopy check, null for the neighbors of the position
+		private long[][] seeds = new long[16][];
+		private int size = 0;
+		
+		private void add(final World world, final long position, final byte kind, final long[] seeds) {
+			if(this.size == this.positions.length) {
+				final int capacity = this.size << 1;
+				this.worlds = Arrays.copyOf(this.worlds, capacity);
+				this.positions = Arrays.copyOf(this.positions, capacity);
+				this.kinds = Arrays.copyOf(this.kinds, capacity);
+				this.seeds = Arrays.copyOf(this.seeds, capacity);
+			}
+			this.worlds[this.size] = world;
+			this.positions[this.size] = position;
+			this.kinds[this.size] = kind;
+			this.seeds[this.size] = seeds;
+			this.size++;
+		}
+		
+		private void clear() {
+			Arrays.fill(this.worlds, 0, this.size, null);
+			Arrays.fill(this.seeds, 0, this.size, null);
+			this.size = 0;
+		}
+	}
+	
+	/**
+	 * the pending work of a single region, keyed by the position it concerns
+	 */
+	private static class Region extends RegionMap.Region {
+		private final Bucket[] wheel = new Bucket[LeafDecayEngine.WHEEL_SIZE];
+		// the wheels of all regions turn together, a region created later just starts counting later
+		private long tick = 0;
+		// the amount of work in the wheel
+		private int queued = 0;
+		// the leaves that are already set to decay
+		private final LongHashSet scheduledLeaves = new LongHashSet();
+		
+		private Region() {
+			for(int i = 0; i < this.wheel.length; i++) {
+				this.wheel[i] = new Bucket();
+			}
+		}
+		
+		@Override
+		public boolean isEmpty() {
+			return this.queued == 0 && this.scheduledLeaves.isEmpty();
+		}
+		
+		private void add(final World world, final long position, final byte kind, final long[] seeds, final int delay) {
+			// the tick points to the bucket processed next, which is one tick away, so delays have to be at least 1
+			this.wheel[(int) ((this.tick + delay - 1) & (LeafDecayEngine.WHEEL_SIZE - 1))].add(world, position, kind, seeds);
+			this.queued++;
+		}
+		
+		/**
+		 * turns the wheel by one tick
+		 * @return the work due this tick, or null if there is none
+		 */
+		private Bucket advance() {
+			final int index = (int) (this.tick & (LeafDecayEngine.WHEEL_SIZE - 1));
+			this.tick++;
+			final Bucket due = this.wheel[index];
+			if(due.size == 0) {
+				return null;
+			}
+			
+			// the due work is processed outside of the lock, so the bucket is swapped for an empty one
+			this.wheel[index] = new Bucket();
+			this.queued -= due.size;
+			return due;
+		}
+	}
+	
+	private final Plugin plugin;
+	private final TaskScheduler scheduler;
+	private final WorkGovernor governor;
+	private final Metrics metrics;
+	private final Supplier<Settings> settings;
+	// null if decaying leaves show no effects
+	private final DecayEffects effects;
+	private final boolean canopyDecay;
+	private final boolean computeDistance;
+	private final CanopyScanner canopyScanner;
+	
+	private final RegionMap<Region> regions = new RegionMap<>(Region::new);
+	private final AtomicInteger pending = new AtomicInteger();
+	// one access per world, so probing a leaf doesn't allocate
+	private final Map<UUID, WorldBlockAccess> accesses = new ConcurrentHashMap<>();
+	// events are called on the thread that decays the leaf, so every thread has its own flag
+	private final ThreadLocal<Boolean> callingHandledEvent = ThreadLocal.withInitial(() -> Boolean.FALSE);
+	
+	/**
+	 * @param plugin the plugin to call events for
+	 * @param scheduler the scheduler to tick the engine with and to hand work to the owners of its chunks
+	 * @param governor the work budget to draw from
+	 * @param metrics the metrics to record the decays per tick in
+	 * @param settings the current settings, holding the maximum amount of leaves to check or decay per tick in every world
+	 * @param effects the effects to show for decaying leaves, or null for none
+	 * @param canopyDecay whether to decay whole canopies at once instead of spreading from leaf to leaf
+	 * @param maxCanopySize the maximum amount of leaves to collect per canopy check
+	 * @param computeDistance whether to compute the distances of leaves to the remaining logs instead of waiting for the server to update them
+	 */
+	public LeafDecayEngine(final Plugin plugin, final TaskScheduler scheduler, final WorkGovernor governor, final Metrics metrics, final Supplier<Settings> settings, final DecayEffects effects, 
+			final boolean canopyDecay, final int maxCanopySize, final boolean computeDistance) {
+		this.plugin = plugin;
+		this.scheduler = scheduler;
+		this.governor = governor;
+		this.metrics = metrics;
+		this.settings = settings;
+		this.effects = effects;
+		this.canopyDecay = canopyDecay;
+		this.computeDistance = computeDistance;
+		this.canopyScanner = new CanopyScanner(maxCanopySize);
+	}
+	
+	/**
+	 * starts processing the timing wheel every tick
+	 */
+	public void start() {
+		this.scheduler.runGlobalTimer(this, 1, 1);
+	}
+	
+	/**
+	 * checks the leaves around the given block for decaying once the block is gone
+	 * @param block the block that is removed
+	 */
+	public void decaySurroundingLeaves(final Block block) {
+		final byte kind = this.canopyDecay || this.computeDistance? LeafDecayEngine.KIND_CHECK_CANOPY : LeafDecayEngine.KIND_CHECK_NEIGHBORS;
+		schedule(block.getWorld(), PositionUtils.pack(block), kind, null, checkDelay());
+	}
+	
+	/**
+	 * checks the canopy around a whole group of removed blocks for decaying with a single check, 
+	 * used for felled trees instead of checking around every log on its own
+	 * @param world the world of the removed blocks
+	 * @param positions the packed positions of the removed blocks
+	 */
+	public void decayCanopyAround(final World world, final long[] positions) {
+		if(positions.length == 0) {
+			return;
+		}
+		
+		final LongHashSet removed = new LongHashSet();
+		for(final long position: positions) {
+			removed.add(position);
+		}
+		final LongHashSet neighbors = new LongHashSet();
+		for(final long position: positions) {
+			final int x = PositionUtils.unpackX(position);
+			final int y = PositionUtils.unpackY(position);
+			final int z = PositionUtils.unpackZ(position);
+			for(final int[] offset: LeafDecayEngine.LEAF_NEIGHBORS) {
+				final long neighbor = PositionUtils.pack(x + offset[0], y + offset[1], z + offset[2]);
+				if(!removed.contains(neighbor)) {
+					neighbors.add(neighbor);
+				}
+			}
+		}
+		
+		final long[] seeds = new long[neighbors.size()];
+		final int[] index = {0};
+		neighbors.forEach(seed -> seeds[index[0]++] = seed);
+		schedule(world, positions[0], LeafDecayEngine.KIND_CHECK_CANOPY, seeds, checkDelay());
+	}
+	
+	/**
+	 * @return true while the engine calls a LeavesDecayEvent for leaves it already knows the whole orphaned canopy of, 
+	 * either the single event for a whole canopy or the event of a leaf computed to be orphaned, 
+	 * these leaves don't need their surroundings checked
+	 */
+	public boolean isCallingHandledEvent() {
+		return this.callingHandledEvent.get();
+	}
+	
+	/**
+	 * @return the amount of neighbor checks and leaf decays waiting to be processed
+	 */
+	public int getPending() {
+		return this.pending.get();
+	}
+	
+	@Override
+	public void run() {
+		final List<Bucket> due = new ArrayList<>();
+		this.regions.forEach(region -> {
+			final Bucket bucket = region.advance();
+			if(bucket != null) {
+				due.add(bucket);
+			}
+		});
+		// nothing due this tick
+		if(due.isEmpty()) {
+			this.metrics.recordDecayTick(0, this.pending.get());
+			return;
+		}
+		
+		final Settings settings = this.settings.get();
+		// the leaves every world has left this tick, looked up again only when the world changes
+		final Map<UUID, int[]> budgets = new HashMap<>();
+		World budgetWorld = null;
+		int[] budget = null;
+		// the work in chunks owned by other threads, by world and chunk, null until there is any
+		Map<UUID, LongObjectHashMap<Bucket>> batches = null;
+		int processed = 0;
+		boolean exhausted = false;
+		for(final Bucket bucket: due) {
+			// the work that is carried over to the next tick, all of it lies in the region of the bucket, null until there is any
+			Bucket carried = null;
+			for(int i = 0; i < bucket.size; i++) {
+				// the plugins work budget is used up -> carry the rest over to the next tick
+				if(exhausted || !this.governor.hasBudget()) {
+					exhausted = true;
+					carried = carried == null? new Bucket() : carried;
+					carried.add(bucket.worlds[i], bucket.positions[i], bucket.kinds[i], bucket.seeds[i]);
+					continue;
+				}
+				
+				final World world = bucket.worlds[i];
+				if(world != budgetWorld) {
+					budgetWorld = world;
+					budget = budgets.computeIfAbsent(world.getUID(), uuid -> new int[] {settings.forWorld(world).getMaxLeafDecaysPerTick()});
+				}
+				// more work in this world than allowed per tick -> carry it over to the next tick
+				if(budget[0] <= 0) {
+					carried = carried == null? new Bucket() : carried;
+					carried.add(world, bucket.positions[i], bucket.kinds[i], bucket.seeds[i]);
+					continue;
+				}
+				
+				final long position = bucket.positions[i];
+				final int chunkX = PositionUtils.unpackX(position) >> 4;
+				final int chunkZ = PositionUtils.unpackZ(position) >> 4;
+				// another thread owns the chunk -> batch it for the owner, it is charged once the owner processed it
+				if(!this.scheduler.isOwned(world, chunkX, chunkZ)) {
+					if(batches == null) {
+						batches = new HashMap<>();
+					}
+					final LongObjectHashMap<Bucket> worldBatches = batches.computeIfAbsent(world.getUID(), uuid -> new LongObjectHashMap<>());
+					final long chunk = PositionUtils.packChunk(chunkX, chunkZ);
+					Bucket batch = worldBatches.get(chunk);
+					if(batch == null) {
+						batch = new Bucket();
+						worldBatches.put(chunk, batch);
+					}
+					batch.add(world, position, bucket.kinds[i], bucket.seeds[i]);
+					budget[0]--;
+					processed++;
+					continue;
+				}
+				
+				final long start = System.nanoTime();
+				final int cost = process(world, position, bucket.kinds[i], bucket.seeds[i]);
+				budget[0] -= cost;
+				this.governor.charge(cost, System.nanoTime() - start);
+				processed++;
+			}
+			if(carried != null) {
+				carryOver(carried);
+			}
+		}
+		final int pending = this.pending.addAndGet(-processed);
+		this.metrics.recordDecayTick(processed, pending);
+		
+		if(batches != null) {
+			for(final LongObjectHashMap<Bucket> worldBatches: batches.values()) {
+				worldBatches.forEach((batch, chunk) -> this.scheduler.runAt(batch.worlds[0], PositionUtils.unpackChunkX(chunk), PositionUtils.unpackChunkZ(chunk), 
+						() -> processBatch(batch)));
+			}
+		}
+	}
+	
+	/**
+	 * puts the given work back into the wheel of its region, due in the next tick
+	 */
+	private void carryOver(final Bucket carried) {
+		final long first = carried.positions[0];
+		this.regions.apply(carried.worlds[0].getUID(), LeafDecayEngine.regionOf(first), region -> {
+			for(int i = 0; i < carried.size; i++) {
+				region.add(carried.worlds[i], carried.positions[i], carried.kinds[i], carried.seeds[i], 1);
+			}
+			return null;
+		});
+	}
+	
+	/**
+	 * processes the work of a single chunk on the thread owning it
+	 */
+	private void processBatch(final Bucket batch) {
+		for(int i = 0; i < batch.size; i++) {
+			final long start = System.nanoTime();
+			final int cost = process(batch.worlds[i], batch.positions[i], batch.kinds[i], batch.seeds[i]);
+			this.governor.charge(cost, System.nanoTime() - start);
+		}
+	}
+	
+	/**
+	 * @return the amount of blocks that were checked
+	 */
+	private int process(final World world, final long position, final byte kind, final long[] seeds) {
+		switch(kind) {
+		case KIND_CHECK_NEIGHBORS:
+			checkNeighbors(world, position);
+			return 1;
+		case KIND_DECAY:
+			decay(world, position, true);
+			return 1;
+		case KIND_CHECK_CANOPY:
+			return checkCanopy(world, position, seeds);
+		case KIND_DECAY_CHECKED:
+			decay(world, position, false);
+			return 1;
+		case KIND_DECAY_COMPUTED:
+			this.callingHandledEvent.set(Boolean.TRUE);
+			try {
+				decay(world, position, true);
+			} finally {
+				this.callingHandledEvent.set(Boolean.FALSE);
+			}
+			return 1;
+		default:
+			return 1;
+		}
+	}
+	
+	private void schedule(final World world, final long position, final byte kind, final long[] seeds, final int delay) {
+		this.regions.apply(world.getUID(), LeafDecayEngine.regionOf(position), region -> {
+			region.add(world, position, kind, seeds, delay);
+			return null;
+		});
+		this.pending.incrementAndGet();
+	}
+	
+	/**
+	 * sets the given leaf to decay unless it already is
+	 * @param kind the kind of decay
+	 * @return true if the leaf was not set to decay before
+	 */
+	private boolean scheduleDecay(final World world, final long position, final byte kind) {
+		final int delay = randomDecayDelay();
+		final boolean scheduled = this.regions.apply(world.getUID(), LeafDecayEngine.regionOf(position), region -> {
+			if(!region.scheduledLeaves.add(position)) {
+				return false;
+			}
+			region.add(world, position, kind, null, delay);
+			return true;
+		});
+		if(scheduled) {
+			this.pending.incrementAndGet();
+		}
+		return scheduled;
+	}
+	
+	/**
+	 * @return true if the leaf at the given position is already set to decay
+	 */
+	private boolean isScheduled(final World world, final long position) {
+		final Boolean scheduled = this.regions.applyIfPresent(world.getUID(), LeafDecayEngine.regionOf(position), 
+				region -> region.scheduledLeaves.contains(position));
+		return scheduled != null && scheduled;
+	}
+	
+	private void checkNeighbors(final World world, final long position) {
+		final int x = PositionUtils.unpackX(position);
+		final int y = PositionUtils.unpackY(position);
+		final int z = PositionUtils.unpackZ(position);
+		for(final int[] offset: LeafDecayEngine.LEAF_NEIGHBORS) {
+			scheduleLeaf(world, x + offset[0], y + offset[1], z + offset[2]);
+		}
+	}
+	
+	/**
+	 * checks if the given block is a leaf that would decay at some point and if so makes it decay within the next half second
+	 */
+	private void scheduleLeaf(final World world, final int x, final int y, final int z) {
+		final long position = PositionUtils.pack(x, y, z);
+		// block already is set to decay -> abort
+		if(isScheduled(world, position)) {
+			return;
+		}
+		
+		// block is not a leaf, was set by a player, is in an unloaded chunk or is near a log -> abort
+		if(accessOf(world).getLeafDistance(x, y, z) < CanopyScanner.ORPHANED_DISTANCE) {
+			return;
+		}
+		
+		scheduleDecay(world, position, LeafDecayEngine.KIND_DECAY);
+	}
+	
+	/**
+	 * collects the whole orphaned canopy connected to the seeds in one pass and sets all of it to decay, 
+	 * with a single LeavesDecayEvent for the whole canopy, or an event per leaf if distances are computed for leaves that don't decay as whole canopies
+	 * 
+	 * leaves further away from the removed log might not have their distance updated by the server yet, 
+	 * so the supported leaves at the border of the canopy are checked again once the server caught up, 
+	 * computed distances are up to date, there the border only holds the leaves that were too many for a single pass
+	 * @param world the world of the canopy
+	 * @param position the removed block, its neighbors are used as seeds if there are no explicit seeds
+	 * @param seeds the positions to start from, or null
+	 * @return the amount of blocks that were checked
+	 */
+	private int checkCanopy(final World world, final long position, final long[] seeds) {
+		final LongPredicate scheduled = leaf -> isScheduled(world, leaf);
+		final long[] start = seeds != null? seeds 
+				: CanopyScanner.neighborsOf(PositionUtils.unpackX(position), PositionUtils.unpackY(position), PositionUtils.unpackZ(position));
+		final Canopy canopy = this.computeDistance? 
+				this.canopyScanner.scanComputed(accessOf(world), start, scheduled, material -> Tag.LOGS.isTagged(material)) 
+				: this.canopyScanner.scan(accessOf(world), start, scheduled);
+		
+		// nothing orphaned, so nothing changed since the last check -> done
+		if(canopy.getSize() == 0) {
+			return canopy.getChecked();
+		}
+		
+		final long[] leaves = canopy.getLeaves();
+		// computed for leaves that don't decay as a whole canopy -> every leaf gets its own event when it decays
+		if(this.computeDistance && !this.canopyDecay) {
+			for(int i = 0; i < canopy.getSize(); i++) {
+				scheduleDecay(world, leaves[i], LeafDecayEngine.KIND_DECAY_COMPUTED);
+			}
+			scheduleBorderCheck(world, position, canopy);
+			return canopy.getChecked();
+		}
+		
+		final Block first = world.getBlockAt(PositionUtils.unpackX(leaves[0]), PositionUtils.unpackY(leaves[0]), PositionUtils.unpackZ(leaves[0]));
+		// one event for the whole canopy, protection plugins cancel it for all of its leaves
+		final LeavesDecayEvent event = new LeavesDecayEvent(first);
+		this.callingHandledEvent.set(Boolean.TRUE);
+		try {
+			this.plugin.getServer().getPluginManager().callEvent(event);
+		} finally {
+			this.callingHandledEvent.set(Boolean.FALSE);
+		}
+		if(event.isCancelled()) {
+			return canopy.getChecked();
+		}
+		
+		for(int i = 0; i < canopy.getSize(); i++) {
+			scheduleDecay(world, leaves[i], LeafDecayEngine.KIND_DECAY_CHECKED);
+		}
+		
+		scheduleBorderCheck(world, position, canopy);
+		return canopy.getChecked();
+	}
+	
+	/**
+	 * checks the border of the given canopy again, 
+	 * once the server caught up with the distances or, if they are computed, once the canopy is gone
+	 */
+	private void scheduleBorderCheck(final World world, final long position, final Canopy canopy) {
+		if(canopy.getBorder().length == 0) {
+			return;
+		}
+		
+		final int delay = this.computeDistance? LeafDecayEngine.DECAY_MIN_DELAY + LeafDecayEngine.DECAY_DELAY_SPREAD : LeafDecayEngine.NEIGHBOR_CHECK_DELAY;
+		schedule(world, position, LeafDecayEngine.KIND_CHECK_CANOPY, canopy.getBorder(), delay);
+	}
+	
+	/**
+	 * @return the block access of the given world
+	 */
+	private WorldBlockAccess accessOf(final World world) {
+		final WorldBlockAccess access = this.accesses.get(world.getUID());
+		// the world got unloaded and loaded again meanwhile -> the old access still reads the unloaded world
+		if(access != null && access.getWorld() == world) {
+			return access;
+		}
+		
+		// two threads creating an access at the same time create equal ones, either of them will do
+		final WorldBlockAccess created = new WorldBlockAccess(world, this.scheduler);
+		this.accesses.put(world.getUID(), created);
+		return created;
+	}
+	
+	/**
+	 * @return the region of the given block position
+	 */
+	private static long regionOf(final long position) {
+		return RegionMap.regionOf(PositionUtils.unpackX(position) >> 4, PositionUtils.unpackZ(position) >> 4);
+	}
+	
+	private int checkDelay() {
+		return this.computeDistance? LeafDecayEngine.COMPUTED_CHECK_DELAY : LeafDecayEngine.NEIGHBOR_CHECK_DELAY;
+	}
+	
+	private int randomDecayDelay() {
+		return LeafDecayEngine.DECAY_MIN_DELAY + ThreadLocalRandom.current().nextInt(LeafDecayEngine.DECAY_DELAY_SPREAD);
+	}
+	
+	/**
+	 * decays the leaf at the given position, 
+	 * this also calls a LeavesDecayEvent, which will then result in the neighbors being checked until the whole treetop is gone
+	 * @param callEvent false if the event was already called for the whole canopy
+	 */
+	private void decay(final World world, final long position, final boolean callEvent) {
+		this.regions.applyIfPresent(world.getUID(), LeafDecayEngine.regionOf(position), 
+				region -> region.scheduledLeaves.remove(position));
+		
+		final int x = PositionUtils.unpackX(position);
+		final int y = PositionUtils.unpackY(position);
+		final int z = PositionUtils.unpackZ(position);
+		// chunk got unloaded during the delay -> abort
+		if(!world.isChunkLoaded(x >> 4, z >> 4)) {
+			return;
+		}
+		
+		final Block block = world.getBlockAt(x, y, z);
+		// block was replaced -> abort
+		if(!Tag.LEAVES.isTagged(block.getType())) {
+			return;
+		}
+		
+		if(callEvent) {
+			final LeavesDecayEvent event = new LeavesDecayEvent(block);
+			this.plugin.getServer().getPluginManager().callEvent(event);
+			
+			// something cancelled the decay event -> abort
+			if(event.isCancelled()) {
+				return;
+			}
+		}
+		
+		if(this.effects != null) {
+			this.effects.add(world, x, y, z, block.getType());
+		}
+		
+		block.breakNaturally();
+	}
+
+}
@@ -0,0 +1,108 @@
+package com.versuchdrei.lumberjack;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.bukkit.command.Command;
+import org.bukkit.command.CommandExecutor;
+import org.bukkit.command.CommandSender;
+import org.bukkit.command.TabCompleter;
+
+import net.md_5.bungee.api.ChatColor;
+
+/**
+ * the /lumberjack command for server admins
+ * @author VersuchDrei
+ * @version 1.0
+ */
+public class LumberjackCommand implements CommandExecutor, TabCompleter {
+	
+	private static final String SUBCOMMAND_STATS = "stats";
+	private static final String SUBCOMMAND_RELOAD = "reload";
+	private static final String ARGUMENT_RESET = "reset";
+	
+	private static final List<String> SUBCOMMANDS = Arrays.asList(LumberjackCommand.SUBCOMMAND_STATS, LumberjackCommand.SUBCOMMAND_RELOAD);
+	
+	private final EventListener listener;
+	private final Metrics metrics;
+	
+	public LumberjackCommand(final EventListener listener) {
+		this.listener = listener;
+		this.metrics = listener.getMetrics();
+	}
+	
+	@Override
+	public boolean onCommand(final CommandSender sender, final Command command, final String label, final String[] args) {
+		// no subcommand given -> show the usage
+		if(args.length == 0) {
+			return false;
+		}
+		
+		if(args[0].equalsIgnoreCase(LumberjackCommand.SUBCOMMAND_STATS)) {
+			if(args.length > 1 && args[1].equalsIgnoreCase(LumberjackCommand.ARGUMENT_RESET)) {
+				this.metrics.reset();
+				sender.sendMessage(ChatColor.GRAY + "Lumberjack stats were reset.");
+				return true;
+			}
+			sendStats(sender);
+			return true;
+		}
+		
+		if(args[0].equalsIgnoreCase(LumberjackCommand.SUBCOMMAND_RELOAD)) {
+			sender.sendMessage(ChatColor.GRAY + "Reloading the Lumberjack config...");
+			this.listener.reload(success -> sender.sendMessage(success? ChatColor.GRAY + "Lumberjack config reloaded." 
+					: ChatColor.RED + "Could not reload the Lumberjack config, see the console for details."));
+			return true;
+		}
+		
+		return false;
+	}
+	
+	@Override
+	public List<String> onTabComplete(final CommandSender sender, final Command command, final String alias, final String[] args) {
+		final List<String> completions = new ArrayList<>();
+		if(args.length == 1) {
+			for(final String subcommand: LumberjackCommand.SUBCOMMANDS) {
+				if(subcommand.startsWith(args[0].toLowerCase())) {
+					completions.add(subcommand);
+				}
+			}
+		} else if(args.length == 2 && args[0].equalsIgnoreCase(LumberjackCommand.SUBCOMMAND_STATS) && LumberjackCommand.ARGUMENT_RESET.startsWith(args[1].toLowerCase())) {
+			completions.add(LumberjackCommand.ARGUMENT_RESET);
+		}
+		return completions;
+	}
+	
+	private void sendStats(final CommandSender sender) {
+		// commands may run on any region thread, the snapshot merges the counters of every thread
+		final Map<String, Number> snapshot = this.metrics.snapshot();
+		sender.sendMessage(ChatColor.GRAY + "Lumberjack stats of the last " + ChatColor.DARK_GRAY + snapshot.get("windowSeconds") + "s" + ChatColor.GRAY + ":");
+		sendTimes(sender, "tick", snapshot);
+		sendTimes(sender, "scan", snapshot);
+		sender.sendMessage(ChatColor.GRAY + "  aborted scans " + ChatColor.DARK_GRAY + snapshot.get("scanAborted")
+				+ ChatColor.GRAY + ", at unloaded chunks " + ChatColor.DARK_GRAY + snapshot.get("scanUnloadedChunks")
+				+ ChatColor.GRAY + ", chunks loaded " + ChatColor.DARK_GRAY + snapshot.get("chunkLoadRequests"));
+		sender.sendMessage(ChatColor.GRAY + "  tree size mean " + ChatColor.DARK_GRAY + snapshot.get("treeSizeMean")
+				+ ChatColor.GRAY + " p99 " + ChatColor.DARK_GRAY + snapshot.get("treeSizeP99")
+				+ ChatColor.GRAY + " max " + ChatColor.DARK_GRAY + snapshot.get("treeSizeMax"));
+		sendTimes(sender, "break", snapshot);
+		sendTimes(sender, "event", snapshot);
+		sender.sendMessage(ChatColor.GRAY + "  leaf decays " + ChatColor.DARK_GRAY + snapshot.get("decayTotal")
+				+ ChatColor.GRAY + ", per tick mean " + ChatColor.DARK_GRAY + snapshot.get("decayPerTickMean")
+				+ ChatColor.GRAY + " max " + ChatColor.DARK_GRAY + snapshot.get("decayPerTickMax")
+				+ ChatColor.GRAY + ", pending " + ChatColor.DARK_GRAY + snapshot.get("decayPending"));
+		sender.sendMessage(ChatColor.GRAY + "  tree cache hits " + ChatColor.DARK_GRAY + snapshot.get("cacheHits")
+				+ ChatColor.GRAY + ", misses " + ChatColor.DARK_GRAY + snapshot.get("cacheMisses")
+				+ ChatColor.GRAY + ", hit rate " + ChatColor.DARK_GRAY + snapshot.get("cacheHitRate"));
+	}
+	
+	private static void sendTimes(final CommandSender sender, final String name, final Map<String, Number> snapshot) {
+		sender.sendMessage(ChatColor.GRAY + "  " + name + " " + ChatColor.DARK_GRAY + snapshot.get(name + "Count")
+				+ ChatColor.GRAY + "x, mean " + ChatColor.DARK_GRAY + snapshot.get(name + "MeanMicros") + "us"
+				+ ChatColor.GRAY + " p99 " + ChatColor.DARK_GRAY + snapshot.get(name + "P99Micros") + "us"
+				+ ChatColor.GRAY + " max " + ChatColor.DARK_GRAY + snapshot.get(name + "MaxMicros") + "us");
+	}
+
+}
@@ -1,8 +1,15 @@
 package com.versuchdrei.lumberjack;
 
+import java.util.logging.Level;
+
 import org.bukkit.Bukkit;
+import org.bukkit.command.PluginCommand;
 import org.bukkit.plugin.java.JavaPlugin;
 
+import com.versuchdrei.lumberjack.scheduler.BukkitTaskScheduler;
+import com.versuchdrei.lumberjack.scheduler.FoliaTaskScheduler;
+import com.versuchdrei.lumberjack.scheduler.TaskScheduler;
+
 /**
  * the main class for the LumberJack plugin
  * 
@@ -11,10 +18,41 @@ import org.bukkit.plugin.java.JavaPlugin;
  */
 public class Main extends JavaPlugin{
 	
+	private static final String COMMAND_LUMBERJACK = "lumberjack";
+	
+	private EventListener listener;
+	
 	@Override
 	public void onEnable() {
 		super.saveDefaultConfig();
-		Bukkit.getPluginManager().registerEvents(new EventListener(this), this);
+		this.listener = new EventListener(this, createScheduler());
+		Bukkit.getPluginManager().registerEvents(this.listener, this);
+		
+		final LumberjackCommand command = new LumberjackCommand(this.listener);
+		final PluginCommand pluginCommand = super.getCommand(Main.COMMAND_LUMBERJACK);
+		pluginCommand.setExecutor(command);
+		pluginCommand.setTabCompleter(command);
+	}
+	
+	/**
+	 * @return the scheduler of regionised servers if the server is one, otherwise the regular one
+	 */
+	private TaskScheduler createScheduler() {
+		if(FoliaTaskScheduler.isSupported()) {
+			try {
+				return new FoliaTaskScheduler(this);
+			} catch(final ReflectiveOperationException e) {
+				super.getLogger().log(Level.WARNING, "could not hook into the region schedulers, falling back to the main thread", e);
+			}
+		}
+		return new BukkitTaskScheduler(this);
+	}
+	
+	@Override
+	public void onDisable() {
+		if(this.listener != null) {
+			this.listener.shutdown();
+		}
 	}
 
 }
@@ -0,0 +1,231 @@
+package com.versuchdrei.lumberjack;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import com.versuchdrei.lumberjack.utils.Histogram;
+
+/**
+ * counters and latency histograms of the plugins hot paths, 
+ * every thread records into counters of its own, so threads of different regions never wait for each other, 
+ * the counters of all threads are only added up for a snapshot
+ * @author VersuchDrei
+ * @version 1.0
+ */
+public class Metrics {
+	
+	private static final double NANOS_PER_MICRO = 1_000d;
+	
+	/**
+	 * the counters of a single thread, 
+	 * only ever locked by the thread itself and by snapshots and resets, so the lock is as good as free while recording
+	 */
+	private static class Recorder {
+		private final Histogram scanNanos = new Histogram();
+		private final Histogram treeSizes = new Histogram();
+		private long abortedScans = 0;
+		private long unloadedChunks = 0;
+		private long chunkLoadRequests = 0;
+		private final Histogram breakNanos = new Histogram();
+		private final Histogram eventNanos = new Histogram();
+		private final Histogram decaysPerTick = new Histogram();
+		private long cacheHits = 0;
+		private long cacheMisses = 0;
+		private final Histogram tickNanos = new Histogram();
+		
+		private synchronized void addTo(final Recorder total) {
+			total.scanNanos.add(this.scanNanos);
+			total.treeSizes.add(this.treeSizes);
+			total.abortedScans += this.abortedScans;
+			total.unloadedChunks += this.unloadedChunks;
+			total.chunkLoadRequests += this.chunkLoadRequests;
+			total.breakNanos.add(this.breakNanos);
+			total.eventNanos.add(this.eventNanos);
+			total.decaysPerTick.add(this.decaysPerTick);
+			total.cacheHits += this.cacheHits;
+			total.cacheMisses += this.cacheMisses;
+			total.tickNanos.add(this.tickNanos);
+		}
+		
+		private synchronized void reset() {
+			this.scanNanos.reset();
+			this.treeSizes.reset();
+			this.abortedScans = 0;
+			this.unloadedChunks = 0;
+			this.chunkLoadRequests = 0;
+			this.breakNanos.reset();
+			this.eventNanos.reset();
+			this.decaysPerTick.reset();
+			this.cacheHits = 0;
+			this.cacheMisses = 0;
+			this.tickNanos.reset();
+		}
+	}
+	
+	private final long startMillis = System.currentTimeMillis();
+	private volatile long resetMillis = this.startMillis;
+	
+	// the recorders of all threads that recorded anything so far
+	private final List<Recorder> recorders = new CopyOnWriteArrayList<>();
+	private final ThreadLocal<Recorder> recorder = ThreadLocal.withInitial(() -> {
+		final Recorder created = new Recorder();
+		this.recorders.add(created);
+		return created;
+	});
+	// a gauge rather than a counter, only the global thread sets it
+	private volatile int pendingDecays = 0;
+	
+	/**
+	 * @param nanos the time the scan took
+	 * @param logs the amount of logs found, or -1 if the scan was aborted
+	 */
+	public void recordScan(final long nanos, final int logs) {
+		final Recorder recorder = this.recorder.get();
+		synchronized(recorder) {
+			recorder.scanNanos.record(nanos);
+			if(logs < 0) {
+				recorder.abortedScans++;
+			} else {
+				recorder.treeSizes.record(logs);
+			}
+		}
+	}
+	
+	/**
+	 * counts a scan that stopped because it reached an unloaded chunk
+	 */
+	public void recordUnloadedChunk() {
+		final Recorder recorder = this.recorder.get();
+		synchronized(recorder) {
+			recorder.unloadedChunks++;
+		}
+	}
+	
+	/**
+	 * counts an unloaded chunk that a scan reached and that is loaded asynchronously
+	 */
+	public void recordChunkLoadRequest() {
+		final Recorder recorder = this.recorder.get();
+		synchronized(recorder) {
+			recorder.chunkLoadRequests++;
+		}
+	}
+	
+	/**
+	 * @param nanos the time the plugin spent handling a BlockBreakEvent
+	 */
+	public void recordBreak(final long nanos) {
+		final Recorder recorder = this.recorder.get();
+		synchronized(recorder) {
+			recorder.breakNanos.record(nanos);
+		}
+	}
+	
+	/**
+	 * @param nanos the time a BlockBreakEvent the plugin called itself took to run through all listeners
+	 */
+	public void recordEvent(final long nanos) {
+		final Recorder recorder = this.recorder.get();
+		synchronized(recorder) {
+			recorder.eventNanos.record(nanos);
+		}
+	}
+	
+	/**
+	 * @param decays the amount of leaf checks and decays processed in a tick
+	 * @param pending the amount of leaf checks and decays still waiting afterwards
+	 */
+	public void recordDecayTick(final int decays, final int pending) {
+		final Recorder recorder = this.recorder.get();
+		synchronized(recorder) {
+			recorder.decaysPerTick.record(decays);
+		}
+		this.pendingDecays = pending;
+	}
+	
+	/**
+	 * @param hit whether a tree was found in the cache
+	 */
+	public void recordCacheLookup(final boolean hit) {
+		final Recorder recorder = this.recorder.get();
+		synchronized(recorder) {
+			if(hit) {
+				recorder.cacheHits++;
+			} else {
+				recorder.cacheMisses++;
+			}
+		}
+	}
+	
+	/**
+	 * @param nanos the time between the start of the last tick and the start of this one
+	 */
+	public void recordTick(final long nanos) {
+		final Recorder recorder = this.recorder.get();
+		synchronized(recorder) {
+			recorder.tickNanos.record(nanos);
+		}
+	}
+	
+	/**
+	 * forgets everything recorded so far
+	 */
+	public void reset() {
+		this.resetMillis = System.currentTimeMillis();
+		for(final Recorder recorder: this.recorders) {
+			recorder.reset();
+		}
+	}
+	
+	/**
+	 * @return all metrics by name in a fixed order, times are in microseconds
+	 */
+	public Map<String, Number> snapshot() {
+		final Recorder total = new Recorder();
+		for(final Recorder recorder: this.recorders) {
+			recorder.addTo(total);
+		}
+		
+		final Map<String, Number> snapshot = new LinkedHashMap<>();
+		snapshot.put("timestamp", System.currentTimeMillis());
+		snapshot.put("uptimeSeconds", (System.currentTimeMillis() - this.startMillis) / 1000);
+		snapshot.put("windowSeconds", (System.currentTimeMillis() - this.resetMillis) / 1000);
+		putTimes(snapshot, "tick", total.tickNanos);
+		putTimes(snapshot, "scan", total.scanNanos);
+		snapshot.put("scanAborted", total.abortedScans);
+		snapshot.put("scanUnloadedChunks", total.unloadedChunks);
+		snapshot.put("chunkLoadRequests", total.chunkLoadRequests);
+		snapshot.put("treeSizeMean", round(total.treeSizes.getMean()));
+		snapshot.put("treeSizeP99", total.treeSizes.getPercentile(0.99));
+		snapshot.put("treeSizeMax", total.treeSizes.getMax());
+		putTimes(snapshot, "break", total.breakNanos);
+		putTimes(snapshot, "event", total.eventNanos);
+		snapshot.put("decayTicks", total.decaysPerTick.getCount());
+		snapshot.put("decayTotal", total.decaysPerTick.getSum());
+		snapshot.put("decayPerTickMean", round(total.decaysPerTick.getMean()));
+		snapshot.put("decayPerTickMax", total.decaysPerTick.getMax());
+		snapshot.put("decayPending", this.pendingDecays);
+		snapshot.put("cacheHits", total.cacheHits);
+		snapshot.put("cacheMisses", total.cacheMisses);
+		final long lookups = total.cacheHits + total.cacheMisses;
+		snapshot.put("cacheHitRate", lookups == 0? 0 : round((double) total.cacheHits / lookups));
+		return snapshot;
+	}
+	
+	/**
+	 * adds the count, mean, 99th percentile and maximum of a histogram of nanoseconds in microseconds
+	 */
+	private static void putTimes(final Map<String, Number> snapshot, final String name, final Histogram histogram) {
+		snapshot.put(name + "Count", histogram.getCount());
+		snapshot.put(name + "MeanMicros", round(histogram.getMean() / Metrics.NANOS_PER_MICRO));
+		snapshot.put(name + "P99Micros", round(histogram.getPercentile(0.99) / Metrics.NANOS_PER_MICRO));
+		snapshot.put(name + "MaxMicros", round(histogram.getMax() / Metrics.NANOS_PER_MICRO));
+	}
+	
+	private static double round(final double value) {
+		return Math.round(value * 100) / 100d;
+	}
+
+}
@@ -0,0 +1,100 @@
+package com.versuchdrei.lumberjack;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.logging.Level;
+
+import org.bukkit.plugin.Plugin;
+
+import com.versuchdrei.lumberjack.scheduler.TaskScheduler;
+
+/**
+ * appends the metrics to a file in the plugin folder periodically, 
+ * either as csv with one row per dump or as json with one object per line
+ * @author VersuchDrei
+ * @version 1.0
+ */
+public class MetricsDumper implements Runnable {
+	
+	private static final String FORMAT_JSON = "json";
+	private static final String FILE_NAME_CSV = "metrics.csv";
+	private static final String FILE_NAME_JSON = "metrics.jsonl";
+	
+	private static final long TICKS_PER_SECOND = 20;
+	
+	private final Plugin plugin;
+	private final TaskScheduler scheduler;
+	private final Metrics metrics;
+	private final boolean json;
+	private final File file;
+	
+	/**
+	 * @param plugin the plugin to dump the metrics for
+	 * @param scheduler the scheduler to dump the metrics with
+	 * @param metrics the metrics to dump
+	 * @param format json for json lines, anything else for csv
+	 */
+	public MetricsDumper(final Plugin plugin, final TaskScheduler scheduler, final Metrics metrics, final String format) {
+		this.plugin = plugin;
+		this.scheduler = scheduler;
+		this.metrics = metrics;
+		this.json = MetricsDumper.FORMAT_JSON.equalsIgnoreCase(format);
+		this.file = new File(plugin.getDataFolder(), this.json? MetricsDumper.FILE_NAME_JSON : MetricsDumper.FILE_NAME_CSV);
+	}
+	
+	/**
+	 * starts dumping the metrics
+	 * @param intervalSeconds the time between two dumps in seconds
+	 */
+	public void start(final int intervalSeconds) {
+		final long interval = intervalSeconds * MetricsDumper.TICKS_PER_SECOND;
+		this.scheduler.runGlobalTimer(this, interval, interval);
+	}
+	
+	@Override
+	public void run() {
+		// the snapshot is taken on the scheduling thread, only the writing is done asynchronously
+		final Map<String, Number> snapshot = this.metrics.snapshot();
+		this.scheduler.runAsync(() -> write(snapshot));
+	}
+	
+	private void write(final Map<String, Number> snapshot) {
+		final StringBuilder builder = new StringBuilder();
+		if(this.json) {
+			builder.append('{');
+			for(final Map.Entry<String, Number> entry: snapshot.entrySet()) {
+				if(builder.length() > 1) {
+					builder.append(',');
+				}
+				builder.append('"').append(entry.getKey()).append("\":").append(entry.getValue());
+			}
+			builder.append("}\n");
+		} else {
+			// a new file starts with the names of the columns
+			if(!this.file.exists()) {
+				builder.append(String.join(",", snapshot.keySet())).append('\n');
+			}
+			boolean first = true;
+			for(final Number value: snapshot.values()) {
+				if(!first) {
+					builder.append(',');
+				}
+				builder.append(value);
+				first = false;
+			}
+			builder.append('\n');
+		}
+		
+		try {
+			this.file.getParentFile().mkdirs();
+			Files.write(this.file.toPath(), builder.toString().getBytes(StandardCharsets.UTF_8), StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+		} catch(final IOException e) {
+			this.plugin.getLogger().log(Level.WARNING, "could not write the metrics to " + this.file.getName(), e);
+		}
+	}
+
+}
@@ -0,0 +1,93 @@
+package com.versuchdrei.lumberjack;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BooleanSupplier;
+
+import org.bukkit.NamespacedKey;
+import org.bukkit.entity.Player;
+import org.bukkit.persistence.PersistentDataContainer;
+import org.bukkit.persistence.PersistentDataType;
+import org.bukkit.plugin.Plugin;
+
+/**
+ * keeps the lumberjack mode of online players, 
+ * the mode is stored in the players persistent data, which the server saves together with the player asynchronously, 
+ * players in different regions are handled by different threads
+ * @author VersuchDrei
+ * @version 1.0
+ */
+public class PlayerStateStore {
+	
+	private static final String PERSISTENT_KEY_LUMBER_MODE = "lumber_mode";
+	
+	private static final byte TRUE = 1;
+	private static final byte FALSE = 0;
+	// the player never toggled the mode and follows the current default
+	private static final byte DEFAULT = -1;
+	
+	private final NamespacedKey lumberModeKey;
+	private final BooleanSupplier activeOnJoin;
+	
+	private final Map<UUID, Byte> lumberModes = new ConcurrentHashMap<>();
+	
+	/**
+	 * @param plugin the plugin to store the data for
+	 * @param activeOnJoin the lumberjack mode of players who never toggled it, asked every time so it follows reloads of the config
+	 */
+	public PlayerStateStore(final Plugin plugin, final BooleanSupplier activeOnJoin) {
+		this.lumberModeKey = new NamespacedKey(plugin, PlayerStateStore.PERSISTENT_KEY_LUMBER_MODE);
+		this.activeOnJoin = activeOnJoin;
+	}
+	
+	/**
+	 * reads the players lumberjack mode from their persistent data
+	 * @param player the player to load
+	 */
+	public void load(final Player player) {
+		final Byte stored = player.getPersistentDataContainer().get(this.lumberModeKey, PersistentDataType.BYTE);
+		this.lumberModes.put(player.getUniqueId(), stored == null? PlayerStateStore.DEFAULT : stored);
+	}
+	
+	/**
+	 * forgets the player, their lumberjack mode stays in their persistent data
+	 * @param player the player to unload
+	 */
+	public void unload(final Player player) {
+		this.lumberModes.remove(player.getUniqueId());
+	}
+	
+	/**
+	 * @return true if the player is loaded and has the lumberjack mode enabled
+	 */
+	public boolean isLumberMode(final Player player) {
+		final Byte lumberMode = this.lumberModes.get(player.getUniqueId());
+		if(lumberMode == null) {
+			return false;
+		}
+		return lumberMode == PlayerStateStore.DEFAULT? this.activeOnJoin.getAsBoolean() : lumberMode == PlayerStateStore.TRUE;
+	}
+	
+	/**
+	 * toggles the players lumberjack mode and stores it in their persistent data
+	 * @param player the player to toggle the mode for
+	 * @return the new lumberjack mode
+	 */
+	public boolean toggleLumberMode(final Player player) {
+		final boolean lumberMode = !isLumberMode(player);
+		
+		final PersistentDataContainer container = player.getPersistentDataContainer();
+		// players who toggle back to the default follow later changes of the default again
+		if(lumberMode == this.activeOnJoin.getAsBoolean()) {
+			this.lumberModes.put(player.getUniqueId(), PlayerStateStore.DEFAULT);
+			container.remove(this.lumberModeKey);
+		} else {
+			final byte stored = lumberMode? PlayerStateStore.TRUE : PlayerStateStore.FALSE;
+			this.lumberModes.put(player.getUniqueId(), stored);
+			container.set(this.lumberModeKey, PersistentDataType.BYTE, stored);
+		}
+		return lumberMode;
+	}
+
+}
@@ -0,0 +1,231 @@
+package com.versuchdrei.lumberjack;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Logger;
+
+import org.bukkit.World;
+import org.bukkit.block.Block;
+import org.bukkit.entity.Player;
+import org.bukkit.event.block.BlockBreakEvent;
+import org.bukkit.plugin.Plugin;
+
+import com.versuchdrei.lumberjack.utils.LongObjectHashMap;
+import com.versuchdrei.lumberjack.utils.PositionUtils;
+
+/**
+ * asks protection plugins whether a player may break blocks the plugin fells for them, 
+ * by calling a BlockBreakEvent for the block, 
+ * the answers are remembered for a short time per player and chunk or tree so not every log runs through every listener
+ * @author VersuchDrei
+ * @version 1.0
+ */
+public class ProtectionChecker {
+	
+	/**
+	 * how often a BlockBreakEvent is called while felling
+	 */
+	public enum Mode {
+		// once for every log, nothing is cached
+		PER_BLOCK,
+		// once per chunk, the answer is reused for the other logs in that chunk
+		PER_CHUNK,
+		// once for the outermost logs of a tree, the answer is reused for the whole tree
+		PER_TREE
+	}
+	
+	/**
+	 * the remembered answers for a single player
+	 */
+	private static class Verdicts {
+		private final World world;
+		private final long expires;
+		private final LongObjectHashMap<Boolean> chunks = new LongObjectHashMap<>();
+		private Tree tree = null;
+		private boolean treeAllowed = false;
+		
+		private Verdicts(final World world, final long expires) {
+			this.world = world;
+			this.expires = expires;
+		}
+	}
+	
+	/**
+	 * the block a thread is calling the BlockBreakEvent for
+	 */
+	private static class Checking {
+		private World world = null;
+		private long position = 0;
+	}
+	
+	private final Plugin plugin;
+	private final Metrics metrics;
+	private final Mode mode;
+	private final long cacheMillis;
+	
+	// the verdicts of a player are only used by the thread owning the player
+	private final Map<UUID, Verdicts> verdicts = new ConcurrentHashMap<>();
+	// the block the BlockBreakEvent is currently called for by each thread, so the plugin can ignore its own event
+	private final ThreadLocal<Checking> checking = ThreadLocal.withInitial(Checking::new);
+	
+	/**
+	 * @param plugin the plugin to call the events for
+	 * @param metrics the metrics to record the time of the events in
+	 * @param mode how often to call the events
+	 * @param cacheMillis how long answers are remembered in milliseconds
+	 */
+	public ProtectionChecker(final Plugin plugin, final Metrics metrics, final Mode mode, final long cacheMillis) {
+		this.plugin = plugin;
+		this.metrics = metrics;
+		this.mode = mode;
+		this.cacheMillis = cacheMillis;
+	}
+	
+	/**
+	 * reads the mode from its name in the config, falls back to PER_BLOCK for unknown names
+	 * @param logger the logger to warn about unknown names
+	 * @param name the name of the mode
+	 * @return the mode
+	 */
+	public static Mode parseMode(final Logger logger, final String name) {
+		if(name == null) {
+			return Mode.PER_BLOCK;
+		}
+		
+		try {
+			return Mode.valueOf(name.toUpperCase());
+		} catch(final IllegalArgumentException e) {
+			logger.warning("Unknown protection mode " + name + ", checking every block instead.");
+			return Mode.PER_BLOCK;
+		}
+	}
+	
+	/**
+	 * @return true if the plugin is calling its own BlockBreakEvent for the given block right now
+	 */
+	public boolean isChecking(final Block block) {
+		final Checking checking = this.checking.get();
+		return checking.world != null && checking.world.equals(block.getWorld()) && checking.position == PositionUtils.pack(block);
+	}
+	
+	/**
+	 * checks if the player may break the given block of a tree
+	 * @param player the player the block is broken for
+	 * @param tree the tree the block belongs to, or null if the block is broken on its own
+	 * @param block the block to break
+	 * @return true if the block may be broken
+	 */
+	public boolean canBreak(final Player player, final Tree tree, final Block block) {
+		if(this.mode == Mode.PER_BLOCK || (this.mode == Mode.PER_TREE && tree == null)) {
+			return callBreakEvent(player, block);
+		}
+		
+		final Verdicts verdicts = getVerdicts(player, block.getWorld());
+		if(this.mode == Mode.PER_TREE) {
+			if(verdicts.tree != tree) {
+				verdicts.tree = tree;
+				verdicts.treeAllowed = checkOutermostLogs(player, tree);
+			}
+			return verdicts.treeAllowed;
+		}
+		
+		final long chunkKey = PositionUtils.packChunk(block.getX() >> 4, block.getZ() >> 4);
+		final Boolean cached = verdicts.chunks.get(chunkKey);
+		if(cached != null) {
+			return cached;
+		}
+		final boolean allowed = callBreakEvent(player, block);
+		verdicts.chunks.put(chunkKey, allowed);
+		return allowed;
+	}
+	
+	/**
+	 * forgets the remembered answers of a player
+	 * @param player the player to forget
+	 */
+	public void forget(final Player player) {
+		this.verdicts.remove(player.getUniqueId());
+	}
+	
+	/**
+	 * @return the remembered answers of the player in the given world, fresh ones if the old ones expired
+	 */
+	private Verdicts getVerdicts(final Player player, final World world) {
+		final long now = System.currentTimeMillis();
+		Verdicts verdicts = this.verdicts.get(player.getUniqueId());
+		if(verdicts == null || verdicts.expires < now || !verdicts.world.equals(world)) {
+			verdicts = new Verdicts(world, now + this.cacheMillis);
+			this.verdicts.put(player.getUniqueId(), verdicts);
+		}
+		return verdicts;
+	}
+	
+	/**
+	 * calls the BlockBreakEvent for the logs at the outer edges of the tree, 
+	 * a tree reaching into a protected area has at least one of those in it in most cases
+	 * @return true if all of them may be broken
+	 */
+	private boolean checkOutermostLogs(final Player player, final Tree tree) {
+		// min x, max x, min y, max y, min z, max z
+		final long[] outermost = new long[6];
+		final int[] extremes = {Integer.MAX_VALUE, Integer.MIN_VALUE, Integer.MAX_VALUE, Integer.MIN_VALUE, Integer.MAX_VALUE, Integer.MIN_VALUE};
+		tree.getLogs().forEach(position -> {
+			final int[] coordinates = {PositionUtils.unpackX(position), PositionUtils.unpackY(position), PositionUtils.unpackZ(position)};
+			for(int axis = 0; axis < coordinates.length; axis++) {
+				if(coordinates[axis] < extremes[axis << 1]) {
+					extremes[axis << 1] = coordinates[axis];
+					outermost[axis << 1] = position;
+				}
+				if(coordinates[axis] > extremes[(axis << 1) + 1]) {
+					extremes[(axis << 1) + 1] = coordinates[axis];
+					outermost[(axis << 1) + 1] = position;
+				}
+			}
+		});
+		
+		final World world = tree.getWorld();
+		for(int i = 0; i < outermost.length; i++) {
+			// the same log can be outermost in several directions -> only check it once
+			boolean checked = false;
+			for(int j = 0; j < i; j++) {
+				checked |= outermost[j] == outermost[i];
+			}
+			if(checked) {
+				continue;
+			}
+			
+			final long position = outermost[i];
+			final Block block = world.getBlockAt(PositionUtils.unpackX(position), PositionUtils.unpackY(position), PositionUtils.unpackZ(position));
+			if(!callBreakEvent(player, block)) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	/**
+	 * calls a BlockBreakEvent for a block this plugin is about to break, so it will not bypass protection plugins
+	 * @param player the player the block is broken for
+	 * @param block the block to break
+	 * @return true if the block may be broken
+	 */
+	private boolean callBreakEvent(final Player player, final Block block) {
+		final Checking checking = this.checking.get();
+		final World previousWorld = checking.world;
+		final long previousPosition = checking.position;
+		checking.world = block.getWorld();
+		checking.position = PositionUtils.pack(block);
+		final long start = System.nanoTime();
+		try {
+			final BlockBreakEvent event = new BlockBreakEvent(block, player);
+			this.plugin.getServer().getPluginManager().callEvent(event);
+			return !event.isCancelled();
+		} finally {
+			checking.world = previousWorld;
+			checking.position = previousPosition;
+			this.metrics.recordEvent(System.nanoTime() - start);
+		}
+	}
+
+}
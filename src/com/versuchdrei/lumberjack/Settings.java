@@ -0,0 +1,256 @@
+package com.versuchdrei.lumberjack;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.logging.Logger;
+
+import org.bukkit.World;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.InvalidConfigurationException;
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.bukkit.plugin.Plugin;
+
+/**
+ * an immutable snapshot of the settings that can be reloaded while the server is running, 
+ * everything is parsed and compiled when the snapshot is created, so reading a setting is a plain field access
+ * @author VersuchDrei
+ * @version 1.0
+ */
+public class Settings {
+	
+	private static final String CONFIG_FILE = "config.yml";
+	
+	private static final String CONFIG_KEY_RULES = "rules";
+	private static final String CONFIG_KEY_SHAPES = "shapes";
+	private static final String CONFIG_KEY_WORLDS = "worlds";
+	private static final String CONFIG_KEY_ACTIVE_ON_JOIN = "activeOnJoin";
+	private static final String CONFIG_KEY_USE_PERMISSIONS = "usePermissions";
+	private static final String CONFIG_KEY_FAST_LEAF_DECAY = "fastLeafDecay";
+	private static final String CONFIG_KEY_LEAF_DECAY_SOUND = "leafDecaySound";
+	private static final String CONFIG_KEY_LEAF_DECAY_PARTICLES = "leafDecayParticles";
+	private static final String CONFIG_KEY_LEAF_DECAY_EFFECT_DISTANCE = "leafDecayEffectDistance";
+	private static final String CONFIG_KEY_LEAF_DECAY_EFFECT_PACKETS_PER_TICK = "leafDecayEffectPacketsPerTick";
+	private static final String CONFIG_KEY_LEAF_DECAY_MAX_PARTICLES = "leafDecayMaxParticles";
+	private static final String CONFIG_KEY_MAX_TREE_SIZE = "maxTreeSize";
+	private static final String CONFIG_KEY_MAX_SCAN_RADIUS = "maxScanRadius";
+	private static final String CONFIG_KEY_MAX_LEAF_DECAYS_PER_TICK = "maxLeafDecaysPerTick";
+	
+	/**
+	 * the settings that can differ from world to world
+	 */
+	public static class WorldSettings {
+		private final boolean fastLeafDecay;
+		private final boolean leafDecaySound;
+		private final boolean leafDecayParticles;
+		private final int maxLeafDecaysPerTick;
+		private final TreeScanner scanner;
+		
+		private WorldSettings(final boolean fastLeafDecay, final boolean leafDecaySound, final boolean leafDecayParticles, 
+				final int maxLeafDecaysPerTick, final TreeScanner scanner) {
+			this.fastLeafDecay = fastLeafDecay;
+			this.leafDecaySound = leafDecaySound;
+			this.leafDecayParticles = leafDecayParticles;
+			this.maxLeafDecaysPerTick = maxLeafDecaysPerTick <= 0? Integer.MAX_VALUE : maxLeafDecaysPerTick;
+			this.scanner = scanner;
+		}
+		
+		/**
+		 * @return true if leaves around broken logs and leaves decay fast
+		 */
+		public boolean isFastLeafDecay() {
+			return this.fastLeafDecay;
+		}
+		
+		/**
+		 * @return true if decaying leaves play a sound
+		 */
+		public boolean isLeafDecaySound() {
+			return this.leafDecaySound;
+		}
+		
+		/**
+		 * @return true if decaying leaves spawn particles
+		 */
+		public boolean isLeafDecayParticles() {
+			return this.leafDecayParticles;
+		}
+		
+		/**
+		 * @return true if decaying leaves show any effects at all
+		 */
+		public boolean hasLeafDecayEffects() {
+			return this.leafDecaySound || this.leafDecayParticles;
+		}
+		
+		/**
+		 * @return the maximum amount of leaves to check or decay per tick, Integer.MAX_VALUE for no limit
+		 */
+		public int getMaxLeafDecaysPerTick() {
+			return this.maxLeafDecaysPerTick;
+		}
+		
+		/**
+		 * @return the scanner holding the tree limits of the world
+		 */
+		public TreeScanner getScanner() {
+			return this.scanner;
+		}
+	}
+	
+	private final boolean activeOnJoin;
+	private final boolean usePermissions;
+	private final double leafDecayEffectDistance;
+	private final int leafDecayEffectPacketsPerTick;
+	private final int leafDecayMaxParticles;
+	private final ToolRules toolRules;
+	private final WorldSettings defaults;
+	// by world name, only worlds that override anything
+	private final Map<String, WorldSettings> worlds;
+	
+	private Settings(final ConfigurationSection config, final ToolRules toolRules, final WorldSettings defaults, final Map<String, WorldSettings> worlds) {
+		this.activeOnJoin = config.getBoolean(Settings.CONFIG_KEY_ACTIVE_ON_JOIN);
+		this.usePermissions = config.getBoolean(Settings.CONFIG_KEY_USE_PERMISSIONS);
+		this.leafDecayEffectDistance = config.getDouble(Settings.CONFIG_KEY_LEAF_DECAY_EFFECT_DISTANCE);
+		this.leafDecayEffectPacketsPerTick = config.getInt(Settings.CONFIG_KEY_LEAF_DECAY_EFFECT_PACKETS_PER_TICK);
+		this.leafDecayMaxParticles = config.getInt(Settings.CONFIG_KEY_LEAF_DECAY_MAX_PARTICLES);
+		this.toolRules = toolRules;
+		this.defaults = defaults;
+		this.worlds = worlds;
+	}
+	
+	/**
+	 * reads the config file of the plugin, falling back to the default config for missing keys, 
+	 * this only reads files and does not touch the server, so it can be called from any thread
+	 * @param plugin the plugin to read the config of
+	 * @return the read config, to be compiled on the global thread
+	 * @throws IOException if the config file can't be read
+	 * @throws InvalidConfigurationException if the config file is not valid yaml
+	 */
+	public static ConfigurationSection read(final Plugin plugin) throws IOException, InvalidConfigurationException {
+		final YamlConfiguration config = new YamlConfiguration();
+		config.load(new File(plugin.getDataFolder(), Settings.CONFIG_FILE));
+		
+		final InputStream defaults = plugin.getResource(Settings.CONFIG_FILE);
+		if(defaults != null) {
+			try(final InputStreamReader reader = new InputStreamReader(defaults, StandardCharsets.UTF_8)) {
+				final YamlConfiguration defaultConfig = new YamlConfiguration();
+				defaultConfig.load(reader);
+				config.setDefaults(defaultConfig);
+			}
+		}
+		return config;
+	}
+	
+	/**
+	 * compiles the given config into new settings, 
+	 * the tags of the tool rules are resolved through the server, so this has to be called on the global thread
+	 * @param plugin the plugin to compile the settings for
+	 * @param config the config to compile
+	 * @return the compiled settings
+	 */
+	public static Settings compile(final Plugin plugin, final ConfigurationSection config) {
+		final TreeShapes shapes = TreeShapes.compile(plugin, config.getConfigurationSection(Settings.CONFIG_KEY_SHAPES));
+		final WorldSettings defaults = new WorldSettings(config.getBoolean(Settings.CONFIG_KEY_FAST_LEAF_DECAY), 
+				config.getBoolean(Settings.CONFIG_KEY_LEAF_DECAY_SOUND), config.getBoolean(Settings.CONFIG_KEY_LEAF_DECAY_PARTICLES), 
+				config.getInt(Settings.CONFIG_KEY_MAX_LEAF_DECAYS_PER_TICK), 
+				new TreeScanner(config.getInt(Settings.CONFIG_KEY_MAX_TREE_SIZE), config.getInt(Settings.CONFIG_KEY_MAX_SCAN_RADIUS), shapes));
+		
+		final Map<String, WorldSettings> worlds = new HashMap<>();
+		final ConfigurationSection worldsSection = config.getConfigurationSection(Settings.CONFIG_KEY_WORLDS);
+		if(worldsSection != null) {
+			final Logger logger = plugin.getLogger();
+			for(final String name: worldsSection.getKeys(false)) {
+				final ConfigurationSection world = worldsSection.getConfigurationSection(name);
+				if(world == null) {
+					logger.warning("The world settings of " + name + " are not a section.");
+					continue;
+				}
+				worlds.put(name, Settings.compileWorld(world, defaults, shapes));
+			}
+		}
+		
+		return new Settings(config, ToolRules.compile(plugin, config.getConfigurationSection(Settings.CONFIG_KEY_RULES)), 
+				defaults, Collections.unmodifiableMap(worlds));
+	}
+	
+	/**
+	 * compiles the overrides of a single world, every key that is not set falls back to the global setting
+	 */
+	private static WorldSettings compileWorld(final ConfigurationSection section, final WorldSettings defaults, final TreeShapes shapes) {
+		final TreeScanner globalScanner = defaults.scanner;
+		final int maxTreeSize = section.getInt(Settings.CONFIG_KEY_MAX_TREE_SIZE, globalScanner.getMaxLogs());
+		final int maxScanRadius = section.getInt(Settings.CONFIG_KEY_MAX_SCAN_RADIUS, globalScanner.getMaxRadius());
+		// the scanner is immutable, so worlds with the global limits share it
+		final TreeScanner scanner = maxTreeSize == globalScanner.getMaxLogs() && maxScanRadius == globalScanner.getMaxRadius()?
+				globalScanner : new TreeScanner(maxTreeSize, maxScanRadius, shapes);
+		return new WorldSettings(section.getBoolean(Settings.CONFIG_KEY_FAST_LEAF_DECAY, defaults.fastLeafDecay), 
+				section.getBoolean(Settings.CONFIG_KEY_LEAF_DECAY_SOUND, defaults.leafDecaySound), 
+				section.getBoolean(Settings.CONFIG_KEY_LEAF_DECAY_PARTICLES, defaults.leafDecayParticles), 
+				section.getInt(Settings.CONFIG_KEY_MAX_LEAF_DECAYS_PER_TICK, defaults.maxLeafDecaysPerTick), scanner);
+	}
+	
+	/**
+	 * @return the lumberjack mode of players who never toggled it
+	 */
+	public boolean isActiveOnJoin() {
+		return this.activeOnJoin;
+	}
+	
+	/**
+	 * @return true if players need a permission to use the lumberjack mode
+	 */
+	public boolean isUsePermissions() {
+		return this.usePermissions;
+	}
+	
+	/**
+	 * @return the maximum distance of players to decaying leaves to see and hear them
+	 */
+	public double getLeafDecayEffectDistance() {
+		return this.leafDecayEffectDistance;
+	}
+	
+	/**
+	 * @return the maximum amount of effect packets to send to a single player per tick, 0 for no limit
+	 */
+	public int getLeafDecayEffectPacketsPerTick() {
+		return this.leafDecayEffectPacketsPerTick;
+	}
+	
+	/**
+	 * @return the maximum amount of particles per chunk section and tick
+	 */
+	public int getLeafDecayMaxParticles() {
+		return this.leafDecayMaxParticles;
+	}
+	
+	/**
+	 * @return which blocks can be chopped with which tools
+	 */
+	public ToolRules getToolRules() {
+		return this.toolRules;
+	}
+	
+	/**
+	 * @return the settings of worlds without overrides
+	 */
+	public WorldSettings getDefaults() {
+		return this.defaults;
+	}
+	
+	/**
+	 * @param world the world to get the settings for
+	 * @return the settings of the given world
+	 */
+	public WorldSettings forWorld(final World world) {
+		final WorldSettings settings = this.worlds.get(world.getName());
+		return settings == null? this.defaults : settings;
+	}
+
+}
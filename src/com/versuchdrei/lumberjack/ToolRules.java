@@ -0,0 +1,153 @@
+package com.versuchdrei.lumberjack;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.logging.Logger;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Material;
+import org.bukkit.NamespacedKey;
+import org.bukkit.Tag;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.plugin.Plugin;
+
+import com.versuchdrei.lumberjack.utils.MaterialTag;
+
+/**
+ * the rules which blocks can be chopped with which tools, 
+ * compiled into tables indexed by the materials ordinal so looking up a block or tool is a single array access
+ * @author VersuchDrei
+ * @version 1.0
+ */
+public class ToolRules {
+	
+	private static final String CONFIG_KEY_BLOCKS = "blocks";
+	private static final String CONFIG_KEY_TOOLS = "tools";
+	
+	private static final String TAG_PREFIX = "#";
+	
+	private static final String SOURCE = "chopping rules";
+	
+	private final List<BlockCategory> categories;
+	private final BlockCategory[] categoryByBlock;
+	private final boolean[] tools;
+	
+	private ToolRules(final List<BlockCategory> categories) {
+		this.categories = categories;
+		
+		final Material[] materials = Material.values();
+		this.categoryByBlock = new BlockCategory[materials.length];
+		this.tools = new boolean[materials.length];
+		for(final Material material: materials) {
+			for(final BlockCategory category: categories) {
+				// the first category wins if a block is part of multiple ones
+				if(this.categoryByBlock[material.ordinal()] == null && category.getBlocks().isTagged(material)) {
+					this.categoryByBlock[material.ordinal()] = category;
+				}
+				if(category.getTools().isTagged(material)) {
+					this.tools[material.ordinal()] = true;
+				}
+			}
+		}
+	}
+	
+	/**
+	 * compiles the rules of the given config section, 
+	 * every key of the section is a category with a list of blocks and a list of tools, 
+	 * entries are either material names or tags prefixed with #
+	 * @param plugin the plugin to compile the rules for
+	 * @param section the config section containing the categories
+	 * @return the compiled rules
+	 */
+	public static ToolRules compile(final Plugin plugin, final ConfigurationSection section) {
+		final List<BlockCategory> categories = new ArrayList<>();
+		if(section == null) {
+			return new ToolRules(categories);
+		}
+		
+		final Logger logger = plugin.getLogger();
+		for(final String name: section.getKeys(false)) {
+			final ConfigurationSection rule = section.getConfigurationSection(name);
+			if(rule == null) {
+				logger.warning("The chopping rule " + name + " is not a section.");
+				continue;
+			}
+			
+			final NamespacedKey key = new NamespacedKey(plugin, name.toLowerCase());
+			final Set<Material> blocks = ToolRules.parseMaterials(logger, rule.getStringList(ToolRules.CONFIG_KEY_BLOCKS), Tag.REGISTRY_BLOCKS, ToolRules.SOURCE);
+			final Set<Material> tools = ToolRules.parseMaterials(logger, rule.getStringList(ToolRules.CONFIG_KEY_TOOLS), Tag.REGISTRY_ITEMS, ToolRules.SOURCE);
+			categories.add(new BlockCategory(name, new MaterialTag(key, blocks), new MaterialTag(key, tools)));
+		}
+		return new ToolRules(categories);
+	}
+	
+	/**
+	 * @return the category of the given block, or null if it can't be chopped
+	 */
+	public BlockCategory getCategory(final Material block) {
+		return this.categoryByBlock[block.ordinal()];
+	}
+	
+	/**
+	 * @return true if the given material is a tool of any category
+	 */
+	public boolean isTool(final Material tool) {
+		return this.tools[tool.ordinal()];
+	}
+	
+	public List<BlockCategory> getCategories() {
+		return this.categories;
+	}
+	
+	/**
+	 * parses a list of material names and tags prefixed with #
+	 * @param logger the logger to warn about unknown entries
+	 * @param entries the entries to parse
+	 * @param registry the registry to look up the tags in
+	 * @param source the part of the config the entries are from, for the warnings
+	 * @return the materials of all entries
+	 */
+	static Set<Material> parseMaterials(final Logger logger, final List<String> entries, final String registry, final String source) {
+		final Set<Material> materials = EnumSet.noneOf(Material.class);
+		for(final String entry: entries) {
+			if(entry.startsWith(ToolRules.TAG_PREFIX)) {
+				final Tag<Material> tag = Bukkit.getTag(registry, ToolRules.parseKey(entry.substring(ToolRules.TAG_PREFIX.length())), Material.class);
+				if(tag == null) {
+					logger.warning("Unknown tag " + entry + " in the " + source + ".");
+					continue;
+				}
+				materials.addAll(tag.getValues());
+			} else {
+				final Material material = Material.matchMaterial(entry);
+				if(material == null) {
+					logger.warning("Unknown material " + entry + " in the " + source + ".");
+					continue;
+				}
+				materials.add(material);
+			}
+		}
+		return materials;
+	}
+	
+	/**
+	 * parses a key in the namespace:key format, keys without namespace are in the minecraft namespace
+	 */
+	@SuppressWarnings("deprecation")
+	private static NamespacedKey parseKey(final String key) {
+		final String lowerKey = key.toLowerCase();
+		final int separator = lowerKey.indexOf(':');
+		if(separator < 0) {
+			return NamespacedKey.minecraft(lowerKey);
+		}
+		
+		final String namespace = lowerKey.substring(0, separator);
+		if(namespace.equals(NamespacedKey.MINECRAFT)) {
+			return NamespacedKey.minecraft(lowerKey.substring(separator + 1));
+		}
+		// plugins and mods may define their own tags, which can only be looked up with this deprecated constructor
+		return new NamespacedKey(namespace, lowerKey.substring(separator + 1));
+	}
+
+}
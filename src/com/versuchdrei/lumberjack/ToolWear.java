@@ -0,0 +1,175 @@
+package com.versuchdrei.lumberjack;
+
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Material;
+import org.bukkit.enchantments.Enchantment;
+import org.bukkit.entity.Player;
+import org.bukkit.event.player.PlayerItemBreakEvent;
+import org.bukkit.event.player.PlayerItemDamageEvent;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.PlayerInventory;
+import org.bukkit.inventory.meta.Damageable;
+import org.bukkit.inventory.meta.ItemMeta;
+import org.bukkit.plugin.Plugin;
+
+import com.versuchdrei.lumberjack.scheduler.TaskScheduler;
+import com.versuchdrei.lumberjack.utils.ItemUtils;
+
+/**
+ * collects the wear of the tools players fell with and applies it once per tick, 
+ * so felling many blocks reads and writes the tools meta once instead of once per block
+ * 
+ * which blocks damage the tool is decided up front by drawing the gap to the next damaging block, 
+ * so the tool still breaks at the exact block its durability runs out at
+ * @author VersuchDrei
+ * @version 1.0
+ */
+public class ToolWear {
+	
+	/**
+	 * the wear collected for the tool a single player is felling with
+	 */
+	private static class PendingWear {
+		private final int slot;
+		private final Material type;
+		private final int unbreaking;
+		private final int durability;
+		private int damage = 0;
+		// the amount of blocks left to fell until the next one damages the tool, that one included
+		private int untilDamage;
+		
+		private PendingWear(final int slot, final Material type, final int unbreaking, final int durability) {
+			this.slot = slot;
+			this.type = type;
+			this.unbreaking = unbreaking;
+			this.durability = durability;
+			this.untilDamage = ItemUtils.blocksUntilDamage(unbreaking);
+		}
+	}
+	
+	private final Plugin plugin;
+	private final TaskScheduler scheduler;
+	
+	// only the thread owning a player wears their tool, the map is shared by the threads of all regions
+	private final Map<UUID, PendingWear> pending = new ConcurrentHashMap<>();
+	
+	/**
+	 * @param plugin the plugin to look up the players with
+	 * @param scheduler the scheduler to apply the wear with, by the thread owning the player
+	 */
+	public ToolWear(final Plugin plugin, final TaskScheduler scheduler) {
+		this.plugin = plugin;
+		this.scheduler = scheduler;
+	}
+	
+	/**
+	 * wears the tool in the players main hand by a felled block
+	 * @param player the player who felled the block
+	 * @return true if the tool is still intact, false if it broke with this block
+	 */
+	public boolean wear(final Player player) {
+		final UUID uuid = player.getUniqueId();
+		final PlayerInventory inventory = player.getInventory();
+		final int slot = inventory.getHeldItemSlot();
+		final ItemStack item = inventory.getItemInMainHand();
+		
+		PendingWear wear = this.pending.get(uuid);
+		// the player switched tools since the last block -> the old one gets its wear now
+		if(wear != null && (wear.slot != slot || wear.type != item.getType())) {
+			flush(uuid);
+			wear = null;
+		}
+		if(wear == null) {
+			final ItemMeta meta = item.getItemMeta();
+			// the tool can't be damaged -> nothing to keep track of
+			if(!(meta instanceof Damageable) || meta.isUnbreakable() || item.getType().getMaxDurability() <= 0) {
+				return true;
+			}
+			
+			wear = new PendingWear(slot, item.getType(), meta.getEnchantLevel(Enchantment.DURABILITY), 
+					item.getType().getMaxDurability() - ((Damageable) meta).getDamage());
+			this.pending.put(uuid, wear);
+			// a player who left had their wear applied when quitting -> nothing left to do then
+			this.scheduler.runFor(player, () -> flush(uuid), null, 1);
+		}
+		
+		// unbreaking spared the tool this time
+		if(--wear.untilDamage > 0) {
+			return true;
+		}
+		
+		wear.damage++;
+		wear.untilDamage = ItemUtils.blocksUntilDamage(wear.unbreaking);
+		// the durability runs out with this block -> apply the wear right away to see if it really breaks
+		if(wear.damage >= wear.durability) {
+			return flush(uuid);
+		}
+		return true;
+	}
+	
+	/**
+	 * applies the collected wear of all players right away, used when the plugin gets disabled
+	 */
+	public void flushAll() {
+		for(final UUID uuid: new ArrayList<>(this.pending.keySet())) {
+			flush(uuid);
+		}
+	}
+	
+	/**
+	 * applies the collected wear of the given player right away, used when the player quits
+	 */
+	public void flush(final Player player) {
+		flush(player.getUniqueId());
+	}
+	
+	/**
+	 * applies the collected wear of the given player in one meta write, 
+	 * other plugins can change or cancel it through the item damage event
+	 * @return true if the tool is still intact, false if it broke
+	 */
+	private boolean flush(final UUID uuid) {
+		final PendingWear wear = this.pending.remove(uuid);
+		if(wear == null || wear.damage == 0) {
+			return true;
+		}
+		
+		final Player player = this.plugin.getServer().getPlayer(uuid);
+		if(player == null) {
+			return true;
+		}
+		
+		final PlayerInventory inventory = player.getInventory();
+		final ItemStack item = inventory.getItem(wear.slot);
+		// the tool was moved or replaced meanwhile -> it's not ours to damage anymore
+		if(item == null || item.getType() != wear.type) {
+			return true;
+		}
+		
+		final PlayerItemDamageEvent event = new PlayerItemDamageEvent(player, item, wear.damage);
+		Bukkit.getPluginManager().callEvent(event);
+		if(event.isCancelled() || event.getDamage() <= 0) {
+			return true;
+		}
+		
+		final ItemMeta meta = item.getItemMeta();
+		final Damageable damageable = (Damageable) meta;
+		final int newDamage = damageable.getDamage() + event.getDamage();
+		if(newDamage >= item.getType().getMaxDurability()) {
+			Bukkit.getPluginManager().callEvent(new PlayerItemBreakEvent(player, item));
+			inventory.setItem(wear.slot, null);
+			return false;
+		}
+		
+		damageable.setDamage(newDamage);
+		item.setItemMeta(meta);
+		inventory.setItem(wear.slot, item);
+		return true;
+	}
+
+}
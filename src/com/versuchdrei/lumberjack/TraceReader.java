@@ -0,0 +1,192 @@
+package com.versuchdrei.lumberjack;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+import org.bukkit.Material;
+
+/**
+ * reads a trace written by the TraceRecorder record by record, does not need a server
+ * 
+ * a break or decay record consists of 
+ * the kind (byte), the outcome (byte), the material id (short), the world id (short), the tick (int), 
+ * the player (two longs, both 0 for decays), the packed position (long) and the queue size (int), 
+ * a name record consists of the kind (byte), the table (byte), the id (short), the length (short) and the utf-8 name
+ * @author VersuchDrei
+ * @version 1.0
+ */
+public class TraceReader implements Closeable {
+	
+	private static final int BUFFER_SIZE = 1 << 16;
+	private static final int HEADER_SIZE = 4 + 2;
+	
+	private final FileChannel channel;
+	private final ByteBuffer buffer = ByteBuffer.allocateDirect(TraceReader.BUFFER_SIZE);
+	private final Map<Short, Material> materials = new HashMap<>();
+	private final Map<Short, String> worlds = new HashMap<>();
+	
+	private byte kind;
+	private byte outcome;
+	private Material material;
+	private String world;
+	private int tick;
+	private UUID player;
+	private long position;
+	private int queueSize;
+	
+	/**
+	 * opens the given trace and checks its header
+	 * @param path the trace file
+	 * @throws IOException if the file can't be read or is no trace
+	 */
+	public TraceReader(final Path path) throws IOException {
+		this.channel = FileChannel.open(path, StandardOpenOption.READ);
+		this.buffer.flip();
+		if(!fill(TraceReader.HEADER_SIZE) || this.buffer.getInt() != TraceRecorder.MAGIC) {
+			this.channel.close();
+			throw new IOException(path + " is no lumberjack trace");
+		}
+		final short version = this.buffer.getShort();
+		if(version != TraceRecorder.VERSION) {
+			this.channel.close();
+			throw new IOException(path + " has trace version " + version + ", expected " + TraceRecorder.VERSION);
+		}
+	}
+	
+	/**
+	 * reads the next break or decay record, name records are handled on the way
+	 * @return true if a record was read, false at the end of the trace
+	 * @throws IOException if the trace can't be read or is cut off in the middle of a record
+	 */
+	public boolean next() throws IOException {
+		while(fill(1)) {
+			final byte kind = this.buffer.get();
+			if(kind == TraceRecorder.KIND_NAME) {
+				readName();
+				continue;
+			}
+			
+			if(!fill(TraceRecorder.RECORD_SIZE - 1)) {
+				throw new IOException("the trace ends in the middle of a record");
+			}
+			this.kind = kind;
+			this.outcome = this.buffer.get();
+			this.material = this.materials.get(this.buffer.getShort());
+			this.world = this.worlds.get(this.buffer.getShort());
+			this.tick = this.buffer.getInt();
+			final long most = this.buffer.getLong();
+			final long least = this.buffer.getLong();
+			this.player = most == 0 && least == 0? null : new UUID(most, least);
+			this.position = this.buffer.getLong();
+			this.queueSize = this.buffer.getInt();
+			return true;
+		}
+		return false;
+	}
+	
+	/**
+	 * @return the kind of the record, either TraceRecorder.KIND_BREAK or TraceRecorder.KIND_DECAY
+	 */
+	public byte getKind() {
+		return this.kind;
+	}
+	
+	/**
+	 * @return one of the outcomes of the TraceRecorder
+	 */
+	public byte getOutcome() {
+		return this.outcome;
+	}
+	
+	/**
+	 * @return the material of the block, or null if the material does not exist in this version
+	 */
+	public Material getMaterial() {
+		return this.material;
+	}
+	
+	public String getWorld() {
+		return this.world;
+	}
+	
+	/**
+	 * @return the tick the record was taken at, counted from when the recording started
+	 */
+	public int getTick() {
+		return this.tick;
+	}
+	
+	/**
+	 * @return the player who broke the block, or null for decays
+	 */
+	public UUID getPlayer() {
+		return this.player;
+	}
+	
+	/**
+	 * @return the packed position of the block
+	 */
+	public long getPosition() {
+		return this.position;
+	}
+	
+	/**
+	 * @return the queue size of a break or the pending decay work of a decay
+	 */
+	public int getQueueSize() {
+		return this.queueSize;
+	}
+	
+	@Override
+	public void close() throws IOException {
+		this.channel.close();
+	}
+	
+	private void readName() throws IOException {
+		if(!fill(1 + 2 + 2)) {
+			throw new IOException("the trace ends in the middle of a name");
+		}
+		final byte table = this.buffer.get();
+		final short id = this.buffer.getShort();
+		final int length = this.buffer.getShort() & 0xFFFF;
+		if(!fill(length)) {
+			throw new IOException("the trace ends in the middle of a name");
+		}
+		final byte[] bytes = new byte[length];
+		this.buffer.get(bytes);
+		final String name = new String(bytes, StandardCharsets.UTF_8);
+		if(table == TraceRecorder.TABLE_MATERIAL) {
+			this.materials.put(id, Material.getMaterial(name));
+		} else {
+			this.worlds.put(id, name);
+		}
+	}
+	
+	/**
+	 * makes sure the buffer holds at least the given amount of bytes
+	 * @return false if the trace ends before
+	 */
+	private boolean fill(final int bytes) throws IOException {
+		if(this.buffer.remaining() >= bytes) {
+			return true;
+		}
+		
+		this.buffer.compact();
+		while(this.buffer.position() < bytes) {
+			if(this.channel.read(this.buffer) < 0) {
+				break;
+			}
+		}
+		this.buffer.flip();
+		return this.buffer.remaining() >= bytes;
+	}
+
+}
@@ -0,0 +1,346 @@
+package com.versuchdrei.lumberjack;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.logging.Level;
+
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.bukkit.block.Block;
+import org.bukkit.entity.Player;
+import org.bukkit.plugin.Plugin;
+
+import com.versuchdrei.lumberjack.scheduler.TaskScheduler;
+import com.versuchdrei.lumberjack.utils.PositionUtils;
+
+/**
+ * appends every break and decay decision to a binary trace file, so the workload of a server can be replayed offline
+ * 
+ * the file starts with a header of the magic number and the format version, followed by records that each start with their kind, 
+ * materials and worlds are written by name once and referred to by their id afterwards, 
+ * break and decay records all have the same size, see TraceReader for the layout, 
+ * the records of all region threads go into the same buffer, so writing to it is synchronized, 
+ * a full buffer is swapped for a second one and written to the file asynchronously, so no region thread waits for the disk while holding the lock
+ * @author VersuchDrei
+ * @version 1.0
+ */
+public class TraceRecorder implements Runnable {
+	
+	public static final int MAGIC = 0x4C4A5452;
+	public static final short VERSION = 1;
+	
+	public static final byte KIND_NAME = 0;
+	public static final byte KIND_BREAK = 1;
+	public static final byte KIND_DECAY = 2;
+	
+	public static final byte TABLE_MATERIAL = 0;
+	public static final byte TABLE_WORLD = 1;
+	
+	// the block is no lumberjack case at all, no tool, no permission, lumberjack mode off or not choppable
+	public static final byte OUTCOME_IGNORED = 0;
+	// the block broke like vanilla
+	public static final byte OUTCOME_VANILLA = 1;
+	// a log was felled instead of the block
+	public static final byte OUTCOME_FELLED = 2;
+	// the break was cancelled and deferred because the work budget was used up
+	public static final byte OUTCOME_DEFERRED = 3;
+	// the break was cancelled because the tree is falling already
+	public static final byte OUTCOME_WAITING = 4;
+	// the whole tree started falling
+	public static final byte OUTCOME_INSTANT = 5;
+	// the leaf decayed on its own and its surroundings are checked
+	public static final byte OUTCOME_SPREAD = 6;
+	// the leaf decayed as part of a canopy that is already handled
+	public static final byte OUTCOME_HANDLED = 7;
+	
+	// kind, outcome, material, world, tick, player, position, queue size
+	public static final int RECORD_SIZE = 1 + 1 + 2 + 2 + 4 + 16 + 8 + 4;
+	
+	private static final int BUFFER_SIZE = 1 << 16;
+	private static final int FLUSH_INTERVAL = 100;
+	
+	private final Plugin plugin;
+	private final TaskScheduler scheduler;
+	private final File file;
+	// the buffer records are put into and the empty one to swap it for, the spare is null while it is being written
+	private ByteBuffer buffer = ByteBuffer.allocateDirect(TraceRecorder.BUFFER_SIZE);
+	private ByteBuffer spare = ByteBuffer.allocateDirect(TraceRecorder.BUFFER_SIZE);
+	// the full buffer waiting for an async task to write it, null if there is none
+	private ByteBuffer handedOff = null;
+	private final Map<Material, Short> materials = new EnumMap<>(Material.class);
+	private final Map<UUID, Short> worlds = new HashMap<>();
+	// null if the file could not be opened or writing failed
+	private FileChannel channel;
+	private int tick = 0;
+	
+	/**
+	 * @param plugin the plugin to record the trace for
+	 * @param scheduler the scheduler to count the ticks with
+	 * @param fileName the name of the trace file in the plugin folder
+	 */
+	public TraceRecorder(final Plugin plugin, final TaskScheduler scheduler, final String fileName) {
+		this.plugin = plugin;
+		this.scheduler = scheduler;
+		this.file = new File(plugin.getDataFolder(), fileName);
+	}
+	
+	/**
+	 * opens the trace file and starts counting ticks
+	 */
+	public void start() {
+		try {
+			this.file.getParentFile().mkdirs();
+			final boolean fresh = !this.file.exists() || this.file.length() == 0;
+			this.channel = FileChannel.open(this.file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+			// an existing trace is continued, its names are written again as the ids start over
+			if(fresh) {
+				this.buffer.putInt(TraceRecorder.MAGIC);
+				this.buffer.putShort(TraceRecorder.VERSION);
+			}
+		} catch(final IOException e) {
+			this.plugin.getLogger().log(Level.WARNING, "could not open the trace file " + this.file.getName(), e);
+			return;
+		}
+		this.scheduler.runGlobalTimer(this, 1, 1);
+	}
+	
+	/**
+	 * records the decision about a broken block
+	 * @param player the player who broke the block
+	 * @param block the block that was broken
+	 * @param material the type of the block before it broke
+	 * @param queueSize the amount of logs left in the queue of the blocks tree, or -1 if it has none
+	 * @param outcome what happened to the block
+	 */
+	public void recordBreak(final Player player, final Block block, final Material material, final int queueSize, final byte outcome) {
+		record(TraceRecorder.KIND_BREAK, player.getUniqueId(), block, material, queueSize, outcome);
+	}
+	
+	/**
+	 * records a decaying leaf
+	 * @param block the leaf that decays
+	 * @param pending the amount of checks and decays pending in the decay engine
+	 * @param outcome whether the surroundings are checked
+	 */
+	public void recordDecay(final Block block, final int pending, final byte outcome) {
+		record(TraceRecorder.KIND_DECAY, null, block, block.getType(), pending, outcome);
+	}
+	
+	/**
+	 * writes everything that is left and closes the trace file, used when the plugin gets disabled
+	 */
+	public synchronized void close() {
+		if(this.channel == null) {
+			return;
+		}
+		
+		// async tasks don't run anymore once the plugin is disabled -> write a buffer no task picked up yet right here
+		writeHandedOffNow();
+		// a task is writing the other buffer right now -> wait for it, the file is written in order
+		awaitSpare();
+		if(this.channel != null && this.buffer.position() > 0) {
+			this.buffer.flip();
+			if(!write(this.channel, this.buffer)) {
+				stop(this.channel);
+			}
+			this.buffer.clear();
+		}
+		if(this.channel == null) {
+			return;
+		}
+		try {
+			this.channel.close();
+		} catch(final IOException e) {
+			this.plugin.getLogger().log(Level.WARNING, "could not close the trace file " + this.file.getName(), e);
+		}
+		this.channel = null;
+	}
+	
+	@Override
+	public synchronized void run() {
+		this.tick++;
+		if(this.tick % TraceRecorder.FLUSH_INTERVAL == 0) {
+			flush();
+		}
+	}
+	
+	private synchronized void record(final byte kind, final UUID player, final Block block, final Material material, final int queueSize, final byte outcome) {
+		if(this.channel == null) {
+			return;
+		}
+		
+		final short materialId = nameId(this.materials, material, TraceRecorder.TABLE_MATERIAL, material.name());
+		final World world = block.getWorld();
+		final short worldId = nameId(this.worlds, world.getUID(), TraceRecorder.TABLE_WORLD, world.getName());
+		ensureRemaining(TraceRecorder.RECORD_SIZE);
+		this.buffer.put(kind);
+		this.buffer.put(outcome);
+		this.buffer.putShort(materialId);
+		this.buffer.putShort(worldId);
+		this.buffer.putInt(this.tick);
+		this.buffer.putLong(player == null? 0 : player.getMostSignificantBits());
+		this.buffer.putLong(player == null? 0 : player.getLeastSignificantBits());
+		this.buffer.putLong(PositionUtils.pack(block));
+		this.buffer.putInt(queueSize);
+	}
+	
+	/**
+	 * @return the id of the given key, writing its name to the trace if it is new
+	 */
+	private <K> short nameId(final Map<K, Short> ids, final K key, final byte table, final String name) {
+		final Short known = ids.get(key);
+		if(known != null) {
+			return known;
+		}
+		
+		final short id = (short) ids.size();
+		ids.put(key, id);
+		final byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+		ensureRemaining(1 + 1 + 2 + 2 + bytes.length);
+		this.buffer.put(TraceRecorder.KIND_NAME);
+		this.buffer.put(table);
+		this.buffer.putShort(id);
+		this.buffer.putShort((short) bytes.length);
+		this.buffer.put(bytes);
+		return id;
+	}
+	
+	private void ensureRemaining(final int bytes) {
+		if(this.buffer.remaining() < bytes) {
+			flush();
+		}
+	}
+	
+	/**
+	 * swaps the buffer for the spare one and hands it to an async task to write it, 
+	 * only waits if the spare is still being written, which means the disk can't keep up
+	 */
+	private void flush() {
+		if(this.channel == null || this.buffer.position() == 0) {
+			return;
+		}
+		
+		// no task picked up the previous buffer yet -> write it right here rather than waiting for a task that might run on this thread
+		writeHandedOffNow();
+		awaitSpare();
+		// writing the previous buffer failed meanwhile -> recording stopped
+		if(this.channel == null) {
+			this.buffer.clear();
+			return;
+		}
+		final ByteBuffer full = this.buffer;
+		this.buffer = this.spare;
+		this.spare = null;
+		full.flip();
+		this.handedOff = full;
+		this.scheduler.runAsync(this::writeHandedOff);
+	}
+	
+	/**
+	 * writes the buffer that was handed off, without holding the lock while waiting for the disk
+	 */
+	private void writeHandedOff() {
+		final ByteBuffer full;
+		final FileChannel channel;
+		synchronized(this) {
+			// closing or the next flush wrote it already
+			if(this.handedOff == null) {
+				return;
+			}
+			full = this.handedOff;
+			this.handedOff = null;
+			channel = this.channel;
+		}
+		
+		// only one buffer is ever handed off, so the writes are in order without holding the lock
+		final boolean written = channel != null && write(channel, full);
+		synchronized(this) {
+			if(!written) {
+				stop(channel);
+			}
+			returnSpare(full);
+		}
+	}
+	
+	/**
+	 * writes the buffer that was handed off on the calling thread, if no task picked it up yet
+	 */
+	private void writeHandedOffNow() {
+		if(this.handedOff == null) {
+			return;
+		}
+		
+		final ByteBuffer full = this.handedOff;
+		this.handedOff = null;
+		if(this.channel != null && !write(this.channel, full)) {
+			stop(this.channel);
+		}
+		returnSpare(full);
+	}
+	
+	/**
+	 * @return true if the whole buffer was written, false if writing failed
+	 */
+	private boolean write(final FileChannel channel, final ByteBuffer full) {
+		try {
+			while(full.hasRemaining()) {
+				channel.write(full);
+			}
+			return true;
+		} catch(final IOException e) {
+			// the disk is full or gone -> stop recording rather than failing every break
+			this.plugin.getLogger().log(Level.WARNING, "could not write the trace file " + this.file.getName() + ", recording stopped", e);
+			return false;
+		}
+	}
+	
+	/**
+	 * closes the given channel after writing to it failed, if it is still the current one
+	 */
+	private void stop(final FileChannel channel) {
+		if(channel == null || this.channel != channel) {
+			return;
+		}
+		try {
+			channel.close();
+		} catch(final IOException ignored) {
+			// closing a broken channel is best effort
+		}
+		this.channel = null;
+	}
+	
+	/**
+	 * makes the written buffer the spare one again and wakes up a thread waiting for it
+	 */
+	private void returnSpare(final ByteBuffer written) {
+		written.clear();
+		this.spare = written;
+		notifyAll();
+	}
+	
+	/**
+	 * waits until the buffer handed off last is written, the write is bound by the disk, so interrupts only get restored afterwards
+	 */
+	private void awaitSpare() {
+		boolean interrupted = false;
+		while(this.spare == null) {
+			try {
+				wait();
+			} catch(final InterruptedException e) {
+				interrupted = true;
+			}
+		}
+		if(interrupted) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+}
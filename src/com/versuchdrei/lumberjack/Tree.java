@@ -0,0 +1,102 @@
+package com.versuchdrei.lumberjack;
+
+import org.bukkit.World;
+import org.bukkit.block.Block;
+
+import com.versuchdrei.lumberjack.utils.BlockDistanceQueue;
+import com.versuchdrei.lumberjack.utils.LongHashSet;
+import com.versuchdrei.lumberjack.utils.PositionUtils;
+
+/**
+ * the result of a tree scan, 
+ * the queue of logs to fell as well as the positions of all logs the tree had when it was scanned
+ * @author VersuchDrei
+ * @version 1.0
+ */
+public class Tree {
+	
+	private final World world;
+	private final BlockDistanceQueue queue;
+	private final LongHashSet logs;
+	
+	private final int minX;
+	private final int minY;
+	private final int minZ;
+	private final int maxX;
+	private final int maxY;
+	private final int maxZ;
+	
+	Tree(final World world, final BlockDistanceQueue queue, final LongHashSet logs, 
+			final int minX, final int minY, final int minZ, final int maxX, final int maxY, final int maxZ) {
+		this.world = world;
+		this.queue = queue;
+		this.logs = logs;
+		this.minX = minX;
+		this.minY = minY;
+		this.minZ = minZ;
+		this.maxX = maxX;
+		this.maxY = maxY;
+		this.maxZ = maxZ;
+	}
+	
+	public World getWorld() {
+		return this.world;
+	}
+	
+	public BlockDistanceQueue getQueue() {
+		return this.queue;
+	}
+	
+	public LongHashSet getLogs() {
+		return this.logs;
+	}
+	
+	/**
+	 * @return the amount of logs the tree had when it was scanned
+	 */
+	public int getSize() {
+		return this.logs.size();
+	}
+	
+	/**
+	 * @return true if the given block was one of the trees logs when it was scanned
+	 */
+	public boolean contains(final Block block) {
+		return block.getWorld().equals(this.world) && this.logs.contains(PositionUtils.pack(block));
+	}
+	
+	public int getMinX() {
+		return this.minX;
+	}
+	
+	public int getMinZ() {
+		return this.minZ;
+	}
+	
+	public int getMaxX() {
+		return this.maxX;
+	}
+	
+	public int getMaxZ() {
+		return this.maxZ;
+	}
+	
+	/**
+	 * @return true if the given position lies within the trees bounding box expanded by the given margin
+	 */
+	public boolean isWithinBounds(final int x, final int y, final int z, final int margin) {
+		return x >= this.minX - margin && x <= this.maxX + margin
+				&& y >= this.minY - margin && y <= this.maxY + margin
+				&& z >= this.minZ - margin && z <= this.maxZ + margin;
+	}
+	
+	/**
+	 * @return true if the trees bounding box intersects the given area
+	 */
+	public boolean intersects(final int minX, final int minY, final int minZ, final int maxX, final int maxY, final int maxZ) {
+		return minX <= this.maxX && maxX >= this.minX
+				&& minY <= this.maxY && maxY >= this.minY
+				&& minZ <= this.maxZ && maxZ >= this.minZ;
+	}
+
+}
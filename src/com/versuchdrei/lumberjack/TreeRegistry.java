@@ -0,0 +1,491 @@
+package com.versuchdrei.lumberjack;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import org.bukkit.Chunk;
+import org.bukkit.World;
+import org.bukkit.block.Block;
+
+import com.versuchdrei.lumberjack.utils.LongObjectHashMap;
+import com.versuchdrei.lumberjack.utils.PositionUtils;
+import com.versuchdrei.lumberjack.utils.RegionMap;
+
+/**
+ * holds the trees that are currently being felled, every log of a tree maps to the same entry, 
+ * so all players chopping a tree share its queue no matter which log they hit, 
+ * trees are evicted when they were not used for a while or when all trees together hold too many logs
+ *
+ * the trees are split by the regions their bounding box covers, each region has its own lock, 
+ * so threads of different regions never wait for each other, 
+ * a tree reaching into several regions has an entry in each of them, holding the logs that lie within that region, 
+ * locks are only ever held for a single region at a time, trees that have to go from several regions are collected first and removed region by region, 
+ * the logs of all regions are counted together, so the least recently used tree of any region is evicted once there are too many
+ *
+ * every tree is also indexed by the chunks its bounding box covers, 
+ * so invalidating an area only looks at the trees in its chunks instead of all registered trees
+ * @author VersuchDrei
+ * @version 1.0
+ */
+public class TreeRegistry {
+	
+	/**
+	 * the part of a registered tree within a single region, 
+	 * also a node of the doubly linked list that orders the entries of the region from least to most recently used
+	 */
+	private static class Entry {
+		private final Tree tree;
+		private final long region;
+		// the amount of logs within the region that still map to this entry
+		private int registered = 0;
+		private long lastAccess;
+		private Entry previous = null;
+		private Entry next = null;
+		
+		private Entry(final Tree tree, final long region) {
+			this.tree = tree;
+			this.region = region;
+		}
+	}
+	
+	/**
+	 * the registered trees of a single region
+	 */
+	private static class Shard extends RegionMap.Region {
+		private final LongObjectHashMap<Entry> positions = new LongObjectHashMap<>();
+		// the trees by the chunks of this region their bounding box covers
+		private final LongObjectHashMap<List<Entry>> chunks = new LongObjectHashMap<>();
+		private final Map<Tree, Entry> entries = new IdentityHashMap<>();
+		private Entry leastRecent = null;
+		private Entry mostRecent = null;
+		// the logs of all regions together, shared by every shard
+		private final AtomicLong logs;
+		
+		private Shard(final AtomicLong logs) {
+			this.logs = logs;
+		}
+		
+		@Override
+		public boolean isEmpty() {
+			return this.entries.isEmpty();
+		}
+		
+		/**
+		 * @param touch whether to count the tree as used
+		 * @return the tree the given position is a log of, or null if there is none
+		 */
+		private Tree get(final long position, final boolean touch) {
+			final Entry entry = this.positions.get(position);
+			if(entry == null) {
+				return null;
+			}
+			
+			if(touch) {
+				unlink(entry);
+				link(entry);
+			}
+			return entry.tree;
+		}
+		
+		/**
+		 * counts the given tree as used, if it has an entry in this region
+		 */
+		private void touch(final Tree tree) {
+			final Entry entry = this.entries.get(tree);
+			if(entry != null) {
+				unlink(entry);
+				link(entry);
+			}
+		}
+		
+		/**
+		 * collects the trees registered for any of the logs of the given tree within this region, the tree itself included if it is registered already
+		 */
+		private void collectOutdated(final Tree tree, final Set<Tree> outdated) {
+			tree.getLogs().forEach(position -> {
+				final Entry old = this.positions.get(position);
+				if(old != null) {
+					outdated.add(old.tree);
+				}
+			});
+		}
+		
+		/**
+		 * registers the logs of the given tree within this region
+		 */
+		private void add(final Tree tree, final long region) {
+			final Entry entry = new Entry(tree, region);
+			tree.getLogs().forEach(position -> {
+				if(TreeRegistry.regionOf(position) == region) {
+					this.positions.put(position, entry);
+					entry.registered++;
+				}
+			});
+			this.entries.put(tree, entry);
+			index(entry);
+			link(entry);
+			this.logs.addAndGet(entry.registered);
+		}
+		
+		/**
+		 * @param keep a tree that may not be evicted
+		 * @return the least recently used entry of this region that doesn't belong to the given tree, or null if there is none
+		 */
+		private Entry leastRecent(final Tree keep) {
+			Entry entry = this.leastRecent;
+			while(entry != null && entry.tree == keep) {
+				entry = entry.next;
+			}
+			return entry;
+		}
+		
+		/**
+		 * removes the entry of the given tree, if it has one in this region
+		 */
+		private void remove(final Tree tree) {
+			final Entry entry = this.entries.get(tree);
+			if(entry != null) {
+				remove(entry);
+			}
+		}
+		
+		/**
+		 * forgets a single log, the entry of its tree goes once it has no logs in this region left
+		 */
+		private void removeLog(final long position) {
+			final Entry entry = this.positions.remove(position);
+			if(entry == null) {
+				return;
+			}
+			
+			entry.registered--;
+			this.logs.decrementAndGet();
+			// the last log of the tree in this region is gone -> so is its entry
+			if(entry.registered == 0) {
+				this.entries.remove(entry.tree);
+				unindex(entry);
+				unlink(entry);
+			}
+		}
+		
+		/**
+		 * collects the trees whose bounding box intersects the given area
+		 */
+		private void collectIntersecting(final int minX, final int minY, final int minZ, final int maxX, final int maxY, final int maxZ, final Set<Tree> candidates) {
+			for(int chunkX = minX >> 4; chunkX <= maxX >> 4; chunkX++) {
+				for(int chunkZ = minZ >> 4; chunkZ <= maxZ >> 4; chunkZ++) {
+					final List<Entry> entries = this.chunks.get(PositionUtils.packChunk(chunkX, chunkZ));
+					if(entries == null) {
+						continue;
+					}
+					for(final Entry entry: entries) {
+						if(entry.tree.intersects(minX, minY, minZ, maxX, maxY, maxZ)) {
+							candidates.add(entry.tree);
+						}
+					}
+				}
+			}
+		}
+		
+		/**
+		 * removes the entries that were not used since the given time
+		 * @param expired collects the trees of the removed entries, they have to be removed from their other regions as well
+		 */
+		private void collectExpired(final long threshold, final List<Tree> expired) {
+			while(this.leastRecent != null && this.leastRecent.lastAccess < threshold) {
+				expired.add(this.leastRecent.tree);
+				remove(this.leastRecent);
+			}
+		}
+		
+		private void remove(final Entry entry) {
+			entry.tree.getLogs().forEach(position -> {
+				if(this.positions.get(position) == entry) {
+					this.positions.remove(position);
+				}
+			});
+			this.entries.remove(entry.tree);
+			unindex(entry);
+			unlink(entry);
+			this.logs.addAndGet(-entry.registered);
+			entry.registered = 0;
+		}
+		
+		/**
+		 * adds the given entry to all chunks of this region its bounding box covers
+		 */
+		private void index(final Entry entry) {
+			final Tree tree = entry.tree;
+			for(int chunkX = tree.getMinX() >> 4; chunkX <= tree.getMaxX() >> 4; chunkX++) {
+				for(int chunkZ = tree.getMinZ() >> 4; chunkZ <= tree.getMaxZ() >> 4; chunkZ++) {
+					if(RegionMap.regionOf(chunkX, chunkZ) != entry.region) {
+						continue;
+					}
+					final long chunk = PositionUtils.packChunk(chunkX, chunkZ);
+					List<Entry> entries = this.chunks.get(chunk);
+					if(entries == null) {
+						entries = new ArrayList<>(2);
+						this.chunks.put(chunk, entries);
+					}
+					entries.add(entry);
+				}
+			}
+		}
+		
+		/**
+		 * removes the given entry from all chunks of this region its bounding box covers
+		 */
+		private void unindex(final Entry entry) {
+			final Tree tree = entry.tree;
+			for(int chunkX = tree.getMinX() >> 4; chunkX <= tree.getMaxX() >> 4; chunkX++) {
+				for(int chunkZ = tree.getMinZ() >> 4; chunkZ <= tree.getMaxZ() >> 4; chunkZ++) {
+					final long chunk = PositionUtils.packChunk(chunkX, chunkZ);
+					final List<Entry> entries = this.chunks.get(chunk);
+					// entries don't override equals, so this removes this very entry
+					if(entries != null && entries.remove(entry) && entries.isEmpty()) {
+						this.chunks.remove(chunk);
+					}
+				}
+			}
+		}
+		
+		private void link(final Entry entry) {
+			entry.lastAccess = System.currentTimeMillis();
+			entry.previous = this.mostRecent;
+			entry.next = null;
+			if(this.mostRecent == null) {
+				this.leastRecent = entry;
+			} else {
+				this.mostRecent.next = entry;
+			}
+			this.mostRecent = entry;
+		}
+		
+		private void unlink(final Entry entry) {
+			if(entry.previous == null) {
+				this.leastRecent = entry.next;
+			} else {
+				entry.previous.next = entry.next;
+			}
+			if(entry.next == null) {
+				this.mostRecent = entry.previous;
+			} else {
+				entry.next.previous = entry.previous;
+			}
+			entry.previous = null;
+			entry.next = null;
+		}
+	}
+	
+	private final long ttlMillis;
+	private final int maxLogs;
+	
+	private final AtomicLong logs = new AtomicLong();
+	private final RegionMap<Shard> shards = new RegionMap<>(() -> new Shard(this.logs));
+	
+	/**
+	 * @param ttlSeconds the time in seconds after which an unused tree is evicted
+	 * @param maxLogs the maximum amount of logs of all registered trees together
+	 */
+	public TreeRegistry(final int ttlSeconds, final int maxLogs) {
+		this.ttlMillis = ttlSeconds * 1000L;
+		this.maxLogs = maxLogs;
+	}
+	
+	/**
+	 * @param block the block a player is hitting
+	 * @return the registered tree the block is a log of, or null if there is none
+	 */
+	public Tree get(final Block block) {
+		final long position = PositionUtils.pack(block);
+		final Tree tree = this.shards.applyIfPresent(block.getWorld().getUID(), TreeRegistry.regionOf(position), shard -> shard.get(position, true));
+		if(tree == null) {
+			return null;
+		}
+		
+		final long[] regions = TreeRegistry.regionsOf(tree);
+		// the tree reaches into other regions -> it is used there as well, otherwise it would expire in them
+		if(regions.length > 1) {
+			for(final long region: regions) {
+				applyIfPresent(tree.getWorld().getUID(), region, shard -> shard.touch(tree));
+			}
+		}
+		return tree;
+	}
+	
+	/**
+	 * looks up a tree without counting it as used
+	 * @param block a log of the tree
+	 * @return the registered tree the block is a log of, or null if there is none
+	 */
+	public Tree peek(final Block block) {
+		final long position = PositionUtils.pack(block);
+		return this.shards.applyIfPresent(block.getWorld().getUID(), TreeRegistry.regionOf(position), shard -> shard.get(position, false));
+	}
+	
+	/**
+	 * registers the given tree for all of its logs, 
+	 * trees previously registered for any of these logs are outdated and removed
+	 * @param tree the tree to register
+	 */
+	public void put(final Tree tree) {
+		final UUID world = tree.getWorld().getUID();
+		final long[] regions = TreeRegistry.regionsOf(tree);
+		final Set<Tree> outdated = Collections.newSetFromMap(new IdentityHashMap<>());
+		for(final long region: regions) {
+			applyIfPresent(world, region, shard -> shard.collectOutdated(tree, outdated));
+		}
+		for(final Tree old: outdated) {
+			remove(old);
+		}
+		
+		for(final long region: regions) {
+			this.shards.apply(world, region, shard -> {
+				shard.add(tree, region);
+				return null;
+			});
+		}
+		
+		// there are too many logs -> evict the least recently used trees of any region, but always keep the new one
+		while(this.logs.get() > this.maxLogs) {
+			final Tree old = leastRecent(tree);
+			if(old == null) {
+				return;
+			}
+			remove(old);
+		}
+	}
+	
+	/**
+	 * looks at the least recently used entry of every region, one region at a time
+	 * @param keep a tree that may not be evicted
+	 * @return the least recently used tree of all regions other than the given one, or null if there is none
+	 */
+	private Tree leastRecent(final Tree keep) {
+		final Entry[] oldest = {null};
+		this.shards.forEach(shard -> {
+			final Entry entry = shard.leastRecent(keep);
+			if(entry != null && (oldest[0] == null || entry.lastAccess < oldest[0].lastAccess)) {
+				oldest[0] = entry;
+			}
+		});
+		return oldest[0] == null? null : oldest[0].tree;
+	}
+	
+	/**
+	 * removes the tree the given block is a log of, if there is one
+	 * @param block a log of the tree
+	 */
+	public void remove(final Block block) {
+		final Tree tree = peek(block);
+		if(tree != null) {
+			remove(tree);
+		}
+	}
+	
+	/**
+	 * removes the given tree from all regions it is still registered in
+	 * @param tree the tree to remove
+	 */
+	public void remove(final Tree tree) {
+		final UUID world = tree.getWorld().getUID();
+		for(final long region: TreeRegistry.regionsOf(tree)) {
+			applyIfPresent(world, region, shard -> shard.remove(tree));
+		}
+	}
+	
+	/**
+	 * forgets a single log that is gone, the rest of its tree stays registered
+	 * @param block the log that was felled or broken
+	 */
+	public void removeLog(final Block block) {
+		final long position = PositionUtils.pack(block);
+		this.shards.applyIfPresent(block.getWorld().getUID(), TreeRegistry.regionOf(position), shard -> {
+			shard.removeLog(position);
+			return null;
+		});
+	}
+	
+	/**
+	 * removes all trees whose bounding box, expanded by one block, intersects the given area, 
+	 * used when blocks appear that might connect to a tree
+	 */
+	public void invalidateArea(final World world, final int minX, final int minY, final int minZ, final int maxX, final int maxY, final int maxZ) {
+		final UUID uuid = world.getUID();
+		// a tree intersecting the expanded area covers one of its chunks,
+		// the candidates of all regions are collected first, as a tree may be registered in several of them
+		final Set<Tree> candidates = Collections.newSetFromMap(new IdentityHashMap<>());
+		for(final long region: RegionMap.regionsOf((minX - 1) >> 4, (minZ - 1) >> 4, (maxX + 1) >> 4, (maxZ + 1) >> 4)) {
+			applyIfPresent(uuid, region, shard -> shard.collectIntersecting(minX - 1, minY - 1, minZ - 1, maxX + 1, maxY + 1, maxZ + 1, candidates));
+		}
+		for(final Tree tree: candidates) {
+			remove(tree);
+		}
+	}
+	
+	/**
+	 * removes all trees that reach into the given chunk, the chunk can't be checked for changes while it is unloaded
+	 */
+	public void invalidateChunk(final Chunk chunk) {
+		final int minX = chunk.getX() << 4;
+		final int minZ = chunk.getZ() << 4;
+		invalidateArea(chunk.getWorld(), minX, Integer.MIN_VALUE + 1, minZ, minX + 15, Integer.MAX_VALUE - 1, minZ + 15);
+	}
+	
+	/**
+	 * removes all trees that were not used within the time to live
+	 */
+	public void evictExpired() {
+		final long threshold = System.currentTimeMillis() - this.ttlMillis;
+		final List<Tree> expired = new ArrayList<>();
+		this.shards.forEach(shard -> shard.collectExpired(threshold, expired));
+		for(final Tree tree: expired) {
+			remove(tree);
+		}
+	}
+	
+	/**
+	 * @return the amount of registered trees
+	 */
+	public int size() {
+		final Set<Tree> trees = Collections.newSetFromMap(new IdentityHashMap<>());
+		this.shards.forEach(shard -> trees.addAll(shard.entries.keySet()));
+		return trees.size();
+	}
+	
+	/**
+	 * @return the amount of logs of all registered trees together
+	 */
+	public int getLogs() {
+		return (int) this.logs.get();
+	}
+	
+	private void applyIfPresent(final UUID world, final long region, final Consumer<Shard> action) {
+		this.shards.applyIfPresent(world, region, shard -> {
+			action.accept(shard);
+			return null;
+		});
+	}
+	
+	/**
+	 * @return the region of the given block position
+	 */
+	private static long regionOf(final long position) {
+		return RegionMap.regionOf(PositionUtils.unpackX(position) >> 4, PositionUtils.unpackZ(position) >> 4);
+	}
+	
+	/**
+	 * @return the regions the bounding box of the given tree covers
+	 */
+	private static long[] regionsOf(final Tree tree) {
+		return RegionMap.regionsOf(tree.getMinX() >> 4, tree.getMinZ() >> 4, tree.getMaxX() >> 4, tree.getMaxZ() >> 4);
+	}
+
+}
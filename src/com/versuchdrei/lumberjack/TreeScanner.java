@@ -0,0 +1,522 @@
+package com.versuchdrei.lumberjack;
+
+import java.util.Arrays;
+import java.util.function.LongConsumer;
+import java.util.function.Predicate;
+
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.bukkit.block.Block;
+
+import com.versuchdrei.lumberjack.scheduler.TaskScheduler;
+import com.versuchdrei.lumberjack.utils.BlockDistanceQueue;
+import com.versuchdrei.lumberjack.utils.LongHashSet;
+import com.versuchdrei.lumberjack.utils.PositionUtils;
+import com.versuchdrei.lumberjack.world.BlockAccess;
+import com.versuchdrei.lumberjack.world.WorldBlockAccess;
+
+/**
+ * finds all logs connected to a broken log, 
+ * uses an explicit stack instead of recursion and gives up once a tree exceeds the configured size or radius, 
+ * or once it reaches into a chunk that is not loaded
+ * 
+ * the shape of the broken log limits the probed neighbors and the size of the tree, 
+ * a second trunk standing on the ground belongs to a neighbouring tree, the scan stops at it, 
+ * so its column and the logs only connected through it are left out, as two trees are never felled as one, 
+ * the size of the shape is only checked once they are left out, so touching trees don't abort each others scans
+ * @author VersuchDrei
+ * @version 1.0
+ */
+public class TreeScanner {
+	
+	// the 8 horizontal neighbors as x/z offsets
+	private static final int[] NEIGHBORS_X = {0, 1, 1, 1, 0, -1, -1, -1};
+	private static final int[] NEIGHBORS_Z = {-1, -1, 0, 1, 1, 1, 0, -1};
+	// the 4 horizontal neighbors sharing a face as x/z offsets
+	private static final int[] FACES_X = {0, 1, 0, -1};
+	private static final int[] FACES_Z = {-1, 0, 1, 0};
+	
+	private static final int INITIAL_STACK_SIZE = 64;
+	
+	private final int maxLogs;
+	private final int maxRadius;
+	// null if all trees have the default shape
+	private final TreeShapes shapes;
+	
+	/**
+	 * creates a scanner that treats all trees with the default shape
+	 * @param maxLogs the maximum amount of logs a tree may have before the scan is aborted
+	 * @param maxRadius the maximum distance on any axis a log may have to the broken block before the scan is aborted
+	 */
+	public TreeScanner(final int maxLogs, final int maxRadius) {
+		this(maxLogs, maxRadius, null);
+	}
+	
+	/**
+	 * @param maxLogs the maximum amount of logs a tree may have before the scan is aborted
+	 * @param maxRadius the maximum distance on any axis a log may have to the broken block before the scan is aborted
+	 * @param shapes the shapes of the tree types, may be null
+	 */
+	public TreeScanner(final int maxLogs, final int maxRadius, final TreeShapes shapes) {
+		this.maxLogs = maxLogs;
+		this.maxRadius = maxRadius;
+		this.shapes = shapes;
+	}
+	
+	/**
+	 * finds all logs connected to the source block within a 3 block dice around each log in the live world, 
+	 * chunks that are owned by another thread are treated like unloaded ones
+	 * @param source the block that was broken
+	 * @param scheduler the scheduler knowing which chunks the current thread owns
+	 * @param predicate a predicate to check if a material is applicable
+	 * @param unloadedChunk called with the packed chunk the scan stopped at if it reached an unloaded chunk, may be null
+	 * @return the connected logs, or null if the structure exceeded the configured limits or reached an unloaded chunk
+	 */
+	public Tree scan(final Block source, final TaskScheduler scheduler, final Predicate<Material> predicate, final LongConsumer unloadedChunk) {
+		final World world = source.getWorld();
+		return scan(new WorldBlockAccess(world, scheduler), world, source.getX(), source.getY(), source.getZ(), predicate, unloadedChunk);
+	}
+	
+	/**
+	 * finds all logs connected to the given position within a 3 block dice around each log, 
+	 * this is safe to call from any thread as long as the block access is
+	 * @param access the block access to read the blocks from
+	 * @param world the world the blocks belong to
+	 * @param x the x coordinate of the broken block
+	 * @param y the y coordinate of the broken block
+	 * @param z the z coordinate of the broken block
+	 * @param predicate a predicate to check if a material is applicable
+	 * @param unloadedChunk called with the packed chunk the scan stopped at if it reached an unloaded chunk, may be null
+	 * @return the connected logs, or null if the structure exceeded the configured limits or reached an unloaded chunk
+	 */
+	public Tree scan(final BlockAccess access, final World world, final int x, final int y, final int z, final Predicate<Material> predicate, 
+			final LongConsumer unloadedChunk) {
+		final Scan scan = new Scan(access, world, x, y, z, predicate, null);
+		if(!scan.run()) {
+			if(scan.unloaded && unloadedChunk != null) {
+				unloadedChunk.accept(PositionUtils.packChunk(scan.unloadedChunkX, scan.unloadedChunkZ));
+			}
+			return null;
+		}
+		return new Tree(world, scan.queue, scan.checkedLogs, scan.minX, scan.minY, scan.minZ, scan.maxX, scan.maxY, scan.maxZ);
+	}
+	
+	/**
+	 * prepares a scan like scan does, that pauses instead of giving up when it reaches a chunk that is not loaded, 
+	 * so it can go on where it stopped once the chunk is available, e.g. after taking a snapshot of it, 
+	 * the scan is not started yet, run it to do so
+	 * @param access the block access to read the blocks from
+	 * @param world the world the blocks belong to
+	 * @param x the x coordinate of the broken block
+	 * @param y the y coordinate of the broken block
+	 * @param z the z coordinate of the broken block
+	 * @param predicate a predicate to check if a material is applicable
+	 * @return the scan, ready to run
+	 */
+	public ResumableScan resumable(final BlockAccess access, final World world, final int x, final int y, final int z, final Predicate<Material> predicate) {
+		return new ResumableScan(new Scan(access, world, x, y, z, predicate, null), world);
+	}
+	
+	/**
+	 * finds the logs connected to the source block like scan does, but only among the given positions, 
+	 * for trees whose logs are known already, so only the blocks at those positions are read, 
+	 * known logs in chunks that are not loaded or owned by another thread are left out instead of aborting the scan
+	 * @param source the block that was broken
+	 * @param scheduler the scheduler knowing which chunks the current thread owns
+	 * @param predicate a predicate to check if a material is applicable
+	 * @param positions the positions the logs of the tree were known at
+	 * @return the connected logs, or null if they exceed the configured limits
+	 */
+	public Tree scanWithin(final Block source, final TaskScheduler scheduler, final Predicate<Material> predicate, final LongHashSet positions) {
+		final World world = source.getWorld();
+		final Scan scan = new Scan(new WorldBlockAccess(world, scheduler), world, source.getX(), source.getY(), source.getZ(), predicate, positions);
+		if(!scan.run()) {
+			return null;
+		}
+		return new Tree(world, scan.queue, scan.checkedLogs, scan.minX, scan.minY, scan.minZ, scan.maxX, scan.maxY, scan.maxZ);
+	}
+	
+	/**
+	 * @return the maximum amount of logs a tree may have
+	 */
+	public int getMaxLogs() {
+		return this.maxLogs;
+	}
+	
+	/**
+	 * @return the maximum distance on any axis a log may have to the broken block
+	 */
+	public int getMaxRadius() {
+		return this.maxRadius;
+	}
+	
+	/**
+	 * a scan that keeps its stack and checked positions when it reaches a chunk that is not loaded, 
+	 * so running it again after the chunk became available only reads the blocks it didn't read yet, 
+	 * it is not thread safe, but may be handed between threads as long as only one of them runs it at a time
+	 */
+	public class ResumableScan {
+		
+		private final Scan scan;
+		private final World world;
+		private boolean done = false;
+		
+		private ResumableScan(final Scan scan, final World world) {
+			this.scan = scan;
+			this.world = world;
+		}
+		
+		/**
+		 * scans until the tree is found, it exceeds the configured limits or the scan reaches a chunk that is not loaded
+		 * @return true if the scan is done, false if it paused at the chunk returned by getPausedAt
+		 */
+		public boolean run() {
+			if(!this.done) {
+				this.done = this.scan.run() || !this.scan.unloaded;
+			}
+			return this.done;
+		}
+		
+		/**
+		 * @return the packed chunk the scan paused at, only valid while it is paused
+		 */
+		public long getPausedAt() {
+			return PositionUtils.packChunk(this.scan.unloadedChunkX, this.scan.unloadedChunkZ);
+		}
+		
+		/**
+		 * @return the connected logs, or null if the scan is not done or the structure exceeded the configured limits
+		 */
+		public Tree getTree() {
+			if(!this.done || this.scan.aborted) {
+				return null;
+			}
+			return new Tree(this.world, this.scan.queue, this.scan.checkedLogs, this.scan.minX, this.scan.minY, this.scan.minZ, 
+					this.scan.maxX, this.scan.maxY, this.scan.maxZ);
+		}
+		
+	}
+	
+	/**
+	 * the state of a single scan, 
+	 * kept separate from the scanner so scans don't share their stack or checked positions
+	 */
+	private class Scan {
+		
+		private final BlockAccess access;
+		private final int sourceX;
+		private final int sourceY;
+		private final int sourceZ;
+		private final Predicate<Material> predicate;
+		private final TreeShape shape;
+		// the only positions logs are looked for at, null to look everywhere
+		private final LongHashSet within;
+		
+		// both replaced by pruning once the scan found trunks of other trees
+		private BlockDistanceQueue queue;
+		// only logs are added, so a probe can determine if the block above or below was a log
+		private LongHashSet checkedLogs = new LongHashSet();
+		private long[] stack = new long[TreeScanner.INITIAL_STACK_SIZE];
+		private int stackSize = 0;
+		private boolean aborted = false;
+		private boolean unloaded = false;
+		// false until the broken block was read, a scan stopping before has to read it again
+		private boolean sourceChecked = false;
+		private int unloadedChunkX;
+		private int unloadedChunkZ;
+		// the chunk of the last block read, it was loaded
+		private int loadedChunkX;
+		private int loadedChunkZ;
+		private boolean loadedChunkKnown = false;
+		// the type of the last block that was read, null if the last check didn't read one
+		private Material lastType;
+		// the position of the first log found standing on the ground
+		private boolean rootKnown = false;
+		private int rootX;
+		private int rootZ;
+		// the columns of trunks of other trees, packed like chunks, null while there are none
+		private LongHashSet foreignColumns = null;
+		
+		private int minX;
+		private int minY;
+		private int minZ;
+		private int maxX;
+		private int maxY;
+		private int maxZ;
+		
+		private Scan(final BlockAccess access, final World world, final int sourceX, final int sourceY, final int sourceZ, final Predicate<Material> predicate, 
+				final LongHashSet within) {
+			this.access = access;
+			this.within = within;
+			this.sourceX = sourceX;
+			this.sourceY = sourceY;
+			this.sourceZ = sourceZ;
+			this.predicate = predicate;
+			this.shape = TreeScanner.this.shapes == null? TreeShape.DEFAULT : TreeScanner.this.shapes.getShape(access.getType(sourceX, sourceY, sourceZ));
+			this.queue = new BlockDistanceQueue(world);
+			this.minX = this.maxX = sourceX;
+			this.minY = this.maxY = sourceY;
+			this.minZ = this.maxZ = sourceZ;
+		}
+		
+		/**
+		 * runs the scan, or resumes it if it stopped at a chunk that was not loaded
+		 * @return true if the scan finished, false if it was aborted
+		 */
+		private boolean run() {
+			this.aborted = false;
+			this.unloaded = false;
+			if(!this.sourceChecked) {
+				check(this.sourceX, this.sourceY, this.sourceZ);
+				this.sourceChecked = !this.unloaded;
+			}
+			while(this.stackSize > 0 && !this.aborted) {
+				final long position = this.stack[--this.stackSize];
+				expand(PositionUtils.unpackX(position), PositionUtils.unpackY(position), PositionUtils.unpackZ(position));
+				// the scan stopped at a chunk that is not loaded -> keep the log on the stack, resuming expands it again, 
+				// its neighbors that were found already are only looked up in the checked logs then
+				if(this.unloaded) {
+					this.stack[this.stackSize++] = position;
+				}
+			}
+			
+			if(!this.aborted && this.foreignColumns != null) {
+				prune();
+			}
+			// the tree grew larger than its shape allows, even without the trees next to it -> abort
+			if(!this.aborted && !fitsShape()) {
+				this.aborted = true;
+			}
+			return !this.aborted;
+		}
+		
+		/**
+		 * checks the neighbors of the log at the given position
+		 */
+		private void expand(final int x, final int y, final int z) {
+			// straight trees only grow along the faces of their logs
+			if(this.shape.getPattern() == TreeShape.Pattern.ORTHOGONAL) {
+				check(x, y + 1, z);
+				checkFaces(x, y, z);
+				if(!check(x, y - 1, z)) {
+					checkRoot(x, y - 1, z);
+				}
+				return;
+			}
+			
+			// the layer above and below is only checked diagonally if there is no log directly above or below,
+			// otherwise that log covers those blocks with its own neighbors
+			if(!check(x, y + 1, z)) {
+				checkNeighbors(x, y + 1, z);
+			}
+			checkNeighbors(x, y, z);
+			if(!check(x, y - 1, z)) {
+				checkRoot(x, y - 1, z);
+				checkNeighbors(x, y - 1, z);
+			}
+		}
+		
+		/**
+		 * @return true if the extent of the found logs is within the width and height of the shape
+		 */
+		private boolean fitsShape() {
+			return this.maxX - this.minX < this.shape.getWidth() && this.maxZ - this.minZ < this.shape.getWidth() 
+					&& this.maxY - this.minY < this.shape.getHeight();
+		}
+		
+		/**
+		 * keeps only the logs that are connected to the broken block without passing through the trunk of another tree, 
+		 * this only walks the logs that were found, so no blocks are read again
+		 */
+		private void prune() {
+			final LongHashSet kept = new LongHashSet();
+			final BlockDistanceQueue keptQueue = new BlockDistanceQueue(this.queue.getWorld());
+			final long source = PositionUtils.pack(this.sourceX, this.sourceY, this.sourceZ);
+			this.minX = this.maxX = this.sourceX;
+			this.minY = this.maxY = this.sourceY;
+			this.minZ = this.maxZ = this.sourceZ;
+			kept.add(source);
+			keptQueue.add(source, 0);
+			this.stackSize = 0;
+			this.stack[this.stackSize++] = source;
+			
+			final boolean orthogonal = this.shape.getPattern() == TreeShape.Pattern.ORTHOGONAL;
+			while(this.stackSize > 0) {
+				final long position = this.stack[--this.stackSize];
+				final int x = PositionUtils.unpackX(position);
+				final int y = PositionUtils.unpackY(position);
+				final int z = PositionUtils.unpackZ(position);
+				for(int dy = -1; dy <= 1; dy++) {
+					for(int dx = -1; dx <= 1; dx++) {
+						for(int dz = -1; dz <= 1; dz++) {
+							// the scan only went along the faces of straight trees, so connections are only checked there as well
+							if(orthogonal && Math.abs(dx) + Math.abs(dy) + Math.abs(dz) != 1) {
+								continue;
+							}
+							keep(kept, keptQueue, x + dx, y + dy, z + dz);
+						}
+					}
+				}
+			}
+			this.checkedLogs = kept;
+			this.queue = keptQueue;
+		}
+		
+		/**
+		 * keeps the given position if it is a found log that is not part of another trees trunk and was not kept before
+		 */
+		private void keep(final LongHashSet kept, final BlockDistanceQueue keptQueue, final int x, final int y, final int z) {
+			final long position = PositionUtils.pack(x, y, z);
+			if(!this.checkedLogs.contains(position) || this.foreignColumns.contains(PositionUtils.packChunk(x, z)) || !kept.add(position)) {
+				return;
+			}
+			
+			final int dx = x - this.sourceX;
+			final int dy = y - this.sourceY;
+			final int dz = z - this.sourceZ;
+			keptQueue.add(position, dx * dx + dy * dy + dz * dz);
+			this.minX = Math.min(this.minX, x);
+			this.minY = Math.min(this.minY, y);
+			this.minZ = Math.min(this.minZ, z);
+			this.maxX = Math.max(this.maxX, x);
+			this.maxY = Math.max(this.maxY, y);
+			this.maxZ = Math.max(this.maxZ, z);
+			if(this.stackSize == this.stack.length) {
+				this.stack = Arrays.copyOf(this.stack, this.stackSize << 1);
+			}
+			this.stack[this.stackSize++] = position;
+		}
+		
+		private void checkNeighbors(final int x, final int y, final int z) {
+			for(int i = 0; i < TreeScanner.NEIGHBORS_X.length; i++) {
+				check(x + TreeScanner.NEIGHBORS_X[i], y, z + TreeScanner.NEIGHBORS_Z[i]);
+			}
+		}
+		
+		private void checkFaces(final int x, final int y, final int z) {
+			for(int i = 0; i < TreeScanner.FACES_X.length; i++) {
+				check(x + TreeScanner.FACES_X[i], y, z + TreeScanner.FACES_Z[i]);
+			}
+		}
+		
+		/**
+		 * checks if the log at the given position stands on the ground, right after the block below it was checked, 
+		 * a second trunk standing on the ground further away than the width of a trunk belongs to another tree, 
+		 * its column is left out of this tree once the scan is done
+		 * @param y the y coordinate of the block below the log
+		 */
+		private void checkRoot(final int x, final int y, final int z) {
+			// the ground is no known position of the tree, so it wasn't read yet
+			if(this.lastType == null && this.within != null && this.shape.getTrunkWidth() > 0 && isChunkLoaded(x >> 4, z >> 4)) {
+				this.lastType = this.access.getType(x, y, z);
+			}
+			if(this.shape.getTrunkWidth() <= 0 || this.lastType == null || !this.shape.isSoil(this.lastType)) {
+				return;
+			}
+			
+			if(!this.rootKnown) {
+				this.rootKnown = true;
+				this.rootX = x;
+				this.rootZ = z;
+				return;
+			}
+			
+			// a second trunk -> stop at it, we don't want to fell two trees at once, 
+			// the column of the broken block always belongs to the tree, even if the scan reached the ground elsewhere first
+			if((Math.abs(x - this.rootX) >= this.shape.getTrunkWidth() || Math.abs(z - this.rootZ) >= this.shape.getTrunkWidth()) 
+					&& (x != this.sourceX || z != this.sourceZ)) {
+				if(this.foreignColumns == null) {
+					this.foreignColumns = new LongHashSet();
+				}
+				this.foreignColumns.add(PositionUtils.packChunk(x, z));
+			}
+		}
+		
+		/**
+		 * checks if the block at the given position is a log and if so adds it to the queue and the stack
+		 * @return true if the block is a log, regardless of it being checked before
+		 */
+		private boolean check(final int x, final int y, final int z) {
+			this.lastType = null;
+			final long position = PositionUtils.pack(x, y, z);
+			if(this.checkedLogs.contains(position)) {
+				return true;
+			}
+			
+			if(this.aborted) {
+				return false;
+			}
+			
+			// the trunk of another tree -> don't walk into it any further
+			if(this.foreignColumns != null && this.foreignColumns.contains(PositionUtils.packChunk(x, z))) {
+				return false;
+			}
+			
+			// no known log of the tree -> no need to read it
+			if(this.within != null && !this.within.contains(position)) {
+				return false;
+			}
+			
+			// reading the block would load its chunk -> stop the scan instead, known logs are just left out
+			if(!isChunkLoaded(x >> 4, z >> 4)) {
+				if(this.within != null) {
+					return false;
+				}
+				this.aborted = true;
+				this.unloaded = true;
+				this.unloadedChunkX = x >> 4;
+				this.unloadedChunkZ = z >> 4;
+				return false;
+			}
+			
+			this.lastType = this.access.getType(x, y, z);
+			if(!this.predicate.test(this.lastType)) {
+				return false;
+			}
+			
+			final int dx = x - this.sourceX;
+			final int dy = y - this.sourceY;
+			final int dz = z - this.sourceZ;
+			// the structure reaches further than a tree would or has more logs than a tree would -> abort
+			if(Math.abs(dx) > TreeScanner.this.maxRadius || Math.abs(dy) > TreeScanner.this.maxRadius || Math.abs(dz) > TreeScanner.this.maxRadius
+					|| this.checkedLogs.size() >= TreeScanner.this.maxLogs) {
+				this.aborted = true;
+				return true;
+			}
+			
+			this.checkedLogs.add(position);
+			this.minX = Math.min(this.minX, x);
+			this.minY = Math.min(this.minY, y);
+			this.minZ = Math.min(this.minZ, z);
+			this.maxX = Math.max(this.maxX, x);
+			this.maxY = Math.max(this.maxY, y);
+			this.maxZ = Math.max(this.maxZ, z);
+			// we skip getting the squareroot here, because its performance heavy and doesn't change the order
+			this.queue.add(position, dx * dx + dy * dy + dz * dz);
+			
+			if(this.stackSize == this.stack.length) {
+				this.stack = Arrays.copyOf(this.stack, this.stackSize << 1);
+			}
+			this.stack[this.stackSize++] = position;
+			return true;
+		}
+		
+		/**
+		 * neighboring blocks mostly share a chunk, so the last loaded chunk is remembered
+		 */
+		private boolean isChunkLoaded(final int chunkX, final int chunkZ) {
+			if(this.loadedChunkKnown && chunkX == this.loadedChunkX && chunkZ == this.loadedChunkZ) {
+				return true;
+			}
+			if(!this.access.isChunkLoaded(chunkX, chunkZ)) {
+				return false;
+			}
+			this.loadedChunkX = chunkX;
+			this.loadedChunkZ = chunkZ;
+			this.loadedChunkKnown = true;
+			return true;
+		}
+		
+	}
+
+}
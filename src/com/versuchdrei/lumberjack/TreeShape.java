@@ -0,0 +1,85 @@
+package com.versuchdrei.lumberjack;
+
+import java.util.Set;
+
+import org.bukkit.Material;
+
+/**
+ * the shape a tree of a certain log type can have, 
+ * limits which neighbors of a log are probed and how far a tree may extend, 
+ * and tells which blocks a trunk stands on so neighboring trees aren't merged into one
+ * @author VersuchDrei
+ * @version 1.0
+ */
+public class TreeShape {
+	
+	/**
+	 * the neighbors of a log that are probed for more logs
+	 */
+	public enum Pattern {
+		// the 3x3x3 cube around the log, for trees with diagonal branches
+		FULL,
+		// only the 6 faces of the log, for trees with straight trunks and no branches
+		ORTHOGONAL
+	}
+	
+	// the shape of trees without a profile, limited by the scanners limits only
+	public static final TreeShape DEFAULT = new TreeShape("default", Pattern.FULL, Integer.MAX_VALUE, Integer.MAX_VALUE, 0, null);
+	
+	private final String name;
+	private final Pattern pattern;
+	private final int width;
+	private final int height;
+	private final int trunkWidth;
+	private final boolean[] soil;
+	
+	/**
+	 * @param name the name of the shape
+	 * @param pattern the neighbors of a log to probe
+	 * @param width the maximum extent of the tree along the x and z axis
+	 * @param height the maximum extent of the tree along the y axis
+	 * @param trunkWidth the maximum width of a trunk, logs standing on soil further apart belong to different trees, 0 to not check for this
+	 * @param soil the blocks a trunk stands on, may be null if the trunk width is 0
+	 */
+	public TreeShape(final String name, final Pattern pattern, final int width, final int height, final int trunkWidth, final Set<Material> soil) {
+		this.name = name;
+		this.pattern = pattern;
+		this.width = width;
+		this.height = height;
+		this.trunkWidth = trunkWidth;
+		this.soil = new boolean[Material.values().length];
+		if(soil != null) {
+			for(final Material material: soil) {
+				this.soil[material.ordinal()] = true;
+			}
+		}
+	}
+	
+	public String getName() {
+		return this.name;
+	}
+	
+	public Pattern getPattern() {
+		return this.pattern;
+	}
+	
+	public int getWidth() {
+		return this.width;
+	}
+	
+	public int getHeight() {
+		return this.height;
+	}
+	
+	public int getTrunkWidth() {
+		return this.trunkWidth;
+	}
+	
+	/**
+	 * @return true if a trunk can stand on the given block
+	 */
+	public boolean isSoil(final Material material) {
+		return this.soil[material.ordinal()];
+	}
+
+}
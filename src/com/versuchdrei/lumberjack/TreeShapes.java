@@ -0,0 +1,100 @@
+package com.versuchdrei.lumberjack;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Logger;
+
+import org.bukkit.Material;
+import org.bukkit.Tag;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.plugin.Plugin;
+
+/**
+ * the shapes of the configured tree types, 
+ * compiled into a table indexed by the materials ordinal so looking up the shape of a log is a single array access
+ * @author VersuchDrei
+ * @version 1.0
+ */
+public class TreeShapes {
+	
+	private static final String CONFIG_KEY_BLOCKS = "blocks";
+	private static final String CONFIG_KEY_PATTERN = "pattern";
+	private static final String CONFIG_KEY_WIDTH = "width";
+	private static final String CONFIG_KEY_HEIGHT = "height";
+	private static final String CONFIG_KEY_TRUNK_WIDTH = "trunkWidth";
+	private static final String CONFIG_KEY_SOIL = "soil";
+	
+	private static final String SOURCE = "tree shapes";
+	
+	private final TreeShape[] shapeByBlock;
+	
+	private TreeShapes(final TreeShape[] shapeByBlock) {
+		this.shapeByBlock = shapeByBlock;
+	}
+	
+	/**
+	 * creates the shapes from a map of logs to their shape, for use without a config
+	 * @param shapes the shapes by the logs they apply to
+	 * @return the shapes
+	 */
+	public static TreeShapes of(final Map<Material, TreeShape> shapes) {
+		final TreeShape[] shapeByBlock = new TreeShape[Material.values().length];
+		for(final Map.Entry<Material, TreeShape> entry: shapes.entrySet()) {
+			shapeByBlock[entry.getKey().ordinal()] = entry.getValue();
+		}
+		return new TreeShapes(shapeByBlock);
+	}
+	
+	/**
+	 * compiles the shapes of the given config section, 
+	 * every key of the section is a shape with a list of the logs it applies to, its probe pattern, its maximum size 
+	 * and optionally the width of its trunk together with the blocks the trunk stands on
+	 * @param plugin the plugin to compile the shapes for
+	 * @param section the config section containing the shapes
+	 * @return the compiled shapes
+	 */
+	public static TreeShapes compile(final Plugin plugin, final ConfigurationSection section) {
+		final TreeShape[] shapeByBlock = new TreeShape[Material.values().length];
+		if(section == null) {
+			return new TreeShapes(shapeByBlock);
+		}
+		
+		final Logger logger = plugin.getLogger();
+		for(final String name: section.getKeys(false)) {
+			final ConfigurationSection shapeSection = section.getConfigurationSection(name);
+			if(shapeSection == null) {
+				logger.warning("The tree shape " + name + " is not a section.");
+				continue;
+			}
+			
+			TreeShape.Pattern pattern;
+			try {
+				pattern = TreeShape.Pattern.valueOf(shapeSection.getString(TreeShapes.CONFIG_KEY_PATTERN, TreeShape.Pattern.FULL.name()).toUpperCase());
+			} catch(final IllegalArgumentException e) {
+				logger.warning("Unknown pattern in the tree shape " + name + ", probing all neighbors instead.");
+				pattern = TreeShape.Pattern.FULL;
+			}
+			
+			final Set<Material> soil = ToolRules.parseMaterials(logger, shapeSection.getStringList(TreeShapes.CONFIG_KEY_SOIL), Tag.REGISTRY_BLOCKS, TreeShapes.SOURCE);
+			final TreeShape shape = new TreeShape(name, pattern, 
+					shapeSection.getInt(TreeShapes.CONFIG_KEY_WIDTH, Integer.MAX_VALUE), shapeSection.getInt(TreeShapes.CONFIG_KEY_HEIGHT, Integer.MAX_VALUE), 
+					shapeSection.getInt(TreeShapes.CONFIG_KEY_TRUNK_WIDTH), soil);
+			for(final Material block: ToolRules.parseMaterials(logger, shapeSection.getStringList(TreeShapes.CONFIG_KEY_BLOCKS), Tag.REGISTRY_BLOCKS, TreeShapes.SOURCE)) {
+				// the first shape wins if a block is part of multiple ones
+				if(shapeByBlock[block.ordinal()] == null) {
+					shapeByBlock[block.ordinal()] = shape;
+				}
+			}
+		}
+		return new TreeShapes(shapeByBlock);
+	}
+	
+	/**
+	 * @return the shape of trees made of the given block, DEFAULT if there is none configured
+	 */
+	public TreeShape getShape(final Material block) {
+		final TreeShape shape = this.shapeByBlock[block.ordinal()];
+		return shape == null? TreeShape.DEFAULT : shape;
+	}
+
+}
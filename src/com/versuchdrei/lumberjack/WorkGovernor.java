@@ -0,0 +1,256 @@
+package com.versuchdrei.lumberjack;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+
+import org.bukkit.plugin.Plugin;
+
+import com.versuchdrei.lumberjack.scheduler.TaskScheduler;
+
+/**
+ * the shared per tick work budget of the plugin, scanning, felling and decaying all draw from it, 
+ * the budget shrinks while the server takes longer than the target time per tick
+ * 
+ * the time per tick is the time the server spends working on its ticks, as reported by servers that measure it, 
+ * other servers only tell the time between two ticks, which never drops below 50 milliseconds 
+ * and only rises once the server is already losing ticks
+ * 
+ * work that doesn't fit into the budget is deferred and run in the following ticks, 
+ * taking turns between the players it was deferred for, 
+ * every piece released reserves one block of the budget as it usually only posts the actual work to the thread owning its blocks
+ * 
+ * the budget is renewed on the global thread and drawn from by every region thread, 
+ * so it is kept in atomic counters and the deferred work is guarded by its own monitor
+ * @author VersuchDrei
+ * @version 1.0
+ */
+public class WorkGovernor implements Runnable {
+	
+	// the owner of deferred work that doesn't belong to a player
+	public static final UUID SERVER = new UUID(0, 0);
+	
+	private static final String METHOD_GET_AVERAGE_TICK_TIME = "getAverageTickTime";
+	private static final String METHOD_GET_TICK_TIMES = "getTickTimes";
+	
+	private static final double NANOS_PER_MILLI = 1_000_000d;
+	// how much a single tick influences the average tick time
+	private static final double AVERAGE_WEIGHT = 0.1;
+	// even a lagging server gets some work done, otherwise deferred work would pile up forever
+	private static final double MIN_SCALE = 0.1;
+	
+	private final Plugin plugin;
+	private final TaskScheduler scheduler;
+	private final Metrics metrics;
+	// the methods of the server reporting its tick times, both null if it doesn't or it failed
+	private Method getAverageTickTime;
+	private Method getTickTimes;
+	private final int blocksPerTick;
+	private final long nanosPerTick;
+	private final double targetMspt;
+	
+	private long lastTick = 0;
+	private volatile double averageMspt;
+	private volatile double scale = 1;
+	private volatile long blockBudget;
+	private volatile long nanoBudget;
+	private final AtomicLong blocksUsed = new AtomicLong();
+	private final AtomicLong nanosUsed = new AtomicLong();
+	
+	// guarded by itself, the turns included
+	private final Map<UUID, ArrayDeque<Runnable>> deferred = new HashMap<>();
+	// the owners with deferred work, in the order they take turns
+	private final ArrayDeque<UUID> turns = new ArrayDeque<>();
+	
+	/**
+	 * @param plugin the plugin to read the tick times of the server with, may be null to only measure the time between ticks
+	 * @param scheduler the scheduler to renew the budget with
+	 * @param metrics the metrics to record the tick times in
+	 * @param blocksPerTick the amount of blocks that may be scanned, felled or decayed per tick, 0 for no limit
+	 * @param nanosPerTick the time in nanoseconds that may be spent per tick, 0 for no limit
+	 * @param targetMspt the time per tick in milliseconds above which the budget shrinks
+	 */
+	public WorkGovernor(final Plugin plugin, final TaskScheduler scheduler, final Metrics metrics, final int blocksPerTick, final long nanosPerTick, 
+			final double targetMspt) {
+		this.plugin = plugin;
+		this.scheduler = scheduler;
+		this.metrics = metrics;
+		this.blocksPerTick = blocksPerTick;
+		this.nanosPerTick = nanosPerTick;
+		this.targetMspt = targetMspt;
+		this.averageMspt = targetMspt;
+		this.blockBudget = blocksPerTick <= 0? Long.MAX_VALUE : blocksPerTick;
+		this.nanoBudget = nanosPerTick <= 0? Long.MAX_VALUE : nanosPerTick;
+		if(plugin != null) {
+			final Class<?> serverClass = plugin.getServer().getClass();
+			this.getAverageTickTime = WorkGovernor.findMethod(serverClass, WorkGovernor.METHOD_GET_AVERAGE_TICK_TIME);
+			this.getTickTimes = this.getAverageTickTime != null? null : WorkGovernor.findMethod(serverClass, WorkGovernor.METHOD_GET_TICK_TIMES);
+		}
+	}
+	
+	/**
+	 * @return the public method of the server without parameters, or null if the server doesn't have one
+	 */
+	private static Method findMethod(final Class<?> serverClass, final String name) {
+		try {
+			return serverClass.getMethod(name);
+		} catch(final NoSuchMethodException e) {
+			return null;
+		}
+	}
+	
+	/**
+	 * starts renewing the budget every tick
+	 */
+	public void start() {
+		this.scheduler.runGlobalTimer(this, 1, 1);
+	}
+	
+	/**
+	 * @return true if there is budget left in this tick
+	 */
+	public boolean hasBudget() {
+		return this.blocksUsed.get() < this.blockBudget && this.nanosUsed.get() < this.nanoBudget;
+	}
+	
+	/**
+	 * draws work from this ticks budget, an operation that was started may overdraw the budget
+	 * @param blocks the amount of blocks that were worked on
+	 * @param nanos the time the work took in nanoseconds
+	 */
+	public void charge(final int blocks, final long nanos) {
+		this.blocksUsed.addAndGet(blocks);
+		this.nanosUsed.addAndGet(nanos);
+	}
+	
+	/**
+	 * runs the given work in one of the next ticks that has budget left, 
+	 * the work runs on the global thread, work touching blocks has to move to the thread owning them on its own, 
+	 * one block is drawn from the budget for it when it is released, so the work shouldn't charge it again
+	 * @param owner the player the work is done for, or SERVER
+	 * @param work the work to defer
+	 */
+	public void defer(final UUID owner, final Runnable work) {
+		synchronized(this.deferred) {
+			final ArrayDeque<Runnable> queue = this.deferred.computeIfAbsent(owner, uuid -> new ArrayDeque<>());
+			if(queue.isEmpty()) {
+				this.turns.add(owner);
+			}
+			queue.add(work);
+		}
+	}
+	
+	/**
+	 * @return the amount of deferred work waiting for budget
+	 */
+	public int getDeferred() {
+		synchronized(this.deferred) {
+			int deferred = 0;
+			for(final ArrayDeque<Runnable> queue: this.deferred.values()) {
+				deferred += queue.size();
+			}
+			return deferred;
+		}
+	}
+	
+	/**
+	 * @return the average time per tick in milliseconds, as reported by the server or measured between ticks by the governor
+	 */
+	public double getAverageMspt() {
+		return this.averageMspt;
+	}
+	
+	/**
+	 * @return the factor the configured budget is currently scaled with
+	 */
+	public double getScale() {
+		return this.scale;
+	}
+	
+	@Override
+	public void run() {
+		final long now = System.nanoTime();
+		final double serverMspt = readServerMspt();
+		if(this.lastTick != 0) {
+			this.metrics.recordTick(now - this.lastTick);
+			// the server doesn't report its tick times -> the time between ticks is all there is
+			if(serverMspt < 0) {
+				final double mspt = (now - this.lastTick) / WorkGovernor.NANOS_PER_MILLI;
+				this.averageMspt += (mspt - this.averageMspt) * WorkGovernor.AVERAGE_WEIGHT;
+			}
+		}
+		this.lastTick = now;
+		if(serverMspt >= 0) {
+			this.averageMspt = serverMspt;
+		}
+		
+		// the server is lagging -> shrink the budget proportionally
+		this.scale = this.averageMspt <= this.targetMspt? 1 : Math.max(WorkGovernor.MIN_SCALE, this.targetMspt / this.averageMspt);
+		if(this.blocksPerTick > 0) {
+			this.blockBudget = Math.max(1, (long) (this.blocksPerTick * this.scale));
+		}
+		if(this.nanosPerTick > 0) {
+			this.nanoBudget = Math.max(1, (long) (this.nanosPerTick * this.scale));
+		}
+		this.blocksUsed.set(0);
+		this.nanosUsed.set(0);
+		
+		// deferred work goes first, one piece per owner per turn
+		while(hasBudget()) {
+			final Runnable work;
+			synchronized(this.deferred) {
+				if(this.turns.isEmpty()) {
+					return;
+				}
+				final UUID owner = this.turns.poll();
+				final ArrayDeque<Runnable> queue = this.deferred.get(owner);
+				work = queue.poll();
+				if(queue.isEmpty()) {
+					this.deferred.remove(owner);
+				} else {
+					this.turns.add(owner);
+				}
+			}
+			// the work posted to another thread only charges once it runs there -> reserve its block now, or every piece would be released at once
+			charge(1, 0);
+			// the work may defer more work
+			work.run();
+		}
+	}
+	
+	/**
+	 * @return the average time the server spent working on its recent ticks in milliseconds, or -1 if it doesn't report it
+	 */
+	private double readServerMspt() {
+		try {
+			if(this.getAverageTickTime != null) {
+				return ((Number) this.getAverageTickTime.invoke(this.plugin.getServer())).doubleValue();
+			}
+			if(this.getTickTimes != null) {
+				final long[] tickTimes = (long[]) this.getTickTimes.invoke(this.plugin.getServer());
+				long total = 0;
+				int ticks = 0;
+				for(final long tickTime: tickTimes) {
+					// ticks that didn't happen yet are 0
+					if(tickTime > 0) {
+						total += tickTime;
+						ticks++;
+					}
+				}
+				return ticks == 0? -1 : total / WorkGovernor.NANOS_PER_MILLI / ticks;
+			}
+		} catch(final IllegalAccessException | InvocationTargetException | ClassCastException e) {
+			// e.g. a regionised server that has no single tick time -> measure the time between ticks from now on
+			this.plugin.getLogger().log(Level.WARNING, "could not read the tick times of the server, measuring the time between ticks instead", e);
+			this.getAverageTickTime = null;
+			this.getTickTimes = null;
+		}
+		return -1;
+	}
+
+}
@@ -0,0 +1,71 @@
+package com.versuchdrei.lumberjack.scheduler;
+
+import org.bukkit.Bukkit;
+import org.bukkit.World;
+import org.bukkit.entity.Entity;
+import org.bukkit.plugin.Plugin;
+
+/**
+ * the scheduler of regular servers, the main thread owns everything
+ * @author VersuchDrei
+ * @version 1.0
+ */
+public class BukkitTaskScheduler implements TaskScheduler {
+	
+	private final Plugin plugin;
+	
+	public BukkitTaskScheduler(final Plugin plugin) {
+		this.plugin = plugin;
+	}
+	
+	@Override
+	public void runGlobal(final Runnable task) {
+		Bukkit.getScheduler().runTask(this.plugin, task);
+	}
+	
+	@Override
+	public void runGlobalTimer(final Runnable task, final long delay, final long period) {
+		Bukkit.getScheduler().runTaskTimer(this.plugin, task, delay, period);
+	}
+	
+	@Override
+	public void runAt(final World world, final int chunkX, final int chunkZ, final Runnable task) {
+		if(Bukkit.isPrimaryThread()) {
+			task.run();
+			return;
+		}
+		Bukkit.getScheduler().runTask(this.plugin, task);
+	}
+	
+	@Override
+	public void runAtLater(final World world, final int chunkX, final int chunkZ, final Runnable task, final long delay) {
+		Bukkit.getScheduler().runTaskLater(this.plugin, task, delay);
+	}
+	
+	@Override
+	public void runFor(final Entity entity, final Runnable task, final Runnable retired, final long delay) {
+		Bukkit.getScheduler().runTaskLater(this.plugin, () -> {
+			if(entity.isValid()) {
+				task.run();
+			} else if(retired != null) {
+				retired.run();
+			}
+		}, delay);
+	}
+	
+	@Override
+	public void runAsync(final Runnable task) {
+		Bukkit.getScheduler().runTaskAsynchronously(this.plugin, task);
+	}
+	
+	@Override
+	public boolean isOwned(final World world, final int chunkX, final int chunkZ) {
+		return Bukkit.isPrimaryThread();
+	}
+	
+	@Override
+	public boolean isOwned(final Entity entity) {
+		return Bukkit.isPrimaryThread();
+	}
+
+}
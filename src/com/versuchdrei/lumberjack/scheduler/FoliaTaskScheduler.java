@@ -0,0 +1,145 @@
+package com.versuchdrei.lumberjack.scheduler;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.function.Consumer;
+
+import org.bukkit.Server;
+import org.bukkit.World;
+import org.bukkit.entity.Entity;
+import org.bukkit.plugin.Plugin;
+
+/**
+ * the scheduler of regionised servers, chunks and entities are owned by the thread of their region, 
+ * the schedulers of the server are looked up by reflection, as the api this plugin is built against doesn't have them
+ * @author VersuchDrei
+ * @version 1.0
+ */
+public class FoliaTaskScheduler implements TaskScheduler {
+	
+	private static final String CLASS_REGIONIZED_SERVER = "io.papermc.paper.threadedregions.RegionizedServer";
+	private static final String CLASS_GLOBAL_REGION_SCHEDULER = "io.papermc.paper.threadedregions.scheduler.GlobalRegionScheduler";
+	private static final String CLASS_REGION_SCHEDULER = "io.papermc.paper.threadedregions.scheduler.RegionScheduler";
+	private static final String CLASS_ASYNC_SCHEDULER = "io.papermc.paper.threadedregions.scheduler.AsyncScheduler";
+	private static final String CLASS_ENTITY_SCHEDULER = "io.papermc.paper.threadedregions.scheduler.EntityScheduler";
+	
+	private final Plugin plugin;
+	
+	private final Object globalScheduler;
+	private final Object regionScheduler;
+	private final Object asyncScheduler;
+	private final Method globalExecute;
+	private final Method globalRunAtFixedRate;
+	private final Method regionExecute;
+	private final Method regionRunDelayed;
+	private final Method asyncRunNow;
+	private final Method entityGetScheduler;
+	private final Method entityExecute;
+	private final Method isOwnedByChunk;
+	private final Method isOwnedByEntity;
+	
+	/**
+	 * @param plugin the plugin to schedule the tasks for
+	 * @throws ReflectiveOperationException if the server is not regionised
+	 */
+	public FoliaTaskScheduler(final Plugin plugin) throws ReflectiveOperationException {
+		this.plugin = plugin;
+		final Server server = plugin.getServer();
+		final Class<?> serverClass = Server.class;
+		
+		this.globalScheduler = serverClass.getMethod("getGlobalRegionScheduler").invoke(server);
+		this.regionScheduler = serverClass.getMethod("getRegionScheduler").invoke(server);
+		this.asyncScheduler = serverClass.getMethod("getAsyncScheduler").invoke(server);
+		
+		final Class<?> globalClass = Class.forName(FoliaTaskScheduler.CLASS_GLOBAL_REGION_SCHEDULER);
+		this.globalExecute = globalClass.getMethod("execute", Plugin.class, Runnable.class);
+		this.globalRunAtFixedRate = globalClass.getMethod("runAtFixedRate", Plugin.class, Consumer.class, long.class, long.class);
+		final Class<?> regionClass = Class.forName(FoliaTaskScheduler.CLASS_REGION_SCHEDULER);
+		this.regionExecute = regionClass.getMethod("execute", Plugin.class, World.class, int.class, int.class, Runnable.class);
+		this.regionRunDelayed = regionClass.getMethod("runDelayed", Plugin.class, World.class, int.class, int.class, Consumer.class, long.class);
+		this.asyncRunNow = Class.forName(FoliaTaskScheduler.CLASS_ASYNC_SCHEDULER).getMethod("runNow", Plugin.class, Consumer.class);
+		this.entityGetScheduler = Entity.class.getMethod("getScheduler");
+		this.entityExecute = Class.forName(FoliaTaskScheduler.CLASS_ENTITY_SCHEDULER).getMethod("execute", Plugin.class, Runnable.class, Runnable.class, long.class);
+		this.isOwnedByChunk = serverClass.getMethod("isOwnedByCurrentRegion", World.class, int.class, int.class);
+		this.isOwnedByEntity = serverClass.getMethod("isOwnedByCurrentRegion", Entity.class);
+	}
+	
+	/**
+	 * @return true if the server runs its regions on several threads
+	 */
+	public static boolean isSupported() {
+		try {
+			Class.forName(FoliaTaskScheduler.CLASS_REGIONIZED_SERVER);
+			return true;
+		} catch(final ClassNotFoundException e) {
+			return false;
+		}
+	}
+	
+	@Override
+	public void runGlobal(final Runnable task) {
+		invoke(this.globalExecute, this.globalScheduler, this.plugin, task);
+	}
+	
+	@Override
+	public void runGlobalTimer(final Runnable task, final long delay, final long period) {
+		final Consumer<Object> consumer = scheduledTask -> task.run();
+		invoke(this.globalRunAtFixedRate, this.globalScheduler, this.plugin, consumer, Math.max(1, delay), Math.max(1, period));
+	}
+	
+	@Override
+	public void runAt(final World world, final int chunkX, final int chunkZ, final Runnable task) {
+		if(isOwned(world, chunkX, chunkZ)) {
+			task.run();
+			return;
+		}
+		invoke(this.regionExecute, this.regionScheduler, this.plugin, world, chunkX, chunkZ, task);
+	}
+	
+	@Override
+	public void runAtLater(final World world, final int chunkX, final int chunkZ, final Runnable task, final long delay) {
+		final Consumer<Object> consumer = scheduledTask -> task.run();
+		invoke(this.regionRunDelayed, this.regionScheduler, this.plugin, world, chunkX, chunkZ, consumer, Math.max(1, delay));
+	}
+	
+	@Override
+	public void runFor(final Entity entity, final Runnable task, final Runnable retired, final long delay) {
+		final Object entityScheduler = invoke(this.entityGetScheduler, entity);
+		// the entity is removed already -> the task will never run
+		if(!((Boolean) invoke(this.entityExecute, entityScheduler, this.plugin, task, retired, Math.max(1, delay))) && retired != null) {
+			runGlobal(retired);
+		}
+	}
+	
+	@Override
+	public void runAsync(final Runnable task) {
+		final Consumer<Object> consumer = scheduledTask -> task.run();
+		invoke(this.asyncRunNow, this.asyncScheduler, this.plugin, consumer);
+	}
+	
+	@Override
+	public boolean isOwned(final World world, final int chunkX, final int chunkZ) {
+		return (Boolean) invoke(this.isOwnedByChunk, this.plugin.getServer(), world, chunkX, chunkZ);
+	}
+	
+	@Override
+	public boolean isOwned(final Entity entity) {
+		return (Boolean) invoke(this.isOwnedByEntity, this.plugin.getServer(), entity);
+	}
+	
+	private static Object invoke(final Method method, final Object target, final Object... args) {
+		try {
+			return method.invoke(target, args);
+		} catch(final IllegalAccessException e) {
+			throw new IllegalStateException("could not call " + method.getName(), e);
+		} catch(final InvocationTargetException e) {
+			// the server rejected the call, e.g. because the plugin is disabled -> hand its exception on
+			final Throwable cause = e.getCause();
+			if(cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			throw new IllegalStateException("could not call " + method.getName(), cause);
+		}
+	}
+
+}
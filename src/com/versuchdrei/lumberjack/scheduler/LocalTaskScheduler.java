@@ -0,0 +1,189 @@
+package com.versuchdrei.lumberjack.scheduler;
+
+import java.util.PriorityQueue;
+import java.util.UUID;
+
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.entity.Entity;
+
+import com.versuchdrei.lumberjack.utils.PositionUtils;
+
+/**
+ * a stand-in scheduler without a server, for tests and benchmarks, 
+ * time only passes when tick is called and every task runs on the thread calling it
+ *
+ * with a region size the chunks are split into square regions like on a regionised server, 
+ * a task then only owns the chunks of the region it was scheduled for and global tasks own no chunks at all, 
+ * so work touching blocks outside of its region shows up as not owned, 
+ * without a region size everything is owned by everyone like on a regular server
+ * @author VersuchDrei
+ * @version 1.0
+ */
+public class LocalTaskScheduler implements TaskScheduler {
+	
+	// the region of global and asynchronous tasks
+	private static final long NO_REGION = Long.MIN_VALUE;
+	
+	/**
+	 * a task waiting for its tick
+	 */
+	private static class Task implements Comparable<Task> {
+		private final long tick;
+		private final long sequence;
+		private final UUID world;
+		private final long region;
+		private final Runnable runnable;
+		private final long period;
+		
+		private Task(final long tick, final long sequence, final UUID world, final long region, final Runnable runnable, final long period) {
+			this.tick = tick;
+			this.sequence = sequence;
+			this.world = world;
+			this.region = region;
+			this.runnable = runnable;
+			this.period = period;
+		}
+		
+		@Override
+		public int compareTo(final Task other) {
+			final int byTick = Long.compare(this.tick, other.tick);
+			return byTick != 0? byTick : Long.compare(this.sequence, other.sequence);
+		}
+	}
+	
+	// the amount of chunks per region is 1 << regionShift on every axis, negative if everything is owned by everyone
+	private final int regionShift;
+	private final PriorityQueue<Task> tasks = new PriorityQueue<>();
+	private long tick = 0;
+	private long sequence = 0;
+	
+	// the region of the task that is running right now
+	private UUID currentWorld = null;
+	private long currentRegion = LocalTaskScheduler.NO_REGION;
+	
+	/**
+	 * creates a scheduler where everything is owned by everyone
+	 */
+	public LocalTaskScheduler() {
+		this(-1);
+	}
+	
+	/**
+	 * @param regionShift the amount of chunks per region as a power of two on every axis, negative if everything is owned by everyone
+	 */
+	public LocalTaskScheduler(final int regionShift) {
+		this.regionShift = regionShift;
+	}
+	
+	/**
+	 * runs all tasks that are due in the next tick
+	 */
+	public void tick() {
+		this.tick++;
+		while(!this.tasks.isEmpty() && this.tasks.peek().tick <= this.tick) {
+			final Task task = this.tasks.poll();
+			if(task.period > 0) {
+				schedule(task.world, task.region, task.runnable, task.period, task.period);
+			}
+			run(task.world, task.region, task.runnable);
+		}
+	}
+	
+	/**
+	 * @return the amount of tasks waiting for their tick
+	 */
+	public int getPending() {
+		return this.tasks.size();
+	}
+	
+	@Override
+	public void runGlobal(final Runnable task) {
+		schedule(null, LocalTaskScheduler.NO_REGION, task, 1, 0);
+	}
+	
+	@Override
+	public void runGlobalTimer(final Runnable task, final long delay, final long period) {
+		schedule(null, LocalTaskScheduler.NO_REGION, task, delay, period);
+	}
+	
+	@Override
+	public void runAt(final World world, final int chunkX, final int chunkZ, final Runnable task) {
+		if(isOwned(world, chunkX, chunkZ)) {
+			task.run();
+			return;
+		}
+		schedule(world.getUID(), regionOf(chunkX, chunkZ), task, 1, 0);
+	}
+	
+	@Override
+	public void runAtLater(final World world, final int chunkX, final int chunkZ, final Runnable task, final long delay) {
+		schedule(world.getUID(), regionOf(chunkX, chunkZ), task, delay, 0);
+	}
+	
+	@Override
+	public void runFor(final Entity entity, final Runnable task, final Runnable retired, final long delay) {
+		// the entity is looked up once the task is due, as it might move meanwhile
+		runGlobalLater(() -> {
+			if(!entity.isValid()) {
+				if(retired != null) {
+					retired.run();
+				}
+				return;
+			}
+			final Location location = entity.getLocation();
+			run(location.getWorld().getUID(), regionOf(location.getBlockX() >> 4, location.getBlockZ() >> 4), task);
+		}, delay);
+	}
+	
+	@Override
+	public void runAsync(final Runnable task) {
+		schedule(null, LocalTaskScheduler.NO_REGION, task, 1, 0);
+	}
+	
+	@Override
+	public boolean isOwned(final World world, final int chunkX, final int chunkZ) {
+		if(this.regionShift < 0) {
+			return true;
+		}
+		return world.getUID().equals(this.currentWorld) && regionOf(chunkX, chunkZ) == this.currentRegion;
+	}
+	
+	@Override
+	public boolean isOwned(final Entity entity) {
+		final Location location = entity.getLocation();
+		return isOwned(location.getWorld(), location.getBlockX() >> 4, location.getBlockZ() >> 4);
+	}
+	
+	private void runGlobalLater(final Runnable task, final long delay) {
+		schedule(null, LocalTaskScheduler.NO_REGION, task, delay, 0);
+	}
+	
+	private void schedule(final UUID world, final long region, final Runnable task, final long delay, final long period) {
+		this.tasks.add(new Task(this.tick + Math.max(1, delay), this.sequence++, world, region, task, period));
+	}
+	
+	/**
+	 * runs the task as the owner of the given region
+	 */
+	private void run(final UUID world, final long region, final Runnable task) {
+		final UUID previousWorld = this.currentWorld;
+		final long previousRegion = this.currentRegion;
+		this.currentWorld = world;
+		this.currentRegion = region;
+		try {
+			task.run();
+		} finally {
+			this.currentWorld = previousWorld;
+			this.currentRegion = previousRegion;
+		}
+	}
+	
+	private long regionOf(final int chunkX, final int chunkZ) {
+		if(this.regionShift < 0) {
+			return LocalTaskScheduler.NO_REGION;
+		}
+		return PositionUtils.packChunk(chunkX >> this.regionShift, chunkZ >> this.regionShift);
+	}
+
+}
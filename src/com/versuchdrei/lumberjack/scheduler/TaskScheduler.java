@@ -0,0 +1,67 @@
+package com.versuchdrei.lumberjack.scheduler;
+
+import org.bukkit.World;
+import org.bukkit.entity.Entity;
+
+/**
+ * runs the work of the plugin on the thread that owns what the work touches, 
+ * on a regular server that is always the main thread, on a regionised server it is the thread of the region owning a chunk or entity
+ *
+ * tasks run without any lock of the scheduler, so several regions may run tasks of the plugin at the same time, 
+ * the state the tasks share guards itself, split by region or by the player it belongs to
+ * @author VersuchDrei
+ * @version 1.0
+ */
+public interface TaskScheduler {
+	
+	/**
+	 * runs the given task on the global thread in the next tick, 
+	 * the global thread owns no chunks, so the task may not touch any blocks
+	 */
+	public void runGlobal(Runnable task);
+	
+	/**
+	 * runs the given task on the global thread every period ticks, 
+	 * the global thread owns no chunks, so the task may not touch any blocks
+	 * @param delay the ticks before the first run, at least 1
+	 * @param period the ticks between two runs, at least 1
+	 */
+	public void runGlobalTimer(Runnable task, long delay, long period);
+	
+	/**
+	 * runs the given task on the thread owning the given chunk, 
+	 * right away if the current thread owns it, otherwise in the next tick of the owner
+	 */
+	public void runAt(World world, int chunkX, int chunkZ, Runnable task);
+	
+	/**
+	 * runs the given task on the thread owning the given chunk after the given delay
+	 * @param delay the ticks to wait, at least 1
+	 */
+	public void runAtLater(World world, int chunkX, int chunkZ, Runnable task, long delay);
+	
+	/**
+	 * runs the given task on the thread owning the given entity after the given delay, 
+	 * wherever the entity moved meanwhile
+	 * @param retired run instead of the task if the entity was removed before, may be null, 
+	 * this may run on any thread that is not asynchronous, so it may not touch any blocks either
+	 * @param delay the ticks to wait, at least 1
+	 */
+	public void runFor(Entity entity, Runnable task, Runnable retired, long delay);
+	
+	/**
+	 * runs the given task on a background thread
+	 */
+	public void runAsync(Runnable task);
+	
+	/**
+	 * @return true if the current thread may touch the blocks of the given chunk
+	 */
+	public boolean isOwned(World world, int chunkX, int chunkZ);
+	
+	/**
+	 * @return true if the current thread may touch the given entity
+	 */
+	public boolean isOwned(Entity entity);
+
+}
@@ -1,62 +1,121 @@
 package com.versuchdrei.lumberjack.utils;
 
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+import org.bukkit.World;
 import org.bukkit.block.Block;
 
 /**
- * a priority queue for blocks based on their distance to the source block
+ * a priority queue for blocks based on their distance to the source block, 
+ * the furthest block is polled first and blocks with the same distance are polled in the order they were added
+ * 
+ * internally this is a binary max heap over packed positions, so it doesn't need an object per block
  * @author VersuchDrei
  * @version 1.0
  */
 public class BlockDistanceQueue {
 	
-	private class Knot{
-		private final Block block;
-		private final double distance;
-		private Knot next = null;
-		
-		private Knot(final Block block, final double distance) {
-			this.block = block;
-			this.distance = distance;
-		}
+	private static final int INITIAL_CAPACITY = 16;
+	
+	private final World world;
+	
+	// the squared distance in the upper half and the inverted insertion order in the lower half,
+	// so comparing two keys compares the distance first and keeps blocks with equal distance in insertion order
+	private long[] keys = new long[BlockDistanceQueue.INITIAL_CAPACITY];
+	private long[] positions = new long[BlockDistanceQueue.INITIAL_CAPACITY];
+	private int size = 0;
+	private int insertions = 0;
+	
+	public BlockDistanceQueue(final World world) {
+		this.world = world;
 	}
 	
-	private Knot current = null;
+	public void add(final Block block, final int distance) {
+		add(PositionUtils.pack(block), distance);
+	}
 	
-	public void add(final Block block, final double distance) {
-		final Knot temp = new Knot(block, distance);
-		if(this.current == null) {
-			this.current = temp;
-			return;
-		}
-		if(this.current.distance < distance) {
-			temp.next = this.current;
-			this.current = temp;
-			return;
+	/**
+	 * @param position the packed position of the block
+	 * @param distance the squared distance of the block to the source block
+	 */
+	public void add(final long position, final int distance) {
+		if(this.size == this.keys.length) {
+			this.keys = Arrays.copyOf(this.keys, this.size << 1);
+			this.positions = Arrays.copyOf(this.positions, this.size << 1);
 		}
-		Knot loop = this.current;
-		while(loop.next != null) {
-			if(loop.next.distance < distance) {
-				temp.next = loop.next;
-				loop.next = temp;
-				return;
+		
+		final long key = ((long) distance << 32) | (0xFFFFFFFFL - this.insertions++);
+		
+		// sift up
+		int index = this.size++;
+		while(index > 0) {
+			final int parent = (index - 1) >>> 1;
+			if(this.keys[parent] >= key) {
+				break;
 			}
-			loop = loop.next;
+			this.keys[index] = this.keys[parent];
+			this.positions[index] = this.positions[parent];
+			index = parent;
 		}
-		loop.next = temp;
+		this.keys[index] = key;
+		this.positions[index] = position;
 	}
 	
 	public boolean isEmpty() {
-		return this.current == null;
+		return this.size == 0;
 	}
 	
 	public boolean isLast() {
-		return this.current == null || this.current.next == null;
+		return this.size <= 1;
+	}
+	
+	public int size() {
+		return this.size;
+	}
+	
+	public World getWorld() {
+		return this.world;
 	}
 	
 	public Block poll() {
-		final Knot temp = this.current;
-		this.current = this.current.next;
-		return temp.block;
+		final long position = pollPosition();
+		return this.world.getBlockAt(PositionUtils.unpackX(position), PositionUtils.unpackY(position), PositionUtils.unpackZ(position));
+	}
+	
+	/**
+	 * @return the packed position of the furthest block
+	 * @throws NoSuchElementException if the queue is empty
+	 */
+	public long pollPosition() {
+		// checked before touching anything, so an empty queue stays intact
+		if(this.size == 0) {
+			throw new NoSuchElementException();
+		}
+		
+		final long result = this.positions[0];
+		final int last = --this.size;
+		final long key = this.keys[last];
+		final long position = this.positions[last];
+		
+		// sift down
+		int index = 0;
+		final int half = last >>> 1;
+		while(index < half) {
+			int child = (index << 1) + 1;
+			if(child + 1 < last && this.keys[child + 1] > this.keys[child]) {
+				child++;
+			}
+			if(key >= this.keys[child]) {
+				break;
+			}
+			this.keys[index] = this.keys[child];
+			this.positions[index] = this.positions[child];
+			index = child;
+		}
+		this.keys[index] = key;
+		this.positions[index] = position;
+		return result;
 	}
 
 }
@@ -0,0 +1,94 @@
+package com.versuchdrei.lumberjack.utils;
+
+import java.util.Arrays;
+
+/**
+ * a histogram of non negative values with one bucket per power of two, 
+ * recording is a couple of arithmetic operations and never allocates, 
+ * percentiles are therefore only accurate up to a factor of two
+ * @author VersuchDrei
+ * @version 1.0
+ */
+public class Histogram {
+	
+	private final long[] buckets = new long[Long.SIZE];
+	private long count = 0;
+	private long sum = 0;
+	private long max = 0;
+	
+	/**
+	 * adds a value to the histogram, negative values are counted as 0
+	 */
+	public void record(final long value) {
+		final long clamped = Math.max(0, value);
+		this.buckets[Long.SIZE - Long.numberOfLeadingZeros(clamped) - (clamped == 0? 0 : 1)]++;
+		this.count++;
+		this.sum += clamped;
+		if(clamped > this.max) {
+			this.max = clamped;
+		}
+	}
+	
+	public long getCount() {
+		return this.count;
+	}
+	
+	public long getSum() {
+		return this.sum;
+	}
+	
+	public long getMax() {
+		return this.max;
+	}
+	
+	/**
+	 * @return the average of all recorded values, 0 if nothing was recorded
+	 */
+	public double getMean() {
+		return this.count == 0? 0 : (double) this.sum / this.count;
+	}
+	
+	/**
+	 * @param percentile the percentile between 0 and 1
+	 * @return the upper bound of the bucket the percentile falls into, but never more than the maximum
+	 */
+	public long getPercentile(final double percentile) {
+		if(this.count == 0) {
+			return 0;
+		}
+		
+		final long rank = Math.max(1, (long) Math.ceil(this.count * percentile));
+		long seen = 0;
+		for(int i = 0; i < this.buckets.length; i++) {
+			seen += this.buckets[i];
+			if(seen >= rank) {
+				final long upperBound = i >= Long.SIZE - 2? Long.MAX_VALUE : (2L << i) - 1;
+				return Math.min(upperBound, this.max);
+			}
+		}
+		return this.max;
+	}
+	
+	/**
+	 * adds all values recorded by another histogram to this one
+	 */
+	public void add(final Histogram other) {
+		for(int i = 0; i < this.buckets.length; i++) {
+			this.buckets[i] += other.buckets[i];
+		}
+		this.count += other.count;
+		this.sum += other.sum;
+		this.max = Math.max(this.max, other.max);
+	}
+	
+	/**
+	 * forgets all recorded values
+	 */
+	public void reset() {
+		Arrays.fill(this.buckets, 0);
+		this.count = 0;
+		this.sum = 0;
+		this.max = 0;
+	}
+
+}
@@ -2,12 +2,6 @@ package com.versuchdrei.lumberjack.utils;
 
 import java.util.Random;
 
-import org.bukkit.Material;
-import org.bukkit.enchantments.Enchantment;
-import org.bukkit.inventory.ItemStack;
-import org.bukkit.inventory.meta.Damageable;
-import org.bukkit.inventory.meta.ItemMeta;
-
 /**
  * a util class for methods regarding itemstacks
  * @author VersuchDrei
@@ -17,26 +11,20 @@ public class ItemUtils {
 	
 	private static Random random = new Random();
 	
-	public static void reduceDurability(final ItemStack item) {
-		final ItemMeta meta = item.getItemMeta();
-		if(!(meta instanceof Damageable)) {
-			return;
-		}
-		
-		// simulate unbreaking enchantment
-		if(ItemUtils.random.nextInt(meta.getEnchantLevel(Enchantment.DURABILITY) + 1) != 0) {
-			return;
+	/**
+	 * draws how many blocks a tool breaks until one of them damages it, 
+	 * each block damages it with a chance of 1 in unbreaking level + 1 like in vanilla
+	 * @param unbreaking the level of the unbreaking enchantment of the tool
+	 * @return the amount of blocks until the tool is damaged, the damaging one included, at least 1
+	 */
+	public static int blocksUntilDamage(final int unbreaking) {
+		if(unbreaking <= 0) {
+			return 1;
 		}
 		
-		final Damageable damageable = (Damageable) meta;
-		final int newDamage = damageable.getDamage() + 1;
-		
-		if(newDamage >= item.getType().getMaxDurability()) {
-			item.setType(Material.AIR);
-		} else {
-			damageable.setDamage(newDamage);
-			item.setItemMeta(meta);
-		}
+		// geometric distribution by inversion, one random number instead of one per block
+		final double spared = Math.log(1 - 1.0 / (unbreaking + 1));
+		return 1 + (int) Math.min(Integer.MAX_VALUE - 1, Math.floor(Math.log(1 - ItemUtils.random.nextDouble()) / spared));
 	}
 
 }
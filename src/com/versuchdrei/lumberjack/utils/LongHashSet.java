@@ -0,0 +1,182 @@
+package com.versuchdrei.lumberjack.utils;
+
+import java.util.Arrays;
+import java.util.function.LongConsumer;
+
+/**
+ * an open addressing hash set for primitive longs with linear probing, 
+ * used for packed block positions so checking a position neither allocates nor boxes
+ * @author VersuchDrei
+ * @version 1.0
+ */
+public class LongHashSet {
+	
+	private static final int DEFAULT_CAPACITY = 16;
+	private static final float LOAD_FACTOR = 0.5f;
+	
+	// 0 marks a free slot, so the key 0 itself is tracked separately
+	private long[] keys;
+	private boolean containsZero = false;
+	private int mask;
+	private int maxFill;
+	private int size = 0;
+	
+	public LongHashSet() {
+		this(LongHashSet.DEFAULT_CAPACITY);
+	}
+	
+	public LongHashSet(final int expected) {
+		allocate(LongHashSet.tableSize(expected));
+	}
+	
+	public boolean add(final long key) {
+		if(key == 0) {
+			if(this.containsZero) {
+				return false;
+			}
+			this.containsZero = true;
+			this.size++;
+			return true;
+		}
+		
+		int pos = LongHashSet.hash(key) & this.mask;
+		long current;
+		while((current = this.keys[pos]) != 0) {
+			if(current == key) {
+				return false;
+			}
+			pos = (pos + 1) & this.mask;
+		}
+		this.keys[pos] = key;
+		
+		if(++this.size >= this.maxFill) {
+			rehash(this.keys.length << 1);
+		}
+		return true;
+	}
+	
+	public boolean contains(final long key) {
+		if(key == 0) {
+			return this.containsZero;
+		}
+		
+		int pos = LongHashSet.hash(key) & this.mask;
+		long current;
+		while((current = this.keys[pos]) != 0) {
+			if(current == key) {
+				return true;
+			}
+			pos = (pos + 1) & this.mask;
+		}
+		return false;
+	}
+	
+	public boolean remove(final long key) {
+		if(key == 0) {
+			if(!this.containsZero) {
+				return false;
+			}
+			this.containsZero = false;
+			this.size--;
+			return true;
+		}
+		
+		int pos = LongHashSet.hash(key) & this.mask;
+		long current;
+		while((current = this.keys[pos]) != 0) {
+			if(current == key) {
+				this.size--;
+				shiftKeys(pos);
+				return true;
+			}
+			pos = (pos + 1) & this.mask;
+		}
+		return false;
+	}
+	
+	public int size() {
+		return this.size;
+	}
+	
+	public boolean isEmpty() {
+		return this.size == 0;
+	}
+	
+	public void clear() {
+		if(this.size == 0) {
+			return;
+		}
+		this.size = 0;
+		this.containsZero = false;
+		Arrays.fill(this.keys, 0);
+	}
+	
+	public void forEach(final LongConsumer action) {
+		if(this.containsZero) {
+			action.accept(0);
+		}
+		for(final long key: this.keys) {
+			if(key != 0) {
+				action.accept(key);
+			}
+		}
+	}
+	
+	/**
+	 * closes the gap left by a removed key by moving following keys of the same probe sequence back, 
+	 * this keeps lookups correct without tombstones
+	 * @param pos the slot that was freed
+	 */
+	private void shiftKeys(int pos) {
+		int last;
+		int slot;
+		long current;
+		while(true) {
+			pos = ((last = pos) + 1) & this.mask;
+			while(true) {
+				if((current = this.keys[pos]) == 0) {
+					this.keys[last] = 0;
+					return;
+				}
+				slot = LongHashSet.hash(current) & this.mask;
+				if(last <= pos ? last >= slot || slot > pos : last >= slot && slot > pos) {
+					break;
+				}
+				pos = (pos + 1) & this.mask;
+			}
+			this.keys[last] = current;
+		}
+	}
+	
+	private void rehash(final int capacity) {
+		final long[] old = this.keys;
+		allocate(capacity);
+		for(final long key: old) {
+			if(key != 0) {
+				int pos = LongHashSet.hash(key) & this.mask;
+				while(this.keys[pos] != 0) {
+					pos = (pos + 1) & this.mask;
+				}
+				this.keys[pos] = key;
+			}
+		}
+	}
+	
+	private void allocate(final int capacity) {
+		this.keys = new long[capacity];
+		this.mask = capacity - 1;
+		this.maxFill = (int) (capacity * LongHashSet.LOAD_FACTOR);
+	}
+	
+	private static int tableSize(final int expected) {
+		final int needed = (int) Math.ceil(Math.max(expected, 2) / LongHashSet.LOAD_FACTOR);
+		return Integer.highestOneBit(needed - 1) << 1;
+	}
+	
+	private static int hash(final long key) {
+		// fibonacci hashing spreads the packed coordinates, whose low bits are only the y level
+		final long h = key * 0x9E3779B97F4A7C15L;
+		return (int) (h ^ (h >>> 32));
+	}
+
+}
@@ -0,0 +1,179 @@
+package com.versuchdrei.lumberjack.utils;
+
+import java.util.Arrays;
+import java.util.function.ObjLongConsumer;
+
+/**
+ * an open addressing hash map from primitive longs to objects with linear probing, 
+ * used for packed block positions so looking up a position neither allocates nor boxes
+ * @author VersuchDrei
+ * @version 1.0
+ * @param <V> the type of the values
+ */
+public class LongObjectHashMap<V> {
+	
+	private static final int DEFAULT_CAPACITY = 16;
+	private static final float LOAD_FACTOR = 0.5f;
+	
+	// a null value marks a free slot, so null values can't be stored
+	private long[] keys;
+	private V[] values;
+	private int mask;
+	private int maxFill;
+	private int size = 0;
+	
+	public LongObjectHashMap() {
+		this(LongObjectHashMap.DEFAULT_CAPACITY);
+	}
+	
+	public LongObjectHashMap(final int expected) {
+		allocate(LongObjectHashMap.tableSize(expected));
+	}
+	
+	public V get(final long key) {
+		int pos = LongObjectHashMap.hash(key) & this.mask;
+		V value;
+		while((value = this.values[pos]) != null) {
+			if(this.keys[pos] == key) {
+				return value;
+			}
+			pos = (pos + 1) & this.mask;
+		}
+		return null;
+	}
+	
+	public boolean containsKey(final long key) {
+		return get(key) != null;
+	}
+	
+	/**
+	 * @param key the key to map the value to
+	 * @param value the value, may not be null
+	 * @return the value previously mapped to the key, or null if there was none
+	 */
+	public V put(final long key, final V value) {
+		int pos = LongObjectHashMap.hash(key) & this.mask;
+		while(this.values[pos] != null) {
+			if(this.keys[pos] == key) {
+				final V old = this.values[pos];
+				this.values[pos] = value;
+				return old;
+			}
+			pos = (pos + 1) & this.mask;
+		}
+		this.keys[pos] = key;
+		this.values[pos] = value;
+		
+		if(++this.size >= this.maxFill) {
+			rehash(this.keys.length << 1);
+		}
+		return null;
+	}
+	
+	/**
+	 * @return the value that was mapped to the key, or null if there was none
+	 */
+	public V remove(final long key) {
+		int pos = LongObjectHashMap.hash(key) & this.mask;
+		V value;
+		while((value = this.values[pos]) != null) {
+			if(this.keys[pos] == key) {
+				this.size--;
+				shiftKeys(pos);
+				return value;
+			}
+			pos = (pos + 1) & this.mask;
+		}
+		return null;
+	}
+	
+	public int size() {
+		return this.size;
+	}
+	
+	public boolean isEmpty() {
+		return this.size == 0;
+	}
+	
+	public void clear() {
+		if(this.size == 0) {
+			return;
+		}
+		this.size = 0;
+		Arrays.fill(this.values, null);
+	}
+	
+	/**
+	 * calls the given action for every entry, the map may not be modified while doing so
+	 */
+	public void forEach(final ObjLongConsumer<V> action) {
+		for(int i = 0; i < this.values.length; i++) {
+			if(this.values[i] != null) {
+				action.accept(this.values[i], this.keys[i]);
+			}
+		}
+	}
+	
+	/**
+	 * closes the gap left by a removed entry by moving following entries of the same probe sequence back, 
+	 * this keeps lookups correct without tombstones
+	 * @param pos the slot that was freed
+	 */
+	private void shiftKeys(int pos) {
+		int last;
+		int slot;
+		V current;
+		while(true) {
+			pos = ((last = pos) + 1) & this.mask;
+			while(true) {
+				if((current = this.values[pos]) == null) {
+					this.values[last] = null;
+					return;
+				}
+				slot = LongObjectHashMap.hash(this.keys[pos]) & this.mask;
+				if(last <= pos ? last >= slot || slot > pos : last >= slot && slot > pos) {
+					break;
+				}
+				pos = (pos + 1) & this.mask;
+			}
+			this.keys[last] = this.keys[pos];
+			this.values[last] = current;
+		}
+	}
+	
+	private void rehash(final int capacity) {
+		final long[] oldKeys = this.keys;
+		final V[] oldValues = this.values;
+		allocate(capacity);
+		for(int i = 0; i < oldValues.length; i++) {
+			if(oldValues[i] != null) {
+				int pos = LongObjectHashMap.hash(oldKeys[i]) & this.mask;
+				while(this.values[pos] != null) {
+					pos = (pos + 1) & this.mask;
+				}
+				this.keys[pos] = oldKeys[i];
+				this.values[pos] = oldValues[i];
+			}
+		}
+	}
+	
+	@SuppressWarnings("unchecked")
+	private void allocate(final int capacity) {
+		this.keys = new long[capacity];
+		this.values = (V[]) new Object[capacity];
+		this.mask = capacity - 1;
+		this.maxFill = (int) (capacity * LongObjectHashMap.LOAD_FACTOR);
+	}
+	
+	private static int tableSize(final int expected) {
+		final int needed = (int) Math.ceil(Math.max(expected, 2) / LongObjectHashMap.LOAD_FACTOR);
+		return Integer.highestOneBit(needed - 1) << 1;
+	}
+	
+	private static int hash(final long key) {
+		// fibonacci hashing spreads the packed coordinates, whose low bits are only the y level
+		final long h = key * 0x9E3779B97F4A7C15L;
+		return (int) (h ^ (h >>> 32));
+	}
+
+}
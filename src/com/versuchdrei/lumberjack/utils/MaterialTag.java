@@ -1,6 +1,7 @@
 package com.versuchdrei.lumberjack.utils;
 
-import java.util.HashSet;
+import java.util.Collection;
+import java.util.EnumSet;
 import java.util.Set;
 
 import org.bukkit.Material;
@@ -8,14 +9,14 @@ import org.bukkit.NamespacedKey;
 import org.bukkit.Tag;
 
 /**
- * a tag implementation for materials
+ * a tag implementation for materials, backed by an EnumSet so checking a material is a single bit lookup
  * @author VersuchDrei
  * @version 1.0
  */
 public class MaterialTag implements Tag<Material>{
 	
 	private final NamespacedKey key;
-	private final Set<Material> values = new HashSet<>();
+	private final Set<Material> values = EnumSet.noneOf(Material.class);
 
 	public MaterialTag(final NamespacedKey key, final Material[] types) {
 		this.key = key;
@@ -24,6 +25,11 @@ public class MaterialTag implements Tag<Material>{
 		}
 	}
 	
+	public MaterialTag(final NamespacedKey key, final Collection<Material> types) {
+		this.key = key;
+		this.values.addAll(types);
+	}
+	
 	@Override
 	public NamespacedKey getKey() {
 		return this.key;
@@ -0,0 +1,53 @@
+package com.versuchdrei.lumberjack.utils;
+
+import org.bukkit.block.Block;
+
+/**
+ * a util class for packing block coordinates into a single long, 
+ * 26 bits for x and z and 12 bits for y, which covers every position a world border allows, 
+ * as well as chunk coordinates with 32 bits each
+ * @author VersuchDrei
+ * @version 1.0
+ */
+public class PositionUtils {
+	
+	private static final int BITS_XZ = 26;
+	private static final int BITS_Y = 12;
+	private static final long MASK_XZ = (1L << PositionUtils.BITS_XZ) - 1;
+	private static final long MASK_Y = (1L << PositionUtils.BITS_Y) - 1;
+	private static final int SHIFT_X = PositionUtils.BITS_XZ + PositionUtils.BITS_Y;
+	private static final int SHIFT_Z = PositionUtils.BITS_Y;
+	
+	public static long pack(final int x, final int y, final int z) {
+		return ((x & PositionUtils.MASK_XZ) << PositionUtils.SHIFT_X) | ((z & PositionUtils.MASK_XZ) << PositionUtils.SHIFT_Z) | (y & PositionUtils.MASK_Y);
+	}
+	
+	public static long pack(final Block block) {
+		return PositionUtils.pack(block.getX(), block.getY(), block.getZ());
+	}
+	
+	public static int unpackX(final long position) {
+		return (int) (position >> PositionUtils.SHIFT_X);
+	}
+	
+	public static int unpackY(final long position) {
+		return (int) (position << (64 - PositionUtils.BITS_Y) >> (64 - PositionUtils.BITS_Y));
+	}
+	
+	public static int unpackZ(final long position) {
+		return (int) (position << PositionUtils.BITS_XZ >> PositionUtils.SHIFT_X);
+	}
+	
+	public static long packChunk(final int chunkX, final int chunkZ) {
+		return ((long) chunkX << 32) | (chunkZ & 0xFFFFFFFFL);
+	}
+	
+	public static int unpackChunkX(final long chunk) {
+		return (int) (chunk >> 32);
+	}
+	
+	public static int unpackChunkZ(final long chunk) {
+		return (int) chunk;
+	}
+
+}
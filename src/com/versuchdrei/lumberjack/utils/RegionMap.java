@@ -0,0 +1,154 @@
+package com.versuchdrei.lumberjack.utils;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * splits state into square regions of chunks, each guarded by its own monitor, 
+ * so threads working in different regions never wait for each other
+ *
+ * regions are created when something is put into them and dropped again once they are empty, 
+ * the action given for a region runs while holding its monitor and may not lock another region
+ * @author VersuchDrei
+ * @version 1.0
+ */
+public class RegionMap<T extends RegionMap.Region> {
+	
+	// the amount of chunks per region is 1 << REGION_SHIFT on every axis, like the sections regionised servers own regions in
+	public static final int REGION_SHIFT = 4;
+	
+	/**
+	 * the state of a single region
+	 */
+	public static abstract class Region {
+		// the region was empty and dropped from its map, whoever still holds it has to look it up again
+		private boolean retired = false;
+		
+		/**
+		 * @return true if the region holds nothing anymore and can be dropped
+		 */
+		public abstract boolean isEmpty();
+	}
+	
+	private final Supplier<T> factory;
+	private final Map<UUID, Map<Long, T>> worlds = new ConcurrentHashMap<>();
+	
+	/**
+	 * @param factory creates the state of a region that is used for the first time
+	 */
+	public RegionMap(final Supplier<T> factory) {
+		this.factory = factory;
+	}
+	
+	/**
+	 * @return the key of the region containing the given chunk
+	 */
+	public static long regionOf(final int chunkX, final int chunkZ) {
+		return PositionUtils.packChunk(chunkX >> RegionMap.REGION_SHIFT, chunkZ >> RegionMap.REGION_SHIFT);
+	}
+	
+	/**
+	 * @return the keys of the regions covering the given chunks
+	 */
+	public static long[] regionsOf(final int minChunkX, final int minChunkZ, final int maxChunkX, final int maxChunkZ) {
+		final int minRegionX = minChunkX >> RegionMap.REGION_SHIFT;
+		final int minRegionZ = minChunkZ >> RegionMap.REGION_SHIFT;
+		final int maxRegionX = maxChunkX >> RegionMap.REGION_SHIFT;
+		final int maxRegionZ = maxChunkZ >> RegionMap.REGION_SHIFT;
+		final long[] regions = new long[(maxRegionX - minRegionX + 1) * (maxRegionZ - minRegionZ + 1)];
+		int index = 0;
+		for(int regionX = minRegionX; regionX <= maxRegionX; regionX++) {
+			for(int regionZ = minRegionZ; regionZ <= maxRegionZ; regionZ++) {
+				regions[index++] = PositionUtils.packChunk(regionX, regionZ);
+			}
+		}
+		return regions;
+	}
+	
+	/**
+	 * runs the given action on the given region, creating the region if it doesn't exist yet
+	 * @param region the key of the region, as given by regionOf
+	 * @return the result of the action
+	 */
+	public <R> R apply(final UUID world, final long region, final Function<T, R> action) {
+		final Map<Long, T> regions = this.worlds.computeIfAbsent(world, uuid -> new ConcurrentHashMap<>());
+		final Long key = region;
+		while(true) {
+			final T state = regions.computeIfAbsent(key, created -> this.factory.get());
+			synchronized(state) {
+				// emptied and dropped by another thread meanwhile -> take the one replacing it
+				if(!RegionMap.isRetired(state)) {
+					return applyLocked(regions, key, state, action);
+				}
+			}
+		}
+	}
+	
+	/**
+	 * runs the given action on the given region if it exists
+	 * @param region the key of the region, as given by regionOf
+	 * @return the result of the action, or null if there is no such region
+	 */
+	public <R> R applyIfPresent(final UUID world, final long region, final Function<T, R> action) {
+		final Map<Long, T> regions = this.worlds.get(world);
+		if(regions == null) {
+			return null;
+		}
+		
+		final Long key = region;
+		while(true) {
+			final T state = regions.get(key);
+			if(state == null) {
+				return null;
+			}
+			synchronized(state) {
+				if(!RegionMap.isRetired(state)) {
+					return applyLocked(regions, key, state, action);
+				}
+			}
+		}
+	}
+	
+	/**
+	 * runs the given action on every region, one region at a time
+	 */
+	public void forEach(final Consumer<T> action) {
+		for(final Map<Long, T> regions: this.worlds.values()) {
+			for(final Map.Entry<Long, T> entry: regions.entrySet()) {
+				final T region = entry.getValue();
+				synchronized(region) {
+					if(!RegionMap.isRetired(region)) {
+						applyLocked(regions, entry.getKey(), region, locked -> {
+							action.accept(locked);
+							return null;
+						});
+					}
+				}
+			}
+		}
+	}
+	
+	private <R> R applyLocked(final Map<Long, T> regions, final Long key, final T region, final Function<T, R> action) {
+		try {
+			return action.apply(region);
+		} finally {
+			if(region.isEmpty()) {
+				RegionMap.retire(region);
+				regions.remove(key, region);
+			}
+		}
+	}
+	
+	private static boolean isRetired(final Region region) {
+		return region.retired;
+	}
+	
+	private static void retire(final Region region) {
+		region.retired = true;
+	}
+
+}
@@ -0,0 +1,100 @@
+package com.versuchdrei.lumberjack.world;
+
+import java.util.Arrays;
+
+import org.bukkit.Material;
+
+/**
+ * block access backed by a box of blocks that only exists in memory, everything outside the box is air, 
+ * lets the tree algorithms run without a server
+ * @author VersuchDrei
+ * @version 1.0
+ */
+public class ArrayBlockAccess implements BlockAccess {
+	
+	private final int minX;
+	private final int minY;
+	private final int minZ;
+	private final int sizeX;
+	private final int sizeY;
+	private final int sizeZ;
+	private final Material[] types;
+	// NOT_DECAYABLE for everything that is not a leaf that can decay
+	private final byte[] leafDistances;
+	
+	/**
+	 * creates a box filled with air
+	 * @param minX the smallest x coordinate within the box
+	 * @param minY the smallest y coordinate within the box
+	 * @param minZ the smallest z coordinate within the box
+	 * @param sizeX the width of the box along the x axis
+	 * @param sizeY the height of the box
+	 * @param sizeZ the width of the box along the z axis
+	 */
+	public ArrayBlockAccess(final int minX, final int minY, final int minZ, final int sizeX, final int sizeY, final int sizeZ) {
+		this.minX = minX;
+		this.minY = minY;
+		this.minZ = minZ;
+		this.sizeX = sizeX;
+		this.sizeY = sizeY;
+		this.sizeZ = sizeZ;
+		this.types = new Material[sizeX * sizeY * sizeZ];
+		this.leafDistances = new byte[this.types.length];
+		Arrays.fill(this.types, Material.AIR);
+		Arrays.fill(this.leafDistances, (byte) BlockAccess.NOT_DECAYABLE);
+	}
+	
+	@Override
+	public Material getType(final int x, final int y, final int z) {
+		final int index = index(x, y, z);
+		return index < 0? Material.AIR : this.types[index];
+	}
+	
+	@Override
+	public int getLeafDistance(final int x, final int y, final int z) {
+		final int index = index(x, y, z);
+		return index < 0? BlockAccess.NOT_DECAYABLE : this.leafDistances[index];
+	}
+	
+	@Override
+	public boolean isChunkLoaded(final int chunkX, final int chunkZ) {
+		return true;
+	}
+	
+	/**
+	 * sets the block at the given position, positions outside the box are ignored
+	 */
+	public void set(final int x, final int y, final int z, final Material type) {
+		final int index = index(x, y, z);
+		if(index >= 0) {
+			this.types[index] = type;
+			this.leafDistances[index] = (byte) BlockAccess.NOT_DECAYABLE;
+		}
+	}
+	
+	/**
+	 * sets the block at the given position to a leaf that can decay, positions outside the box are ignored
+	 * @param distance the distance of the leaf to the next log, 7 if it is not connected to any
+	 */
+	public void setLeaf(final int x, final int y, final int z, final Material type, final int distance) {
+		final int index = index(x, y, z);
+		if(index >= 0) {
+			this.types[index] = type;
+			this.leafDistances[index] = (byte) distance;
+		}
+	}
+	
+	/**
+	 * @return the index of the position in the arrays, -1 if it lies outside the box
+	 */
+	private int index(final int x, final int y, final int z) {
+		final int localX = x - this.minX;
+		final int localY = y - this.minY;
+		final int localZ = z - this.minZ;
+		if(localX < 0 || localX >= this.sizeX || localY < 0 || localY >= this.sizeY || localZ < 0 || localZ >= this.sizeZ) {
+			return -1;
+		}
+		return (localY * this.sizeZ + localZ) * this.sizeX + localX;
+	}
+
+}
@@ -0,0 +1,32 @@
+package com.versuchdrei.lumberjack.world;
+
+import org.bukkit.Material;
+
+/**
+ * read access to the blocks of a world, 
+ * lets the tree algorithms run against the live world as well as against copies of it or blocks that only exist in memory
+ * @author VersuchDrei
+ * @version 1.0
+ */
+public interface BlockAccess {
+	
+	// the leaf distance of blocks that are not leaves or that never decay
+	public static final int NOT_DECAYABLE = -1;
+	
+	/**
+	 * @return the type of the block at the given position, AIR if the position is not accessible
+	 */
+	public Material getType(int x, int y, int z);
+	
+	/**
+	 * @return the distance of the leaf at the given position to the next log as the server knows it, 
+	 * NOT_DECAYABLE if the block is no leaf, was placed by a player or the position is not accessible
+	 */
+	public int getLeafDistance(int x, int y, int z);
+	
+	/**
+	 * @return true if the blocks of the given chunk can be read without loading the chunk
+	 */
+	public boolean isChunkLoaded(int chunkX, int chunkZ);
+
+}
@@ -0,0 +1,127 @@
+package com.versuchdrei.lumberjack.world;
+
+import org.bukkit.ChunkSnapshot;
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.bukkit.block.data.BlockData;
+import org.bukkit.block.data.type.Leaves;
+
+import com.versuchdrei.lumberjack.scheduler.TaskScheduler;
+import com.versuchdrei.lumberjack.utils.LongHashSet;
+import com.versuchdrei.lumberjack.utils.LongObjectHashMap;
+import com.versuchdrei.lumberjack.utils.PositionUtils;
+
+/**
+ * block access backed by snapshots of single chunks, 
+ * the snapshots are taken on the thread owning the chunks but can be read from any thread afterwards
+ *
+ * chunks are captured one at a time as a scan reaches them, so only the chunks a tree actually touches are copied, 
+ * capturing may only happen while no other thread reads the access
+ * @author VersuchDrei
+ * @version 1.0
+ */
+public class SnapshotBlockAccess implements BlockAccess {
+	
+	private final World world;
+	private final int maxHeight;
+	private final LongObjectHashMap<ChunkSnapshot> snapshots = new LongObjectHashMap<>();
+	// chunks that were not loaded or not owned by the capturing thread when they were captured
+	private final LongHashSet missing = new LongHashSet();
+	
+	// the chunk of the last block read, neighboring blocks mostly share a chunk
+	private long lastChunk;
+	private ChunkSnapshot lastSnapshot = null;
+	
+	/**
+	 * creates an access without any captured chunks, every chunk reads as not loaded until it is captured
+	 * @param world the world to take the snapshots from
+	 */
+	public SnapshotBlockAccess(final World world) {
+		this.world = world;
+		this.maxHeight = world.getMaxHeight();
+	}
+	
+	/**
+	 * takes a snapshot of the given chunk if it is loaded and owned by the current thread, 
+	 * otherwise the chunk is remembered as not loaded, chunks are not loaded for this
+	 * @param scheduler the scheduler knowing which chunks the current thread owns
+	 * @param chunkX the x coordinate of the chunk
+	 * @param chunkZ the z coordinate of the chunk
+	 * @return true if a snapshot was taken
+	 */
+	public boolean capture(final TaskScheduler scheduler, final int chunkX, final int chunkZ) {
+		final long chunk = PositionUtils.packChunk(chunkX, chunkZ);
+		if(!this.world.isChunkLoaded(chunkX, chunkZ) || !scheduler.isOwned(this.world, chunkX, chunkZ)) {
+			this.missing.add(chunk);
+			return false;
+		}
+		
+		this.snapshots.put(chunk, this.world.getChunkAt(chunkX, chunkZ).getChunkSnapshot(false, false, false));
+		this.missing.remove(chunk);
+		return true;
+	}
+	
+	/**
+	 * @return true if the given chunk was captured, regardless of it being loaded at that time
+	 */
+	public boolean isCaptured(final int chunkX, final int chunkZ) {
+		final long chunk = PositionUtils.packChunk(chunkX, chunkZ);
+		return this.snapshots.containsKey(chunk) || this.missing.contains(chunk);
+	}
+	
+	/**
+	 * @return the amount of snapshots that were taken
+	 */
+	public int getSnapshots() {
+		return this.snapshots.size();
+	}
+	
+	@Override
+	public Material getType(final int x, final int y, final int z) {
+		final ChunkSnapshot snapshot = getSnapshot(x, y, z);
+		return snapshot == null? Material.AIR : snapshot.getBlockType(x & 15, y, z & 15);
+	}
+	
+	@Override
+	public int getLeafDistance(final int x, final int y, final int z) {
+		final ChunkSnapshot snapshot = getSnapshot(x, y, z);
+		if(snapshot == null) {
+			return BlockAccess.NOT_DECAYABLE;
+		}
+		
+		final BlockData data = snapshot.getBlockData(x & 15, y, z & 15);
+		if(!(data instanceof Leaves) || ((Leaves) data).isPersistent()) {
+			return BlockAccess.NOT_DECAYABLE;
+		}
+		return ((Leaves) data).getDistance();
+	}
+	
+	@Override
+	public boolean isChunkLoaded(final int chunkX, final int chunkZ) {
+		return getChunk(PositionUtils.packChunk(chunkX, chunkZ)) != null;
+	}
+	
+	/**
+	 * @return the snapshot containing the given position, null if the position is outside the world or its chunk was not captured or not loaded
+	 */
+	private ChunkSnapshot getSnapshot(final int x, final int y, final int z) {
+		if(y < 0 || y >= this.maxHeight) {
+			return null;
+		}
+		return getChunk(PositionUtils.packChunk(x >> 4, z >> 4));
+	}
+	
+	private ChunkSnapshot getChunk(final long chunk) {
+		if(this.lastSnapshot != null && this.lastChunk == chunk) {
+			return this.lastSnapshot;
+		}
+		
+		final ChunkSnapshot snapshot = this.snapshots.get(chunk);
+		if(snapshot != null) {
+			this.lastChunk = chunk;
+			this.lastSnapshot = snapshot;
+		}
+		return snapshot;
+	}
+
+}
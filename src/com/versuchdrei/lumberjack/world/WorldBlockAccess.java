@@ -0,0 +1,59 @@
+package com.versuchdrei.lumberjack.world;
+
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.bukkit.block.data.BlockData;
+import org.bukkit.block.data.type.Leaves;
+
+import com.versuchdrei.lumberjack.scheduler.TaskScheduler;
+
+/**
+ * block access backed by a live world, may only be used on a thread that owns chunks of the world, 
+ * chunks owned by another thread are treated like unloaded ones
+ * 
+ * leaves are only read from loaded chunks, so checking leaves never loads a chunk, 
+ * reading the type of a block in an unloaded chunk loads it, so isChunkLoaded should be checked first
+ * @author VersuchDrei
+ * @version 1.0
+ */
+public class WorldBlockAccess implements BlockAccess {
+	
+	private final World world;
+	private final TaskScheduler scheduler;
+	
+	public WorldBlockAccess(final World world, final TaskScheduler scheduler) {
+		this.world = world;
+		this.scheduler = scheduler;
+	}
+	
+	/**
+	 * @return the world the blocks are read from
+	 */
+	public World getWorld() {
+		return this.world;
+	}
+
+	@Override
+	public Material getType(final int x, final int y, final int z) {
+		return this.world.getBlockAt(x, y, z).getType();
+	}
+	
+	@Override
+	public int getLeafDistance(final int x, final int y, final int z) {
+		if(!isChunkLoaded(x >> 4, z >> 4)) {
+			return BlockAccess.NOT_DECAYABLE;
+		}
+		
+		final BlockData data = this.world.getBlockAt(x, y, z).getBlockData();
+		if(!(data instanceof Leaves) || ((Leaves) data).isPersistent()) {
+			return BlockAccess.NOT_DECAYABLE;
+		}
+		return ((Leaves) data).getDistance();
+	}
+	
+	@Override
+	public boolean isChunkLoaded(final int chunkX, final int chunkZ) {
+		return this.world.isChunkLoaded(chunkX, chunkZ) && this.scheduler.isOwned(this.world, chunkX, chunkZ);
+	}
+
+}
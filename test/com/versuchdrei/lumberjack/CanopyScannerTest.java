@@ -0,0 +1,94 @@
+package com.versuchdrei.lumberjack;
+
+import java.util.Arrays;
+import java.util.function.Predicate;
+
+import org.bukkit.Material;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.versuchdrei.lumberjack.utils.PositionUtils;
+import com.versuchdrei.lumberjack.world.ArrayBlockAccess;
+
+/**
+ * computes the orphaned leaves of trees built into an in memory block access, 
+ * the leaves keep the distances the server knew before the logs were removed
+ * @author VersuchDrei
+ * @version 1.0
+ */
+public class CanopyScannerTest {
+	
+	private static final Predicate<Material> IS_OAK_LOG = material -> material == Material.OAK_LOG;
+	
+	@Test
+	public void collectsAllLeavesOfAFelledTree() {
+		final ArrayBlockAccess grid = CanopyScannerTest.branch();
+		// the whole trunk is gone
+		final long[] seeds = new long[6 * 6];
+		for(int y = 64; y <= 69; y++) {
+			grid.set(0, y, 0, Material.AIR);
+			System.arraycopy(CanopyScanner.neighborsOf(0, y, 0), 0, seeds, (y - 64) * 6, 6);
+		}
+		
+		final Canopy canopy = new CanopyScanner(1000).scanComputed(grid, seeds, position -> false, CanopyScannerTest.IS_OAK_LOG);
+		Assert.assertEquals(7, canopy.getSize());
+		Assert.assertEquals(0, canopy.getBorder().length);
+	}
+	
+	@Test
+	public void keepsLeavesSupportedByTheRemainingTrunk() {
+		final ArrayBlockAccess grid = CanopyScannerTest.branch();
+		// only the top log is gone, the leaves now reach the trunk one block further down
+		grid.set(0, 69, 0, Material.AIR);
+		
+		final Canopy canopy = new CanopyScanner(1000).scanComputed(grid, CanopyScanner.neighborsOf(0, 69, 0), position -> false, CanopyScannerTest.IS_OAK_LOG);
+		Assert.assertEquals(1, canopy.getSize());
+		Assert.assertEquals(PositionUtils.pack(6, 69, 0), canopy.getLeaves()[0]);
+	}
+	
+	@Test
+	public void skippedPositionsCountAsGone() {
+		final ArrayBlockAccess grid = CanopyScannerTest.branch();
+		grid.set(0, 69, 0, Material.AIR);
+		final long supportingLeaf = PositionUtils.pack(1, 68, 0);
+		
+		final Canopy canopy = new CanopyScanner(1000).scanComputed(grid, CanopyScanner.neighborsOf(0, 69, 0), position -> position == supportingLeaf,
+				CanopyScannerTest.IS_OAK_LOG);
+		final long[] leaves = Arrays.copyOf(canopy.getLeaves(), canopy.getSize());
+		Arrays.sort(leaves);
+		final long[] expected = new long[6];
+		for(int x = 1; x <= 6; x++) {
+			expected[x - 1] = PositionUtils.pack(x, 69, 0);
+		}
+		Arrays.sort(expected);
+		Assert.assertArrayEquals(expected, leaves);
+	}
+	
+	@Test
+	public void leavesTooManyLeavesForTheNextPass() {
+		final ArrayBlockAccess grid = CanopyScannerTest.branch();
+		grid.set(0, 69, 0, Material.AIR);
+		
+		// the first three leaves are computed, the fourth keeps the distance the server knows
+		final Canopy canopy = new CanopyScanner(3).scanComputed(grid, CanopyScanner.neighborsOf(0, 69, 0), position -> false, CanopyScannerTest.IS_OAK_LOG);
+		Assert.assertEquals(0, canopy.getSize());
+		Assert.assertArrayEquals(new long[] {PositionUtils.pack(3, 69, 0)}, canopy.getBorder());
+	}
+	
+	/**
+	 * builds a trunk from y 64 to 69 with a row of six leaves next to its top, 
+	 * and a single leaf below the row, next to the trunk
+	 */
+	private static ArrayBlockAccess branch() {
+		final ArrayBlockAccess grid = new ArrayBlockAccess(-16, 60, -16, 32, 32, 32);
+		for(int y = 64; y <= 69; y++) {
+			grid.set(0, y, 0, Material.OAK_LOG);
+		}
+		for(int x = 1; x <= 6; x++) {
+			grid.setLeaf(x, 69, 0, Material.OAK_LEAVES, x);
+		}
+		grid.setLeaf(1, 68, 0, Material.OAK_LEAVES, 1);
+		return grid;
+	}
+
+}
@@ -0,0 +1,104 @@
+package com.versuchdrei.lumberjack;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.bukkit.Material;
+import org.bukkit.entity.Player;
+import org.bukkit.inventory.ItemStack;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.versuchdrei.lumberjack.scheduler.LocalTaskScheduler;
+import com.versuchdrei.lumberjack.world.ArrayBlockAccess;
+import com.versuchdrei.lumberjack.world.MemoryWorld;
+
+/**
+ * collects the drops of a player felling in a world that only exists in memory, 
+ * time only passes when the scheduler is ticked
+ * @author VersuchDrei
+ * @version 1.0
+ */
+public class DropAggregatorTest {
+	
+	private static final int WINDOW_TICKS = 2;
+	
+	private final LocalTaskScheduler scheduler = new LocalTaskScheduler();
+	private final MemoryWorld world = new MemoryWorld(new ArrayBlockAccess(-16, 60, -16, 32, 16, 32));
+	private final MemoryPlayer memoryPlayer = new MemoryPlayer(this.world.getWorld(), 0.5, 64, 0.5);
+	private final Player player = this.memoryPlayer.getPlayer();
+	
+	public DropAggregatorTest() {
+		MemoryServer.plugin();
+		MemoryServer.join(this.player);
+	}
+	
+	@After
+	public void quit() {
+		MemoryServer.quit(this.player);
+	}
+	
+	@Test
+	public void dropsOneStackPerKindOnceTheWindowIsOver() {
+		final DropAggregator aggregator = new DropAggregator(MemoryServer.plugin(), this.scheduler, DropAggregatorTest.WINDOW_TICKS, false);
+		for(int i = 0; i < 3; i++) {
+			aggregator.add(this.player, Arrays.asList(new ItemStack(Material.OAK_LOG, 1), new ItemStack(Material.STICK, 2)));
+		}
+		
+		this.scheduler.tick();
+		Assert.assertTrue(this.world.getDrops().isEmpty());
+		this.scheduler.tick();
+		final List<ItemStack> drops = this.world.getDrops();
+		Assert.assertEquals(2, drops.size());
+		Assert.assertEquals(Material.OAK_LOG, drops.get(0).getType());
+		Assert.assertEquals(3, drops.get(0).getAmount());
+		Assert.assertEquals(Material.STICK, drops.get(1).getType());
+		Assert.assertEquals(6, drops.get(1).getAmount());
+	}
+	
+	@Test
+	public void splitsTheDropsIntoValidStacks() {
+		final DropAggregator aggregator = new DropAggregator(MemoryServer.plugin(), this.scheduler, DropAggregatorTest.WINDOW_TICKS, false);
+		for(int i = 0; i < 70; i++) {
+			aggregator.add(this.player, Arrays.asList(new ItemStack(Material.OAK_LOG, 1)));
+		}
+		
+		aggregator.flush(this.player);
+		final List<ItemStack> drops = this.world.getDrops();
+		Assert.assertEquals(2, drops.size());
+		Assert.assertEquals(64, drops.get(0).getAmount());
+		Assert.assertEquals(6, drops.get(1).getAmount());
+	}
+	
+	@Test
+	public void dropsWhatDoesntFitIntoTheInventory() {
+		// every slot but the last one holds an axe
+		for(int slot = 35; slot >= 0; slot--) {
+			this.memoryPlayer.hold(slot, slot == 35? null : new ItemStack(Material.IRON_AXE, 1));
+		}
+		final DropAggregator aggregator = new DropAggregator(MemoryServer.plugin(), this.scheduler, DropAggregatorTest.WINDOW_TICKS, true);
+		aggregator.add(this.player, Arrays.asList(new ItemStack(Material.OAK_LOG, 70)));
+		
+		aggregator.flushAll();
+		Assert.assertEquals(64, this.memoryPlayer.count(new ItemStack(Material.OAK_LOG, 1)));
+		final List<ItemStack> drops = this.world.getDrops();
+		Assert.assertEquals(1, drops.size());
+		Assert.assertEquals(6, drops.get(0).getAmount());
+	}
+	
+	@Test
+	public void dropsWhereThePlayerLastFelledIfTheyLeft() {
+		final DropAggregator aggregator = new DropAggregator(MemoryServer.plugin(), this.scheduler, DropAggregatorTest.WINDOW_TICKS, true);
+		aggregator.add(this.player, Arrays.asList(new ItemStack(Material.OAK_LOG, 5)));
+		MemoryServer.quit(this.player);
+		
+		this.scheduler.tick();
+		this.scheduler.tick();
+		Assert.assertEquals(0, this.memoryPlayer.count(new ItemStack(Material.OAK_LOG, 1)));
+		final List<ItemStack> drops = this.world.getDrops();
+		Assert.assertEquals(1, drops.size());
+		Assert.assertEquals(5, drops.get(0).getAmount());
+	}
+
+}
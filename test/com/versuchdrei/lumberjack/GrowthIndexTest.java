@@ -0,0 +1,140 @@
+package com.versuchdrei.lumberjack;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.bukkit.Material;
+import org.bukkit.block.BlockState;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.versuchdrei.lumberjack.scheduler.LocalTaskScheduler;
+import com.versuchdrei.lumberjack.utils.PositionUtils;
+import com.versuchdrei.lumberjack.world.ArrayBlockAccess;
+import com.versuchdrei.lumberjack.world.MemoryWorld;
+
+/**
+ * remembers grown trees in the persistent data of the chunks of a world that only exists in memory,
+ * and takes them again like felling them would
+ * @author VersuchDrei
+ * @version 1.0
+ */
+public class GrowthIndexTest {
+	
+	private static final int MAX_LOGS = 1000;
+	
+	private final ArrayBlockAccess grid = new ArrayBlockAccess(-32, 0, -32, 64, 128, 64);
+	private final MemoryWorld world = new MemoryWorld(this.grid);
+	private final GrowthIndex index = new GrowthIndex(MemoryServer.plugin(), new LocalTaskScheduler(), GrowthIndexTest.MAX_LOGS);
+	private final TreeScanner scanner = new TreeScanner(GrowthIndexTest.MAX_LOGS, 32);
+	
+	@Test
+	public void takesTheGrownTree() {
+		grow(GrowthIndexTest.trunk(0, 0, 64, 6));
+		
+		final Tree tree = this.index.take(this.scanner, this.world.getBlockAt(0, 64, 0), GrowthIndexTest::isOakLog);
+		Assert.assertNotNull(tree);
+		Assert.assertEquals(6, tree.getSize());
+		// the tree is forgotten once it is taken
+		Assert.assertNull(this.index.take(this.scanner, this.world.getBlockAt(0, 65, 0), GrowthIndexTest::isOakLog));
+	}
+	
+	@Test
+	public void staleRecordOnlyYieldsConnectedLogs() {
+		final List<BlockState> grown = GrowthIndexTest.trunk(0, 0, 64, 6);
+		grow(grown);
+		// the tree vanished without any log being broken, e.g. removed by another plugin,
+		// and a player placed logs at some of its positions afterwards
+		for(final BlockState state: grown) {
+			this.grid.set(state.getX(), state.getY(), state.getZ(), Material.AIR);
+		}
+		this.grid.set(0, 64, 0, Material.OAK_LOG);
+		this.grid.set(0, 65, 0, Material.OAK_LOG);
+		this.grid.set(0, 68, 0, Material.OAK_LOG);
+		
+		final Tree tree = this.index.take(this.scanner, this.world.getBlockAt(0, 64, 0), GrowthIndexTest::isOakLog);
+		Assert.assertNotNull(tree);
+		Assert.assertEquals(2, tree.getSize());
+		Assert.assertTrue(tree.getLogs().contains(PositionUtils.pack(0, 65, 0)));
+		Assert.assertFalse(tree.getLogs().contains(PositionUtils.pack(0, 68, 0)));
+	}
+	
+	@Test
+	public void brokenLogForgetsTheTreeInEveryChunk() {
+		final List<BlockState> grown = GrowthIndexTest.trunk(0, 0, 64, 6);
+		// a branch reaching into the chunk next to it
+		grown.add(GrowthIndexTest.log(-1, 69, 0));
+		grown.add(GrowthIndexTest.log(-2, 70, 0));
+		grow(grown);
+		
+		this.index.forget(this.world.getBlockAt(0, 66, 0));
+		this.grid.set(0, 66, 0, Material.AIR);
+		Assert.assertNull(this.index.take(this.scanner, this.world.getBlockAt(0, 64, 0), GrowthIndexTest::isOakLog));
+		Assert.assertNull(this.index.take(this.scanner, this.world.getBlockAt(-2, 70, 0), GrowthIndexTest::isOakLog));
+	}
+	
+	@Test
+	public void oldestRecordsAreDroppedFirst() {
+		grow(GrowthIndexTest.trunk(1, 1, 64, 1));
+		// ten trees of 500 logs each exceed what a chunk stores
+		for(int tree = 0; tree < 10; tree++) {
+			final List<BlockState> grown = new ArrayList<>();
+			for(int i = 0; i < 500; i++) {
+				grown.add(GrowthIndexTest.log(i & 15, 10 + tree * 2 + (i >> 8), (i >> 4) & 15));
+			}
+			grow(grown);
+		}
+		
+		Assert.assertNull(this.index.take(this.scanner, this.world.getBlockAt(1, 64, 1), GrowthIndexTest::isOakLog));
+		final Tree newest = this.index.take(this.scanner, this.world.getBlockAt(0, 28, 0), GrowthIndexTest::isOakLog);
+		Assert.assertNotNull(newest);
+		Assert.assertEquals(500, newest.getSize());
+	}
+	
+	private static boolean isOakLog(final Material material) {
+		return material == Material.OAK_LOG;
+	}
+	
+	/**
+	 * places the given logs and records them like a tree growing
+	 */
+	private void grow(final List<BlockState> blocks) {
+		this.index.record(this.world.getWorld(), blocks);
+		for(final BlockState state: blocks) {
+			this.grid.set(state.getX(), state.getY(), state.getZ(), state.getType());
+		}
+	}
+	
+	/**
+	 * @return the logs of a column of the given height
+	 */
+	private static List<BlockState> trunk(final int x, final int z, final int y, final int height) {
+		final List<BlockState> blocks = new ArrayList<>();
+		for(int i = 0; i < height; i++) {
+			blocks.add(GrowthIndexTest.log(x, y + i, z));
+		}
+		return blocks;
+	}
+	
+	/**
+	 * @return the state of an oak log at the given position
+	 */
+	private static BlockState log(final int x, final int y, final int z) {
+		return (BlockState) Proxy.newProxyInstance(BlockState.class.getClassLoader(), new Class<?>[] {BlockState.class}, (proxy, method, args) -> {
+			switch(method.getName()) {
+			case "getType":
+				return Material.OAK_LOG;
+			case "getX":
+				return x;
+			case "getY":
+				return y;
+			case "getZ":
+				return z;
+			default:
+				throw new UnsupportedOperationException(method.getName());
+			}
+		});
+	}
+
+}
@@ -0,0 +1,157 @@
+package com.versuchdrei.lumberjack;
+
+import org.bukkit.Material;
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.versuchdrei.lumberjack.scheduler.LocalTaskScheduler;
+import com.versuchdrei.lumberjack.utils.PositionUtils;
+import com.versuchdrei.lumberjack.world.ArrayBlockAccess;
+import com.versuchdrei.lumberjack.world.MemoryWorld;
+
+/**
+ * decays the leaves of trees felled in a world that only exists in memory, 
+ * the engine is ticked by a scheduler where time only passes when it is ticked, 
+ * the tree stands next to the border of two chunks, so its canopy reaches into both of them
+ * @author VersuchDrei
+ * @version 1.0
+ */
+public class LeafDecayEngineTest {
+	
+	private static final int TRUNK_X = 14;
+	// in the middle of the chunk, so only the row of leaves reaches into another chunk
+	private static final int Z = 8;
+	private static final int MAX_TICKS = 40;
+	
+	private final ArrayBlockAccess grid = new ArrayBlockAccess(-16, 60, -16, 64, 16, 32);
+	private final MemoryWorld world = new MemoryWorld(this.grid);
+	private final Metrics metrics = new Metrics();
+	
+	@Test
+	public void decaysTheWholeCanopy() {
+		final LocalTaskScheduler scheduler = new LocalTaskScheduler();
+		final LeafDecayEngine engine = engine(scheduler, new YamlConfiguration(), true, true);
+		engine.start();
+		
+		engine.decayCanopyAround(this.world.getWorld(), fell());
+		LeafDecayEngineTest.tickUntilDone(scheduler, engine);
+		Assert.assertEquals(0, countLeaves());
+	}
+	
+	@Test
+	public void decaysOnTheThreadOwningTheChunkAndKeepsWhatAnotherRegionMightSupport() {
+		// every chunk is a region of its own, the engine itself runs on the global thread owning none of them
+		final LocalTaskScheduler scheduler = new LocalTaskScheduler(0);
+		final LeafDecayEngine engine = engine(scheduler, new YamlConfiguration(), true, true);
+		engine.start();
+		
+		engine.decayCanopyAround(this.world.getWorld(), fell());
+		// the global thread only hands the check to the owner of the chunk, which decays the leaves a few ticks later
+		scheduler.tick();
+		Assert.assertEquals(7, countLeaves());
+		LeafDecayEngineTest.tickUntilDone(scheduler, engine);
+		Assert.assertEquals(Material.AIR, this.grid.getType(LeafDecayEngineTest.TRUNK_X - 1, 69, LeafDecayEngineTest.Z));
+		// the owner of the trunk can't look into the next chunk, so the leaves there might be supported by a log
+		for(int x = LeafDecayEngineTest.TRUNK_X + 1; x <= LeafDecayEngineTest.TRUNK_X + 6; x++) {
+			Assert.assertEquals(Material.OAK_LEAVES, this.grid.getType(x, 69, LeafDecayEngineTest.Z));
+		}
+	}
+	
+	@Test
+	public void decaysNoMoreLeavesPerTickThanTheWorldAllows() {
+		final LocalTaskScheduler scheduler = new LocalTaskScheduler();
+		final YamlConfiguration config = new YamlConfiguration();
+		config.set("maxLeafDecaysPerTick", 1);
+		final LeafDecayEngine engine = engine(scheduler, config, true, true);
+		engine.start();
+		
+		engine.decayCanopyAround(this.world.getWorld(), fell());
+		int leaves = countLeaves();
+		for(int tick = 0; tick < LeafDecayEngineTest.MAX_TICKS && leaves > 0; tick++) {
+			scheduler.tick();
+			final int left = countLeaves();
+			Assert.assertTrue(leaves - left <= 1);
+			leaves = left;
+		}
+		Assert.assertEquals(0, leaves);
+	}
+	
+	@Test
+	public void decaysTheOrphanedNeighborsOnceTheServerUpdatedThem() {
+		final LocalTaskScheduler scheduler = new LocalTaskScheduler();
+		final LeafDecayEngine engine = engine(scheduler, new YamlConfiguration(), false, false);
+		engine.start();
+		
+		// the server knows the leaves next to the trunk are orphaned, the ones further away wait for their neighbors to decay
+		fell();
+		this.grid.setLeaf(LeafDecayEngineTest.TRUNK_X - 1, 69, LeafDecayEngineTest.Z, Material.OAK_LEAVES, 7);
+		this.grid.setLeaf(LeafDecayEngineTest.TRUNK_X + 1, 69, LeafDecayEngineTest.Z, Material.OAK_LEAVES, 7);
+		this.grid.setLeaf(LeafDecayEngineTest.TRUNK_X + 2, 69, LeafDecayEngineTest.Z, Material.OAK_LEAVES, 7);
+		engine.decaySurroundingLeaves(this.world.getBlockAt(LeafDecayEngineTest.TRUNK_X, 69, LeafDecayEngineTest.Z));
+		
+		// the neighbors are only checked after the server had time to update their distances
+		for(int tick = 0; tick < 5; tick++) {
+			scheduler.tick();
+		}
+		Assert.assertEquals(Material.OAK_LEAVES, this.grid.getType(LeafDecayEngineTest.TRUNK_X - 1, 69, LeafDecayEngineTest.Z));
+		
+		LeafDecayEngineTest.tickUntilDone(scheduler, engine);
+		Assert.assertEquals(Material.AIR, this.grid.getType(LeafDecayEngineTest.TRUNK_X - 1, 69, LeafDecayEngineTest.Z));
+		Assert.assertEquals(Material.AIR, this.grid.getType(LeafDecayEngineTest.TRUNK_X + 1, 69, LeafDecayEngineTest.Z));
+		// nothing listens to the decay event here, which would check the neighbors of the decayed leaf
+		Assert.assertEquals(Material.OAK_LEAVES, this.grid.getType(LeafDecayEngineTest.TRUNK_X + 2, 69, LeafDecayEngineTest.Z));
+	}
+	
+	private LeafDecayEngine engine(final LocalTaskScheduler scheduler, final YamlConfiguration config, final boolean canopyDecay, final boolean computeDistance) {
+		final Settings settings = Settings.compile(null, config);
+		final WorkGovernor governor = new WorkGovernor(null, scheduler, this.metrics, 0, 0, 50);
+		return new LeafDecayEngine(MemoryServer.plugin(), scheduler, governor, this.metrics, () -> settings, null, canopyDecay, 4096, computeDistance);
+	}
+	
+	/**
+	 * builds a trunk from y 64 to 69 with a leaf on one side of its top and a row of six leaves on the other side, reaching into the next chunk, 
+	 * then removes the trunk, the leaves keep the distances they had before
+	 * @return the positions of the removed logs
+	 */
+	private long[] fell() {
+		final long[] trunk = new long[6];
+		for(int y = 64; y <= 69; y++) {
+			this.grid.set(LeafDecayEngineTest.TRUNK_X, y, LeafDecayEngineTest.Z, Material.OAK_LOG);
+			trunk[y - 64] = PositionUtils.pack(LeafDecayEngineTest.TRUNK_X, y, LeafDecayEngineTest.Z);
+		}
+		this.grid.setLeaf(LeafDecayEngineTest.TRUNK_X - 1, 69, LeafDecayEngineTest.Z, Material.OAK_LEAVES, 1);
+		for(int distance = 1; distance <= 6; distance++) {
+			this.grid.setLeaf(LeafDecayEngineTest.TRUNK_X + distance, 69, LeafDecayEngineTest.Z, Material.OAK_LEAVES, distance);
+		}
+		
+		for(int y = 64; y <= 69; y++) {
+			this.grid.set(LeafDecayEngineTest.TRUNK_X, y, LeafDecayEngineTest.Z, Material.AIR);
+		}
+		return trunk;
+	}
+	
+	/**
+	 * @return the amount of leaves of the tree that are left
+	 */
+	private int countLeaves() {
+		int leaves = 0;
+		for(int x = LeafDecayEngineTest.TRUNK_X - 1; x <= LeafDecayEngineTest.TRUNK_X + 6; x++) {
+			if(this.grid.getType(x, 69, LeafDecayEngineTest.Z) == Material.OAK_LEAVES) {
+				leaves++;
+			}
+		}
+		return leaves;
+	}
+	
+	/**
+	 * ticks the scheduler long enough for every delay of the engine to pass
+	 */
+	private static void tickUntilDone(final LocalTaskScheduler scheduler, final LeafDecayEngine engine) {
+		for(int tick = 0; tick < LeafDecayEngineTest.MAX_TICKS; tick++) {
+			scheduler.tick();
+		}
+		Assert.assertEquals(0, engine.getPending());
+	}
+
+}
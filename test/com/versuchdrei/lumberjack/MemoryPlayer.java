@@ -0,0 +1,145 @@
+package com.versuchdrei.lumberjack;
+
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.UUID;
+
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.PlayerInventory;
+
+/**
+ * a stand in for a player standing still at a location, with an inventory of storage slots only, 
+ * the player is online while they joined the memory server and valid until they quit
+ * @author VersuchDrei
+ * @version 1.0
+ */
+public class MemoryPlayer {
+	
+	private static final int SLOTS = 36;
+	
+	private final UUID uuid = UUID.randomUUID();
+	private final Location location;
+	private final ItemStack[] slots = new ItemStack[MemoryPlayer.SLOTS];
+	private int heldSlot = 0;
+	private final Player player;
+	
+	/**
+	 * @param world the world the player stands in
+	 */
+	public MemoryPlayer(final World world, final double x, final double y, final double z) {
+		this.location = new Location(world, x, y, z);
+		final PlayerInventory inventory = (PlayerInventory) Proxy.newProxyInstance(PlayerInventory.class.getClassLoader(), 
+				new Class<?>[] {PlayerInventory.class}, (proxy, method, args) -> {
+			switch(method.getName()) {
+			case "getHeldItemSlot":
+				return this.heldSlot;
+			case "getItemInMainHand":
+				// an empty hand holds air
+				return this.slots[this.heldSlot] == null? new ItemStack(Material.AIR, 0) : this.slots[this.heldSlot];
+			case "getItem":
+				return this.slots[(int) args[0]];
+			case "setItem":
+				this.slots[(int) args[0]] = (ItemStack) args[1];
+				return null;
+			case "addItem":
+				return add((ItemStack[]) args[0]);
+			default:
+				throw new UnsupportedOperationException(method.getName());
+			}
+		});
+		this.player = (Player) Proxy.newProxyInstance(Player.class.getClassLoader(), new Class<?>[] {Player.class}, (proxy, method, args) -> {
+			switch(method.getName()) {
+			case "getUniqueId":
+				return this.uuid;
+			case "getName":
+				return "MemoryPlayer";
+			case "getLocation":
+				return this.location.clone();
+			case "getWorld":
+				return this.location.getWorld();
+			case "isOnline":
+			case "isValid":
+				return MemoryServer.isOnline((Player) proxy);
+			case "getInventory":
+				return inventory;
+			case "equals":
+				return proxy == args[0];
+			case "hashCode":
+				return this.uuid.hashCode();
+			case "toString":
+				return "MemoryPlayer";
+			default:
+				throw new UnsupportedOperationException(method.getName());
+			}
+		});
+	}
+	
+	/**
+	 * @return the player backed by this stand in
+	 */
+	public Player getPlayer() {
+		return this.player;
+	}
+	
+	/**
+	 * puts the given item into the given slot and holds it
+	 */
+	public void hold(final int slot, final ItemStack item) {
+		this.slots[slot] = item;
+		this.heldSlot = slot;
+	}
+	
+	/**
+	 * @return the amount of items similar to the given one in the inventory
+	 */
+	public int count(final ItemStack item) {
+		int count = 0;
+		for(final ItemStack slot: this.slots) {
+			if(slot != null && slot.isSimilar(item)) {
+				count += slot.getAmount();
+			}
+		}
+		return count;
+	}
+	
+	/**
+	 * adds the given items like a server does, filling similar stacks first and empty slots afterwards
+	 * @return the items that didn't fit, by the index of the item they are left of
+	 */
+	private HashMap<Integer, ItemStack> add(final ItemStack[] items) {
+		final HashMap<Integer, ItemStack> leftover = new HashMap<>();
+		for(int i = 0; i < items.length; i++) {
+			final ItemStack item = items[i];
+			int amount = item.getAmount();
+			for(int slot = 0; slot < MemoryPlayer.SLOTS && amount > 0; slot++) {
+				final ItemStack existing = this.slots[slot];
+				if(existing != null && existing.isSimilar(item)) {
+					final int moved = Math.min(amount, item.getMaxStackSize() - existing.getAmount());
+					if(moved > 0) {
+						existing.setAmount(existing.getAmount() + moved);
+						amount -= moved;
+					}
+				}
+			}
+			for(int slot = 0; slot < MemoryPlayer.SLOTS && amount > 0; slot++) {
+				if(this.slots[slot] == null) {
+					final ItemStack stack = item.clone();
+					stack.setAmount(Math.min(amount, item.getMaxStackSize()));
+					this.slots[slot] = stack;
+					amount -= stack.getAmount();
+				}
+			}
+			if(amount > 0) {
+				final ItemStack rest = item.clone();
+				rest.setAmount(amount);
+				leftover.put(i, rest);
+			}
+		}
+		return leftover;
+	}
+
+}
@@ -0,0 +1,264 @@
+package com.versuchdrei.lumberjack;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Logger;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Material;
+import org.bukkit.NamespacedKey;
+import org.bukkit.Server;
+import org.bukkit.enchantments.Enchantment;
+import org.bukkit.entity.Player;
+import org.bukkit.inventory.ItemFactory;
+import org.bukkit.inventory.meta.Damageable;
+import org.bukkit.inventory.meta.ItemMeta;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.plugin.PluginManager;
+
+import com.versuchdrei.lumberjack.utils.MaterialTag;
+
+/**
+ * a stand in for the server, so code reading tags or calling events runs without one, 
+ * the tags of logs and leaves go by the names of the materials, every other tag is empty, 
+ * events are called without any listener, every item can be damaged and only knows its damage, enchantments and whether it is unbreakable, 
+ * players are online from joining until they quit
+ * @author VersuchDrei
+ * @version 1.0
+ */
+public class MemoryServer {
+	
+	private static final String NAME = "Lumberjack";
+	
+	private static Plugin plugin;
+	private static final Map<UUID, Player> players = new ConcurrentHashMap<>();
+	
+	/**
+	 * the state of an item meta
+	 */
+	private static class Meta {
+		private int damage = 0;
+		private boolean unbreakable = false;
+		private final Map<Enchantment, Integer> enchants = new HashMap<>();
+		
+		private Meta copy() {
+			final Meta copy = new Meta();
+			copy.damage = this.damage;
+			copy.unbreakable = this.unbreakable;
+			copy.enchants.putAll(this.enchants);
+			return copy;
+		}
+		
+		@Override
+		public boolean equals(final Object other) {
+			return other instanceof Meta && ((Meta) other).damage == this.damage && ((Meta) other).unbreakable == this.unbreakable 
+					&& ((Meta) other).enchants.equals(this.enchants);
+		}
+		
+		@Override
+		public int hashCode() {
+			return this.damage * 31 + this.enchants.hashCode();
+		}
+	}
+	
+	/**
+	 * answers the calls of a meta from its state
+	 */
+	private static class MetaHandler implements InvocationHandler {
+		private final Meta state;
+		
+		private MetaHandler(final Meta state) {
+			this.state = state;
+		}
+		
+		@Override
+		public Object invoke(final Object proxy, final Method method, final Object[] args) {
+			switch(method.getName()) {
+			case "getDamage":
+				return this.state.damage;
+			case "setDamage":
+				this.state.damage = (int) args[0];
+				return null;
+			case "hasDamage":
+				return this.state.damage > 0;
+			case "isUnbreakable":
+				return this.state.unbreakable;
+			case "setUnbreakable":
+				this.state.unbreakable = (boolean) args[0];
+				return null;
+			case "getEnchantLevel":
+				return this.state.enchants.getOrDefault(args[0], 0);
+			case "hasEnchant":
+				return this.state.enchants.containsKey(args[0]);
+			case "addEnchant":
+				return this.state.enchants.put((Enchantment) args[0], (int) args[1]) == null;
+			case "clone":
+				return MemoryServer.meta(this.state.copy());
+			case "equals":
+				return args[0] instanceof ItemMeta && this.state.equals(MemoryServer.stateOf((ItemMeta) args[0]));
+			case "hashCode":
+				return this.state.hashCode();
+			case "toString":
+				return "MemoryMeta{damage=" + this.state.damage + "}";
+			default:
+				throw new UnsupportedOperationException(method.getName());
+			}
+		}
+	}
+	
+	private MemoryServer() {}
+	
+	/**
+	 * @return a plugin running on the stand in server, installing the server if there is none yet
+	 */
+	public static synchronized Plugin plugin() {
+		if(MemoryServer.plugin == null) {
+			MemoryServer.install();
+			MemoryServer.plugin = (Plugin) Proxy.newProxyInstance(Plugin.class.getClassLoader(), new Class<?>[] {Plugin.class}, (proxy, method, args) -> {
+				switch(method.getName()) {
+				case "getName":
+					return MemoryServer.NAME;
+				case "getServer":
+					return Bukkit.getServer();
+				case "getLogger":
+					return Logger.getLogger(MemoryServer.NAME);
+				case "isEnabled":
+					return true;
+				case "equals":
+					return proxy == args[0];
+				case "hashCode":
+					return System.identityHashCode(proxy);
+				case "toString":
+					return MemoryServer.NAME;
+				default:
+					throw new UnsupportedOperationException(method.getName());
+				}
+			});
+		}
+		return MemoryServer.plugin;
+	}
+	
+	/**
+	 * puts the given player online, until they quit
+	 */
+	public static void join(final Player player) {
+		MemoryServer.players.put(player.getUniqueId(), player);
+	}
+	
+	/**
+	 * takes the given player offline
+	 */
+	public static void quit(final Player player) {
+		MemoryServer.players.remove(player.getUniqueId());
+	}
+	
+	/**
+	 * @return true if the given player joined and didn't quit since
+	 */
+	public static boolean isOnline(final Player player) {
+		return MemoryServer.players.get(player.getUniqueId()) == player;
+	}
+	
+	/**
+	 * the server can only be set once, so a server set by another test is kept
+	 */
+	private static void install() {
+		if(Bukkit.getServer() != null) {
+			return;
+		}
+		
+		final PluginManager pluginManager = (PluginManager) Proxy.newProxyInstance(PluginManager.class.getClassLoader(), new Class<?>[] {PluginManager.class}, 
+				(proxy, method, args) -> {
+			switch(method.getName()) {
+			case "callEvent":
+				return null;
+			default:
+				throw new UnsupportedOperationException(method.getName());
+			}
+		});
+		final ItemFactory itemFactory = (ItemFactory) Proxy.newProxyInstance(ItemFactory.class.getClassLoader(), new Class<?>[] {ItemFactory.class}, 
+				(proxy, method, args) -> {
+			switch(method.getName()) {
+			case "getItemMeta":
+				return MemoryServer.meta(new Meta());
+			case "isApplicable":
+				return true;
+			case "asMetaFor":
+				return args[0];
+			case "equals":
+				// no meta at all is the same as an empty one
+				return MemoryServer.stateOf((ItemMeta) args[0]).equals(MemoryServer.stateOf((ItemMeta) args[1]));
+			default:
+				throw new UnsupportedOperationException(method.getName());
+			}
+		});
+		final Server server = (Server) Proxy.newProxyInstance(Server.class.getClassLoader(), new Class<?>[] {Server.class}, (proxy, method, args) -> {
+			switch(method.getName()) {
+			case "getTag":
+				return args[2] == Material.class? MemoryServer.tag((NamespacedKey) args[1]) : null;
+			case "getPluginManager":
+				return pluginManager;
+			case "getOnlinePlayers":
+				return MemoryServer.players.values();
+			case "getPlayer":
+				return MemoryServer.players.get(args[0]);
+			case "getItemFactory":
+				return itemFactory;
+			case "getLogger":
+				return Logger.getLogger("MemoryServer");
+			case "getName":
+				return "MemoryServer";
+			case "getVersion":
+			case "getBukkitVersion":
+				return "test";
+			case "equals":
+				return proxy == args[0];
+			case "hashCode":
+				return System.identityHashCode(proxy);
+			case "toString":
+				return "MemoryServer";
+			default:
+				throw new UnsupportedOperationException(method.getName());
+			}
+		});
+		Bukkit.setServer(server);
+	}
+	
+	private static MaterialTag tag(final NamespacedKey key) {
+		final EnumSet<Material> materials = EnumSet.noneOf(Material.class);
+		for(final Material material: Material.values()) {
+			final String name = material.name();
+			if(name.startsWith("LEGACY_")) {
+				continue;
+			}
+			if(key.getKey().equals("logs") && (name.endsWith("_LOG") || name.endsWith("_WOOD") || name.endsWith("_STEM") || name.endsWith("_HYPHAE"))
+					&& !name.equals("MUSHROOM_STEM")) {
+				materials.add(material);
+			} else if(key.getKey().equals("leaves") && name.endsWith("_LEAVES")) {
+				materials.add(material);
+			}
+		}
+		return new MaterialTag(key, materials);
+	}
+	
+	/**
+	 * @return the state of the given meta, or the state of an empty meta for null
+	 */
+	private static Meta stateOf(final ItemMeta meta) {
+		return meta == null? new Meta() : ((MetaHandler) Proxy.getInvocationHandler(meta)).state;
+	}
+	
+	/**
+	 * @return a meta reading and writing the given state
+	 */
+	private static Damageable meta(final Meta state) {
+		return (Damageable) Proxy.newProxyInstance(Damageable.class.getClassLoader(), new Class<?>[] {Damageable.class}, new MetaHandler(state));
+	}
+
+}
@@ -0,0 +1,118 @@
+package com.versuchdrei.lumberjack;
+
+import org.bukkit.Material;
+import org.bukkit.entity.Player;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.meta.Damageable;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.versuchdrei.lumberjack.scheduler.LocalTaskScheduler;
+import com.versuchdrei.lumberjack.world.ArrayBlockAccess;
+import com.versuchdrei.lumberjack.world.MemoryWorld;
+
+/**
+ * wears the tools of a player felling in a world that only exists in memory, 
+ * the tools have no unbreaking, so every felled block damages them
+ * @author VersuchDrei
+ * @version 1.0
+ */
+public class ToolWearTest {
+	
+	private final LocalTaskScheduler scheduler = new LocalTaskScheduler();
+	private final MemoryWorld world = new MemoryWorld(new ArrayBlockAccess(-16, 60, -16, 32, 16, 32));
+	private final MemoryPlayer memoryPlayer = new MemoryPlayer(this.world.getWorld(), 0.5, 64, 0.5);
+	private final Player player = this.memoryPlayer.getPlayer();
+	private final ToolWear wear = new ToolWear(MemoryServer.plugin(), this.scheduler);
+	
+	public ToolWearTest() {
+		MemoryServer.join(this.player);
+	}
+	
+	@After
+	public void quit() {
+		MemoryServer.quit(this.player);
+	}
+	
+	@Test
+	public void appliesTheWearOfATickAtOnce() {
+		this.memoryPlayer.hold(0, ToolWearTest.axe(0));
+		for(int i = 0; i < 5; i++) {
+			Assert.assertTrue(this.wear.wear(this.player));
+		}
+		Assert.assertEquals(0, damageOf(0));
+		
+		this.scheduler.tick();
+		Assert.assertEquals(5, damageOf(0));
+	}
+	
+	@Test
+	public void breaksTheToolAtTheBlockItsDurabilityRunsOut() {
+		this.memoryPlayer.hold(0, ToolWearTest.axe(Material.IRON_AXE.getMaxDurability() - 3));
+		Assert.assertTrue(this.wear.wear(this.player));
+		Assert.assertTrue(this.wear.wear(this.player));
+		Assert.assertFalse(this.wear.wear(this.player));
+		Assert.assertNull(this.player.getInventory().getItem(0));
+	}
+	
+	@Test
+	public void appliesTheWearOfTheOldToolWhenSwitching() {
+		this.memoryPlayer.hold(0, ToolWearTest.axe(0));
+		this.wear.wear(this.player);
+		this.wear.wear(this.player);
+		
+		this.memoryPlayer.hold(1, ToolWearTest.axe(0));
+		this.wear.wear(this.player);
+		Assert.assertEquals(2, damageOf(0));
+		Assert.assertEquals(0, damageOf(1));
+		
+		this.scheduler.tick();
+		Assert.assertEquals(1, damageOf(1));
+	}
+	
+	@Test
+	public void leavesUnbreakableToolsAlone() {
+		final ItemStack axe = ToolWearTest.axe(0);
+		final Damageable meta = (Damageable) axe.getItemMeta();
+		meta.setUnbreakable(true);
+		axe.setItemMeta(meta);
+		this.memoryPlayer.hold(0, axe);
+		
+		Assert.assertTrue(this.wear.wear(this.player));
+		this.scheduler.tick();
+		Assert.assertEquals(0, damageOf(0));
+	}
+	
+	@Test
+	public void appliesTheWearWhenThePlayerQuits() {
+		this.memoryPlayer.hold(0, ToolWearTest.axe(0));
+		this.wear.wear(this.player);
+		
+		// the quit handler flushes while the player is still online
+		this.wear.flush(this.player);
+		MemoryServer.quit(this.player);
+		Assert.assertEquals(1, damageOf(0));
+		this.scheduler.tick();
+		Assert.assertEquals(1, damageOf(0));
+	}
+	
+	/**
+	 * @return the damage of the tool in the given slot
+	 */
+	private int damageOf(final int slot) {
+		return ((Damageable) this.player.getInventory().getItem(slot).getItemMeta()).getDamage();
+	}
+	
+	/**
+	 * @return an iron axe with the given damage
+	 */
+	private static ItemStack axe(final int damage) {
+		final ItemStack axe = new ItemStack(Material.IRON_AXE, 1);
+		final Damageable meta = (Damageable) axe.getItemMeta();
+		meta.setDamage(damage);
+		axe.setItemMeta(meta);
+		return axe;
+	}
+
+}
@@ -0,0 +1,117 @@
+package com.versuchdrei.lumberjack;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.nio.file.Files;
+import java.util.logging.Logger;
+
+import org.bukkit.Material;
+import org.bukkit.entity.Player;
+import org.bukkit.plugin.Plugin;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.versuchdrei.lumberjack.scheduler.LocalTaskScheduler;
+import com.versuchdrei.lumberjack.utils.PositionUtils;
+import com.versuchdrei.lumberjack.world.ArrayBlockAccess;
+import com.versuchdrei.lumberjack.world.MemoryWorld;
+
+/**
+ * records breaks into a trace in a temporary folder and reads them back, 
+ * async tasks only run when the scheduler is ticked, so the test decides when a full buffer gets written
+ * @author VersuchDrei
+ * @version 1.0
+ */
+public class TraceRecorderTest {
+	
+	private static final String FILE_NAME = "trace.bin";
+	// enough records to fill the buffer more than twice
+	private static final int RECORDS = 2 * ((1 << 16) / TraceRecorder.RECORD_SIZE) + 100;
+	
+	private final File folder = TraceRecorderTest.createFolder();
+	private final MemoryWorld world = new MemoryWorld(new ArrayBlockAccess(0, 0, 0, 16, 16, 16));
+	private final Player player = new MemoryPlayer(this.world.getWorld(), 0, 0, 0).getPlayer();
+	private final LocalTaskScheduler scheduler = new LocalTaskScheduler();
+	private final TraceRecorder recorder = new TraceRecorder(TraceRecorderTest.plugin(this.folder), this.scheduler, TraceRecorderTest.FILE_NAME);
+	
+	@After
+	public void deleteFolder() {
+		final File file = new File(this.folder, TraceRecorderTest.FILE_NAME);
+		file.delete();
+		this.folder.delete();
+	}
+	
+	@Test
+	public void writesAFullBufferOnlyOnceAnAsyncTaskRuns() throws IOException {
+		this.recorder.start();
+		recordBreaks(TraceRecorderTest.RECORDS);
+		final File file = new File(this.folder, TraceRecorderTest.FILE_NAME);
+		// the first buffer was written when the second one was full, as no task picked it up, the second one waits for its task
+		final long beforeTick = file.length();
+		Assert.assertTrue(beforeTick > 0);
+		
+		this.scheduler.tick();
+		Assert.assertTrue(file.length() > beforeTick);
+		this.recorder.close();
+		assertRecordsInOrder(TraceRecorderTest.RECORDS);
+	}
+	
+	@Test
+	public void closingWritesWhatNoTaskPickedUp() throws IOException {
+		this.recorder.start();
+		recordBreaks(TraceRecorderTest.RECORDS);
+		
+		// the plugin is disabled before the scheduler runs the task writing the last full buffer
+		this.recorder.close();
+		assertRecordsInOrder(TraceRecorderTest.RECORDS);
+		// the task running late finds nothing left to write
+		this.scheduler.tick();
+		assertRecordsInOrder(TraceRecorderTest.RECORDS);
+	}
+	
+	private void recordBreaks(final int amount) {
+		for(int i = 0; i < amount; i++) {
+			this.recorder.recordBreak(this.player, this.world.getBlockAt(i & 15, (i >> 4) & 15, (i >> 8) & 15), Material.OAK_LOG, i, TraceRecorder.OUTCOME_FELLED);
+		}
+	}
+	
+	private void assertRecordsInOrder(final int amount) throws IOException {
+		try(final TraceReader reader = new TraceReader(new File(this.folder, TraceRecorderTest.FILE_NAME).toPath())) {
+			for(int i = 0; i < amount; i++) {
+				Assert.assertTrue(reader.next());
+				Assert.assertEquals(i, reader.getQueueSize());
+				Assert.assertEquals(PositionUtils.pack(i & 15, (i >> 4) & 15, (i >> 8) & 15), reader.getPosition());
+				Assert.assertEquals(Material.OAK_LOG, reader.getMaterial());
+			}
+			Assert.assertFalse(reader.next());
+		}
+	}
+	
+	private static File createFolder() {
+		try {
+			return Files.createTempDirectory("lumberjack").toFile();
+		} catch(final IOException e) {
+			throw new IllegalStateException("could not create a temporary folder", e);
+		}
+	}
+	
+	/**
+	 * @return a plugin keeping its files in the given folder
+	 */
+	private static Plugin plugin(final File folder) {
+		final Plugin server = MemoryServer.plugin();
+		return (Plugin) Proxy.newProxyInstance(Plugin.class.getClassLoader(), new Class<?>[] {Plugin.class}, (proxy, method, args) -> {
+			switch(method.getName()) {
+			case "getDataFolder":
+				return folder;
+			case "getLogger":
+				return Logger.getLogger(server.getName());
+			default:
+				return method.invoke(server, args);
+			}
+		});
+	}
+
+}
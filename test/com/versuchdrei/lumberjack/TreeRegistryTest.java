@@ -0,0 +1,152 @@
+package com.versuchdrei.lumberjack;
+
+import org.bukkit.Material;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.versuchdrei.lumberjack.utils.RegionMap;
+import com.versuchdrei.lumberjack.world.ArrayBlockAccess;
+import com.versuchdrei.lumberjack.world.MemoryWorld;
+
+/**
+ * registers trees scanned from a world that only exists in memory, 
+ * the trees stand along the x axis, so trees far apart fall into different regions
+ * @author VersuchDrei
+ * @version 1.0
+ */
+public class TreeRegistryTest {
+	
+	private static final int TTL_SECONDS = 300;
+	// the first block of the region next to the one at the origin
+	private static final int NEXT_REGION = 16 << RegionMap.REGION_SHIFT;
+	
+	private final ArrayBlockAccess grid = new ArrayBlockAccess(-32, 60, -16, 640, 16, 32);
+	private final MemoryWorld world = new MemoryWorld(this.grid);
+	private final TreeScanner scanner = new TreeScanner(1000, 32);
+	
+	@Test
+	public void evictsTheLeastRecentTreeOfAnyRegion() {
+		final TreeRegistry registry = new TreeRegistry(TreeRegistryTest.TTL_SECONDS, 10);
+		final Tree first = trunk(0, 6);
+		final Tree second = trunk(TreeRegistryTest.NEXT_REGION, 6);
+		registry.put(first);
+		registry.put(second);
+		
+		Assert.assertNull(registry.peek(this.world.getBlockAt(0, 62, 0)));
+		Assert.assertSame(second, registry.peek(this.world.getBlockAt(TreeRegistryTest.NEXT_REGION, 62, 0)));
+		Assert.assertEquals(6, registry.getLogs());
+	}
+	
+	@Test
+	public void keepsTheNewTreeEvenIfItIsTooBig() {
+		final TreeRegistry registry = new TreeRegistry(TreeRegistryTest.TTL_SECONDS, 4);
+		final Tree tree = trunk(0, 6);
+		registry.put(tree);
+		
+		Assert.assertSame(tree, registry.peek(this.world.getBlockAt(0, 65, 0)));
+		Assert.assertEquals(6, registry.getLogs());
+	}
+	
+	@Test
+	public void evictsTheTreeUsedLongestAgo() {
+		final TreeRegistry registry = new TreeRegistry(TreeRegistryTest.TTL_SECONDS, 12);
+		final Tree first = trunk(0, 6);
+		final Tree second = trunk(4, 6);
+		registry.put(first);
+		registry.put(second);
+		// the first tree is used again, so the second one is the one used longest ago
+		Assert.assertSame(first, registry.get(this.world.getBlockAt(0, 63, 0)));
+		
+		registry.put(trunk(8, 1));
+		Assert.assertSame(first, registry.peek(this.world.getBlockAt(0, 62, 0)));
+		Assert.assertNull(registry.peek(this.world.getBlockAt(4, 62, 0)));
+		Assert.assertEquals(2, registry.size());
+	}
+	
+	@Test
+	public void everyLogMapsToItsTreeAcrossRegions() {
+		final TreeRegistry registry = new TreeRegistry(TreeRegistryTest.TTL_SECONDS, 1000);
+		// a branch along the x axis crossing into the next region
+		for(int x = TreeRegistryTest.NEXT_REGION - 3; x < TreeRegistryTest.NEXT_REGION + 3; x++) {
+			this.grid.set(x, 67, 0, Material.OAK_LOG);
+		}
+		final Tree tree = trunk(TreeRegistryTest.NEXT_REGION - 3, 6);
+		registry.put(tree);
+		
+		Assert.assertSame(tree, registry.get(this.world.getBlockAt(TreeRegistryTest.NEXT_REGION + 2, 67, 0)));
+		Assert.assertEquals(1, registry.size());
+		Assert.assertEquals(11, registry.getLogs());
+		
+		registry.remove(tree);
+		Assert.assertNull(registry.peek(this.world.getBlockAt(TreeRegistryTest.NEXT_REGION + 2, 67, 0)));
+		Assert.assertEquals(0, registry.getLogs());
+	}
+	
+	@Test
+	public void removingALogKeepsTheRestOfTheTree() {
+		final TreeRegistry registry = new TreeRegistry(TreeRegistryTest.TTL_SECONDS, 1000);
+		final Tree tree = trunk(0, 6);
+		registry.put(tree);
+		
+		registry.removeLog(this.world.getBlockAt(0, 67, 0));
+		Assert.assertNull(registry.peek(this.world.getBlockAt(0, 67, 0)));
+		Assert.assertSame(tree, registry.peek(this.world.getBlockAt(0, 66, 0)));
+		Assert.assertEquals(5, registry.getLogs());
+	}
+	
+	@Test
+	public void invalidatesTreesNextToAChangedArea() {
+		final TreeRegistry registry = new TreeRegistry(TreeRegistryTest.TTL_SECONDS, 1000);
+		final Tree near = trunk(0, 6);
+		final Tree far = trunk(3, 6);
+		registry.put(near);
+		registry.put(far);
+		
+		// a block placed right next to the first trunk might connect to it
+		registry.invalidateArea(this.world.getWorld(), 1, 65, 0, 1, 65, 0);
+		Assert.assertNull(registry.peek(this.world.getBlockAt(0, 65, 0)));
+		Assert.assertSame(far, registry.peek(this.world.getBlockAt(3, 65, 0)));
+	}
+	
+	@Test
+	public void invalidatesTreesReachingIntoAnUnloadedChunk() {
+		final TreeRegistry registry = new TreeRegistry(TreeRegistryTest.TTL_SECONDS, 1000);
+		// a branch reaching from the chunk at the origin into the chunk next to it
+		for(int x = 13; x < 18; x++) {
+			this.grid.set(x, 67, 0, Material.OAK_LOG);
+		}
+		final Tree crossing = trunk(12, 6);
+		final Tree inside = trunk(2, 6);
+		registry.put(crossing);
+		registry.put(inside);
+		
+		registry.invalidateChunk(this.world.getWorld().getChunkAt(1, 0));
+		Assert.assertNull(registry.peek(this.world.getBlockAt(12, 62, 0)));
+		Assert.assertSame(inside, registry.peek(this.world.getBlockAt(2, 62, 0)));
+	}
+	
+	@Test
+	public void evictsTreesThatWerentUsedWithinTheirTimeToLive() throws InterruptedException {
+		final TreeRegistry registry = new TreeRegistry(0, 1000);
+		registry.put(trunk(0, 6));
+		// the time to live is measured in milliseconds
+		Thread.sleep(5);
+		
+		registry.evictExpired();
+		Assert.assertEquals(0, registry.size());
+		Assert.assertEquals(0, registry.getLogs());
+	}
+	
+	/**
+	 * @return the scanned tree of a column of logs standing on dirt at the given x coordinate, 
+	 * together with any logs already placed next to it
+	 */
+	private Tree trunk(final int x, final int height) {
+		this.grid.set(x, 61, 0, Material.DIRT);
+		for(int y = 62; y < 62 + height; y++) {
+			this.grid.set(x, y, 0, Material.OAK_LOG);
+		}
+		return this.scanner.scan(this.grid, this.world.getWorld(), x, 62, 0, material -> material == Material.OAK_LOG, null);
+	}
+
+}
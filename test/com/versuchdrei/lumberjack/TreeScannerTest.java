@@ -0,0 +1,257 @@
+package com.versuchdrei.lumberjack;
+
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.function.Predicate;
+
+import org.bukkit.Material;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.versuchdrei.lumberjack.utils.LongHashSet;
+import com.versuchdrei.lumberjack.utils.PositionUtils;
+import com.versuchdrei.lumberjack.world.ArrayBlockAccess;
+
+/**
+ * scans trees built into an in memory block access, 
+ * every fixture stands on a layer of dirt at y 63
+ * @author VersuchDrei
+ * @version 1.0
+ */
+public class TreeScannerTest {
+	
+	private static final int GROUND_Y = 63;
+	private static final int MAX_LOGS = 1000;
+	private static final int MAX_RADIUS = 32;
+	
+	private static final Predicate<Material> IS_OAK_LOG = material -> material == Material.OAK_LOG;
+	
+	@Test
+	public void scansTrunkAndDiagonalBranches() {
+		final ArrayBlockAccess grid = TreeScannerTest.ground();
+		TreeScannerTest.trunk(grid, 0, 0, 6);
+		// a branch only connected diagonally
+		grid.set(1, 69, 1, Material.OAK_LOG);
+		grid.set(2, 70, 2, Material.OAK_LOG);
+		
+		final Tree tree = TreeScannerTest.scanner(TreeShape.Pattern.FULL, 17, 32).scan(grid, null, 0, 64, 0, TreeScannerTest.IS_OAK_LOG, null);
+		Assert.assertNotNull(tree);
+		Assert.assertEquals(8, tree.getSize());
+		Assert.assertTrue(tree.getLogs().contains(PositionUtils.pack(2, 70, 2)));
+		Assert.assertEquals(0, tree.getMinX());
+		Assert.assertEquals(2, tree.getMaxX());
+	}
+	
+	@Test
+	public void orthogonalShapeOnlyFollowsFaces() {
+		final ArrayBlockAccess grid = TreeScannerTest.ground();
+		TreeScannerTest.trunk(grid, 0, 0, 6);
+		grid.set(1, 69, 1, Material.OAK_LOG);
+		grid.set(1, 68, 0, Material.OAK_LOG);
+		
+		final Tree tree = TreeScannerTest.scanner(TreeShape.Pattern.ORTHOGONAL, 17, 32).scan(grid, null, 0, 64, 0, TreeScannerTest.IS_OAK_LOG, null);
+		Assert.assertNotNull(tree);
+		Assert.assertEquals(7, tree.getSize());
+		Assert.assertFalse(tree.getLogs().contains(PositionUtils.pack(1, 69, 1)));
+		Assert.assertTrue(tree.getLogs().contains(PositionUtils.pack(1, 68, 0)));
+	}
+	
+	@Test
+	public void abortsTreesWiderThanTheirShape() {
+		final ArrayBlockAccess grid = TreeScannerTest.ground();
+		TreeScannerTest.trunk(grid, 0, 0, 6);
+		for(int x = 1; x <= 5; x++) {
+			grid.set(x, 69, 0, Material.OAK_LOG);
+		}
+		
+		Assert.assertNotNull(TreeScannerTest.scanner(TreeShape.Pattern.FULL, 6, 32).scan(grid, null, 0, 64, 0, TreeScannerTest.IS_OAK_LOG, null));
+		Assert.assertNull(TreeScannerTest.scanner(TreeShape.Pattern.FULL, 5, 32).scan(grid, null, 0, 64, 0, TreeScannerTest.IS_OAK_LOG, null));
+	}
+	
+	@Test
+	public void abortsTreesTallerThanTheirShape() {
+		final ArrayBlockAccess grid = TreeScannerTest.ground();
+		TreeScannerTest.trunk(grid, 0, 0, 10);
+		
+		Assert.assertNotNull(TreeScannerTest.scanner(TreeShape.Pattern.FULL, 17, 10).scan(grid, null, 0, 64, 0, TreeScannerTest.IS_OAK_LOG, null));
+		Assert.assertNull(TreeScannerTest.scanner(TreeShape.Pattern.FULL, 17, 9).scan(grid, null, 0, 64, 0, TreeScannerTest.IS_OAK_LOG, null));
+	}
+	
+	@Test
+	public void abortsTreesWithTooManyLogs() {
+		final ArrayBlockAccess grid = TreeScannerTest.ground();
+		TreeScannerTest.trunk(grid, 0, 0, 10);
+		
+		Assert.assertNull(new TreeScanner(9, TreeScannerTest.MAX_RADIUS).scan(grid, null, 0, 64, 0, TreeScannerTest.IS_OAK_LOG, null));
+		Assert.assertNotNull(new TreeScanner(10, TreeScannerTest.MAX_RADIUS).scan(grid, null, 0, 64, 0, TreeScannerTest.IS_OAK_LOG, null));
+	}
+	
+	@Test
+	public void stopsAtTheTrunkOfAnAdjacentTree() {
+		final ArrayBlockAccess grid = TreeScannerTest.ground();
+		TreeScannerTest.trunk(grid, 0, 0, 6);
+		TreeScannerTest.trunk(grid, 3, 0, 6);
+		// a branch joining the tops of both trunks
+		grid.set(1, 69, 0, Material.OAK_LOG);
+		grid.set(2, 69, 0, Material.OAK_LOG);
+		final TreeScanner scanner = TreeScannerTest.scanner(TreeShape.Pattern.FULL, 17, 32);
+		
+		final Tree left = scanner.scan(grid, null, 0, 64, 0, TreeScannerTest.IS_OAK_LOG, null);
+		Assert.assertNotNull(left);
+		Assert.assertEquals(8, left.getSize());
+		Assert.assertEquals(0, left.getMinX());
+		Assert.assertEquals(2, left.getMaxX());
+		
+		final Tree right = scanner.scan(grid, null, 3, 66, 0, TreeScannerTest.IS_OAK_LOG, null);
+		Assert.assertNotNull(right);
+		Assert.assertEquals(8, right.getSize());
+		Assert.assertEquals(1, right.getMinX());
+		Assert.assertEquals(3, right.getMaxX());
+	}
+	
+	@Test
+	public void adjacentTrunksDontExceedTheShape() {
+		final ArrayBlockAccess grid = TreeScannerTest.ground();
+		// two straight trunks sharing a face, each one block wide
+		TreeScannerTest.trunk(grid, 0, 0, 6);
+		TreeScannerTest.trunk(grid, 1, 0, 6);
+		final TreeScanner scanner = TreeScannerTest.scanner(TreeShape.Pattern.ORTHOGONAL, 1, 32);
+		
+		final Tree left = scanner.scan(grid, null, 0, 64, 0, TreeScannerTest.IS_OAK_LOG, null);
+		Assert.assertNotNull(left);
+		Assert.assertEquals(6, left.getSize());
+		Assert.assertEquals(0, left.getMaxX());
+		
+		final Tree right = scanner.scan(grid, null, 1, 64, 0, TreeScannerTest.IS_OAK_LOG, null);
+		Assert.assertNotNull(right);
+		Assert.assertEquals(6, right.getSize());
+		Assert.assertEquals(1, right.getMinX());
+	}
+	
+	@Test
+	public void branchJoinedTreesDontExceedTheShape() {
+		final ArrayBlockAccess grid = TreeScannerTest.ground();
+		TreeScannerTest.trunk(grid, 0, 0, 6);
+		TreeScannerTest.trunk(grid, 9, 0, 6);
+		// both trees together are 10 blocks wide, each one on its own only 9
+		for(int x = 1; x <= 8; x++) {
+			grid.set(x, 69, 0, Material.OAK_LOG);
+		}
+		final TreeScanner scanner = TreeScannerTest.scanner(TreeShape.Pattern.FULL, 9, 32);
+		
+		final Tree left = scanner.scan(grid, null, 0, 64, 0, TreeScannerTest.IS_OAK_LOG, null);
+		Assert.assertNotNull(left);
+		Assert.assertEquals(14, left.getSize());
+		Assert.assertEquals(8, left.getMaxX());
+		
+		final Tree right = scanner.scan(grid, null, 9, 64, 0, TreeScannerTest.IS_OAK_LOG, null);
+		Assert.assertNotNull(right);
+		Assert.assertEquals(14, right.getSize());
+		Assert.assertEquals(1, right.getMinX());
+	}
+	
+	@Test
+	public void stopsAtUnloadedChunks() {
+		final ArrayBlockAccess grid = new ArrayBlockAccess(-32, TreeScannerTest.GROUND_Y, -32, 64, 32, 64) {
+			@Override
+			public boolean isChunkLoaded(final int chunkX, final int chunkZ) {
+				return chunkX == 0 && chunkZ == 0;
+			}
+		};
+		TreeScannerTest.trunk(grid, 1, 1, 6);
+		// a branch reaching into the chunk next to it
+		grid.set(0, 69, 1, Material.OAK_LOG);
+		grid.set(-1, 69, 1, Material.OAK_LOG);
+		
+		final long[] unloadedChunk = {0};
+		final boolean[] unloaded = {false};
+		final Tree tree = new TreeScanner(TreeScannerTest.MAX_LOGS, TreeScannerTest.MAX_RADIUS).scan(grid, null, 1, 64, 1, TreeScannerTest.IS_OAK_LOG, chunk -> {
+			unloaded[0] = true;
+			unloadedChunk[0] = chunk;
+		});
+		Assert.assertNull(tree);
+		Assert.assertTrue(unloaded[0]);
+		Assert.assertEquals(-1, PositionUtils.unpackChunkX(unloadedChunk[0]));
+		Assert.assertEquals(0, PositionUtils.unpackChunkZ(unloadedChunk[0]));
+	}
+	
+	@Test
+	public void resumesWhereItStoppedOnceTheChunkIsLoaded() {
+		final LongHashSet loaded = new LongHashSet();
+		loaded.add(PositionUtils.packChunk(0, 0));
+		final int[] reads = {0};
+		final ArrayBlockAccess grid = new ArrayBlockAccess(-32, TreeScannerTest.GROUND_Y, -32, 64, 32, 64) {
+			@Override
+			public Material getType(final int x, final int y, final int z) {
+				reads[0]++;
+				return super.getType(x, y, z);
+			}
+			
+			@Override
+			public boolean isChunkLoaded(final int chunkX, final int chunkZ) {
+				return loaded.contains(PositionUtils.packChunk(chunkX, chunkZ));
+			}
+		};
+		TreeScannerTest.trunk(grid, 1, 1, 6);
+		// branches reaching into the chunks next to it
+		grid.set(0, 69, 1, Material.OAK_LOG);
+		grid.set(-1, 69, 1, Material.OAK_LOG);
+		grid.set(-2, 70, 1, Material.OAK_LOG);
+		grid.set(1, 68, 0, Material.OAK_LOG);
+		grid.set(1, 68, -1, Material.OAK_LOG);
+		final TreeScanner scanner = new TreeScanner(TreeScannerTest.MAX_LOGS, TreeScannerTest.MAX_RADIUS);
+		
+		final TreeScanner.ResumableScan scan = scanner.resumable(grid, null, 1, 64, 1, TreeScannerTest.IS_OAK_LOG);
+		int pauses = 0;
+		while(!scan.run()) {
+			Assert.assertNull(scan.getTree());
+			loaded.add(scan.getPausedAt());
+			pauses++;
+		}
+		final Tree tree = scan.getTree();
+		Assert.assertNotNull(tree);
+		Assert.assertEquals(2, pauses);
+		Assert.assertEquals(11, tree.getSize());
+		Assert.assertTrue(tree.getLogs().contains(PositionUtils.pack(-2, 70, 1)));
+		Assert.assertTrue(tree.getLogs().contains(PositionUtils.pack(1, 68, -1)));
+		
+		// only the neighbors of the log each pause happened at are read again, instead of the whole tree
+		final int resumedReads = reads[0];
+		reads[0] = 0;
+		Assert.assertEquals(11, scanner.scan(grid, null, 1, 64, 1, TreeScannerTest.IS_OAK_LOG, null).getSize());
+		Assert.assertTrue(resumedReads <= reads[0] + pauses * 26);
+	}
+	
+	/**
+	 * @return a scanner giving oak logs the given shape, trunks stand on dirt and are one block wide
+	 */
+	private static TreeScanner scanner(final TreeShape.Pattern pattern, final int width, final int height) {
+		final Map<Material, TreeShape> shapes = new EnumMap<>(Material.class);
+		shapes.put(Material.OAK_LOG, new TreeShape("oak", pattern, width, height, 1, EnumSet.of(Material.DIRT)));
+		return new TreeScanner(TreeScannerTest.MAX_LOGS, TreeScannerTest.MAX_RADIUS, TreeShapes.of(shapes));
+	}
+	
+	/**
+	 * @return an empty box with a layer of dirt as its floor
+	 */
+	private static ArrayBlockAccess ground() {
+		final ArrayBlockAccess grid = new ArrayBlockAccess(-32, TreeScannerTest.GROUND_Y, -32, 64, 32, 64);
+		for(int x = -32; x < 32; x++) {
+			for(int z = -32; z < 32; z++) {
+				grid.set(x, TreeScannerTest.GROUND_Y, z, Material.DIRT);
+			}
+		}
+		return grid;
+	}
+	
+	/**
+	 * builds a column of oak logs standing on the ground
+	 */
+	private static void trunk(final ArrayBlockAccess grid, final int x, final int z, final int height) {
+		for(int y = 1; y <= height; y++) {
+			grid.set(x, TreeScannerTest.GROUND_Y + y, z, Material.OAK_LOG);
+		}
+	}
+
+}
@@ -0,0 +1,52 @@
+package com.versuchdrei.lumberjack;
+
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * releases deferred work through a governor whose budget is renewed by hand instead of every tick
+ * @author VersuchDrei
+ * @version 1.0
+ */
+public class WorkGovernorTest {
+	
+	private static final UUID FIRST = new UUID(0, 1);
+	private static final UUID SECOND = new UUID(0, 2);
+	
+	@Test
+	public void releasesOnlyAsMuchWorkAsTheBudgetReserves() {
+		final WorkGovernor governor = new WorkGovernor(null, null, new Metrics(), 3, 0, 50);
+		final AtomicInteger released = new AtomicInteger();
+		// like a deferred chop the work only posts itself to another thread and charges nothing here
+		for(int i = 0; i < 10; i++) {
+			governor.defer(WorkGovernor.SERVER, released::incrementAndGet);
+		}
+		
+		governor.run();
+		Assert.assertEquals(3, released.get());
+		Assert.assertEquals(7, governor.getDeferred());
+		Assert.assertFalse(governor.hasBudget());
+		
+		governor.run();
+		Assert.assertEquals(6, released.get());
+	}
+	
+	@Test
+	public void ownersTakeTurns() {
+		final WorkGovernor governor = new WorkGovernor(null, null, new Metrics(), 2, 0, 50);
+		final StringBuilder order = new StringBuilder();
+		governor.defer(WorkGovernorTest.FIRST, () -> order.append('a'));
+		governor.defer(WorkGovernorTest.FIRST, () -> order.append('a'));
+		governor.defer(WorkGovernorTest.FIRST, () -> order.append('a'));
+		governor.defer(WorkGovernorTest.SECOND, () -> order.append('b'));
+		
+		governor.run();
+		Assert.assertEquals("ab", order.toString());
+		governor.run();
+		Assert.assertEquals("abaa", order.toString());
+	}
+	
+}
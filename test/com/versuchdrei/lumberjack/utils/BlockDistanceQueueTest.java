@@ -0,0 +1,84 @@
+package com.versuchdrei.lumberjack.utils;
+
+import java.util.NoSuchElementException;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * polls packed positions from queues without a world, 
+ * the positions stand in for the order they were added in
+ * @author VersuchDrei
+ * @version 1.0
+ */
+public class BlockDistanceQueueTest {
+	
+	@Test
+	public void pollsTheFurthestBlockFirst() {
+		final BlockDistanceQueue queue = new BlockDistanceQueue(null);
+		queue.add(1, 4);
+		queue.add(2, 9);
+		queue.add(3, 1);
+		
+		Assert.assertEquals(2, queue.pollPosition());
+		Assert.assertEquals(1, queue.pollPosition());
+		Assert.assertEquals(3, queue.pollPosition());
+	}
+	
+	@Test
+	public void pollsBlocksWithTheSameDistanceInTheOrderTheyWereAdded() {
+		final BlockDistanceQueue queue = new BlockDistanceQueue(null);
+		// more than the initial capacity, mixed with blocks further away, so the heap is rearranged a lot
+		for(int i = 0; i < 100; i++) {
+			queue.add(i, i % 3 == 0? 16 : 9);
+		}
+		
+		long previous = -1;
+		for(int i = 0; i < 34; i++) {
+			final long position = queue.pollPosition();
+			Assert.assertTrue(position % 3 == 0 && position > previous);
+			previous = position;
+		}
+		previous = -1;
+		while(!queue.isEmpty()) {
+			final long position = queue.pollPosition();
+			Assert.assertTrue(position % 3 != 0 && position > previous);
+			previous = position;
+		}
+	}
+	
+	@Test
+	public void knowsWhenOnlyTheLastBlockIsLeft() {
+		final BlockDistanceQueue queue = new BlockDistanceQueue(null);
+		Assert.assertTrue(queue.isLast());
+		queue.add(1, 1);
+		Assert.assertTrue(queue.isLast());
+		queue.add(2, 1);
+		Assert.assertFalse(queue.isLast());
+		
+		queue.pollPosition();
+		Assert.assertTrue(queue.isLast());
+		Assert.assertFalse(queue.isEmpty());
+	}
+	
+	@Test
+	public void pollingAnEmptyQueueLeavesItIntact() {
+		final BlockDistanceQueue queue = new BlockDistanceQueue(null);
+		queue.add(1, 1);
+		queue.pollPosition();
+		try {
+			queue.pollPosition();
+			Assert.fail();
+		} catch(final NoSuchElementException e) {
+			// expected
+		}
+		
+		Assert.assertEquals(0, queue.size());
+		queue.add(2, 4);
+		queue.add(3, 9);
+		Assert.assertEquals(2, queue.size());
+		Assert.assertEquals(3, queue.pollPosition());
+		Assert.assertEquals(2, queue.pollPosition());
+	}
+
+}
@@ -0,0 +1,106 @@
+package com.versuchdrei.lumberjack.utils;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * adds and removes keys of sets that stay at their initial table of 32 slots, 
+ * so the keys collide and their clusters wrap around the end of the table
+ * @author VersuchDrei
+ * @version 1.0
+ */
+public class LongHashSetTest {
+	
+	// the amount of slots of a set created with the default capacity
+	private static final int SLOTS = 32;
+	
+	@Test
+	public void keepsTheZeroKeyApart() {
+		final LongHashSet set = new LongHashSet();
+		Assert.assertTrue(set.add(0));
+		Assert.assertFalse(set.add(0));
+		Assert.assertTrue(set.contains(0));
+		Assert.assertEquals(1, set.size());
+		Assert.assertTrue(set.remove(0));
+		Assert.assertFalse(set.contains(0));
+		Assert.assertTrue(set.isEmpty());
+	}
+	
+	@Test
+	public void removesFromAClusterWrappingAroundTheTable() {
+		// keys that all belong into the last slot, so all but the first wrap around to the start of the table
+		final long[] keys = LongHashSetTest.keysForSlot(LongHashSetTest.SLOTS - 1, 4);
+		// a key belonging into the first slot, which the wrapped keys have taken already
+		final long first = LongHashSetTest.keysForSlot(0, 1)[0];
+		final LongHashSet set = new LongHashSet();
+		for(final long key: keys) {
+			Assert.assertTrue(set.add(key));
+		}
+		Assert.assertTrue(set.add(first));
+		
+		// removing the key in the last slot has to move the wrapped keys back across the end of the table
+		Assert.assertTrue(set.remove(keys[0]));
+		Assert.assertFalse(set.contains(keys[0]));
+		for(int i = 1; i < keys.length; i++) {
+			Assert.assertTrue(set.contains(keys[i]));
+		}
+		Assert.assertTrue(set.contains(first));
+		
+		Assert.assertTrue(set.remove(keys[2]));
+		Assert.assertTrue(set.add(keys[0]));
+		Assert.assertTrue(set.add(keys[2]));
+		Assert.assertFalse(set.add(keys[3]));
+		for(final long key: keys) {
+			Assert.assertTrue(set.contains(key));
+		}
+		Assert.assertTrue(set.contains(first));
+		Assert.assertEquals(5, set.size());
+	}
+	
+	@Test
+	public void behavesLikeASetWhileKeysComeAndGo() {
+		final Random random = new Random(42);
+		final LongHashSet set = new LongHashSet();
+		final Set<Long> expected = new HashSet<>();
+		for(int i = 0; i < 10_000; i++) {
+			// few different keys, so the set keeps its size and keys are removed and added again all the time
+			final long key = random.nextInt(24);
+			if(random.nextBoolean()) {
+				Assert.assertEquals(expected.add(key), set.add(key));
+			} else {
+				Assert.assertEquals(expected.remove(key), set.remove(key));
+			}
+			Assert.assertEquals(expected.size(), set.size());
+		}
+		
+		for(long key = 0; key < 24; key++) {
+			Assert.assertEquals(expected.contains(key), set.contains(key));
+		}
+		final List<Long> visited = new ArrayList<>();
+		set.forEach(visited::add);
+		Assert.assertEquals(expected, new HashSet<>(visited));
+		Assert.assertEquals(expected.size(), visited.size());
+	}
+	
+	/**
+	 * @return the given amount of keys that hash into the given slot of a table of SLOTS slots, by the hash the set uses
+	 */
+	private static long[] keysForSlot(final int slot, final int amount) {
+		final long[] keys = new long[amount];
+		int found = 0;
+		for(long key = 1; found < amount; key++) {
+			final long h = key * 0x9E3779B97F4A7C15L;
+			if(((int) (h ^ (h >>> 32)) & (LongHashSetTest.SLOTS - 1)) == slot) {
+				keys[found++] = key;
+			}
+		}
+		return keys;
+	}
+
+}
@@ -0,0 +1,222 @@
+package com.versuchdrei.lumberjack.world;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import org.bukkit.Chunk;
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.NamespacedKey;
+import org.bukkit.World;
+import org.bukkit.block.Block;
+import org.bukkit.block.data.BlockData;
+import org.bukkit.block.data.type.Leaves;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.persistence.PersistentDataContainer;
+
+import com.versuchdrei.lumberjack.utils.LongHashSet;
+import com.versuchdrei.lumberjack.utils.LongObjectHashMap;
+import com.versuchdrei.lumberjack.utils.PositionUtils;
+
+/**
+ * a stand in for a world without a server behind it that reads and writes its blocks from an in memory block access, 
+ * every chunk is loaded unless it was unloaded on purpose and keeps its persistent data in memory, 
+ * breaking a block naturally turns it into air without any drops, dropped items are only remembered, anything else is unsupported
+ * @author VersuchDrei
+ * @version 1.0
+ */
+public class MemoryWorld {
+	
+	private final ArrayBlockAccess grid;
+	private final UUID uid = UUID.randomUUID();
+	private final LongObjectHashMap<Chunk> chunks = new LongObjectHashMap<>();
+	private final LongHashSet unloaded = new LongHashSet();
+	private final List<ItemStack> drops = new ArrayList<>();
+	private final World world;
+	
+	/**
+	 * @param grid the blocks of the world, everything outside it is air
+	 */
+	public MemoryWorld(final ArrayBlockAccess grid) {
+		this.grid = grid;
+		this.world = (World) Proxy.newProxyInstance(World.class.getClassLoader(), new Class<?>[] {World.class}, (proxy, method, args) -> {
+			switch(method.getName()) {
+			case "getUID":
+				return this.uid;
+			case "getName":
+				return "MemoryWorld";
+			case "isChunkLoaded":
+				return isChunkLoaded((int) args[0], (int) args[1]);
+			case "getBlockAt":
+				return block((int) args[0], (int) args[1], (int) args[2]);
+			case "getChunkAt":
+				return chunk((int) args[0], (int) args[1]);
+			case "dropItemNaturally":
+				this.drops.add((ItemStack) args[1]);
+				return null;
+			case "equals":
+				return proxy == args[0];
+			case "hashCode":
+				return System.identityHashCode(proxy);
+			case "toString":
+				return "MemoryWorld";
+			default:
+				throw new UnsupportedOperationException(method.getName());
+			}
+		});
+	}
+	
+	/**
+	 * @return the world reading from the grid
+	 */
+	public World getWorld() {
+		return this.world;
+	}
+	
+	/**
+	 * @return the block at the given position
+	 */
+	public Block getBlockAt(final int x, final int y, final int z) {
+		return block(x, y, z);
+	}
+	
+	/**
+	 * @return the items dropped into the world, in the order they were dropped
+	 */
+	public List<ItemStack> getDrops() {
+		return this.drops;
+	}
+	
+	/**
+	 * unloads the given chunk, it keeps its blocks and persistent data but reports itself as not loaded
+	 */
+	public void unload(final int chunkX, final int chunkZ) {
+		this.unloaded.add(PositionUtils.packChunk(chunkX, chunkZ));
+	}
+	
+	private boolean isChunkLoaded(final int chunkX, final int chunkZ) {
+		return !this.unloaded.contains(PositionUtils.packChunk(chunkX, chunkZ));
+	}
+	
+	private Block block(final int x, final int y, final int z) {
+		return (Block) Proxy.newProxyInstance(Block.class.getClassLoader(), new Class<?>[] {Block.class}, (proxy, method, args) -> {
+			switch(method.getName()) {
+			case "getType":
+				return this.grid.getType(x, y, z);
+			case "setType":
+				this.grid.set(x, y, z, (Material) args[0]);
+				return null;
+			case "breakNaturally":
+				this.grid.set(x, y, z, Material.AIR);
+				return true;
+			case "getBlockData":
+				return blockData(x, y, z);
+			case "getX":
+				return x;
+			case "getY":
+				return y;
+			case "getZ":
+				return z;
+			case "getWorld":
+				return this.world;
+			case "getChunk":
+				return chunk(x >> 4, z >> 4);
+			case "getLocation":
+				return new Location(this.world, x, y, z);
+			case "equals":
+				return args[0] instanceof Block && ((Block) args[0]).getWorld() == this.world
+						&& ((Block) args[0]).getX() == x && ((Block) args[0]).getY() == y && ((Block) args[0]).getZ() == z;
+			case "hashCode":
+				return Long.hashCode(PositionUtils.pack(x, y, z));
+			case "toString":
+				return "MemoryBlock{" + x + ", " + y + ", " + z + "}";
+			default:
+				throw new UnsupportedOperationException(method.getName());
+			}
+		});
+	}
+	
+	/**
+	 * @return leaves that can decay with the distance of the grid, or data that only knows its material for everything else
+	 */
+	private BlockData blockData(final int x, final int y, final int z) {
+		final Material type = this.grid.getType(x, y, z);
+		final int distance = this.grid.getLeafDistance(x, y, z);
+		final Class<?> dataClass = distance == BlockAccess.NOT_DECAYABLE? BlockData.class : Leaves.class;
+		return (BlockData) Proxy.newProxyInstance(BlockData.class.getClassLoader(), new Class<?>[] {dataClass}, (proxy, method, args) -> {
+			switch(method.getName()) {
+			case "getMaterial":
+				return type;
+			case "getDistance":
+				return distance;
+			case "isPersistent":
+				return false;
+			default:
+				throw new UnsupportedOperationException(method.getName());
+			}
+		});
+	}
+	
+	private Chunk chunk(final int chunkX, final int chunkZ) {
+		final long key = PositionUtils.packChunk(chunkX, chunkZ);
+		Chunk chunk = this.chunks.get(key);
+		if(chunk == null) {
+			final PersistentDataContainer container = container();
+			chunk = (Chunk) Proxy.newProxyInstance(Chunk.class.getClassLoader(), new Class<?>[] {Chunk.class}, (proxy, method, args) -> {
+				switch(method.getName()) {
+				case "getX":
+					return chunkX;
+				case "getZ":
+					return chunkZ;
+				case "getWorld":
+					return this.world;
+				case "isLoaded":
+					return isChunkLoaded(chunkX, chunkZ);
+				case "getPersistentDataContainer":
+					return container;
+				case "equals":
+					return proxy == args[0];
+				case "hashCode":
+					return System.identityHashCode(proxy);
+				case "toString":
+					return "MemoryChunk{" + chunkX + ", " + chunkZ + "}";
+				default:
+					throw new UnsupportedOperationException(method.getName());
+				}
+			});
+			this.chunks.put(key, chunk);
+		}
+		return chunk;
+	}
+	
+	/**
+	 * @return persistent data that keeps its values in memory as they are
+	 */
+	private static PersistentDataContainer container() {
+		final Map<NamespacedKey, Object> values = new HashMap<>();
+		return (PersistentDataContainer) Proxy.newProxyInstance(PersistentDataContainer.class.getClassLoader(), new Class<?>[] {PersistentDataContainer.class}, 
+				(proxy, method, args) -> {
+			switch(method.getName()) {
+			case "get":
+				return values.get(args[0]);
+			case "has":
+				return values.containsKey(args[0]);
+			case "set":
+				values.put((NamespacedKey) args[0], args[2]);
+				return null;
+			case "remove":
+				values.remove(args[0]);
+				return null;
+			case "isEmpty":
+				return values.isEmpty();
+			default:
+				throw new UnsupportedOperationException(method.getName());
+			}
+		});
+	}
+
+}